@@ -0,0 +1,159 @@
+package com.applozic.mobicomkit;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.ConversationLocks;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Mixed read and delivery-receipt traffic against the message table, with receipts guarded by {@link ConversationLocks}.
+ *
+ * <p>Checks that no two threads are ever inside the lock of the same message key at once. Throughput is logged under the "ConversationLocksStress" tag.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConversationLocksStressTest {
+    private static final String TAG = "ConversationLocksStress";
+    private static final int CONVERSATIONS = 20;
+    private static final int MESSAGES_PER_CONVERSATION = 25;
+    private static final int THREADS_PER_KIND = 4;
+    private static final int OPERATIONS_PER_THREAD = 500;
+
+    MobiComDatabaseHelper dbHelper;
+    MessageDatabaseService messageDatabaseService;
+    List<String> messageKeys;
+    Map<String, AtomicInteger> lockHolders;
+
+    @Before
+    public void setup() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbHelper = new MobiComDatabaseHelper(context, null, null, MobiComDatabaseHelper.DB_VERSION);
+        messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+        messageKeys = new ArrayList<>();
+        lockHolders = new HashMap<>();
+
+        long createdAt = System.currentTimeMillis();
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            for (int m = 0; m < MESSAGES_PER_CONVERSATION; m++) {
+                Message message = new Message();
+                message.setKeyString("key-" + c + "-" + m);
+                message.setTo("user" + c);
+                message.setContactIds("user" + c);
+                message.setMessage("message " + m);
+                message.setCreatedAtTime(createdAt++);
+                message.setType(Message.MessageType.MT_OUTBOX.getValue());
+                message.setSentToServer(true);
+                message.setStoreOnDevice(true);
+                messageDatabaseService.createMessage(message);
+                messageKeys.add(message.getKeyString());
+                lockHolders.put(message.getKeyString(), new AtomicInteger());
+            }
+        }
+    }
+
+    @After
+    public void closeDb() {
+        dbHelper.delDatabase();
+        dbHelper.close();
+    }
+
+    @Test
+    public void mixedReadAndDeliveryReceiptTraffic() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS_PER_KIND * 2);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREADS_PER_KIND * 2);
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger receipts = new AtomicInteger();
+        final AtomicInteger exclusionViolations = new AtomicInteger();
+
+        for (int t = 0; t < THREADS_PER_KIND; t++) {
+            final Random random = new Random(t);
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            messageDatabaseService.getMessage(messageKeys.get(random.nextInt(messageKeys.size())));
+                            reads.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            });
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            String key = messageKeys.get(random.nextInt(messageKeys.size()));
+                            ReentrantLock messageLock = ConversationLocks.forMessageKey(key);
+                            AtomicInteger holders = lockHolders.get(key);
+                            messageLock.lock();
+                            try {
+                                if (holders.incrementAndGet() != 1) {
+                                    exclusionViolations.incrementAndGet();
+                                }
+                                messageDatabaseService.updateMessageDeliveryReportForContact(key, null, i % 2 == 0);
+                            } finally {
+                                holders.decrementAndGet();
+                                messageLock.unlock();
+                            }
+                            receipts.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        startLatch.countDown();
+        assertThat(doneLatch.await(60, TimeUnit.SECONDS)).isTrue();
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        executorService.shutdown();
+
+        int totalOperations = reads.get() + receipts.get();
+        Log.i(TAG, "reads: " + reads.get() + ", receipts: " + receipts.get() + ", elapsed: " + elapsedMillis + "ms, throughput: " + (totalOperations * 1000L / elapsedMillis) + " ops/s");
+
+        assertThat(reads.get()).isEqualTo(THREADS_PER_KIND * OPERATIONS_PER_THREAD);
+        assertThat(receipts.get()).isEqualTo(THREADS_PER_KIND * OPERATIONS_PER_THREAD);
+        assertThat(exclusionViolations.get()).isEqualTo(0);
+
+        for (String key : messageKeys) {
+            messageDatabaseService.updateMessageDeliveryReportForContact(key, null, true);
+            assertThat((int) messageDatabaseService.getMessage(key).getStatus()).isEqualTo(Message.Status.DELIVERED_AND_READ.getValue().intValue());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.applozic.mobicomkit.api;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlMqttReconnectManagerTest {
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    @Test
+    public void getBackoffDelayMillis_isBetweenHalfAndAllOfTheExponentialDelay() {
+        Random random = new Random(42);
+        for (int failedAttempts = 0; failedAttempts < 10; failedAttempts++) {
+            long delay = INITIAL_BACKOFF_MILLIS << failedAttempts;
+            if (delay > MAX_BACKOFF_MILLIS) {
+                break;
+            }
+            assertThat(AlMqttReconnectManager.getBackoffDelayMillis(failedAttempts, new FixedRandom(0))).isEqualTo(delay / 2);
+            assertThat(AlMqttReconnectManager.getBackoffDelayMillis(failedAttempts, new FixedRandom(0.999999))).isAtMost(delay);
+            for (int i = 0; i < 100; i++) {
+                long jitteredDelay = AlMqttReconnectManager.getBackoffDelayMillis(failedAttempts, random);
+                assertThat(jitteredDelay).isAtLeast(delay / 2);
+                assertThat(jitteredDelay).isAtMost(delay);
+            }
+        }
+    }
+
+    @Test
+    public void getBackoffDelayMillis_isCapped() {
+        Random random = new Random(42);
+        for (int failedAttempts : new int[]{9, 20, 21, 31, 64, Integer.MAX_VALUE}) {
+            assertThat(AlMqttReconnectManager.getBackoffDelayMillis(failedAttempts, new FixedRandom(0))).isEqualTo(MAX_BACKOFF_MILLIS / 2);
+            for (int i = 0; i < 100; i++) {
+                long delay = AlMqttReconnectManager.getBackoffDelayMillis(failedAttempts, random);
+                assertThat(delay).isAtLeast(MAX_BACKOFF_MILLIS / 2);
+                assertThat(delay).isAtMost(MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private static class FixedRandom extends Random {
+        private final double value;
+
+        FixedRandom(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+}
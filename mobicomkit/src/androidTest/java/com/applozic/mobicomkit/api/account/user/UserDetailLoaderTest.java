@@ -0,0 +1,129 @@
+package com.applozic.mobicomkit.api.account.user;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class UserDetailLoaderTest {
+
+    @Test
+    public void load_waitsForTheInFlightFetchWithTheSameApi() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fetchesStarted = new CountDownLatch(2);
+        final List<String> fetches = Collections.synchronizedList(new ArrayList<String>());
+        final UserDetailLoader userDetailLoader = new UserDetailLoader(new UserDetailLoader.BatchFetcher() {
+            @Override
+            public @Nullable List<UserDetail> fetch(@NonNull Set<String> userIds, boolean contactSync) {
+                fetches.add(new TreeSet<>(userIds) + " " + contactSync);
+                fetchesStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return createUserDetails(userIds);
+            }
+        }, 2);
+
+        final List<UserDetail> firstUserDetails = new ArrayList<>();
+        final List<UserDetail> secondUserDetails = new ArrayList<>();
+        final List<UserDetail> contactSyncUserDetails = new ArrayList<>();
+        Thread first = load(userDetailLoader, new HashSet<>(Arrays.asList("user1", "user2")), false, firstUserDetails);
+        waitUntilBlocked(first);
+        Thread second = load(userDetailLoader, Collections.singleton("user1"), false, secondUserDetails);
+        waitUntilBlocked(second);
+        Thread contactSync = load(userDetailLoader, Collections.singleton("user1"), true, contactSyncUserDetails);
+
+        assertThat(fetchesStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+        contactSync.join(5000);
+
+        assertThat(fetches).containsExactly("[user1, user2] false", "[user1] true");
+        assertThat(firstUserDetails).hasSize(2);
+        assertThat(secondUserDetails).hasSize(1);
+        assertThat(contactSyncUserDetails).hasSize(1);
+    }
+
+    @Test
+    public void load_fetchesAtMostTheConcurrencyBatchesAtATime() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger fetchCount = new AtomicInteger();
+        UserDetailLoader userDetailLoader = new UserDetailLoader(new UserDetailLoader.BatchFetcher() {
+            @Override
+            public @Nullable List<UserDetail> fetch(@NonNull Set<String> userIds, boolean contactSync) {
+                fetchCount.incrementAndGet();
+                int nowRunning = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), nowRunning));
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return createUserDetails(userIds);
+            }
+        }, 2);
+
+        Set<String> userIds = new HashSet<>();
+        for (int i = 0; i < 5 * UserClientService.BATCH_SIZE; i++) {
+            userIds.add("user" + i);
+        }
+        List<UserDetail> userDetails = userDetailLoader.load(userIds, false, false);
+
+        assertThat(userDetails).hasSize(userIds.size());
+        assertThat(fetchCount.get()).isEqualTo(5);
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    private static Thread load(final UserDetailLoader userDetailLoader, final Set<String> userIds, final boolean contactSync, final List<UserDetail> result) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.addAll(userDetailLoader.load(userIds, contactSync, false));
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    //the loading thread waits for a batch once its fetches are in flight
+    private static void waitUntilBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+
+    private static List<UserDetail> createUserDetails(Set<String> userIds) {
+        List<UserDetail> userDetails = new ArrayList<>();
+        for (String userId : userIds) {
+            UserDetail userDetail = new UserDetail();
+            userDetail.setUserId(userId);
+            userDetails.add(userDetail);
+        }
+        return userDetails;
+    }
+}
@@ -0,0 +1,151 @@
+package com.applozic.mobicomkit.api.attachment;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlMediaStoreTest {
+    private static final int FILE_SIZE = 1000;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    File storeDirectory;
+    MessageDatabaseService messageDatabaseService;
+    AlMediaStore mediaStore;
+
+    @Before
+    public void createStore() {
+        Context context = ApplicationProvider.getApplicationContext();
+        storeDirectory = new File(context.getCacheDir(), "AlMediaStoreTest");
+        deleteRecursively(storeDirectory);
+        MobiComDatabaseHelper dbHelper = new MobiComDatabaseHelper(context, null, null, MobiComDatabaseHelper.DB_VERSION);
+        messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+        mediaStore = new AlMediaStore(context, messageDatabaseService, storeDirectory);
+    }
+
+    @After
+    public void deleteStore() {
+        deleteRecursively(storeDirectory);
+    }
+
+    @Test
+    public void getContentKey_isTheSameForTheSameBlob() {
+        FileMeta forwarded = createFileMeta("blob-key", "photo.jpg");
+        FileMeta renamed = createFileMeta("blob-key", "other-name.jpg");
+        FileMeta other = createFileMeta("other-blob-key", "photo.jpg");
+
+        assertThat(AlMediaStore.getContentKey(forwarded)).matches("[0-9a-f]{40}");
+        assertThat(AlMediaStore.getContentKey(renamed)).isEqualTo(AlMediaStore.getContentKey(forwarded));
+        assertThat(AlMediaStore.getContentKey(other)).isNotEqualTo(AlMediaStore.getContentKey(forwarded));
+    }
+
+    @Test
+    public void getContentKey_fallsBackToUrl() {
+        FileMeta fileMeta = createFileMeta(null, "photo.jpg");
+        assertThat(AlMediaStore.getContentKey(fileMeta)).isNull();
+
+        fileMeta.setUrl("https://example.com/photo.jpg");
+        assertThat(AlMediaStore.getContentKey(fileMeta)).isNotNull();
+    }
+
+    @Test
+    public void getMediaFile_doesNotCreateTheFolder() {
+        Message message = new Message();
+        message.setFileMetas(createFileMeta("blob-key", "photo.jpg"));
+        File file = mediaStore.getMediaFile(message);
+        assertThat(file.getName()).isEqualTo("photo.jpg");
+        assertThat(file.getParentFile().exists()).isFalse();
+    }
+
+    @Test
+    public void trimToQuota_deletesLeastRecentlyUsedUnreferencedFiles() throws IOException {
+        long now = System.currentTimeMillis();
+        File referenced = createStoredFile("referenced", now - 4 * HOUR_MILLIS);
+        File recentlyUsed = createStoredFile("recently-used", now);
+        File oldest = createStoredFile("oldest", now - 3 * HOUR_MILLIS);
+        File older = createStoredFile("older", now - 2 * HOUR_MILLIS);
+        File old = createStoredFile("old", now - HOUR_MILLIS);
+
+        //a forwarded attachment, two messages refer to the same file
+        messageDatabaseService.createMessage(createMessage("message-1", referenced));
+        messageDatabaseService.createMessage(createMessage("message-2", referenced));
+        assertThat(messageDatabaseService.getFilePathReferenceCounts()).containsExactly(referenced.getAbsolutePath(), 2);
+
+        assertThat(mediaStore.trimToQuota(5 * FILE_SIZE)).isEqualTo(0);
+
+        assertThat(mediaStore.trimToQuota(3 * FILE_SIZE)).isEqualTo(2);
+        assertThat(oldest.exists()).isFalse();
+        assertThat(older.exists()).isFalse();
+        assertThat(old.exists()).isTrue();
+        assertThat(referenced.exists()).isTrue();
+        assertThat(recentlyUsed.exists()).isTrue();
+
+        //the referenced and the recently used files are kept even over the quota
+        assertThat(mediaStore.trimToQuota(0)).isEqualTo(1);
+        assertThat(old.exists()).isFalse();
+        assertThat(referenced.exists()).isTrue();
+        assertThat(recentlyUsed.exists()).isTrue();
+    }
+
+    private File createStoredFile(String blobKey, long lastUsed) throws IOException {
+        Message message = new Message();
+        message.setFileMetas(createFileMeta(blobKey, blobKey + ".jpg"));
+        File file = mediaStore.getMediaFile(message);
+        file.getParentFile().mkdirs();
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[FILE_SIZE]);
+        } finally {
+            outputStream.close();
+        }
+        assertThat(file.setLastModified(lastUsed)).isTrue();
+        return file;
+    }
+
+    private static Message createMessage(String keyString, File file) {
+        Message message = new Message();
+        message.setKeyString(keyString);
+        message.setTo("user1");
+        message.setContactIds("user1");
+        message.setType(Message.MessageType.MT_INBOX.getValue());
+        message.setStoreOnDevice(true);
+        message.setFileMetas(createFileMeta(keyString, file.getName()));
+        message.setFilePaths(Collections.singletonList(file.getAbsolutePath()));
+        return message;
+    }
+
+    private static FileMeta createFileMeta(String blobKey, String name) {
+        FileMeta fileMeta = new FileMeta();
+        fileMeta.setBlobKeyString(blobKey);
+        fileMeta.setName(name);
+        fileMeta.setContentType("image/jpeg");
+        return fileMeta;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
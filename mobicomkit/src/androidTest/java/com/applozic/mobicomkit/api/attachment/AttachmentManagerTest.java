@@ -0,0 +1,59 @@
+package com.applozic.mobicomkit.api.attachment;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AttachmentManagerTest {
+    private static final int VISIBLE = AttachmentManager.PrioritizedDownload.LANE_VISIBLE;
+    private static final int RECENT = AttachmentManager.PrioritizedDownload.LANE_RECENT;
+
+    @Test
+    public void prioritizedDownloads_visibleLaneFirst_inQueueOrder() {
+        assertThat(pollOrder(download(RECENT, 1), download(VISIBLE, 2), download(VISIBLE, 3), download(RECENT, 4)))
+                .containsExactly(2L, 3L, 4L, 1L).inOrder();
+    }
+
+    @Test
+    public void prioritizedDownloads_visibleLane_isFirstInFirstOut() {
+        assertThat(pollOrder(download(VISIBLE, 3), download(VISIBLE, 1), download(VISIBLE, 2)))
+                .containsExactly(1L, 2L, 3L).inOrder();
+    }
+
+    @Test
+    public void prioritizedDownloads_recentLane_isLastInFirstOut() {
+        assertThat(pollOrder(download(RECENT, 1), download(RECENT, 3), download(RECENT, 2)))
+                .containsExactly(3L, 2L, 1L).inOrder();
+    }
+
+    @Test
+    public void prioritizedDownloads_ofTheSameLaneAndSequence_areEqual() {
+        assertThat(download(VISIBLE, 1).compareTo(download(VISIBLE, 1))).isEqualTo(0);
+        assertThat(download(RECENT, 1).compareTo(download(RECENT, 1))).isEqualTo(0);
+    }
+
+    private AttachmentManager.PrioritizedDownload download(int lane, long sequence) {
+        return AttachmentManager.getInstance().new PrioritizedDownload(null, lane, sequence);
+    }
+
+    private List<Long> pollOrder(AttachmentManager.PrioritizedDownload... downloads) {
+        //the download thread pool takes the downloads from a PriorityBlockingQueue
+        PriorityBlockingQueue<AttachmentManager.PrioritizedDownload> queue = new PriorityBlockingQueue<>();
+        for (AttachmentManager.PrioritizedDownload download : downloads) {
+            queue.add(download);
+        }
+        List<Long> sequences = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            sequences.add(queue.poll().sequence);
+        }
+        return sequences;
+    }
+}
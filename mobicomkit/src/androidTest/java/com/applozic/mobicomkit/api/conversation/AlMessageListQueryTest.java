@@ -0,0 +1,57 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlMessageListQueryTest {
+
+    @Test
+    public void equalQueries_areEqual() {
+        assertThat(AlMessageListQuery.forChannel(10)).isEqualTo(AlMessageListQuery.forChannel(10));
+        assertThat(AlMessageListQuery.forConversationList("")).isEqualTo(AlMessageListQuery.forConversationList(null));
+        assertThat(AlMessageListQuery.forContact("user1")).isNotEqualTo(AlMessageListQuery.forContact("user2"));
+    }
+
+    @Test
+    public void getNextPageQuery_isBeforeOldestMessage() {
+        Message dateMessage = createMessage(null, 500L);
+        dateMessage.setTempDateType(Message.MessageType.DATE_TEMP.getValue());
+
+        AlMessageListQuery nextPageQuery = AlMessageListQuery.forContact("user1").getNextPageQuery(Arrays.asList(dateMessage, createMessage("key1", 1000L), createMessage("key2", 2000L)));
+
+        assertThat(nextPageQuery).isNotNull();
+        assertThat(nextPageQuery.getUserId()).isEqualTo("user1");
+        assertThat(nextPageQuery.getBefore()).isEqualTo(1000L);
+        assertThat(AlMessageListQuery.forContact("user1").getNextPageQuery(new ArrayList<Message>())).isNull();
+    }
+
+    @Test
+    public void getChangedMessages_givesNewAndUpdatedMessages() {
+        Message unchanged = createMessage("key1", 1000L);
+        Message updated = createMessage("key2", 2000L);
+        Message syncedUpdated = createMessage("key2", 2000L);
+        syncedUpdated.setStatus(Message.Status.DELIVERED_AND_READ.getValue());
+        Message added = createMessage("key3", 3000L);
+
+        assertThat(AlMessageListQueryManager.getChangedMessages(Arrays.asList(unchanged, updated), Arrays.asList(createMessage("key1", 1000L), syncedUpdated, added)))
+                .containsExactly(syncedUpdated, added).inOrder();
+        assertThat(AlMessageListQueryManager.getChangedMessages(Collections.singletonList(unchanged), Collections.singletonList(createMessage("key1", 1000L)))).isEmpty();
+    }
+
+    private static Message createMessage(String keyString, Long createdAtTime) {
+        Message message = new Message();
+        message.setKeyString(keyString);
+        message.setCreatedAtTime(createdAtTime);
+        message.setMessage("message " + keyString);
+        return message;
+    }
+}
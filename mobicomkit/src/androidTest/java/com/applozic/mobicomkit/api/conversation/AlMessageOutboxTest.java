@@ -0,0 +1,47 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlMessageOutboxTest {
+
+    @Test
+    public void groupByConversation_keepsOrderWithinConversation() {
+        Message user1First = createMessage("user1", null, 1000L);
+        Message group = createMessage(null, 5, 1500L);
+        Message user2 = createMessage("user2", null, 2000L);
+        Message user1Second = createMessage("user1", null, 3000L);
+
+        Map<String, List<Message>> conversations = AlMessageOutbox.groupByConversation(Arrays.asList(user1First, group, user2, user1Second));
+
+        assertThat(conversations).hasSize(3);
+        assertThat(conversations.values().iterator().next()).containsExactly(user1First, user1Second).inOrder();
+    }
+
+    @Test
+    public void getBackoffDelayMillis_growsAndIsCapped() {
+        Random random = new Random(1);
+        assertThat(AlMessageOutbox.getBackoffDelayMillis(0, random)).isAtMost(2000L);
+        assertThat(AlMessageOutbox.getBackoffDelayMillis(3, random)).isAtLeast(8000L);
+        assertThat(AlMessageOutbox.getBackoffDelayMillis(30, random)).isAtMost(10 * 60 * 1000L);
+    }
+
+    private static Message createMessage(String userId, Integer groupId, Long createdAtTime) {
+        Message message = new Message();
+        message.setContactIds(userId);
+        message.setGroupId(groupId);
+        message.setCreatedAtTime(createdAtTime);
+        message.setKeyString("key-" + createdAtTime);
+        return message;
+    }
+}
@@ -0,0 +1,43 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlReadReceiptOutboxTest {
+
+    @Test
+    public void receipt_singleMessageIsSentAlone() {
+        AlReadReceiptOutbox.Receipt receipt = AlReadReceiptOutbox.Receipt.fromConversationKey("contact:user1");
+        receipt.add(null, 0);
+        assertThat(receipt.getServerRequest()).isEqualTo(AlReadReceiptOutbox.Receipt.NONE);
+
+        receipt.add("key1", 0);
+        receipt.add("key1", 0);
+        assertThat(receipt.getServerRequest()).isEqualTo(AlReadReceiptOutbox.Receipt.MESSAGE);
+    }
+
+    @Test
+    public void receipt_manyMessagesAreSentAsReadUpTo() {
+        AlReadReceiptOutbox.Receipt receipt = AlReadReceiptOutbox.Receipt.fromConversationKey("channel:5");
+        assertThat(receipt.channelKey).isEqualTo(5);
+        for (int i = 0; i < 200; i++) {
+            receipt.add("key" + i, 0);
+        }
+        assertThat(receipt.getServerRequest()).isEqualTo(AlReadReceiptOutbox.Receipt.CONVERSATION);
+
+        AlReadReceiptOutbox.Receipt opened = AlReadReceiptOutbox.Receipt.fromConversationKey("contact:user1");
+        opened.add(null, 3);
+        assertThat(opened.getServerRequest()).isEqualTo(AlReadReceiptOutbox.Receipt.CONVERSATION);
+    }
+
+    @Test
+    public void fromConversationKey_ignoresOtherKeys() {
+        assertThat(AlReadReceiptOutbox.Receipt.fromConversationKey("channel:abc")).isNull();
+        assertThat(AlReadReceiptOutbox.Receipt.fromConversationKey("other")).isNull();
+    }
+}
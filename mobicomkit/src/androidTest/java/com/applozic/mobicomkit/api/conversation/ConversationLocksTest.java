@@ -0,0 +1,41 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class ConversationLocksTest {
+
+    @Test
+    public void conversationListLock_isNotSharedWithAnyConversation() {
+        ReentrantLock listLock = ConversationLocks.forConversation(null, null);
+        ReentrantLock nullKeyLock = ConversationLocks.forContact(null);
+        assertThat(nullKeyLock).isNotSameInstanceAs(listLock);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ConversationLocks.forContact("user" + i)).isNotSameInstanceAs(listLock);
+            assertThat(ConversationLocks.forChannel(i)).isNotSameInstanceAs(listLock);
+            assertThat(ConversationLocks.forMessageKey("key" + i)).isNotSameInstanceAs(nullKeyLock);
+        }
+    }
+
+    @Test
+    public void messageKeyLocks_areNotSharedWithConversations() {
+        Set<ReentrantLock> conversationLocks = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            conversationLocks.add(ConversationLocks.forContact("user" + i));
+            conversationLocks.add(ConversationLocks.forChannel(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(conversationLocks).doesNotContain(ConversationLocks.forMessageKey("key" + i));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.applozic.mobicomkit.api.conversation.schedule;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.work.ExistingWorkPolicy;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class TimedMessageSchedulerTest {
+    MessageDatabaseService messageDatabaseService;
+    RecordingScheduler scheduler;
+
+    @Before
+    public void createDb() {
+        Context context = ApplicationProvider.getApplicationContext();
+        MobiComDatabaseHelper dbHelper = new MobiComDatabaseHelper(context, null, null, MobiComDatabaseHelper.DB_VERSION);
+        messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+        scheduler = new RecordingScheduler(context, messageDatabaseService);
+    }
+
+    @Test
+    public void scheduleMessageDeletion_afterRestart_doesNotDelayAnEarlierJob() {
+        //stored before the restart, its work is still enqueued but the new scheduler doesn't know when for
+        long earlierDeleteAt = System.currentTimeMillis() + 60 * 1000L;
+        messageDatabaseService.addDisappearingMessage("earlier", earlierDeleteAt);
+
+        scheduler.scheduleMessageDeletion(createMessage("later"), 60 * 60 * 1000L);
+
+        assertThat(scheduler.enqueuedWork).hasSize(1);
+        assertThat(scheduler.enqueuedWork.get(0).dueAt).isEqualTo(earlierDeleteAt);
+        assertThat(scheduler.enqueuedWork.get(0).existingWorkPolicy).isEqualTo(ExistingWorkPolicy.REPLACE);
+
+        scheduler.scheduleMessageDeletion(createMessage("latest"), 2 * 60 * 60 * 1000L);
+        assertThat(scheduler.enqueuedWork).hasSize(1);
+    }
+
+    @Test
+    public void runDueJobs_jobAddedDuringTheRun_isEnqueuedWhenTheRunEnds() {
+        messageDatabaseService.addDisappearingMessage("due", System.currentTimeMillis() - 1000L);
+        final List<Integer> enqueuedDuringRun = new ArrayList<>();
+
+        scheduler.runDueJobs(new TimedMessageScheduler.Stoppable() {
+            @Override
+            public boolean isStopped() {
+                if (enqueuedDuringRun.isEmpty()) {
+                    scheduler.scheduleMessageDeletion(createMessage("new"), 60 * 1000L);
+                    enqueuedDuringRun.add(scheduler.enqueuedWork.size());
+                }
+                return false;
+            }
+        });
+
+        //replacing the running work would have started a second run
+        assertThat(enqueuedDuringRun).containsExactly(0);
+        assertThat(messageDatabaseService.getDueDisappearingMessageKeys(System.currentTimeMillis(), 10)).isEmpty();
+        assertThat(scheduler.enqueuedWork).hasSize(1);
+        assertThat(scheduler.enqueuedWork.get(0).dueAt).isEqualTo(messageDatabaseService.getNextDisappearingMessageTime());
+        assertThat(scheduler.enqueuedWork.get(0).existingWorkPolicy).isEqualTo(ExistingWorkPolicy.APPEND_OR_REPLACE);
+    }
+
+    @Test
+    public void runDueJobs_stoppedWorker_leavesTheJobsForTheNextRun() {
+        long deleteAt = System.currentTimeMillis() - 1000L;
+        messageDatabaseService.addDisappearingMessage("due", deleteAt);
+
+        scheduler.runDueJobs(new TimedMessageScheduler.Stoppable() {
+            @Override
+            public boolean isStopped() {
+                return true;
+            }
+        });
+
+        assertThat(messageDatabaseService.getDueDisappearingMessageKeys(System.currentTimeMillis(), 10)).containsExactly("due");
+        assertThat(scheduler.enqueuedWork).hasSize(1);
+        assertThat(scheduler.enqueuedWork.get(0).dueAt).isEqualTo(deleteAt);
+    }
+
+    private static Message createMessage(String keyString) {
+        Message message = new Message();
+        message.setKeyString(keyString);
+        return message;
+    }
+
+    private static class EnqueuedWork {
+        final long dueAt;
+        final ExistingWorkPolicy existingWorkPolicy;
+
+        EnqueuedWork(long dueAt, ExistingWorkPolicy existingWorkPolicy) {
+            this.dueAt = dueAt;
+            this.existingWorkPolicy = existingWorkPolicy;
+        }
+    }
+
+    //records the work instead of enqueuing it with the WorkManager
+    private static class RecordingScheduler extends TimedMessageScheduler {
+        final List<EnqueuedWork> enqueuedWork = new ArrayList<>();
+
+        RecordingScheduler(Context context, MessageDatabaseService messageDatabaseService) {
+            super(context, messageDatabaseService);
+        }
+
+        @Override
+        void enqueueWorkRequest(long dueAt, ExistingWorkPolicy existingWorkPolicy) {
+            enqueuedWork.add(new EnqueuedWork(dueAt, existingWorkPolicy));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.applozic.mobicomkit.api.mention;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class MentionIndexTest {
+    private Mention john;
+    private Mention jane;
+    private Mention bob;
+    private MentionIndex mentionIndex;
+
+    @Before
+    public void setup() {
+        john = new Mention("user1", "John Smith");
+        jane = new Mention("jane.doe", "Jane Doe");
+        bob = new Mention("bob");
+        mentionIndex = new MentionIndex(Arrays.asList(john, jane, bob));
+    }
+
+    @Test
+    public void search_emptyQuery_returnsAllInOrder() {
+        assertThat(mentionIndex.search("")).containsExactly(john, jane, bob).inOrder();
+    }
+
+    @Test
+    public void search_matchesPrefixOfAnyWord() {
+        assertThat(mentionIndex.search("j")).containsExactly(john, jane).inOrder();
+        assertThat(mentionIndex.search("Sm")).containsExactly(john);
+        assertThat(mentionIndex.search("doe")).containsExactly(jane);
+    }
+
+    @Test
+    public void search_matchesUserId() {
+        assertThat(mentionIndex.search("user")).containsExactly(john);
+        assertThat(mentionIndex.search("bo")).containsExactly(bob);
+    }
+
+    @Test
+    public void search_multipleWords_mustMatchInOrder() {
+        assertThat(mentionIndex.search("john sm")).containsExactly(john);
+        assertThat(mentionIndex.search("smith john")).isEmpty();
+    }
+
+    @Test
+    public void search_noPrefixMatch_fallsBackToContains() {
+        assertThat(mentionIndex.search("mit")).containsExactly(john);
+        assertThat(mentionIndex.search("xyz")).isEmpty();
+    }
+
+    @Test
+    public void search_returnsPrefixMatchesBeforeOtherMatches() {
+        Mention diana = new Mention("user2", "Diana Prince");
+        Mention andy = new Mention("user3", "Andy Murray");
+        MentionIndex index = new MentionIndex(Arrays.asList(diana, andy));
+        assertThat(index.search("an")).containsExactly(andy, diana).inOrder();
+    }
+
+    @Test
+    public void search_withLimit_returnsThePrefixMatchesFirst() {
+        Mention diana = new Mention("user2", "Diana Prince");
+        Mention andy = new Mention("user3", "Andy Murray");
+        Mention anna = new Mention("user4", "Anna Bell");
+        MentionIndex index = new MentionIndex(Arrays.asList(diana, andy, anna));
+        assertThat(index.search("an", 2)).containsExactly(andy, anna).inOrder();
+        assertThat(index.search("an", 3)).containsExactly(andy, anna, diana).inOrder();
+        assertThat(index.search("an", 1)).containsExactly(andy);
+    }
+
+    @Test
+    public void containsUser_matchesTheUserIds() {
+        assertThat(mentionIndex.containsUser("user1")).isTrue();
+        assertThat(mentionIndex.containsUser("bob")).isTrue();
+        assertThat(mentionIndex.containsUser("John Smith")).isFalse();
+        assertThat(mentionIndex.containsUser(null)).isFalse();
+    }
+}
@@ -0,0 +1,152 @@
+package com.applozic.mobicomkit.broadcast;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.ApplozicClient;
+import com.applozic.mobicomkit.api.MobiComKitConstants;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicommons.json.GsonUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Message update events per second while a 1,000 message sync is sending its {@link BroadcastService#sendMessageUpdateBroadcast} updates,
+ * received from the {@link AlEventBus}, and from the {@link LocalBroadcastManager} broadcasts with the message json.
+ *
+ * <p>Results are logged under the "EventBusBenchmark" tag.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlEventBusBenchmarkTest {
+    private static final String TAG = "EventBusBenchmark";
+    private static final int SYNC_MESSAGES = 1000;
+
+    @Test
+    public void post_deliversInOrderOnlyToRegisteredListeners() throws InterruptedException {
+        final List<String> receivedKeys = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        AlEventBus.Listener<AlMessageUpdateEvent> listener = new AlEventBus.Listener<AlMessageUpdateEvent>() {
+            @Override
+            public void onEvent(@NonNull AlMessageUpdateEvent event) {
+                receivedKeys.add(event.getMessage().getKeyString());
+                latch.countDown();
+            }
+        };
+        AlEventBus eventBus = AlEventBus.getInstance();
+        eventBus.register(AlMessageUpdateEvent.class, listener, AlEventBus.DispatchMode.BACKGROUND);
+        eventBus.register(AlMessageUpdateEvent.class, listener, AlEventBus.DispatchMode.BACKGROUND);
+        assertThat(eventBus.hasListeners(AlMessageUpdateEvent.class)).isTrue();
+
+        eventBus.post(new AlMessageUpdateEvent(BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), createMessage(1)));
+        eventBus.post(new AlMessageUpdateEvent(BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), createMessage(2)));
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        eventBus.unregister(listener);
+        eventBus.post(new AlMessageUpdateEvent(BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), createMessage(3)));
+
+        assertThat(eventBus.hasListeners(AlMessageUpdateEvent.class)).isFalse();
+        assertThat(receivedKeys).containsExactly("key-1", "key-2").inOrder();
+    }
+
+    @Test
+    public void eventsPerSecondDuringSync() throws InterruptedException {
+        //both are sent for every update, each is timed until all of its updates are received
+        final Context context = ApplicationProvider.getApplicationContext();
+        ApplozicClient.getInstance(context).disableMessageUpdateIntents(false);
+        final CountDownLatch eventLatch = new CountDownLatch(SYNC_MESSAGES);
+        AlEventBus.Listener<AlMessageUpdateEvent> listener = new AlEventBus.Listener<AlMessageUpdateEvent>() {
+            @Override
+            public void onEvent(@NonNull AlMessageUpdateEvent event) {
+                eventLatch.countDown();
+            }
+        };
+        AlEventBus.getInstance().register(AlMessageUpdateEvent.class, listener, AlEventBus.DispatchMode.MAIN_THREAD);
+        long eventBusNanos;
+        try {
+            eventBusNanos = measureSync(context, eventLatch);
+        } finally {
+            AlEventBus.getInstance().unregister(listener);
+        }
+
+        final CountDownLatch broadcastLatch = new CountDownLatch(SYNC_MESSAGES);
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String messageJson = intent.getStringExtra(MobiComKitConstants.MESSAGE_JSON_INTENT);
+                if (messageJson != null && GsonUtils.getObjectFromJson(messageJson, Message.class) != null) {
+                    broadcastLatch.countDown();
+                }
+            }
+        };
+        LocalBroadcastManager.getInstance(context).registerReceiver(receiver, BroadcastService.getIntentFilter());
+        long broadcastNanos;
+        try {
+            broadcastNanos = measureSync(context, broadcastLatch);
+        } finally {
+            LocalBroadcastManager.getInstance(context).unregisterReceiver(receiver);
+        }
+
+        assertThat(eventBusNanos).isGreaterThan(0L);
+        assertThat(broadcastNanos).isGreaterThan(0L);
+        Log.i(TAG, "Event bus: " + getEventsPerSecond(eventBusNanos) + " events/s"
+                + ", local broadcasts with message json: " + getEventsPerSecond(broadcastNanos) + " events/s");
+    }
+
+    /**
+     * @return the time from the first update being sent to the last one being received, or -1 if they weren't all received
+     */
+    private long measureSync(final Context context, CountDownLatch latch) throws InterruptedException {
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < SYNC_MESSAGES; i++) {
+            messages.add(createMessage(i));
+        }
+        Thread syncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (Message message : messages) {
+                    BroadcastService.sendMessageUpdateBroadcast(context, BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), message);
+                }
+            }
+        });
+        long start = System.nanoTime();
+        syncThread.start();
+        boolean received = latch.await(60, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        syncThread.join();
+        return received ? elapsed : -1;
+    }
+
+    private static long getEventsPerSecond(long nanos) {
+        return SYNC_MESSAGES * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static Message createMessage(int index) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("category", "benchmark");
+        Message message = new Message();
+        message.setKeyString("key-" + index);
+        message.setTo("benchmarkUser");
+        message.setContactIds("benchmarkUser");
+        message.setMessage("synced message " + index);
+        message.setCreatedAtTime(System.currentTimeMillis() + index);
+        message.setType(Message.MessageType.MT_INBOX.getValue());
+        message.setMetadata(metadata);
+        return message;
+    }
+}
@@ -162,6 +162,20 @@ public class ChannelDatabaseServiceTest {
     }
 
     //channel methods >>
+    @Test
+    public void getChannelByChannelKey_returnsCopiesOfTheCachedChannel() {
+        channelDatabaseService.addChannel(channel);
+        Channel cachedChannel = channelDatabaseService.getChannelByChannelKey(channel.getKey());
+        assertThat(channelDatabaseService.getChannelByChannelKey(channel.getKey())).isNotSameInstanceAs(cachedChannel);
+
+        //changing a returned channel without writing it doesn't change what the next read gets
+        cachedChannel.setUnreadCount(42);
+        cachedChannel.getMetadata().put("met1", "changed");
+        Channel retrievedChannel = channelDatabaseService.getChannelByChannelKey(channel.getKey());
+        assertThat(retrievedChannel.getUnreadCount()).isEqualTo(0);
+        assertThat(retrievedChannel.getMetadata().get("met1")).isEqualTo("1");
+    }
+
     @Test
     public void addAndRetrieveChannels() {
         //getAllChannels for null
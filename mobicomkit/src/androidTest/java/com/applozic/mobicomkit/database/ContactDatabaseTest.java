@@ -152,4 +152,18 @@ public class ContactDatabaseTest {
         assertThat(contactDatabase.getContactById(contact2.getUserId()).isConnected()).isEqualTo(true);
         assertThat(contactDatabase.getContactById(contact2.getUserId()).getLastSeenAt()).isNotNull();
     }
+
+    @Test
+    public void getContactById_returnsCopiesOfTheCachedContact() {
+        contactDatabase.addContact(contact1);
+        Contact cachedContact = contactDatabase.getContactById(contact1.getUserId());
+        assertThat(contactDatabase.getContactById(contact1.getUserId())).isNotSameInstanceAs(cachedContact);
+
+        //changing a returned contact without writing it doesn't change what the next read gets
+        cachedContact.setUnreadCount(42);
+        cachedContact.setImageURL("changed");
+        Contact contact = contactDatabase.getContactById(contact1.getUserId());
+        assertThat(contact.getUnreadCount()).isEqualTo(0);
+        assertThat(contact.getImageURL()).isEqualTo("imageUrl");
+    }
 }
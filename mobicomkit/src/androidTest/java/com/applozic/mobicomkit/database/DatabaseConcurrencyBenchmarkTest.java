@@ -0,0 +1,114 @@
+package com.applozic.mobicomkit.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicommons.people.contact.Contact;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Read latency on the UI side while a sync is writing batches of messages, with and without write-ahead logging.
+ *
+ * <p>Uses a file backed database, since in-memory databases can't use WAL. Results are logged under the "DatabaseBenchmark" tag.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyBenchmarkTest {
+    private static final String TAG = "DatabaseBenchmark";
+    private static final String DATABASE_NAME = "al_benchmark_db";
+    private static final int SYNC_BATCHES = 40;
+    private static final int MESSAGES_PER_BATCH = 50;
+
+    @After
+    public void deleteDb() {
+        ApplicationProvider.getApplicationContext().deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void readLatencyDuringSync_withWriteAheadLogging() throws InterruptedException {
+        List<Long> latencies = measureReadLatencyDuringSync(true);
+        assertThat(latencies).isNotEmpty();
+    }
+
+    @Test
+    public void readLatencyDuringSync_withoutWriteAheadLogging() throws InterruptedException {
+        List<Long> latencies = measureReadLatencyDuringSync(false);
+        assertThat(latencies).isNotEmpty();
+    }
+
+    private List<Long> measureReadLatencyDuringSync(boolean writeAheadLogging) throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        final MobiComDatabaseHelper dbHelper = new MobiComDatabaseHelper(context, DATABASE_NAME, null, MobiComDatabaseHelper.DB_VERSION);
+        dbHelper.setWriteAheadLoggingEnabled(writeAheadLogging);
+        final MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+        final Contact contact = new Contact("benchmarkUser");
+        final AtomicBoolean syncRunning = new AtomicBoolean(true);
+
+        Thread syncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long createdAt = System.currentTimeMillis();
+                try {
+                    for (int b = 0; b < SYNC_BATCHES; b++) {
+                        SQLiteDatabase database = dbHelper.getWritableDatabase();
+                        database.beginTransaction();
+                        try {
+                            for (int m = 0; m < MESSAGES_PER_BATCH; m++) {
+                                Message message = new Message();
+                                message.setKeyString("key-" + b + "-" + m);
+                                message.setTo(contact.getUserId());
+                                message.setContactIds(contact.getUserId());
+                                message.setMessage("synced message " + m);
+                                message.setCreatedAtTime(createdAt++);
+                                message.setType(Message.MessageType.MT_INBOX.getValue());
+                                message.setStoreOnDevice(true);
+                                messageDatabaseService.createMessage(message);
+                            }
+                            database.setTransactionSuccessful();
+                        } finally {
+                            database.endTransaction();
+                        }
+                    }
+                } finally {
+                    syncRunning.set(false);
+                }
+            }
+        });
+
+        List<Long> latencies = new ArrayList<>();
+        syncThread.start();
+        while (syncRunning.get()) {
+            long start = System.nanoTime();
+            messageDatabaseService.getMessages(null, null, contact, null, null);
+            latencies.add((System.nanoTime() - start) / 1000);
+        }
+        syncThread.join();
+        //MobiComDatabaseHelper.close() is a no-op, close the connection itself
+        dbHelper.getWritableDatabase().close();
+
+        Collections.sort(latencies);
+        if (!latencies.isEmpty()) {
+            Log.i(TAG, "WAL " + (writeAheadLogging ? "on" : "off") + ": reads during sync: " + latencies.size()
+                    + ", p50: " + latencies.get(latencies.size() / 2) + "us"
+                    + ", p95: " + latencies.get(latencies.size() * 95 / 100) + "us"
+                    + ", max: " + latencies.get(latencies.size() - 1) + "us");
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,63 @@
+package com.applozic.mobicomkit.database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class MessageDeliveryReportDatabaseTest {
+    MobiComDatabaseHelper dbHelper;
+    MessageDatabaseService messageDatabaseService;
+
+    @Before
+    public void createDb() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbHelper = new MobiComDatabaseHelper(context, null, null, MobiComDatabaseHelper.DB_VERSION);
+        messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+    }
+
+    @Test
+    public void updateMessageDeliveryReports_updatesOnlyMessagesWithAnOlderStatus() {
+        messageDatabaseService.createMessage(createMessage("sent", 1L, Message.Status.SENT));
+        messageDatabaseService.createMessage(createMessage("delivered", 2L, Message.Status.DELIVERED));
+        messageDatabaseService.createMessage(createMessage("read", 3L, Message.Status.DELIVERED_AND_READ));
+
+        List<Message> updatedMessages = messageDatabaseService.updateMessageDeliveryReports(Arrays.asList("sent", "delivered", "read", "missing"), Collections.<String>emptyList());
+        assertThat(updatedMessages).hasSize(1);
+        assertThat(updatedMessages.get(0).getKeyString()).isEqualTo("sent");
+        assertThat(updatedMessages.get(0).getStatus()).isEqualTo(Message.Status.DELIVERED.getValue());
+
+        updatedMessages = messageDatabaseService.updateMessageDeliveryReports(Collections.<String>emptyList(), Arrays.asList("sent", "delivered", "read"));
+        assertThat(updatedMessages).hasSize(2);
+        assertThat(messageDatabaseService.getMessage("sent").getStatus()).isEqualTo(Message.Status.DELIVERED_AND_READ.getValue());
+        assertThat(messageDatabaseService.getMessage("delivered").getStatus()).isEqualTo(Message.Status.DELIVERED_AND_READ.getValue());
+    }
+
+    private static Message createMessage(String keyString, Long createdAtTime, Message.Status status) {
+        Message message = new Message();
+        message.setKeyString(keyString);
+        message.setTo("user1");
+        message.setContactIds("user1");
+        message.setMessage("message " + createdAtTime);
+        message.setCreatedAtTime(createdAtTime);
+        message.setType(Message.MessageType.MT_OUTBOX.getValue());
+        message.setStoreOnDevice(true);
+        message.setSentToServer(true);
+        message.setStatus(status.getValue());
+        return message;
+    }
+}
@@ -0,0 +1,72 @@
+package com.applozic.mobicomkit.database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class MessageRetentionDatabaseTest {
+    MobiComDatabaseHelper dbHelper;
+    MessageDatabaseService messageDatabaseService;
+
+    @Before
+    public void createDb() {
+        Context context = ApplicationProvider.getApplicationContext();
+        dbHelper = new MobiComDatabaseHelper(context, null, null, MobiComDatabaseHelper.DB_VERSION);
+        messageDatabaseService = new MessageDatabaseService(context, dbHelper);
+    }
+
+    @Test
+    public void deleteMessagesCreatedBefore_deletesOldSentMessagesOfTheConversation() {
+        for (long createdAt = 1; createdAt <= 5; createdAt++) {
+            messageDatabaseService.createMessage(createMessage("user1", createdAt, true, "/files/image" + createdAt + ".jpg"));
+        }
+        messageDatabaseService.createMessage(createMessage("user1", 0L, false, null));
+        messageDatabaseService.createMessage(createMessage("user2", 1L, true, null));
+
+        Long oldestKeptCreatedAt = messageDatabaseService.getCreatedAtOfMessageAt(null, "user1", 1);
+        assertThat(oldestKeptCreatedAt).isEqualTo(4L);
+
+        List<String> deletedFilePaths = new ArrayList<>();
+        assertThat(messageDatabaseService.deleteMessagesCreatedBefore(null, "user1", oldestKeptCreatedAt, 2, deletedFilePaths)).isEqualTo(2);
+        assertThat(messageDatabaseService.deleteMessagesCreatedBefore(null, "user1", oldestKeptCreatedAt, 2, deletedFilePaths)).isEqualTo(1);
+        assertThat(messageDatabaseService.deleteMessagesCreatedBefore(null, "user1", oldestKeptCreatedAt, 2, deletedFilePaths)).isEqualTo(0);
+
+        assertThat(deletedFilePaths).containsExactly("/files/image1.jpg", "/files/image2.jpg", "/files/image3.jpg").inOrder();
+        assertThat(messageDatabaseService.getFilePathReferenceCounts().keySet()).containsExactly("/files/image4.jpg", "/files/image5.jpg");
+        //the unsent message and the other conversation are left alone
+        assertThat(messageDatabaseService.getContactIdsWithMessages()).containsExactly("user1", "user2");
+        assertThat(messageDatabaseService.getCreatedAtOfMessageAt(null, "user1", 2)).isEqualTo(0L);
+    }
+
+    private static Message createMessage(String userId, Long createdAtTime, boolean sentToServer, String filePath) {
+        Message message = new Message();
+        message.setKeyString(userId + "-" + createdAtTime);
+        message.setTo(userId);
+        message.setContactIds(userId);
+        message.setMessage("message " + createdAtTime);
+        message.setCreatedAtTime(createdAtTime);
+        message.setType(Message.MessageType.MT_INBOX.getValue());
+        message.setStoreOnDevice(true);
+        message.setSentToServer(sentToServer);
+        if (filePath != null) {
+            List<String> filePaths = new ArrayList<>();
+            filePaths.add(filePath);
+            message.setFilePaths(filePaths);
+        }
+        return message;
+    }
+}
@@ -9,6 +9,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import com.applozic.mobicomkit.api.AlTypingStatusManager;
+import com.applozic.mobicomkit.api.ApplozicMqttService;
 import com.applozic.mobicomkit.api.MobiComKitClientService;
 import com.applozic.mobicomkit.api.account.register.RegisterUserClientService;
 import com.applozic.mobicomkit.api.account.register.RegistrationResponse;
@@ -232,7 +234,11 @@ public class Applozic {
      * @param contact the contact you wish to subscribe to for typing
      */
     public static void subscribeToTyping(Context context, Channel channel, Contact contact) {
-        ApplozicMqttWorker.enqueueWorkSubscribeToTyping(context, channel, contact);
+        ApplozicMqttService mqttService = ApplozicMqttService.getInstance(context);
+        mqttService.subscribeToTypingTopic(channel);
+        if (channel != null && Channel.GroupType.OPEN.getValue().equals(channel.getType())) {
+            mqttService.subscribeToOpenGroupTopic(channel);
+        }
     }
 
     /**
@@ -245,7 +251,11 @@ public class Applozic {
      * @param contact the contact you wish to unsubscribe to for typing
      */
     public static void unSubscribeToTyping(Context context, Channel channel, Contact contact) {
-        ApplozicMqttWorker.enqueueWorkUnSubscribeToTyping(context, channel, contact);
+        ApplozicMqttService mqttService = ApplozicMqttService.getInstance(context);
+        mqttService.unSubscribeToTypingTopic(channel);
+        if (channel != null && Channel.GroupType.OPEN.getValue().equals(channel.getType())) {
+            mqttService.unSubscribeToOpenGroupTopic(channel);
+        }
     }
 
     /**
@@ -258,7 +268,7 @@ public class Applozic {
      * @param contact the contact you wish to publish typing status to
      */
     public static void publishTypingStatus(Context context, Channel channel, Contact contact, boolean typingStarted) {
-        ApplozicMqttWorker.enqueueWorkPublishTypingStatus(context, channel, contact, typingStarted);
+        AlTypingStatusManager.getInstance(context).onTypingStatusChanged(channel, contact, typingStarted);
     }
 
     /**
@@ -8,6 +8,7 @@ import com.applozic.mobicomkit.api.account.register.RegistrationResponse;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.User;
 import com.applozic.mobicomkit.api.account.user.UserService;
+import com.applozic.mobicomkit.api.conversation.retention.MessageRetention;
 import com.applozic.mobicomkit.contact.AppContactService;
 import com.applozic.mobicomkit.listners.AlCallback;
 import com.applozic.mobicommons.ApplozicService;
@@ -54,6 +55,21 @@ public class ApplozicClient {
     private static final String MAX_CREATED_AT_KEY = "mck.sms.createdAt.max";
     private static final String AL_CONVERSATION_LIST_PAGE_SIZE_KEY = "AL_CONVERSATION_LIST_PAGE_SIZE_KEY";
     private static final int conversationListDefaultMainPageSize = 60;
+    private static final String AL_DATABASE_WAL_ENABLED = "AL_DATABASE_WAL_ENABLED";
+    private static final String AL_DATABASE_SYNCHRONOUS_MODE = "AL_DATABASE_SYNCHRONOUS_MODE";
+    private static final String AL_DATABASE_CACHE_SIZE_KB = "AL_DATABASE_CACHE_SIZE_KB";
+    private static final String AL_DATABASE_MMAP_SIZE = "AL_DATABASE_MMAP_SIZE";
+    private static final String databaseDefaultSynchronousMode = "NORMAL";
+    private static final int databaseDefaultCacheSizeKb = 2048;
+    private static final String AL_USER_DETAIL_FETCH_CONCURRENCY = "AL_USER_DETAIL_FETCH_CONCURRENCY";
+    private static final int userDetailDefaultFetchConcurrency = 3;
+    private static final String AL_CONVERSATION_PRELOAD_COUNT = "AL_CONVERSATION_PRELOAD_COUNT";
+    private static final int conversationPreloadDefaultCount = 5;
+    private static final String AL_MEDIA_STORE_QUOTA = "AL_MEDIA_STORE_QUOTA";
+    private static final long mediaStoreDefaultQuota = 500L * 1024 * 1024;
+    private static final String AL_MESSAGE_RETENTION_COUNT = "AL_MESSAGE_RETENTION_COUNT";
+    private static final String AL_MESSAGE_RETENTION_DAYS = "AL_MESSAGE_RETENTION_DAYS";
+    private static final String AL_MESSAGE_UPDATE_INTENTS_DISABLED = "AL_MESSAGE_UPDATE_INTENTS_DISABLED";
 
     public static ApplozicClient applozicClient;
     public SharedPreferences sharedPreferences;
@@ -431,4 +447,143 @@ public class ApplozicClient {
         }
         return mainPageSize;
     }
+
+    /**
+     * Write-ahead logging lets reads run in parallel with a sync writing to the database. Enabled by default.
+     *
+     * <p>The database settings are read when the database is first opened, so set them before initializing Applozic.</p>
+     */
+    public ApplozicClient setDatabaseWriteAheadLoggingEnabled(boolean enable) {
+        sharedPreferences.edit().putBoolean(AL_DATABASE_WAL_ENABLED, enable).commit();
+        return this;
+    }
+
+    public boolean isDatabaseWriteAheadLoggingEnabled() {
+        return sharedPreferences.getBoolean(AL_DATABASE_WAL_ENABLED, true);
+    }
+
+    /**
+     * The SQLite <code>synchronous</code> pragma: OFF, NORMAL, FULL or EXTRA. NORMAL by default, which is safe in WAL mode.
+     * Pass null to keep the platform default.
+     */
+    public ApplozicClient setDatabaseSynchronousMode(String synchronousMode) {
+        sharedPreferences.edit().putString(AL_DATABASE_SYNCHRONOUS_MODE, synchronousMode).commit();
+        return this;
+    }
+
+    public String getDatabaseSynchronousMode() {
+        String synchronousMode = sharedPreferences.getString(AL_DATABASE_SYNCHRONOUS_MODE, databaseDefaultSynchronousMode);
+        if (synchronousMode != null && !synchronousMode.matches("(?i)OFF|NORMAL|FULL|EXTRA|[0-3]")) {
+            return databaseDefaultSynchronousMode;
+        }
+        return synchronousMode;
+    }
+
+    /**
+     * The page cache size of the database connection in KiB. 0 keeps the SQLite default.
+     */
+    public ApplozicClient setDatabaseCacheSizeKb(int cacheSizeKb) {
+        sharedPreferences.edit().putInt(AL_DATABASE_CACHE_SIZE_KB, cacheSizeKb).commit();
+        return this;
+    }
+
+    public int getDatabaseCacheSizeKb() {
+        int cacheSizeKb = sharedPreferences.getInt(AL_DATABASE_CACHE_SIZE_KB, databaseDefaultCacheSizeKb);
+        if (cacheSizeKb < 0) {
+            return databaseDefaultCacheSizeKb;
+        }
+        return cacheSizeKb;
+    }
+
+    /**
+     * The maximum number of bytes of the database file to access using memory mapped I/O. 0 (the default) disables it.
+     */
+    public ApplozicClient setDatabaseMmapSize(long mmapSize) {
+        sharedPreferences.edit().putLong(AL_DATABASE_MMAP_SIZE, mmapSize).commit();
+        return this;
+    }
+
+    public long getDatabaseMmapSize() {
+        return Math.max(0, sharedPreferences.getLong(AL_DATABASE_MMAP_SIZE, 0));
+    }
+
+    /**
+     * Sets how many user detail batches are fetched from the server in parallel. Takes effect on the next app start.
+     */
+    public ApplozicClient setUserDetailFetchConcurrency(int concurrency) {
+        sharedPreferences.edit().putInt(AL_USER_DETAIL_FETCH_CONCURRENCY, concurrency).commit();
+        return this;
+    }
+
+    public int getUserDetailFetchConcurrency() {
+        return Math.max(1, sharedPreferences.getInt(AL_USER_DETAIL_FETCH_CONCURRENCY, userDetailDefaultFetchConcurrency));
+    }
+
+    /**
+     * Sets how many of the conversations the user is likely to open next are preloaded in the background, on unmetered networks
+     * while the device is idle. Pass 0 to disable preloading.
+     */
+    public ApplozicClient setConversationPreloadCount(int count) {
+        sharedPreferences.edit().putInt(AL_CONVERSATION_PRELOAD_COUNT, count).commit();
+        return this;
+    }
+
+    public int getConversationPreloadCount() {
+        return Math.max(0, sharedPreferences.getInt(AL_CONVERSATION_PRELOAD_COUNT, conversationPreloadDefaultCount));
+    }
+
+    /**
+     * Sets the disk space, in bytes, the downloaded attachments are kept in. Attachments of messages that were deleted are kept
+     * until the attachments use more than this, then the least recently used are deleted. Pass 0 to keep only the attachments of existing messages.
+     */
+    public ApplozicClient setMediaStoreQuota(long quotaBytes) {
+        sharedPreferences.edit().putLong(AL_MEDIA_STORE_QUOTA, quotaBytes).commit();
+        return this;
+    }
+
+    public long getMediaStoreQuota() {
+        return Math.max(0, sharedPreferences.getLong(AL_MEDIA_STORE_QUOTA, mediaStoreDefaultQuota));
+    }
+
+    /**
+     * Sets how much of each conversation is kept on the device. A message is deleted from the device once it's older than <code>keepDays</code>
+     * and isn't one of the latest <code>keepMessageCount</code> messages of its conversation. The latest message of a conversation is always kept.
+     * Deleted messages are loaded from the server again when the user scrolls back to them.
+     *
+     * <p>Pass 0 for both to keep every message, which is the default. Messages are deleted in the background, about once a day.</p>
+     */
+    public ApplozicClient setMessageRetention(int keepMessageCount, int keepDays) {
+        sharedPreferences.edit().putInt(AL_MESSAGE_RETENTION_COUNT, keepMessageCount).putInt(AL_MESSAGE_RETENTION_DAYS, keepDays).commit();
+        MessageRetention.getInstance(context).schedulePruning();
+        return this;
+    }
+
+    public int getMessageRetentionCount() {
+        return Math.max(0, sharedPreferences.getInt(AL_MESSAGE_RETENTION_COUNT, 0));
+    }
+
+    public int getMessageRetentionDays() {
+        return Math.max(0, sharedPreferences.getInt(AL_MESSAGE_RETENTION_DAYS, 0));
+    }
+
+    public boolean isMessageRetentionEnabled() {
+        return getMessageRetentionCount() > 0 || getMessageRetentionDays() > 0;
+    }
+
+    /**
+     * Once a receiver is registered with {@link com.applozic.mobicomkit.broadcast.BroadcastService#getIntentFilter()}, the message update
+     * and delivery status broadcasts carry the message as json in {@link com.applozic.mobicomkit.api.MobiComKitConstants#MESSAGE_JSON_INTENT},
+     * which is serialized for every update.
+     * If none of the app's receivers read the message from those intents (for example they listen to the
+     * {@link com.applozic.mobicomkit.broadcast.AlMessageUpdateEvent}s on the {@link com.applozic.mobicomkit.broadcast.AlEventBus} instead),
+     * pass true to stop sending them.
+     */
+    public ApplozicClient disableMessageUpdateIntents(boolean disable) {
+        sharedPreferences.edit().putBoolean(AL_MESSAGE_UPDATE_INTENTS_DISABLED, disable).commit();
+        return this;
+    }
+
+    public boolean isMessageUpdateIntentsDisabled() {
+        return sharedPreferences.getBoolean(AL_MESSAGE_UPDATE_INTENTS_DISABLED, false);
+    }
 }
@@ -0,0 +1,305 @@
+package com.applozic.mobicomkit.api;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.applozic.mobicomkit.api.conversation.ApplozicMqttWorker;
+import com.applozic.mobicomkit.api.conversation.ApplozicWorker;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Reconnects MQTT after the connection is lost, for as long as the app wants real-time events
+ * (from {@link com.applozic.mobicomkit.Applozic#connectPublish(Context)} until {@link com.applozic.mobicomkit.Applozic#disconnectPublish(Context)}).</p>
+ *
+ * <p>Attempts are made with a jittered exponential backoff, from {@link #INITIAL_BACKOFF_MILLIS} up to {@link #MAX_BACKOFF_MILLIS}.
+ * While there is no network no attempts are made. When {@link com.applozic.mobicomkit.broadcast.ConnectivityReceiver} reports
+ * the network as available again, the backoff is reset and an attempt is made right away (after a short random delay, so clients don't all reconnect at once).
+ * After a successful reconnect, the messages missed while disconnected are synced.</p>
+ *
+ * <p>This class also owns the catch-up sync for the network becoming available (see {@link ApplozicWorker#enqueueWorkNetworkAvailable(Context)}),
+ * so it runs once per reconnect. If MQTT is wanted, it runs after the reconnect, otherwise right away.
+ * If the first attempt fails, it runs without waiting for the connection, so pending messages aren't held back by the backoff.</p>
+ *
+ * <p>All state is only accessed from a single background thread, which also runs the (blocking) connect calls.
+ * The metrics are written from that thread only and can be read from any thread.</p>
+ */
+public class AlMqttReconnectManager {
+    private static final String TAG = "AlMqttReconnectManager";
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    private static final long NETWORK_AVAILABLE_MAX_DELAY_MILLIS = 1000;
+
+    private static AlMqttReconnectManager reconnectManager;
+
+    private final Context context;
+    private final ScheduledExecutorService executorService;
+    private final Random random = new Random();
+
+    private boolean connectionWanted;
+    private boolean waitingForNetwork;
+    //the network became available, the catch-up sync runs after the reconnect
+    private boolean catchUpPending;
+    private int failedAttempts;
+    private ScheduledFuture<?> reconnectFuture;
+    private volatile long connectedAt;
+    private long disconnectedAt;
+
+    //metrics
+    private volatile long totalConnectedMillis;
+    private volatile int reconnectCount;
+    private volatile long totalTimeToReconnectMillis;
+    private volatile long lastTimeToReconnectMillis;
+    private volatile int totalFailedAttempts;
+
+    private AlMqttReconnectManager(Context context) {
+        this.context = ApplozicService.getContext(context);
+        executorService = AlExecutors.newIdleTimeoutScheduledExecutor("AlMqttReconnect");
+    }
+
+    public static synchronized @NonNull AlMqttReconnectManager getInstance(@Nullable Context context) {
+        if (reconnectManager == null) {
+            reconnectManager = new AlMqttReconnectManager(context);
+        }
+        return reconnectManager;
+    }
+
+    /**
+     * The app wants to stay connected. Lost connections are reconnected from now on.
+     */
+    public void start() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                connectionWanted = true;
+            }
+        });
+    }
+
+    /**
+     * The app no longer needs the connection. Pending reconnect attempts are cancelled.
+     */
+    public void stop() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                connectionWanted = false;
+                cancelReconnect();
+                enqueuePendingCatchUp();
+                //time spent disconnected while the connection isn't wanted doesn't count as time to reconnect
+                disconnectedAt = 0;
+            }
+        });
+    }
+
+    /**
+     * Called by {@link ApplozicMqttService} when a connect call succeeds.
+     */
+    void onConnected() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                cancelReconnect();
+                failedAttempts = 0;
+                waitingForNetwork = false;
+                if (connectedAt == 0) {
+                    connectedAt = now;
+                }
+                boolean catchUp = catchUpPending;
+                catchUpPending = false;
+                if (disconnectedAt != 0) {
+                    long timeToReconnect = now - disconnectedAt;
+                    disconnectedAt = 0;
+                    lastTimeToReconnectMillis = timeToReconnect;
+                    totalTimeToReconnectMillis += timeToReconnect;
+                    reconnectCount++;
+                    Utils.printLog(context, TAG, "MQTT reconnected after " + timeToReconnect + "ms. " + getMetricsSummary());
+                    //events published while disconnected were missed
+                    catchUp = true;
+                }
+                if (catchUp) {
+                    ApplozicWorker.enqueueWorkNetworkAvailable(context);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called by {@link ApplozicMqttService} when the connection is lost or a connect call fails.
+     */
+    void onConnectionLost() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                markDisconnected();
+                if (connectionWanted && reconnectFuture == null) {
+                    scheduleReconnect(getBackoffDelayMillis(failedAttempts, random));
+                }
+            }
+        });
+    }
+
+    /**
+     * Called by {@link com.applozic.mobicomkit.broadcast.ConnectivityReceiver} when the network becomes available.
+     * Reconnects if needed and runs the catch-up sync, see the class documentation.
+     */
+    public void onNetworkAvailable() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                waitingForNetwork = false;
+                if (!connectionWanted || ApplozicMqttService.getInstance(context).isConnected()) {
+                    ApplozicWorker.enqueueWorkNetworkAvailable(context);
+                    return;
+                }
+                catchUpPending = true;
+                //the previous failures were likely caused by the network, start over
+                failedAttempts = 0;
+                cancelReconnect();
+                scheduleReconnect((long) (random.nextDouble() * NETWORK_AVAILABLE_MAX_DELAY_MILLIS));
+            }
+        });
+    }
+
+    /**
+     * Called by {@link com.applozic.mobicomkit.broadcast.ConnectivityReceiver} when the network is lost.
+     */
+    public void onNetworkLost() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                cancelReconnect();
+                waitingForNetwork = connectionWanted;
+            }
+        });
+    }
+
+    /**
+     * @return the total time MQTT has been connected in this process, in milliseconds
+     */
+    public long getTotalConnectedMillis() {
+        long currentConnectedAt = connectedAt;
+        return totalConnectedMillis + (currentConnectedAt != 0 ? System.currentTimeMillis() - currentConnectedAt : 0);
+    }
+
+    public int getReconnectCount() {
+        return reconnectCount;
+    }
+
+    /**
+     * @return the time from losing the connection to reconnecting, for the last reconnect. 0 if there was none
+     */
+    public long getLastTimeToReconnectMillis() {
+        return lastTimeToReconnectMillis;
+    }
+
+    public long getAverageTimeToReconnectMillis() {
+        int count = reconnectCount;
+        return count == 0 ? 0 : totalTimeToReconnectMillis / count;
+    }
+
+    public int getFailedAttemptCount() {
+        return totalFailedAttempts;
+    }
+
+    public @NonNull String getMetricsSummary() {
+        return "MQTT connection metrics{" +
+                "connectedMillis=" + getTotalConnectedMillis() +
+                ", reconnects=" + getReconnectCount() +
+                ", lastTimeToReconnectMillis=" + getLastTimeToReconnectMillis() +
+                ", averageTimeToReconnectMillis=" + getAverageTimeToReconnectMillis() +
+                ", failedAttempts=" + getFailedAttemptCount() +
+                '}';
+    }
+
+    /**
+     * Equal jitter: half of the exponential delay is fixed, the other half is random.
+     */
+    @VisibleForTesting
+    static long getBackoffDelayMillis(int failedAttempts, @NonNull Random random) {
+        long delay = INITIAL_BACKOFF_MILLIS << Math.min(failedAttempts, 20);
+        delay = Math.min(delay, MAX_BACKOFF_MILLIS);
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    private void attemptReconnect() {
+        reconnectFuture = null;
+        ApplozicMqttService mqttService = ApplozicMqttService.getInstance(context);
+        if (!connectionWanted || mqttService.isConnected()) {
+            return;
+        }
+        if (!Utils.isInternetAvailable(context)) {
+            Utils.printLog(context, TAG, "No network, waiting for it before reconnecting MQTT...");
+            waitingForNetwork = true;
+            return;
+        }
+        if (ApplozicMqttWorker.isAppInBackground()) {
+            //real-time events are only needed in the foreground, the next connectPublish() call starts over
+            Utils.printLog(context, TAG, "App is in background, not reconnecting MQTT...");
+            connectionWanted = false;
+            enqueuePendingCatchUp();
+            return;
+        }
+
+        Utils.printLog(context, TAG, "Reconnecting MQTT, attempt " + (failedAttempts + 1) + "...");
+        //blocking, the success or failure callbacks are queued after this
+        mqttService.connectAndSubscribe(true);
+
+        if (!mqttService.isConnected()) {
+            failedAttempts++;
+            totalFailedAttempts++;
+            enqueuePendingCatchUp();
+            if (reconnectFuture == null && !waitingForNetwork) {
+                scheduleReconnect(getBackoffDelayMillis(failedAttempts, random));
+            }
+        }
+    }
+
+    private void scheduleReconnect(long delayMillis) {
+        Utils.printLog(context, TAG, "Scheduling MQTT reconnect in " + delayMillis + "ms");
+        reconnectFuture = executorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                attemptReconnect();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void enqueuePendingCatchUp() {
+        if (catchUpPending) {
+            catchUpPending = false;
+            ApplozicWorker.enqueueWorkNetworkAvailable(context);
+        }
+    }
+
+    private void cancelReconnect() {
+        if (reconnectFuture != null) {
+            reconnectFuture.cancel(false);
+            reconnectFuture = null;
+        }
+    }
+
+    private void markDisconnected() {
+        long now = System.currentTimeMillis();
+        if (connectedAt != 0) {
+            totalConnectedMillis += now - connectedAt;
+            connectedAt = 0;
+        }
+        if (connectionWanted && disconnectedAt == 0) {
+            disconnectedAt = now;
+        }
+    }
+}
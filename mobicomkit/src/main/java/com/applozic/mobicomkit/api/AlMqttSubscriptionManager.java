@@ -0,0 +1,173 @@
+package com.applozic.mobicomkit.api;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Keeps the set of MQTT topics the app wants to be subscribed to, and applies it to the connected client.</p>
+ *
+ * <p>Callers only add topics to, or remove them from, the desired set. This doesn't block. The changes made within
+ * {@link #BATCH_WINDOW_MILLIS} are applied together, with at most one multi-topic subscribe and one multi-topic unsubscribe call.
+ * A topic that is added and removed again in the same window (switching back and forth between conversations, for example)
+ * causes no call at all.</p>
+ *
+ * <p>Subscriptions don't survive the connection (it uses a clean session), so all the desired topics are subscribed again,
+ * in a single call, every time the client connects.</p>
+ */
+public class AlMqttSubscriptionManager {
+    private static final String TAG = "AlMqttSubscriptions";
+    private static final long BATCH_WINDOW_MILLIS = 50;
+
+    private static AlMqttSubscriptionManager subscriptionManager;
+
+    private final Context context;
+    private final ScheduledExecutorService executorService;
+
+    //guarded by this
+    private final Set<String> desiredTopics = new HashSet<>();
+    private boolean syncScheduled;
+
+    //the topics subscribed to on the current connection, only accessed from the executor thread
+    private final Set<String> subscribedTopics = new HashSet<>();
+
+    private AlMqttSubscriptionManager(Context context) {
+        this.context = ApplozicService.getContext(context);
+        executorService = AlExecutors.newIdleTimeoutScheduledExecutor(TAG);
+    }
+
+    public static synchronized @NonNull AlMqttSubscriptionManager getInstance(@Nullable Context context) {
+        if (subscriptionManager == null) {
+            subscriptionManager = new AlMqttSubscriptionManager(context);
+        }
+        return subscriptionManager;
+    }
+
+    public synchronized void addTopics(@Nullable String... topics) {
+        if (topics == null) {
+            return;
+        }
+        for (String topic : topics) {
+            if (!TextUtils.isEmpty(topic)) {
+                desiredTopics.add(topic);
+            }
+        }
+        scheduleSync();
+    }
+
+    public synchronized void removeTopics(@Nullable String... topics) {
+        if (topics == null) {
+            return;
+        }
+        desiredTopics.removeAll(Arrays.asList(topics));
+        scheduleSync();
+    }
+
+    /**
+     * Removes all the topics, for example on logout.
+     */
+    public synchronized void clear() {
+        desiredTopics.clear();
+        scheduleSync();
+    }
+
+    /**
+     * Called by {@link ApplozicMqttService} when the client connects. All the desired topics are subscribed again.
+     */
+    void onConnected() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                subscribedTopics.clear();
+            }
+        });
+        synchronized (this) {
+            scheduleSync();
+        }
+    }
+
+    /**
+     * Called by {@link ApplozicMqttService} when the connection is lost.
+     */
+    void onConnectionLost() {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                subscribedTopics.clear();
+            }
+        });
+    }
+
+    //must be called with the lock held
+    private void scheduleSync() {
+        if (syncScheduled) {
+            return;
+        }
+        syncScheduled = true;
+        executorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                sync();
+            }
+        }, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sync() {
+        Set<String> topics;
+        synchronized (this) {
+            syncScheduled = false;
+            topics = new HashSet<>(desiredTopics);
+        }
+
+        AlMqttClient client = ApplozicMqttService.getInstance(context).getConnectedClient();
+        if (client == null) {
+            //applied on the next connect
+            return;
+        }
+
+        List<String> topicsToUnsubscribe = new ArrayList<>();
+        for (String topic : subscribedTopics) {
+            if (!topics.contains(topic)) {
+                topicsToUnsubscribe.add(topic);
+            }
+        }
+        List<String> topicsToSubscribe = new ArrayList<>();
+        for (String topic : topics) {
+            if (!subscribedTopics.contains(topic)) {
+                topicsToSubscribe.add(topic);
+            }
+        }
+
+        try {
+            if (!topicsToUnsubscribe.isEmpty()) {
+                client.unsubscribe(topicsToUnsubscribe.toArray(new String[0]));
+                subscribedTopics.removeAll(topicsToUnsubscribe);
+                Utils.printLog(context, TAG, "Unsubscribed from topics: ", topicsToUnsubscribe);
+            }
+            if (!topicsToSubscribe.isEmpty()) {
+                //QoS 0 for all, like the single topic calls used
+                client.subscribe(topicsToSubscribe.toArray(new String[0]), new int[topicsToSubscribe.size()]);
+                subscribedTopics.addAll(topicsToSubscribe);
+                Utils.printLog(context, TAG, "Subscribed to topics: ", topicsToSubscribe);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.applozic.mobicomkit.api;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.account.user.User;
+import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Keeps the typing state of conversations, for both the logged in user and the other users.</p>
+ *
+ * <p>Outgoing: the UI reports every keystroke, but a "typing" frame is published at most once every {@link #TYPING_REPUBLISH_INTERVAL_MILLIS}
+ * per conversation, and a "stopped" frame only if "typing" was published. If no keystroke is reported for {@link #LOCAL_TYPING_IDLE_MILLIS},
+ * "stopped" is published automatically.</p>
+ *
+ * <p>Incoming: frames are coalesced per conversation and user, so the UI gets one broadcast per actual change,
+ * at most once every {@link #COALESCE_WINDOW_MILLIS}. A "typing" state that isn't refreshed for {@link #REMOTE_TYPING_TIMEOUT_MILLIS}
+ * (because the "stopped" frame was lost, for example) expires and a "stopped" broadcast is sent.</p>
+ *
+ * <p>All state is only accessed from a single background thread, so there is no locking.</p>
+ */
+public class AlTypingStatusManager {
+    private static final String TYPING = "1";
+    private static final String STOPPED = "0";
+    private static final long TYPING_REPUBLISH_INTERVAL_MILLIS = 5000;
+    private static final long LOCAL_TYPING_IDLE_MILLIS = 10000;
+    private static final long REMOTE_TYPING_TIMEOUT_MILLIS = 15000;
+    private static final long COALESCE_WINDOW_MILLIS = 300;
+
+    private static AlTypingStatusManager typingStatusManager;
+
+    private final Context context;
+    private final ScheduledExecutorService executorService;
+    private final Map<String, LocalTypingState> localTypingStates = new HashMap<>();
+    private final Map<String, RemoteTypingState> remoteTypingStates = new HashMap<>();
+
+    private AlTypingStatusManager(Context context) {
+        this.context = ApplozicService.getContext(context);
+        executorService = AlExecutors.newIdleTimeoutScheduledExecutor("AlTypingStatus");
+    }
+
+    public static synchronized @NonNull AlTypingStatusManager getInstance(@Nullable Context context) {
+        if (typingStatusManager == null) {
+            typingStatusManager = new AlTypingStatusManager(context);
+        }
+        return typingStatusManager;
+    }
+
+    /**
+     * Reports the logged in user's typing status for the conversation. Can be called for every keystroke, from any thread.
+     */
+    public void onTypingStatusChanged(@Nullable final Channel channel, @Nullable final Contact contact, final boolean typing) {
+        if (channel == null && contact == null) {
+            return;
+        }
+        if (typing && contact != null && (contact.isBlocked() || contact.isBlockedBy())) {
+            return;
+        }
+        final String conversationId = channel != null ? String.valueOf(channel.getKey()) : contact.getUserId();
+        if (TextUtils.isEmpty(conversationId)) {
+            return;
+        }
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (typing) {
+                    onLocalTyping(conversationId);
+                } else {
+                    onLocalTypingStopped(conversationId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Handles a typing frame received over MQTT. Called from the MQTT callback thread.
+     */
+    void onTypingStatusReceived(@Nullable final String topic, final String applicationId, final String userId, final String status) {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                onRemoteTypingStatus(topic + "," + userId, applicationId, userId, TYPING.equals(status));
+            }
+        });
+    }
+
+    private void onLocalTyping(final String conversationId) {
+        LocalTypingState state = localTypingStates.get(conversationId);
+        if (state == null) {
+            state = new LocalTypingState(conversationId);
+            localTypingStates.put(conversationId, state);
+        }
+        if (state.idleFuture != null) {
+            state.idleFuture.cancel(false);
+        }
+        state.idleFuture = executorService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                onLocalTypingStopped(conversationId);
+            }
+        }, LOCAL_TYPING_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        long now = System.currentTimeMillis();
+        if (!state.published || now - state.publishedAt >= TYPING_REPUBLISH_INTERVAL_MILLIS) {
+            if (publish(state, TYPING)) {
+                state.published = true;
+                state.publishedAt = now;
+            }
+        }
+    }
+
+    private void onLocalTypingStopped(String conversationId) {
+        LocalTypingState state = localTypingStates.remove(conversationId);
+        if (state == null) {
+            return;
+        }
+        if (state.idleFuture != null) {
+            state.idleFuture.cancel(false);
+        }
+        if (state.published) {
+            publish(state, STOPPED);
+        }
+    }
+
+    private boolean publish(LocalTypingState state, String status) {
+        return ApplozicMqttService.getInstance(context).publishTypingStatus(state.topic, state.payloadPrefix + status);
+    }
+
+    private void onRemoteTypingStatus(final String key, String applicationId, String userId, boolean typing) {
+        RemoteTypingState state = remoteTypingStates.get(key);
+        if (state == null) {
+            if (!typing) {
+                //the UI never got a "typing" broadcast for this user, or already got the "stopped" one
+                return;
+            }
+            state = new RemoteTypingState(applicationId, userId);
+            remoteTypingStates.put(key, state);
+        }
+        state.typing = typing;
+
+        if (state.expiryFuture != null) {
+            state.expiryFuture.cancel(false);
+            state.expiryFuture = null;
+        }
+        if (typing) {
+            state.expiryFuture = executorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    RemoteTypingState expiredState = remoteTypingStates.get(key);
+                    if (expiredState != null) {
+                        expiredState.typing = false;
+                        expiredState.expiryFuture = null;
+                        deliver(key, expiredState);
+                    }
+                }
+            }, REMOTE_TYPING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        if (state.deliveryFuture == null) {
+            state.deliveryFuture = executorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    RemoteTypingState pendingState = remoteTypingStates.get(key);
+                    if (pendingState != null) {
+                        pendingState.deliveryFuture = null;
+                        deliver(key, pendingState);
+                    }
+                }
+            }, COALESCE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(String key, RemoteTypingState state) {
+        if (state.typing != state.deliveredTyping) {
+            state.deliveredTyping = state.typing;
+            BroadcastService.sendUpdateTypingBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_TYPING_STATUS.toString(), state.applicationId, state.userId, state.typing ? TYPING : STOPPED);
+        }
+        if (!state.typing && state.deliveryFuture == null) {
+            remoteTypingStates.remove(key);
+        }
+    }
+
+    private class LocalTypingState {
+        final String topic;
+        final String payloadPrefix;
+        boolean published;
+        long publishedAt;
+        ScheduledFuture<?> idleFuture;
+
+        LocalTypingState(String conversationId) {
+            String applicationKey = MobiComKitClientService.getApplicationKey(context);
+            //the ids are encoded twice, like the older publishTopic did, so receivers decode them the same way
+            topic = "typing-" + applicationKey + "-" + User.getEncodedUserId(User.getEncodedUserId(conversationId));
+            payloadPrefix = applicationKey + "," + User.getEncodedUserId(User.getEncodedUserId(MobiComUserPreference.getInstance(context).getUserId())) + ",";
+        }
+    }
+
+    private static class RemoteTypingState {
+        final String applicationId;
+        final String userId;
+        boolean typing;
+        boolean deliveredTyping;
+        ScheduledFuture<?> expiryFuture;
+        ScheduledFuture<?> deliveryFuture;
+
+        RemoteTypingState(String applicationId, String userId) {
+            this.applicationId = applicationId;
+            this.userId = userId;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import android.os.Process;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.User;
 import com.applozic.mobicomkit.api.conversation.Message;
@@ -93,6 +95,12 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
         return client != null && client.isConnected();
     }
 
+    //the client, if it is connected
+    @Nullable AlMqttClient getConnectedClient() {
+        AlMqttClient currentClient = client;
+        return currentClient != null && currentClient.isConnected() ? currentClient : null;
+    }
+
     private AlMqttClient getClientInstance() throws MqttException {
         String userId = MobiComUserPreference.getInstance(context).getUserId();
         if (client == null) {
@@ -129,12 +137,15 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
                     @Override
                     public void onSuccess(IMqttToken asyncActionToken) {
                         Utils.printLog(context, TAG, "MQTT Connection successful to : " + client.getServerURI());
+                        AlMqttReconnectManager.getInstance(context).onConnected();
+                        AlMqttSubscriptionManager.getInstance(context).onConnected();
                         BroadcastService.sendUpdate(context, BroadcastService.INTENT_ACTIONS.MQTT_CONNECTED.toString());
                     }
 
                     @Override
                     public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
                         Utils.printLog(context, TAG, "MQTT connection failed...sending disconnect broadcast...");
+                        AlMqttReconnectManager.getInstance(context).onConnectionLost();
                         BroadcastService.sendMQTTDisconnectBroadcastUpdate(context, requestReconnect);
                     }
                 });
@@ -150,6 +161,18 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
         return client;
     }
 
+    /**
+     * Connects, subscribes to the conversation topic and publishes the online status. Blocking.
+     *
+     * <p>Doesn't ask the UI to reconnect on failure, see {@link AlMqttReconnectManager}.</p>
+     */
+    public void connectAndSubscribe(boolean useEncrypted) {
+        connectClient(false);
+        subscribe(useEncrypted);
+        MobiComUserPreference userPreference = MobiComUserPreference.getInstance(context);
+        publishClientStatus(userPreference.getSuUserKeyString(), userPreference.getDeviceKeyString(), "1");
+    }
+
     /**
      * Publishes the presence/status of the user for others.
      *
@@ -186,42 +209,33 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
     }
 
     //Cleanup: private
-    public synchronized void subscribeToConversation(boolean useEncryptedTopic) {
-        try {
-            String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
-            if (TextUtils.isEmpty(userKeyString)) {
-                return;
-            }
-            if (client != null && client.isConnected()) {
-                Utils.printLog(context, TAG, "Subscribing to conversation topic (encrypted and non-encrypted): " + userKeyString);
-                String[] topicFilters = new String[] {userKeyString, MQTT_ENCRYPTION_TOPIC + userKeyString};
-                if (useEncryptedTopic) {
-                    client.subscribe(topicFilters, new int[]{0, 0});
-                } else {
-                    client.subscribe(userKeyString, 0);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void subscribeToConversation(boolean useEncryptedTopic) {
+        String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
+        if (TextUtils.isEmpty(userKeyString)) {
+            return;
+        }
+        Utils.printLog(context, TAG, "Subscribing to conversation topic (encrypted and non-encrypted): " + userKeyString);
+        if (useEncryptedTopic) {
+            AlMqttSubscriptionManager.getInstance(context).addTopics(userKeyString, MQTT_ENCRYPTION_TOPIC + userKeyString);
+        } else {
+            AlMqttSubscriptionManager.getInstance(context).addTopics(userKeyString);
         }
     }
 
     public synchronized void subscribe(boolean useEncrypted) {
-        if (!Utils.isInternetAvailable(context)) {
-            return;
-        }
         final String deviceKeyString = MobiComUserPreference.getInstance(context).getDeviceKeyString();
         final String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
         if (TextUtils.isEmpty(deviceKeyString) || TextUtils.isEmpty(userKeyString)) {
             return;
         }
+        //the topics are subscribed to once the client is connected
+        subscribeToConversation(useEncrypted);
         try {
             final MqttClient client = getClientInstance();
             if (client == null || !client.isConnected()) {
-                Log.d(TAG, "Can't subscribe, client not connected....");
+                Log.d(TAG, "Client not connected, will subscribe on connect....");
                 return;
             }
-            subscribeToConversation(useEncrypted);
             if (client != null) {
                 client.setCallback(ApplozicMqttService.this);
             }
@@ -231,70 +245,34 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
     }
 
     //Cleanup: private
-    public synchronized void unSubscribeToConversation(final boolean useEncrypted) {
-        Thread thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    if (client == null || !client.isConnected()) {
-                        return;
-                    }
-                    String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
-                    Utils.printLog(context, TAG, "UnSubscribing to conversation topic : " + (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + userKeyString);
-                    String[] topicFilters = new String[] {userKeyString, MQTT_ENCRYPTION_TOPIC + userKeyString};
-                    if (useEncrypted) {
-                        client.unsubscribe(topicFilters);
-                    } else {
-                        client.unsubscribe(userKeyString);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        thread.setPriority(Process.THREAD_PRIORITY_BACKGROUND);
-        thread.start();
+    public void unSubscribeToConversation(final boolean useEncrypted) {
+        String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
+        Utils.printLog(context, TAG, "UnSubscribing to conversation topic : " + (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + userKeyString);
+        if (useEncrypted) {
+            AlMqttSubscriptionManager.getInstance(context).removeTopics(userKeyString, MQTT_ENCRYPTION_TOPIC + userKeyString);
+        } else {
+            AlMqttSubscriptionManager.getInstance(context).removeTopics(userKeyString);
+        }
     }
 
     //Cleanup: can be removed
     //Cleanup: private
-    public synchronized void subscribeToCustomTopic(String customTopic, boolean useEncrypted) {
-        try {
-            String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
-            if (TextUtils.isEmpty(userKeyString)) {
-                return;
-            }
-            final MqttClient client = getClientInstance();
-            if (client != null && client.isConnected()) {
-                String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + customTopic + "-" + getApplicationKey(context);
-                Utils.printLog(context, TAG, "Subscribing to support group topic : " + topic);
-                client.subscribe(topic, 0);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void subscribeToCustomTopic(String customTopic, boolean useEncrypted) {
+        String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
+        if (TextUtils.isEmpty(userKeyString)) {
+            return;
         }
+        String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + customTopic + "-" + getApplicationKey(context);
+        Utils.printLog(context, TAG, "Subscribing to custom topic : " + topic);
+        AlMqttSubscriptionManager.getInstance(context).addTopics(topic);
     }
 
     //Cleanup: can be removed
     //Cleanup: private
-    public synchronized void unSubscribeToCustomTopic(final String customTopic, final boolean useEncrypted) {
-        Thread thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    if (client == null || !client.isConnected()) {
-                        return;
-                    }
-                    String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + customTopic + "-" + getApplicationKey(context);
-                    Utils.printLog(context, TAG, "UnSubscribing to support group topic : " + topic);
-                    client.unsubscribe(topic);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        thread.setPriority(Process.THREAD_PRIORITY_BACKGROUND);
-        thread.start();
+    public void unSubscribeToCustomTopic(final String customTopic, final boolean useEncrypted) {
+        String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + customTopic + "-" + getApplicationKey(context);
+        Utils.printLog(context, TAG, "UnSubscribing to custom topic : " + topic);
+        AlMqttSubscriptionManager.getInstance(context).removeTopics(topic);
     }
 
     //Cleanup: can be removed
@@ -313,7 +291,9 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
             client.publish(topic, message, new IMqttActionListener() {
                 @Override
                 public void onSuccess(IMqttToken asyncActionToken) {
-                    Utils.printLog(context, TAG, "Sent data : " + data + " to topic : " + topic);
+                    if (Utils.isLoggingEnabled(context)) {
+                        Utils.printLog(context, TAG, "Sent data : " + data + " to topic : " + topic);
+                    }
                 }
 
                 @Override
@@ -327,45 +307,25 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
     }
 
     //Cleanup: can be removed
-    public synchronized void subscribeToSupportGroup(boolean useEncrypted) {
-        try {
-            String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
-            if (TextUtils.isEmpty(userKeyString)) {
-                return;
-            }
-            final MqttClient client = getClientInstance();
-            if (client != null && client.isConnected()) {
-                String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + SUPPORT_GROUP_TOPIC + "-" + getApplicationKey(context);
-                Utils.printLog(context, TAG, "Subscribing to support group topic : " + topic);
-                client.subscribe(topic, 0);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void subscribeToSupportGroup(boolean useEncrypted) {
+        String userKeyString = MobiComUserPreference.getInstance(context).getSuUserKeyString();
+        if (TextUtils.isEmpty(userKeyString)) {
+            return;
         }
+        String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + SUPPORT_GROUP_TOPIC + "-" + getApplicationKey(context);
+        Utils.printLog(context, TAG, "Subscribing to support group topic : " + topic);
+        AlMqttSubscriptionManager.getInstance(context).addTopics(topic);
     }
 
     //Cleanup: can be removed
-    public synchronized void unSubscribeToSupportGroup(final boolean useEncrypted) {
-        Thread thread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    if (client == null || !client.isConnected()) {
-                        return;
-                    }
-                    String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + SUPPORT_GROUP_TOPIC + "-" + getApplicationKey(context);
-                    Utils.printLog(context, TAG, "UnSubscribing to support group topic : " + topic);
-                    client.unsubscribe(topic);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        thread.setPriority(Process.THREAD_PRIORITY_BACKGROUND);
-        thread.start();
+    public void unSubscribeToSupportGroup(final boolean useEncrypted) {
+        String topic = (useEncrypted ? MQTT_ENCRYPTION_TOPIC : "") + SUPPORT_GROUP_TOPIC + "-" + getApplicationKey(context);
+        Utils.printLog(context, TAG, "UnSubscribing to support group topic : " + topic);
+        AlMqttSubscriptionManager.getInstance(context).removeTopics(topic);
     }
 
     public void publishOfflineStatusUnsubscribeAndDisconnect(String userKeyString, String deviceKeyString, boolean useEncrypted) {
+        AlMqttReconnectManager.getInstance(context).stop();
         try {
             publishClientStatus(userKeyString, deviceKeyString, "0");
             unSubscribeToConversation(useEncrypted);
@@ -379,6 +339,8 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
 
     //Cleanup: private
     public void disconnect() {
+        AlMqttReconnectManager.getInstance(context).stop();
+        AlMqttSubscriptionManager.getInstance(context).clear();
         if (client != null && client.isConnected()) {
             try {
                 client.disconnect();
@@ -396,20 +358,24 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
     @Override
     public void connectionLost(Throwable throwable) {
         Log.d(TAG, "MQTT connection lost...");
-        BroadcastService.sendMQTTDisconnectBroadcastUpdate(context, true);
+        AlMqttReconnectManager.getInstance(context).onConnectionLost();
+        AlMqttSubscriptionManager.getInstance(context).onConnectionLost();
+        //reconnecting is handled by AlMqttReconnectManager, so the UI isn't asked to do it
+        BroadcastService.sendMQTTDisconnectBroadcastUpdate(context, false);
     }
 
     @Override
     public void messageArrived(final String s, final MqttMessage mqttMessage) throws Exception {
-        Utils.printLog(context, TAG, "Received MQTT message: " + new String(mqttMessage.getPayload()));
         try {
             if (!TextUtils.isEmpty(s) && s.startsWith(TYPINGTOPIC)) {
+                //typing frames are frequent, they are not logged and are coalesced before reaching the UI
                 String[] typingResponse = mqttMessage.toString().split(",");
                 String applicationId = typingResponse[0];
                 String userId = User.getDecodedUserId(typingResponse[1]);
                 String isTypingStatus = typingResponse[2];
-                BroadcastService.sendUpdateTypingBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_TYPING_STATUS.toString(), applicationId, userId, isTypingStatus);
+                AlTypingStatusManager.getInstance(context).onTypingStatusReceived(s, applicationId, userId, isTypingStatus);
             } else {
+                Utils.printLog(context, TAG, "Received MQTT message: ", mqttMessage);
                 Thread thread = new Thread(new Runnable() {
                     @Override
                     public void run() {
@@ -440,7 +406,7 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
 
                                 AlEventManager.getInstance().postMqttEventData(mqttMessageResponse);
 
-                                Utils.printLog(context, TAG, "MQTT message type: " + mqttMessageResponse.getType());
+                                Utils.printLog(context, TAG, "MQTT message type: ", mqttMessageResponse.getType());
                                 if (NOTIFICATION_TYPE.MESSAGE_RECEIVED.getValue().equals(mqttMessageResponse.getType()) || "MESSAGE_RECEIVED".equals(mqttMessageResponse.getType())) {
 
                                     GcmMessageResponse messageResponse = (GcmMessageResponse) GsonUtils.getObjectFromJson(messageDataString, GcmMessageResponse.class);
@@ -645,7 +611,9 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
             client.publish(messageStatusTopic, message, new IMqttActionListener() {
                 @Override
                 public void onSuccess(IMqttToken asyncActionToken) {
-                    Utils.printLog(context, TAG, "Sent data : " + data + " to topic : " + messageStatusTopic);
+                    if (Utils.isLoggingEnabled(context)) {
+                        Utils.printLog(context, TAG, "Sent data : " + data + " to topic : " + messageStatusTopic);
+                    }
                 }
 
                 @Override
@@ -670,113 +638,91 @@ public class ApplozicMqttService extends MobiComKitClientService implements Mqtt
             message.setPayload((applicationId + "," + User.getEncodedUserId(loggedInUserId) + "," + status).getBytes());
             message.setQos(0);
             client.publish("typing" + "-" + applicationId + "-" + User.getEncodedUserId(userId), message);
-            Utils.printLog(context, TAG, "Published " + new String(message.getPayload()) + " to topic: " + "typing" + "-" + applicationId + "-" + User.getEncodedUserId(userId));
+            if (Utils.isLoggingEnabled(context)) {
+                Utils.printLog(context, TAG, "Published " + new String(message.getPayload()) + " to topic: " + "typing" + "-" + applicationId + "-" + User.getEncodedUserId(userId));
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Publishes the typing status of the logged in user. Throttled by {@link AlTypingStatusManager}.
+     */
     public void typingStarted(Contact contact, Channel channel) {
-        String currentId;
-        if (channel != null) {
-            currentId = String.valueOf(channel.getKey());
-        } else {
-            currentId = contact.getUserId();
-        }
-        MobiComUserPreference mobiComUserPreference = MobiComUserPreference.getInstance(context);
-        publishTopic(getApplicationKey(context), "1", User.getEncodedUserId(mobiComUserPreference.getUserId()), User.getEncodedUserId(currentId));
+        AlTypingStatusManager.getInstance(context).onTypingStatusChanged(channel, contact, true);
     }
 
+    /**
+     * Publishes that the logged in user stopped typing. See {@link AlTypingStatusManager}.
+     */
     public void typingStopped(Contact contact, Channel channel) {
-        String currentId;
-        if (channel != null) {
-            currentId = String.valueOf(channel.getKey());
-        } else {
-            currentId = contact.getUserId();
-        }
-        MobiComUserPreference mobiComUserPreference = MobiComUserPreference.getInstance(context);
-        publishTopic(getApplicationKey(context), "0", User.getEncodedUserId(mobiComUserPreference.getUserId()), User.getEncodedUserId(currentId));
+        AlTypingStatusManager.getInstance(context).onTypingStatusChanged(channel, contact, false);
     }
 
-    public synchronized void subscribeToTypingTopic(Channel channel) {
+    /**
+     * Publishes a typing frame. Unlike {@link #publishTopic(String, String, String, String)} it doesn't lock the service or log the payload,
+     * it is called often, from the {@link AlTypingStatusManager} thread.
+     *
+     * @return true if the frame was published
+     */
+    boolean publishTypingStatus(String topic, String payload) {
         try {
-            String currentId = null;
-            if (channel != null) {
-                currentId = String.valueOf(channel.getKey());
-            } else {
-                MobiComUserPreference mobiComUserPreference = MobiComUserPreference.getInstance(context);
-                currentId = mobiComUserPreference.getUserId();
-            }
-
-            final MqttClient client = getClientInstance();
+            final MqttClient client = this.client;
             if (client == null || !client.isConnected()) {
-                return;
+                return false;
             }
-
-            client.subscribe("typing-" + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId), 0);
-            Utils.printLog(context, TAG, "Subscribed to topic: " + "typing-" + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
+            MqttMessage message = new MqttMessage(payload.getBytes());
+            message.setRetained(false);
+            message.setQos(0);
+            client.publish(topic, message);
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return false;
     }
 
-    public synchronized void unSubscribeToTypingTopic(Channel channel) {
-        try {
-            String currentId = null;
-            if (channel != null) {
-                currentId = String.valueOf(channel.getKey());
-            } else {
-                MobiComUserPreference mobiComUserPreference = MobiComUserPreference.getInstance(context);
-                currentId = mobiComUserPreference.getUserId();
-            }
-
-            final MqttClient client = getClientInstance();
-            if (client == null || !client.isConnected()) {
-                return;
-            }
-
-            client.unsubscribe("typing-" + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
-            Utils.printLog(context, TAG, "UnSubscribed to topic: " + "typing-" + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    public void subscribeToTypingTopic(Channel channel) {
+        String topic = getTypingTopic(channel);
+        AlMqttSubscriptionManager.getInstance(context).addTopics(topic);
+        Utils.printLog(context, TAG, "Subscribing to topic: " + topic);
     }
 
-    public synchronized void subscribeToOpenGroupTopic(Channel channel) {
-        try {
-            String currentId = null;
-            if (channel != null) {
-                currentId = String.valueOf(channel.getKey());
-            }
-            final MqttClient client = getClientInstance();
-            if (client == null || !client.isConnected()) {
-                return;
-            }
+    public void unSubscribeToTypingTopic(Channel channel) {
+        String topic = getTypingTopic(channel);
+        AlMqttSubscriptionManager.getInstance(context).removeTopics(topic);
+        Utils.printLog(context, TAG, "UnSubscribing to topic: " + topic);
+    }
 
-            client.subscribe(OPEN_GROUP + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId), 0);
-            Utils.printLog(context, TAG, "Subscribed to Open group: " + OPEN_GROUP + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
-        } catch (Exception e) {
-            e.printStackTrace();
+    private String getTypingTopic(Channel channel) {
+        String currentId;
+        if (channel != null) {
+            currentId = String.valueOf(channel.getKey());
+        } else {
+            currentId = MobiComUserPreference.getInstance(context).getUserId();
         }
+        return TYPINGTOPIC + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId);
     }
 
-    public synchronized void unSubscribeToOpenGroupTopic(Channel channel) {
-        try {
-            String currentId = null;
-            if (channel != null) {
-                currentId = String.valueOf(channel.getKey());
-            }
+    public void subscribeToOpenGroupTopic(Channel channel) {
+        String topic = getOpenGroupTopic(channel);
+        AlMqttSubscriptionManager.getInstance(context).addTopics(topic);
+        Utils.printLog(context, TAG, "Subscribing to Open group: " + topic);
+    }
 
-            final MqttClient client = getClientInstance();
-            if (client == null || !client.isConnected()) {
-                return;
-            }
+    public void unSubscribeToOpenGroupTopic(Channel channel) {
+        String topic = getOpenGroupTopic(channel);
+        AlMqttSubscriptionManager.getInstance(context).removeTopics(topic);
+        Utils.printLog(context, TAG, "UnSubscribing to topic: " + topic);
+    }
 
-            client.unsubscribe(OPEN_GROUP + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
-            Utils.printLog(context, TAG, "UnSubscribed to topic: " + OPEN_GROUP + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId));
-        } catch (Exception e) {
-            e.printStackTrace();
+    private String getOpenGroupTopic(Channel channel) {
+        String currentId = null;
+        if (channel != null) {
+            currentId = String.valueOf(channel.getKey());
         }
+        return OPEN_GROUP + getApplicationKey(context) + "-" + User.getEncodedUserId(currentId);
     }
 
     @Override
@@ -46,9 +46,9 @@ public class HttpRequestUtils {
     }
 
     public String postDataForAuthToken(String urlString, String contentType, String accept, String data, String userId) throws Exception {
-        Utils.printLog(context, TAG, "Calling url (POST) with exception: " + urlString);
-        Utils.printLog(context, TAG, "(POST) Json: " + data);
-        Utils.printLog(context, TAG, "(POST) User Id: " + userId);
+        Utils.printLog(context, TAG, "Calling url (POST) with exception: ", urlString);
+        Utils.printLog(context, TAG, "(POST) Json: ", data);
+        Utils.printLog(context, TAG, "(POST) User Id: ", userId);
 
         HttpURLConnection connection;
         URL url;
@@ -103,7 +103,7 @@ public class HttpRequestUtils {
                     br.close();
                 }
             }
-            Utils.printLog(context, TAG, "(POST) Response : " + sb.toString());
+            Utils.printLog(context, TAG, "(POST) Response : ", sb);
             if (!TextUtils.isEmpty(sb.toString())) {
                 if (!TextUtils.isEmpty(MobiComUserPreference.getInstance(context).getEncryptionKey())) {
                     return EncryptionUtils.decrypt(MobiComUserPreference.getInstance(context).getEncryptionKey(), sb.toString());
@@ -122,9 +122,9 @@ public class HttpRequestUtils {
     }
 
     public String postData(String urlString, String contentType, String accept, String data, String userId) throws Exception {
-        Utils.printLog(context, TAG, "Calling url (POST) with exception: " + urlString);
-        Utils.printLog(context, TAG, "(POST) Json: " + data);
-        Utils.printLog(context, TAG, "(POST) User Id: " + userId);
+        Utils.printLog(context, TAG, "Calling url (POST) with exception: ", urlString);
+        Utils.printLog(context, TAG, "(POST) Json: ", data);
+        Utils.printLog(context, TAG, "(POST) User Id: ", userId);
 
         HttpURLConnection connection;
         URL url;
@@ -179,7 +179,7 @@ public class HttpRequestUtils {
                     br.close();
                 }
             }
-            Utils.printLog(context, TAG, "(POST) Response : " + sb.toString());
+            Utils.printLog(context, TAG, "(POST) Response : ", sb);
             if (!TextUtils.isEmpty(sb.toString())) {
                 if (!TextUtils.isEmpty(MobiComUserPreference.getInstance(context).getEncryptionKey())) {
                     return EncryptionUtils.decrypt(MobiComUserPreference.getInstance(context).getEncryptionKey(), sb.toString());
@@ -203,9 +203,9 @@ public class HttpRequestUtils {
 
     //Cleanup: private
     public String postJsonToServer(String stringUrl, String data, String userId) throws Exception {
-        Utils.printLog(context, TAG, "Calling url (POST) with exception: " + stringUrl);
-        Utils.printLog(context, TAG, "(POST) Json: " + data);
-        Utils.printLog(context, TAG, "(POST) User Id: " + userId);
+        Utils.printLog(context, TAG, "Calling url (POST) with exception: ", stringUrl);
+        Utils.printLog(context, TAG, "(POST) Json: ", data);
+        Utils.printLog(context, TAG, "(POST) User Id: ", userId);
 
         HttpURLConnection connection;
         URL url = new URL(stringUrl);
@@ -227,7 +227,7 @@ public class HttpRequestUtils {
             InputStream inputStream = connection.getInputStream();
             br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
         } else {
-            Utils.printLog(context, TAG, "Response code for (POST) json is :" + connection.getResponseCode());
+            Utils.printLog(context, TAG, "Response code for (POST) json is :", connection.getResponseCode());
         }
         StringBuilder sb = new StringBuilder();
         try {
@@ -245,7 +245,7 @@ public class HttpRequestUtils {
                 br.close();
             }
         }
-        Utils.printLog(context, TAG, "Response (POST): " + sb.toString());
+        Utils.printLog(context, TAG, "Response (POST): ", sb);
         return sb.toString();
     }
 
@@ -258,7 +258,7 @@ public class HttpRequestUtils {
     }
 
     public String getResponseWithException(String urlString, String contentType, String accept, boolean isFileUpload, String userId) throws Exception {
-        Utils.printLog(context, TAG, "Calling url (GET) with exception: " + urlString);
+        Utils.printLog(context, TAG, "Calling url (GET) with exception: ", urlString);
 
         HttpURLConnection connection = null;
         URL url;
@@ -288,7 +288,7 @@ public class HttpRequestUtils {
                 InputStream inputStream = connection.getInputStream();
                 br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
             } else {
-                Utils.printLog(context, TAG, "(GET) Response code for getResponse is  :" + connection.getResponseCode());
+                Utils.printLog(context, TAG, "(GET) Response code for getResponse is  :", connection.getResponseCode());
             }
 
             StringBuilder sb = new StringBuilder();
@@ -308,7 +308,7 @@ public class HttpRequestUtils {
                 }
             }
 
-            Utils.printLog(context, TAG, "Response (GET):" + sb.toString());
+            Utils.printLog(context, TAG, "Response (GET):", sb);
 
             if (!TextUtils.isEmpty(sb.toString())) {
                 if (!TextUtils.isEmpty(MobiComUserPreference.getInstance(context).getEncryptionKey())) {
@@ -339,7 +339,7 @@ public class HttpRequestUtils {
 
     //Cleanup: private
     public String getResponse(String urlString, String contentType, String accept, boolean isFileUpload, String userId) {
-        Utils.printLog(context, TAG, "Calling url (GET): " + urlString);
+        Utils.printLog(context, TAG, "Calling url (GET): ", urlString);
 
         HttpURLConnection connection = null;
         URL url;
@@ -369,7 +369,7 @@ public class HttpRequestUtils {
                 InputStream inputStream = connection.getInputStream();
                 br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
             } else {
-                Utils.printLog(context, TAG, "(GET) Response code for getResponse is  :" + connection.getResponseCode());
+                Utils.printLog(context, TAG, "(GET) Response code for getResponse is  :", connection.getResponseCode());
             }
 
             StringBuilder sb = new StringBuilder();
@@ -388,7 +388,7 @@ public class HttpRequestUtils {
                 }
             }
 
-            Utils.printLog(context, TAG, "Response (GET):" + sb.toString());
+            Utils.printLog(context, TAG, "Response (GET):", sb);
 
             if (!TextUtils.isEmpty(sb.toString())) {
                 if (!TextUtils.isEmpty(MobiComUserPreference.getInstance(context).getEncryptionKey())) {
@@ -13,8 +13,11 @@ import com.applozic.mobicomkit.Applozic;
 import com.applozic.mobicomkit.api.HttpRequestUtils;
 import com.applozic.mobicomkit.api.MobiComKitClientService;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
+import com.applozic.mobicomkit.api.conversation.AlReadReceiptOutbox;
 import com.applozic.mobicomkit.api.conversation.ApplozicMqttWorker;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.api.conversation.preload.ConversationPreloader;
+import com.applozic.mobicomkit.api.conversation.retention.MessageRetention;
 import com.applozic.mobicomkit.api.notification.MuteUserResponse;
 import com.applozic.mobicomkit.api.notification.NotificationChannels;
 import com.applozic.mobicomkit.channel.service.ChannelService;
@@ -35,6 +38,7 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -190,6 +194,9 @@ public class UserClientService extends MobiComKitClientService {
         mobiComUserPreference.clearAll();
         ALSpecificSettings.getInstance(context).clearAll();
         MessageDatabaseService.recentlyAddedMessage.clear();
+        ConversationPreloader.getInstance(context).clear();
+        MessageRetention.getInstance(context).clear();
+        AlReadReceiptOutbox.getInstance(context).clear();
         MobiComDatabaseHelper.getInstance(context).delDatabase();
         mobiComUserPreference.setUrl(url);
         if (!fromLogin) {
@@ -233,6 +240,9 @@ public class UserClientService extends MobiComKitClientService {
         mobiComUserPreference.clearAll();
         ChannelService.clearInstance();
         MessageDatabaseService.recentlyAddedMessage.clear();
+        ConversationPreloader.getInstance(context).clear();
+        MessageRetention.getInstance(context).clear();
+        AlReadReceiptOutbox.getInstance(context).clear();
         MobiComDatabaseHelper.getInstance(context).delDatabase();
         mobiComUserPreference.setUrl(url);
 
@@ -407,12 +417,11 @@ public class UserClientService extends MobiComKitClientService {
     public String getUserDetails(Set<String> userIds) {
         try {
             if (userIds != null && userIds.size() > 0) {
-                String response = "";
-                String userIdParam = "";
+                StringBuilder userIdParam = new StringBuilder();
                 for (String userId : userIds) {
-                    userIdParam += "&userIds" + "=" + URLEncoder.encode(userId, "UTF-8");
+                    userIdParam.append("&userIds=").append(URLEncoder.encode(userId, "UTF-8"));
                 }
-                response = httpRequestUtils.getResponse(getUserDetailsListUrl() + userIdParam, "application/json", "application/json");
+                String response = httpRequestUtils.getResponse(getUserDetailsListUrl() + userIdParam, "application/json", "application/json");
                 Utils.printLog(context, TAG, "User details response is :" + response);
                 if (TextUtils.isEmpty(response) || response.contains("<html>")) {
                     return null;
@@ -430,50 +439,54 @@ public class UserClientService extends MobiComKitClientService {
     /**
      * Retrieves data of users for the given user-ids from the backend and updates it locally.
      *
+     * <p>The ids are sent in batches of {@link #BATCH_SIZE}, one after the other.
+     * Internal code should use {@link UserService#loadUserDetails(Set, boolean, boolean)} instead, which fetches the batches in parallel and skips ids already being fetched.</p>
+     *
      * @param userIds set of user ids to sync
-     * @return api response from the server
+     * @return api response from the server, for the last batch
      */
     public @Nullable String postUserDetailsByUserIds(@Nullable Set<String> userIds) {
-        try {
-            if (userIds != null && userIds.size() > 0) {
-                List<String> userDetailsList = new ArrayList<>();
-                String response = "";
-                int count = 0;
-                for (String userId : userIds) {
-                    count++;
-                    userDetailsList.add(userId);
-                    if (count % BATCH_SIZE == 0) {
-                        UserDetailListFeed userDetailListFeed = new UserDetailListFeed();
-                        userDetailListFeed.setContactSync(true);
-                        userDetailListFeed.setUserIdList(userDetailsList);
-                        String jsonFromObject = GsonUtils.getJsonFromObject(userDetailListFeed, userDetailListFeed.getClass());
-                        Utils.printLog(context, TAG, "Sending json:" + jsonFromObject);
-                        response = httpRequestUtils.postData(getUserDetailsListPostUrl(), "application/json", "application/json", jsonFromObject);
-                        userDetailsList = new ArrayList<String>();
-                        if (!TextUtils.isEmpty(response)) {
-                            UserService.getInstance(context).processUserDetailsResponse(response);
-                        }
-                    }
-                }
-                if (!userDetailsList.isEmpty() && userDetailsList.size() > 0) {
-                    UserDetailListFeed userDetailListFeed = new UserDetailListFeed();
-                    userDetailListFeed.setContactSync(true);
-                    userDetailListFeed.setUserIdList(userDetailsList);
-                    String jsonFromObject = GsonUtils.getJsonFromObject(userDetailListFeed, userDetailListFeed.getClass());
-                    response = httpRequestUtils.postData(getUserDetailsListPostUrl(), "application/json", "application/json", jsonFromObject);
-
-                    Utils.printLog(context, TAG, "User details response is :" + response);
-                    if (TextUtils.isEmpty(response) || response.contains("<html>")) {
-                        return null;
-                    }
-
-                    if (!TextUtils.isEmpty(response)) {
-                        UserService.getInstance(context).processUserDetailsResponse(response);
-                    }
+        if (userIds == null || userIds.isEmpty()) {
+            return null;
+        }
+        String response = null;
+        List<String> batch = new ArrayList<>();
+        int count = 0;
+        for (String userId : userIds) {
+            count++;
+            batch.add(userId);
+            if (count % BATCH_SIZE == 0 || count == userIds.size()) {
+                response = postUserDetails(batch);
+                batch = new ArrayList<>();
+                if (!TextUtils.isEmpty(response)) {
+                    UserService.getInstance(context).processUserDetailsResponse(response);
                 }
-                return response;
             }
+        }
+        return response;
+    }
 
+    /**
+     * Retrieves data of users for the given user-ids from the backend, with a single request. Use for at most {@link #BATCH_SIZE} user-ids.
+     *
+     * <p>Note: This is a network method. Run it asynchronously.</p>
+     *
+     * @param userIds the user-ids to get details for
+     * @return string json api response (a list of {@link UserDetail}). null in case of error
+     */
+    String postUserDetails(@NonNull Collection<String> userIds) {
+        try {
+            UserDetailListFeed userDetailListFeed = new UserDetailListFeed();
+            userDetailListFeed.setContactSync(true);
+            userDetailListFeed.setUserIdList(new ArrayList<>(userIds));
+            String jsonFromObject = GsonUtils.getJsonFromObject(userDetailListFeed, userDetailListFeed.getClass());
+            Utils.printLog(context, TAG, "Sending json:", jsonFromObject);
+            String response = httpRequestUtils.postData(getUserDetailsListPostUrl(), "application/json", "application/json", jsonFromObject);
+            Utils.printLog(context, TAG, "User details response is :", response);
+            if (TextUtils.isEmpty(response) || response.contains("<html>")) {
+                return null;
+            }
+            return response;
         } catch (Exception e) {
             e.printStackTrace();
         }
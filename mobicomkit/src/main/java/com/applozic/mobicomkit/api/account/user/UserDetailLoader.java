@@ -0,0 +1,183 @@
+package com.applozic.mobicomkit.api.account.user;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.applozic.mobicommons.task.AlDaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Fetches user details from the server for {@link UserService}.</p>
+ *
+ * <p>Ids that are already being fetched (by another thread) with the same API are not requested again, the caller waits for that fetch instead.
+ * The remaining ids are split into batches of {@link UserClientService#BATCH_SIZE}, which are fetched in parallel,
+ * at most {@link com.applozic.mobicomkit.ApplozicClient#getUserDetailFetchConcurrency()} at a time.
+ * Optionally, ids fetched in the last {@link #USER_DETAIL_TTL_MILLIS} are skipped.</p>
+ */
+class UserDetailLoader {
+    private static final long USER_DETAIL_TTL_MILLIS = 2 * 60 * 1000;
+    private static final int FETCH_TIME_CACHE_SIZE = 2000;
+
+    interface BatchFetcher {
+        /**
+         * Fetches and stores the details of the given users. Runs on a loader thread.
+         *
+         * @return the user details, null in case of error
+         */
+        @Nullable List<UserDetail> fetch(@NonNull Set<String> userIds, boolean contactSync);
+    }
+
+    private final BatchFetcher batchFetcher;
+    private final ThreadPoolExecutor executor;
+    //guarded by this, keyed by getInFlightKey
+    private final Map<String, Batch> inFlightBatches = new HashMap<>();
+    private final LruCache<String, Long> fetchTimes = new LruCache<>(FETCH_TIME_CACHE_SIZE);
+
+    UserDetailLoader(@NonNull BatchFetcher batchFetcher, int concurrency) {
+        this.batchFetcher = batchFetcher;
+        int poolSize = Math.max(1, concurrency);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new AlDaemonThreadFactory("AlUserDetailLoader"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Fetches the details for the given users and waits for them. Blocking, don't call it from the main thread.
+     *
+     * @param contactSync true to use the contact sync (POST) API, false for the plain user details (GET) API
+     * @param skipRecentlyFetched true to skip the users fetched in the last {@link #USER_DETAIL_TTL_MILLIS}
+     * @return the details of the fetched users, that were requested. Skipped and failed users are not part of it
+     */
+    @NonNull List<UserDetail> load(@Nullable Set<String> userIds, boolean contactSync, boolean skipRecentlyFetched) {
+        List<UserDetail> userDetails = new ArrayList<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return userDetails;
+        }
+
+        Set<Batch> batches = new LinkedHashSet<>();
+        List<Batch> newBatches = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Set<String> batchUserIds = new HashSet<>();
+            for (String userId : userIds) {
+                if (TextUtils.isEmpty(userId)) {
+                    continue;
+                }
+                Batch inFlightBatch = inFlightBatches.get(getInFlightKey(userId, contactSync));
+                if (inFlightBatch != null) {
+                    batches.add(inFlightBatch);
+                    continue;
+                }
+                if (skipRecentlyFetched) {
+                    Long fetchTime = fetchTimes.get(userId);
+                    if (fetchTime != null && now - fetchTime < USER_DETAIL_TTL_MILLIS) {
+                        continue;
+                    }
+                }
+                batchUserIds.add(userId);
+                if (batchUserIds.size() == UserClientService.BATCH_SIZE) {
+                    newBatches.add(new Batch(batchUserIds, contactSync));
+                    batchUserIds = new HashSet<>();
+                }
+            }
+            if (!batchUserIds.isEmpty()) {
+                newBatches.add(new Batch(batchUserIds, contactSync));
+            }
+            for (Batch batch : newBatches) {
+                for (String userId : batch.userIds) {
+                    inFlightBatches.put(getInFlightKey(userId, contactSync), batch);
+                }
+                batches.add(batch);
+            }
+        }
+
+        for (Batch batch : newBatches) {
+            executor.execute(batch);
+        }
+
+        for (Batch batch : batches) {
+            try {
+                List<UserDetail> batchUserDetails = batch.get();
+                if (batchUserDetails == null) {
+                    continue;
+                }
+                for (UserDetail userDetail : batchUserDetails) {
+                    if (userDetail != null && userIds.contains(userDetail.getUserId())) {
+                        userDetails.add(userDetail);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        return userDetails;
+    }
+
+    private synchronized void onBatchDone(Batch batch) {
+        for (String userId : batch.userIds) {
+            String inFlightKey = getInFlightKey(userId, batch.contactSync);
+            if (inFlightBatches.get(inFlightKey) == batch) {
+                inFlightBatches.remove(inFlightKey);
+            }
+        }
+        try {
+            List<UserDetail> userDetails = batch.get();
+            if (userDetails != null) {
+                long now = System.currentTimeMillis();
+                for (UserDetail userDetail : userDetails) {
+                    if (userDetail != null && !TextUtils.isEmpty(userDetail.getUserId())) {
+                        fetchTimes.put(userDetail.getUserId(), now);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    //the contact sync and the user details APIs don't return the same data, a fetch with one doesn't stand in for the other
+    private static String getInFlightKey(String userId, boolean contactSync) {
+        return (contactSync ? "contactSync:" : "userDetail:") + userId;
+    }
+
+    private class Batch extends FutureTask<List<UserDetail>> {
+        final Set<String> userIds;
+        final boolean contactSync;
+
+        Batch(final Set<String> userIds, final boolean contactSync) {
+            super(new Callable<List<UserDetail>>() {
+                @Override
+                public List<UserDetail> call() {
+                    return batchFetcher.fetch(userIds, contactSync);
+                }
+            });
+            this.userIds = userIds;
+            this.contactSync = contactSync;
+        }
+
+        @Override
+        protected void done() {
+            onBatchDone(this);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.notification.MuteUserResponse;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
@@ -48,6 +49,7 @@ public class UserService {
     UserClientService userClientService; //Cleanup: private
     BaseContactService baseContactService; //Cleanup: private
     private final MobiComUserPreference userPreference;
+    private final UserDetailLoader userDetailLoader;
 
     @SuppressLint("StaticFieldLeak") //only application context is passed to this field
     private static UserService userService;
@@ -57,6 +59,12 @@ public class UserService {
         userClientService = new UserClientService(context);
         userPreference = MobiComUserPreference.getInstance(context);
         baseContactService = new AppContactService(context);
+        userDetailLoader = new UserDetailLoader(new UserDetailLoader.BatchFetcher() {
+            @Override
+            public List<UserDetail> fetch(@NonNull Set<String> userIds, boolean contactSync) {
+                return fetchUserDetails(userIds, contactSync);
+            }
+        }, ApplozicClient.getInstance(context).getUserDetailFetchConcurrency());
     }
 
     public static @NonNull UserService getInstance(@NonNull Context context) {
@@ -69,12 +77,56 @@ public class UserService {
     //Cleanup: default
     //Cleanup: this method should be renamed sync user/contact details
     /**
-     * Wraps around {@link UserClientService#postUserDetailsByUserIds(Set)}.
+     * Retrieves data of users for the given user-ids from the backend (contact sync) and updates it locally.
+     * Users fetched in the last couple of minutes are skipped.
      *
      * <p>Note: This method has database and network operation. Run it asynchronously.</p>
      */
     public void processUserDetailsByUserIds(@Nullable Set<String> userIds) {
-        userClientService.postUserDetailsByUserIds(userIds);
+        userDetailLoader.load(userIds, true, true);
+    }
+
+    /**
+     * Internal. Do not use.
+     *
+     * Retrieves data of users for the given user-ids from the backend and updates it locally.
+     * The ids are fetched in parallel batches of {@link UserClientService#BATCH_SIZE}. Ids that are already being fetched are not requested again,
+     * the call waits for that fetch instead.
+     *
+     * <p>Note: This method has database and network operation. Run it asynchronously.</p>
+     *
+     * @param contactSync true to use the contact sync API ({@link UserClientService#getUserDetailsListPostUrl()})
+     * @param skipRecentlyFetched true to skip the users fetched in the last couple of minutes
+     * @return the details of the fetched users
+     */
+    public @NonNull List<UserDetail> loadUserDetails(@Nullable Set<String> userIds, boolean contactSync, boolean skipRecentlyFetched) {
+        return userDetailLoader.load(userIds, contactSync, skipRecentlyFetched);
+    }
+
+    //fetches and saves a single batch, called by the userDetailLoader
+    @Nullable List<UserDetail> fetchUserDetails(@NonNull Set<String> userIds, boolean contactSync) {
+        List<UserDetail> userDetails;
+        if (contactSync) {
+            String response = userClientService.postUserDetails(userIds);
+            if (TextUtils.isEmpty(response)) {
+                return null;
+            }
+            userDetails = (List<UserDetail>) GsonUtils.getObjectFromJson(response, new TypeToken<List<UserDetail>>() {
+            }.getType());
+        } else {
+            String response = userClientService.getUserDetails(userIds);
+            if (TextUtils.isEmpty(response)) {
+                return null;
+            }
+            UserDetail[] userDetailArray = (UserDetail[]) GsonUtils.getObjectFromJson(response, UserDetail[].class);
+            userDetails = userDetailArray != null ? Arrays.asList(userDetailArray) : null;
+        }
+        if (userDetails != null) {
+            for (UserDetail userDetail : userDetails) {
+                processUser(userDetail);
+            }
+        }
+        return userDetails;
     }
 
     /**
@@ -281,7 +333,7 @@ public class UserService {
      * @param userDetail the user details object
      * @return the contact object
      */
-    public synchronized @NonNull Contact getContactFromUserDetail(@NonNull UserDetail userDetail) {
+    public @NonNull Contact getContactFromUserDetail(@NonNull UserDetail userDetail) {
         return getContactFromUserDetail(userDetail, Contact.ContactType.APPLOZIC);
     }
 
@@ -390,14 +442,8 @@ public class UserService {
     }
 
     /** Internal. Do not use. */
-    public synchronized void processUserDetails(Set<String> userIds) {
-        String response = userClientService.getUserDetails(userIds);
-        if (!TextUtils.isEmpty(response)) {
-            UserDetail[] userDetails = (UserDetail[]) GsonUtils.getObjectFromJson(response, UserDetail[].class);
-            for (UserDetail userDetail : userDetails) {
-                processUser(userDetail);
-            }
-        }
+    public void processUserDetails(Set<String> userIds) {
+        userDetailLoader.load(userIds, false, true);
     }
 
     //Cleanup: default
@@ -454,10 +500,10 @@ public class UserService {
 
     /** Internal. Do not use. **/
     //Cleanup: private
-    public synchronized void processUserDetails(String userId) {
+    public void processUserDetails(String userId) {
         Set<String> userIds = new HashSet<String>();
         userIds.add(userId);
-        processUserDetails(userIds);
+        userDetailLoader.load(userIds, false, false);
     }
 
     //Cleanup: private
@@ -503,7 +549,7 @@ public class UserService {
 
     /** Internal. Do not use. **/
     //Cleanup: private
-    public synchronized void processUser(UserDetail userDetail) {
+    public void processUser(UserDetail userDetail) {
         processUser(userDetail, Contact.ContactType.APPLOZIC);
     }
 
@@ -511,7 +557,7 @@ public class UserService {
     /**
      * Internal. Use {@link #getContactFromUserDetail(UserDetail)}.
      */
-    public synchronized @NonNull Contact getContactFromUserDetail(@NonNull UserDetail userDetail, @NonNull Contact.ContactType contactType) {
+    public @NonNull Contact getContactFromUserDetail(@NonNull UserDetail userDetail, @NonNull Contact.ContactType contactType) {
         Contact contact = new Contact();
         contact.setUserId(userDetail.getUserId());
         contact.setContactNumber(userDetail.getPhoneNumber());
@@ -547,7 +593,7 @@ public class UserService {
      * @param userDetail the user detail to save
      * @param contactType the contact type of the user
      */
-    public synchronized void processUser(UserDetail userDetail, Contact.ContactType contactType) {
+    public void processUser(UserDetail userDetail, Contact.ContactType contactType) {
         Contact contact = new Contact();
         contact.setUserId(userDetail.getUserId());
         contact.setContactNumber(userDetail.getPhoneNumber());
@@ -575,7 +621,7 @@ public class UserService {
      * Internal. Do not use.
      */
     //Cleanup: private
-    public synchronized void processMuteUserResponse(MuteUserResponse response) {
+    public void processMuteUserResponse(MuteUserResponse response) {
         Contact contact = new Contact();
         contact.setUserId(response.getUserId());
         BroadcastService.sendMuteUserBroadcast(context, BroadcastService.INTENT_ACTIONS.MUTE_USER_CHAT.toString(), true, response.getUserId());
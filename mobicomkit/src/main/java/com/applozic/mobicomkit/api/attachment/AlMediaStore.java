@@ -0,0 +1,297 @@
+package com.applozic.mobicomkit.api.attachment;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.applozic.mobicomkit.ApplozicClient;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Internal class.
+ *
+ * <p>Stores the downloaded attachments by content, so an attachment received in many messages (a forwarded image for example) is downloaded and kept once.
+ * The file of an attachment is <code>&lt;content type folder&gt;/&lt;content key&gt;/&lt;file name&gt;</code>, the content key being a hash of its blob key
+ * (see {@link #getContentKey(FileMeta)}). The file name is kept as it is, and the video thumbnails go in the same folder.</p>
+ *
+ * <p>The references to a stored file are the <code>sms</code> rows that have it in their <code>filePaths</code>
+ * (see {@link MessageDatabaseService#getFilePathReferenceCounts()}). Files nothing refers to anymore are kept as long as the store is within
+ * {@link ApplozicClient#getMediaStoreQuota()}, and are deleted least recently used first once it isn't. Files that are referenced are never deleted.</p>
+ *
+ * <p>Garbage is collected in the background, after messages are deleted and after a file is added (see {@link #collectGarbage()}).</p>
+ *
+ * <p>Audio messages, attachments downloaded before the store and the files the user sent are kept where they are.</p>
+ */
+public class AlMediaStore {
+    private static final String TAG = "AlMediaStore";
+    private static final String[] CONTENT_TYPE_FOLDERS = {"image", "video", "text/x-vCard", "other"};
+    private static final String CONTENT_KEY_PATTERN = "[0-9a-f]{40}";
+    //a file used this recently might be in the middle of a download, or about to be referenced by a message being saved
+    private static final long RECENTLY_USED_MILLIS = 10 * 60 * 1000;
+
+    private static AlMediaStore mediaStore;
+
+    private final Context context;
+    private final MessageDatabaseService messageDatabaseService;
+    //null for the SDK's attachment folders
+    private final @Nullable File storeDirectory;
+    private final ExecutorService executor;
+    private final AtomicBoolean garbageCollectionPending = new AtomicBoolean();
+
+    private AlMediaStore(Context context) {
+        this(context, new MessageDatabaseService(context), null);
+    }
+
+    /**
+     * @param storeDirectory the content type folders are created in this instead of the SDK's attachment folders
+     */
+    @VisibleForTesting
+    AlMediaStore(@NonNull Context context, @NonNull MessageDatabaseService messageDatabaseService, @Nullable File storeDirectory) {
+        this.context = ApplozicService.getContext(context);
+        this.messageDatabaseService = messageDatabaseService;
+        this.storeDirectory = storeDirectory;
+        executor = AlExecutors.newIdleTimeoutExecutor(TAG, 1);
+    }
+
+    public static synchronized @NonNull AlMediaStore getInstance(@Nullable Context context) {
+        if (mediaStore == null) {
+            mediaStore = new AlMediaStore(context);
+        }
+        return mediaStore;
+    }
+
+    /**
+     * Gets the file the attachment of the message is stored in. It may not exist yet, nor its folder:
+     * the folder is created by the download, right before the file is written.
+     *
+     * @return null if the attachment has no blob key or url, or no name
+     */
+    public @Nullable File getMediaFile(@NonNull Message message) {
+        FileMeta fileMeta = message.getFileMetas();
+        String contentKey = getContentKey(fileMeta);
+        if (contentKey == null || TextUtils.isEmpty(fileMeta.getName()) || fileMeta.getContentType() == null) {
+            return null;
+        }
+        File directory = new File(getContentTypeFolder(fileMeta.getContentType()), contentKey);
+        return new File(directory, new File(fileMeta.getName()).getName());
+    }
+
+    /**
+     * Marks the stored file as used now, for the least recently used eviction.
+     */
+    public void touch(@Nullable File file) {
+        if (file != null && file.exists()) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Deletes the files nothing refers to, least recently used first, until the store is within its quota.
+     * This runs in the background, and a call made while one is pending is dropped.
+     */
+    public void collectGarbage() {
+        if (!garbageCollectionPending.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                garbageCollectionPending.set(false);
+                try {
+                    trimToQuota(ApplozicClient.getInstance(context).getMediaStoreQuota());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the given attachment files that no message refers to anymore, for example the files of messages deleted by
+     * {@link com.applozic.mobicomkit.api.conversation.retention.MessageRetention}, then collects the garbage of the store.
+     * The files in the store are left to the garbage collection, and files outside of the SDK's folders (a sent file the user picked from their
+     * storage for example) are never deleted.
+     *
+     * @return the number of files deleted outside of the store
+     */
+    @WorkerThread
+    public int deleteUnreferencedFiles(@NonNull Collection<String> filePaths) {
+        int deletedCount = 0;
+        if (!filePaths.isEmpty()) {
+            Set<File> folders = new HashSet<>();
+            for (String contentType : CONTENT_TYPE_FOLDERS) {
+                folders.add(getContentTypeFolder(contentType).getAbsoluteFile());
+            }
+            Map<String, Integer> referenceCounts = messageDatabaseService.getFilePathReferenceCounts();
+            for (String filePath : filePaths) {
+                File file = new File(filePath).getAbsoluteFile();
+                if (folders.contains(file.getParentFile()) && !referenceCounts.containsKey(filePath) && file.isFile() && file.delete()) {
+                    deletedCount++;
+                }
+            }
+        }
+        trimToQuota(ApplozicClient.getInstance(context).getMediaStoreQuota());
+        return deletedCount;
+    }
+
+    /**
+     * @return the number of stored attachments deleted
+     */
+    @VisibleForTesting
+    @WorkerThread
+    synchronized int trimToQuota(long quotaBytes) {
+        List<Entry> entries = new ArrayList<>();
+        long totalSize = 0;
+        for (String contentType : CONTENT_TYPE_FOLDERS) {
+            File[] directories = getContentTypeFolder(contentType).listFiles();
+            if (directories == null) {
+                continue;
+            }
+            for (File directory : directories) {
+                if (directory.isDirectory() && directory.getName().matches(CONTENT_KEY_PATTERN)) {
+                    Entry entry = new Entry(directory);
+                    entries.add(entry);
+                    totalSize += entry.size;
+                }
+            }
+        }
+        if (totalSize <= quotaBytes) {
+            return 0;
+        }
+
+        Map<String, Integer> referenceCounts = messageDatabaseService.getFilePathReferenceCounts();
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                return entry1.lastUsed < entry2.lastUsed ? -1 : (entry1.lastUsed == entry2.lastUsed ? 0 : 1);
+            }
+        });
+        long now = System.currentTimeMillis();
+        int deletedCount = 0;
+        long deletedSize = 0;
+        for (Entry entry : entries) {
+            if (totalSize - deletedSize <= quotaBytes) {
+                break;
+            }
+            if (now - entry.lastUsed < RECENTLY_USED_MILLIS || isReferenced(entry.directory, referenceCounts)) {
+                continue;
+            }
+            if (deleteRecursively(entry.directory)) {
+                deletedCount++;
+                deletedSize += entry.size;
+            }
+        }
+        Utils.printLog(context, TAG, "Deleted " + deletedCount + " unreferenced files (" + deletedSize + " bytes), the store has " + (totalSize - deletedSize) + " bytes for a quota of " + quotaBytes);
+        return deletedCount;
+    }
+
+    /**
+     * The folder for the content type, as picked by {@link FileClientService#getFilePath(String, Context, String)}.
+     */
+    private File getContentTypeFolder(String contentType) {
+        if (storeDirectory == null) {
+            return FileClientService.getFilePath("", context, contentType);
+        }
+        String folderName = "other";
+        if (contentType.startsWith("image")) {
+            folderName = "image";
+        } else if (contentType.startsWith("video")) {
+            folderName = "video";
+        } else if (contentType.equalsIgnoreCase("text/x-vCard")) {
+            folderName = "contact";
+        }
+        return new File(storeDirectory, folderName);
+    }
+
+    private static boolean isReferenced(File directory, Map<String, Integer> referenceCounts) {
+        String directoryPath = directory.getAbsolutePath() + File.separator;
+        for (String filePath : referenceCounts.keySet()) {
+            if (filePath.startsWith(directoryPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        return file.delete();
+    }
+
+    /**
+     * The content key is the hex SHA-1 of the blob key of the attachment, or of its url if there's no blob key.
+     *
+     * @return null if the attachment has neither
+     */
+    @VisibleForTesting
+    static @Nullable String getContentKey(@Nullable FileMeta fileMeta) {
+        if (fileMeta == null) {
+            return null;
+        }
+        String source = !TextUtils.isEmpty(fileMeta.getBlobKeyString()) ? fileMeta.getBlobKeyString() : fileMeta.getUrl();
+        if (TextUtils.isEmpty(source)) {
+            return null;
+        }
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            StringBuilder contentKey = new StringBuilder();
+            for (byte b : messageDigest.digest(source.getBytes("UTF-8"))) {
+                contentKey.append(String.format(Locale.US, "%02x", b));
+            }
+            return contentKey.toString();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static class Entry {
+        final File directory;
+        long size;
+        long lastUsed;
+
+        Entry(File directory) {
+            this.directory = directory;
+            add(directory);
+        }
+
+        private void add(File file) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                size += file.length();
+                lastUsed = Math.max(lastUsed, file.lastModified());
+                return;
+            }
+            for (File child : children) {
+                add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.applozic.mobicomkit.api.attachment;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.collection.LruCache;
+
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Generates the thumbnails of video attachments in the background, and keeps them on disk.
+ *
+ * <p>A thumbnail is generated once per video file, and saved to {@link FileClientService#getThumbnailPath(String)}
+ * (the video file path is the key). It is generated ahead of time when a video is sent or downloaded (see {@link #precomputeThumbnail(String)}),
+ * so the views and the upload of the thumbnail find it ready.</p>
+ *
+ * <p>Views should not wait for a thumbnail: show what is in memory (or a placeholder), and call {@link #loadThumbnail(String, Callback)}.
+ * Keeping the loaded bitmaps in memory is left to the caller.</p>
+ *
+ * <p>A video whose thumbnail couldn't be extracted isn't tried again on every bind, only once the file changes.</p>
+ */
+public class AlVideoThumbnailCache {
+    private static final String TAG = "AlVideoThumbnailCache";
+    private static final int THREADS = 2;
+    private static final int LOCK_STRIPES = 16;
+    private static final int FAILED_VIDEOS_SIZE = 100;
+
+    private static AlVideoThumbnailCache videoThumbnailCache;
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //the same video is never extracted twice at the same time, the lock of a video is picked by its path
+    private final Object[] thumbnailLocks = new Object[LOCK_STRIPES];
+    //guarded by this. the callbacks of the thumbnails being loaded, by video file path
+    private final Map<String, List<Callback>> pendingCallbacks = new HashMap<>();
+    //the videos the extraction failed for, by video file path, with the last modified time of the file then
+    private final LruCache<String, Long> failedVideos = new LruCache<>(FAILED_VIDEOS_SIZE);
+
+    private AlVideoThumbnailCache(Context context) {
+        this.context = ApplozicService.getContext(context);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            thumbnailLocks[i] = new Object();
+        }
+        executor = AlExecutors.newIdleTimeoutExecutor(TAG, THREADS);
+    }
+
+    public static synchronized @NonNull AlVideoThumbnailCache getInstance(@Nullable Context context) {
+        if (videoThumbnailCache == null) {
+            videoThumbnailCache = new AlVideoThumbnailCache(context);
+        }
+        return videoThumbnailCache;
+    }
+
+    /**
+     * Generates the thumbnail of the video in the background, if it isn't on disk already.
+     */
+    public void precomputeThumbnail(@Nullable final String videoFilePath) {
+        if (TextUtils.isEmpty(videoFilePath)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getOrCreateThumbnailPath(videoFilePath);
+            }
+        });
+    }
+
+    /**
+     * Loads the thumbnail of the video in the background, generating it first if needed.
+     *
+     * @param callback called on the main thread, with null if the thumbnail couldn't be generated
+     */
+    public void loadThumbnail(@NonNull final String videoFilePath, @NonNull Callback callback) {
+        synchronized (this) {
+            List<Callback> callbacks = pendingCallbacks.get(videoFilePath);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingCallbacks.put(videoFilePath, callbacks);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap thumbnail = null;
+                try {
+                    String thumbnailPath = getOrCreateThumbnailPath(videoFilePath);
+                    thumbnail = thumbnailPath != null ? BitmapFactory.decodeFile(thumbnailPath) : null;
+                } finally {
+                    //also on failure, else the later loads of the video would only be queued behind this one and never called back
+                    final Bitmap loadedThumbnail = thumbnail;
+                    final List<Callback> callbacks;
+                    synchronized (AlVideoThumbnailCache.this) {
+                        callbacks = pendingCallbacks.remove(videoFilePath);
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (Callback callback : callbacks) {
+                                callback.onThumbnailLoaded(loadedThumbnail);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the path of the thumbnail of the video, generating it first if needed.
+     * If the thumbnail is being generated on another thread, this waits for it instead of generating it again.
+     *
+     * @return null if the thumbnail couldn't be generated, now or before for the same file
+     */
+    @WorkerThread
+    public @Nullable String getOrCreateThumbnailPath(@NonNull String videoFilePath) {
+        synchronized (thumbnailLocks[(videoFilePath.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            FileClientService fileClientService = new FileClientService(context);
+            String thumbnailPath = fileClientService.getThumbnailPath(videoFilePath);
+            if (new File(thumbnailPath).exists()) {
+                return thumbnailPath;
+            }
+            long lastModified = new File(videoFilePath).lastModified();
+            Long failedLastModified = failedVideos.get(videoFilePath);
+            if (failedLastModified != null && failedLastModified == lastModified) {
+                return null;
+            }
+            if (fileClientService.createThumbnailFileInLocalStorageAndReturnBitmap(videoFilePath) == null) {
+                failedVideos.put(videoFilePath, lastModified);
+                return null;
+            }
+            failedVideos.remove(videoFilePath);
+            return thumbnailPath;
+        }
+    }
+
+    public interface Callback {
+        void onThumbnailLoaded(@Nullable Bitmap thumbnail);
+    }
+}
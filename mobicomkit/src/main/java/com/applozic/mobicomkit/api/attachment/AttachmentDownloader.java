@@ -32,6 +32,7 @@ import com.applozic.mobicommons.file.FileUtils;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
@@ -150,22 +151,32 @@ class AttachmentDownloader extends MobiComKitClientService implements Runnable {
 
     public void loadAttachmentImage(Message message, Context context) {
         File file = null;
+        File tempFile = null;
         HttpURLConnection connection = null;
         InputStream inputStream = null;
         OutputStream output = null;
         try {
             FileMeta fileMeta = message.getFileMetas();
             String contentType = fileMeta.getContentType();
-            String fileName = null;
-            if (message.getContentType() == Message.ContentType.AUDIO_MSG.getValue()) {
-                fileName = fileMeta.getName();
-            } else {
-                fileName = FileUtils.getName(fileMeta.getName()) + message.getCreatedAtTime() + "." + FileUtils.getFileFormat(fileMeta.getName());
+            AlMediaStore mediaStore = AlMediaStore.getInstance(context);
+            if (message.getContentType() != Message.ContentType.AUDIO_MSG.getValue()) {
+                file = mediaStore.getMediaFile(message);
             }
-
-            file = FileClientService.getFilePath(fileName, context.getApplicationContext(), contentType);
+            if (file == null) {
+                String fileName = null;
+                if (message.getContentType() == Message.ContentType.AUDIO_MSG.getValue()) {
+                    fileName = fileMeta.getName();
+                } else {
+                    fileName = FileUtils.getName(fileMeta.getName()) + message.getCreatedAtTime() + "." + FileUtils.getFileFormat(fileMeta.getName());
+                }
+                file = FileClientService.getFilePath(fileName, context.getApplicationContext(), contentType);
+            }
+            boolean downloaded = false;
             try {
-                if (!file.exists()) {
+                if (file.exists()) {
+                    //the same attachment was downloaded for another message
+                    mediaStore.touch(file);
+                } else {
 
                     connection = new URLServiceProvider(context).getDownloadConnection(message);
 
@@ -177,7 +188,13 @@ class AttachmentDownloader extends MobiComKitClientService implements Runnable {
                         return;
                     }
 
-                    output = new FileOutputStream(file);
+                    File directory = file.getParentFile();
+                    if (directory != null && !directory.exists()) {
+                        directory.mkdirs();
+                    }
+                    //downloaded to a file of its own, the same attachment may be downloading for another message
+                    tempFile = new File(file.getAbsolutePath() + "." + Thread.currentThread().getId() + ".tmp");
+                    output = new FileOutputStream(tempFile);
                     byte data[] = new byte[1024];
                     long totalSize = fileMeta.getSize();
                     long progressCount = 0;
@@ -204,14 +221,18 @@ class AttachmentDownloader extends MobiComKitClientService implements Runnable {
                             msg.obj = this;
                         }
                         if (Thread.interrupted()) {
-                            if (file != null && file.exists()) {
-                                file.delete();
-                                Utils.printLog(context, TAG, "Downloading cancelled : " + file.getAbsolutePath());
-                            }
+                            Utils.printLog(context, TAG, "Downloading cancelled : " + file.getAbsolutePath());
                             throw new InterruptedException();
                         }
                     }
                     output.flush();
+                    output.close();
+                    output = null;
+                    if (!tempFile.renameTo(file)) {
+                        throw new IOException("Could not move the download to " + file.getAbsolutePath());
+                    }
+                    tempFile = null;
+                    downloaded = true;
                 }
             } finally {
                 if (output != null) {
@@ -228,6 +249,13 @@ class AttachmentDownloader extends MobiComKitClientService implements Runnable {
             arrayList.add(file.getAbsolutePath());
             message.setFilePaths(arrayList);
 
+            if (contentType != null && contentType.startsWith("video")) {
+                AlVideoThumbnailCache.getInstance(context).precomputeThumbnail(file.getAbsolutePath());
+            }
+            if (downloaded) {
+                mediaStore.collectGarbage();
+            }
+
             MediaScannerConnection.scanFile(mPhotoTask.getContext(),
                     new String[]{file.toString()}, null,
                     new MediaScannerConnection.OnScanCompletedListener() {
@@ -241,14 +269,16 @@ class AttachmentDownloader extends MobiComKitClientService implements Runnable {
             ex.printStackTrace();
             Utils.printLog(context, TAG, "File not found on server");
         } catch (Exception ex) {
-            //If partial file got created delete it, we try to download it again
-            if (file != null && file.exists()) {
+            //The partial download is deleted below, it's downloaded again next time
+            if (file != null) {
                 Utils.printLog(context, TAG, " Exception occured while downloading :" + file.getAbsolutePath());
-                file.delete();
             }
             ex.printStackTrace();
             Utils.printLog(context, TAG, "Exception fetching file from server");
         } finally {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
             if (connection != null) {
                 connection.disconnect();
             }
@@ -27,21 +27,30 @@ import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.collection.LruCache;
 
 import com.applozic.mobicomkit.broadcast.BroadcastService;
 import com.applozic.mobicomkit.exception.ApplozicException;
 import com.applozic.mobicomkit.listners.MediaDownloadProgressHandler;
+import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.applozic.mobicommons.commons.image.PhotoDecodeRunnable;
 import com.applozic.mobicommons.file.FileUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -58,6 +67,12 @@ import java.util.concurrent.TimeUnit;
  * simultaneous image decoding threads to the number of available processor
  * cores.</p>
  *
+ * <p>Downloads are queued in two lanes. Downloads for views on screen (and document downloads, started by a tap) come first,
+ * in the order they were asked for. The others come next, the most recent first, as they are closest to where the user scrolled to.
+ * A download that hasn't started is dropped when its view leaves the window (see {@link #cancelQueuedDownload(AttachmentTask)}).
+ * The number of download threads depends on the number of cores and on whether the network is metered.
+ * See {@link #getDownloadMetricsSummary()} for the downloads of each lane.</p>
+ *
  * <p>Finally, this class defines a handler that communicates back to the UI
  * thread to change the bitmap to reflect the state.</p>
  */
@@ -85,11 +100,12 @@ public class AttachmentManager {
     // Sets the Time Unit to seconds
     private static final TimeUnit KEEP_ALIVE_TIME_UNIT;
 
-    // Sets the initial threadpool size to 8
-    private static final int CORE_POOL_SIZE = 8;
+    // Sets the download threadpool size on an unmetered network, between 4 and 8 depending on the cores
+    private static final int MIN_UNMETERED_POOL_SIZE = 4;
+    private static final int MAX_UNMETERED_POOL_SIZE = 8;
 
-    // Sets the maximum threadpool size to 8
-    private static final int MAXIMUM_POOL_SIZE = 8;
+    // Sets the download threadpool size on a metered network, parallel downloads would only share the bandwidth
+    private static final int METERED_POOL_SIZE = 2;
 
     /**
      * NOTE: This is the number of total available cores. On current versions of
@@ -121,6 +137,10 @@ public class AttachmentManager {
     private final Queue<AttachmentTask> mPhotoTaskWorkQueue;
     // A managed pool of background download threads
     private final ThreadPoolExecutor mDownloadThreadPool;
+    // The queued download of each task, until it starts
+    private final Map<AttachmentTask, PrioritizedDownload> mQueuedDownloads = new ConcurrentHashMap<>();
+    private final AtomicLong mDownloadSequence = new AtomicLong();
+    private final LaneMetrics[] mLaneMetrics = new LaneMetrics[]{new LaneMetrics(), new LaneMetrics()};
     //taking reference for future use ::
     // A managed pool of background decoder threads
     private final ThreadPoolExecutor mDecodeThreadPool;
@@ -140,10 +160,10 @@ public class AttachmentManager {
         attachmentInProgress = new ArrayList<String>();
         attachmentTaskList = new ArrayList<AttachmentTask>();
         /*
-         * Creates a work queue for the pool of Thread objects used for downloading, using a linked
-         * list queue that blocks when the queue is empty.
+         * Creates a work queue for the pool of Thread objects used for downloading, using a priority
+         * queue of PrioritizedDownloads that blocks when the queue is empty.
          */
-        mDownloadWorkQueue = new LinkedBlockingQueue<Runnable>();
+        mDownloadWorkQueue = new PriorityBlockingQueue<Runnable>();
 
         /*
          * Creates a work queue for the pool of Thread objects used for decoding, using a linked
@@ -160,8 +180,10 @@ public class AttachmentManager {
         /*
          * Creates a new pool of Thread objects for the download work queue
          */
-        mDownloadThreadPool = new ThreadPoolExecutor(CORE_POOL_SIZE, MAXIMUM_POOL_SIZE,
+        int downloadPoolSize = getDownloadPoolSize(false);
+        mDownloadThreadPool = new ThreadPoolExecutor(downloadPoolSize, downloadPoolSize,
                 KEEP_ALIVE_TIME, KEEP_ALIVE_TIME_UNIT, mDownloadWorkQueue);
+        mDownloadThreadPool.allowCoreThreadTimeOut(true);
 
         /*
          * Creates a new pool of Thread objects for the decoding work queue
@@ -392,28 +414,21 @@ public class AttachmentManager {
      */
     public static void cancelAll() {
 
-        /*
-         * Creates an array of tasks that's the same size as the task work queue
-         */
-        AttachmentTask[] taskArray = new AttachmentTask[sInstance.mDownloadWorkQueue.size()];
-
-        // Populates the array with the task objects in the queue
-        sInstance.mDownloadWorkQueue.toArray(taskArray);
-
-        // Stores the array length in order to iterate over the array
-        int taskArraylen = taskArray.length;
-
         /*
          * Locks on the singleton to ensure that other processes aren't mutating Threads, then
-         * iterates over the array of tasks and interrupts the task's current Thread.
+         * iterates over a copy of the task list: the queued downloads are removed from the ThreadPool,
+         * and the current Thread of the started ones is interrupted.
          */
         synchronized (sInstance) {
 
-            // Iterates over the array of tasks
-            for (AttachmentTask aTaskArray : taskArray) {
+            // Iterates over the tasks, cancelling a queued download removes its task from the list
+            for (AttachmentTask task : new ArrayList<>(sInstance.attachmentTaskList)) {
+                if (cancelQueuedDownload(task)) {
+                    continue;
+                }
 
                 // Gets the task's current thread
-                Thread thread = aTaskArray.mThreadThis;
+                Thread thread = task.getCurrentThread();
 
                 // if the Thread exists, post an interrupt to it
                 if (null != thread) {
@@ -457,8 +472,76 @@ public class AttachmentManager {
              * Removes the download Runnable from the ThreadPool. This opens a Thread in the
              * ThreadPool's work queue, allowing a task in the queue to start.
              */
-            sInstance.mDownloadThreadPool.remove(downloaderTask.getHTTPDownloadRunnable());
+            PrioritizedDownload queuedDownload = sInstance.mQueuedDownloads.remove(downloaderTask);
+            if (queuedDownload != null && sInstance.mDownloadThreadPool.remove(queuedDownload)) {
+                sInstance.mLaneMetrics[queuedDownload.lane].cancelled.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops a download that is queued but hasn't started, for a view that went off screen. A download that started is left to finish.
+     *
+     * @return true if the download was dropped, it can be started again with startDownload
+     */
+    static boolean cancelQueuedDownload(@Nullable AttachmentTask downloadTask) {
+        if (downloadTask == null) {
+            return false;
         }
+        PrioritizedDownload queuedDownload = sInstance.mQueuedDownloads.get(downloadTask);
+        if (queuedDownload == null || !sInstance.mDownloadThreadPool.remove(queuedDownload)) {
+            return false;
+        }
+        sInstance.mQueuedDownloads.remove(downloadTask);
+        sInstance.mLaneMetrics[queuedDownload.lane].cancelled.incrementAndGet();
+        if (downloadTask.getMessage() != null) {
+            sInstance.attachmentInProgress.remove(downloadTask.getMessage().getKeyString());
+        }
+        sInstance.attachmentTaskList.remove(downloadTask);
+        sInstance.recycleTask(downloadTask);
+        return true;
+    }
+
+    /**
+     * @return the downloads queued, started, cancelled before starting and their average wait in the queue, for each lane
+     */
+    public static @NonNull String getDownloadMetricsSummary() {
+        return "Attachment download metrics{" +
+                "visible=" + sInstance.mLaneMetrics[PrioritizedDownload.LANE_VISIBLE] +
+                ", recent=" + sInstance.mLaneMetrics[PrioritizedDownload.LANE_RECENT] +
+                ", threads=" + sInstance.mDownloadThreadPool.getCorePoolSize() +
+                '}';
+    }
+
+    /**
+     * Queues the download of the task in a lane, first adapting the number of download threads to the network.
+     */
+    private void queueDownload(AttachmentTask downloadTask, int lane, @Nullable Context context) {
+        if (context != null) {
+            updateDownloadPoolSize(Utils.isActiveNetworkMetered(context));
+        }
+        PrioritizedDownload download = new PrioritizedDownload(downloadTask, lane, mDownloadSequence.incrementAndGet());
+        mQueuedDownloads.put(downloadTask, download);
+        mLaneMetrics[lane].queued.incrementAndGet();
+        mDownloadThreadPool.execute(download);
+    }
+
+    private synchronized void updateDownloadPoolSize(boolean meteredNetwork) {
+        int poolSize = getDownloadPoolSize(meteredNetwork);
+        if (poolSize > mDownloadThreadPool.getMaximumPoolSize()) {
+            mDownloadThreadPool.setMaximumPoolSize(poolSize);
+            mDownloadThreadPool.setCorePoolSize(poolSize);
+        } else if (poolSize < mDownloadThreadPool.getCorePoolSize()) {
+            mDownloadThreadPool.setCorePoolSize(poolSize);
+            mDownloadThreadPool.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    private static int getDownloadPoolSize(boolean meteredNetwork) {
+        if (meteredNetwork) {
+            return METERED_POOL_SIZE;
+        }
+        return Math.max(MIN_UNMETERED_POOL_SIZE, Math.min(NUMBER_OF_CORES * 2, MAX_UNMETERED_POOL_SIZE));
     }
 
     /**
@@ -496,9 +579,9 @@ public class AttachmentManager {
              * "Executes" the tasks' download Runnable in order to download the image. If no
              * Threads are available in the thread pool, the Runnable waits in the queue.
              */
-            sInstance.mDownloadThreadPool.execute(downloadTask.getHTTPDownloadRunnable());
             sInstance.attachmentInProgress.add(downloadTask.getMessage().getKeyString());
             sInstance.attachmentTaskList.add(downloadTask);
+            sInstance.queueDownload(downloadTask, imageView != null && imageView.isShown() ? PrioritizedDownload.LANE_VISIBLE : PrioritizedDownload.LANE_RECENT, context);
             // Sets the display to show that the image is queued for downloading and decoding.
             if (imageView != null && imageView.getProressBar() != null) {
                 imageView.getProressBar().setVisibility(View.VISIBLE);
@@ -544,9 +627,9 @@ public class AttachmentManager {
              * "Executes" the tasks' download Runnable in order to download the image. If no
              * Threads are available in the thread pool, the Runnable waits in the queue.
              */
-            sInstance.mDownloadThreadPool.execute(downloadTask.getHTTPDownloadRunnable());
             sInstance.attachmentInProgress.add(downloadTask.getMessage().getKeyString());
             sInstance.attachmentTaskList.add(downloadTask);
+            sInstance.queueDownload(downloadTask, imageView.isShown() ? PrioritizedDownload.LANE_VISIBLE : PrioritizedDownload.LANE_RECENT, imageView.getContext());
             // Sets the display to show that the image is queued for downloading and decoding.
             if (imageView.getProressBar() != null) {
                 imageView.getProressBar().setVisibility(View.VISIBLE);
@@ -591,9 +674,10 @@ public class AttachmentManager {
              * "Executes" the tasks' download Runnable in order to download the image. If no
              * Threads are available in the thread pool, the Runnable waits in the queue.
              */
-            sInstance.mDownloadThreadPool.execute(downloadTask.getHTTPDownloadRunnable());
             sInstance.attachmentInProgress.add(downloadTask.getMessage().getKeyString());
             sInstance.attachmentTaskList.add(downloadTask);
+            //the user tapped to download the document
+            sInstance.queueDownload(downloadTask, PrioritizedDownload.LANE_VISIBLE, attachmentViewProperties.getContext());
             // Sets the display to show that the image is queued for downloading and decoding.
             //imageView.setStatusResource(R.drawable.imagequeued);
 
@@ -716,4 +800,62 @@ public class AttachmentManager {
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * The download of a task, ordered by lane, then in the order of the lane.
+     */
+    @VisibleForTesting
+    class PrioritizedDownload implements Runnable, Comparable<PrioritizedDownload> {
+        static final int LANE_VISIBLE = 0;
+        static final int LANE_RECENT = 1;
+
+        final AttachmentTask downloadTask;
+        final int lane;
+        final long sequence;
+        final long queuedAt = System.currentTimeMillis();
+
+        PrioritizedDownload(AttachmentTask downloadTask, int lane, long sequence) {
+            this.downloadTask = downloadTask;
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mQueuedDownloads.remove(downloadTask);
+            mLaneMetrics[lane].onStarted(System.currentTimeMillis() - queuedAt);
+            downloadTask.getHTTPDownloadRunnable().run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PrioritizedDownload other) {
+            if (lane != other.lane) {
+                return lane < other.lane ? -1 : 1;
+            }
+            //first in first out for the visible lane, last in first out for the other
+            int order = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+            return lane == LANE_VISIBLE ? order : -order;
+        }
+    }
+
+    private static class LaneMetrics {
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicLong totalWaitMillis = new AtomicLong();
+
+        void onStarted(long waitMillis) {
+            started.incrementAndGet();
+            totalWaitMillis.addAndGet(waitMillis);
+        }
+
+        @Override
+        public String toString() {
+            int startedCount = started.get();
+            return "{queued=" + queued.get() +
+                    ", started=" + startedCount +
+                    ", cancelled=" + cancelled.get() +
+                    ", averageWaitMillis=" + (startedCount == 0 ? 0 : totalWaitMillis.get() / startedCount) +
+                    '}';
+        }
+    }
+}
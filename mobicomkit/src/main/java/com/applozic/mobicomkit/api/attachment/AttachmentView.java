@@ -142,6 +142,12 @@ public class AttachmentView extends ImageView {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        //the view was scrolled away or recycled, its download is queued again when it's drawn
+        //tasks are reused, so the task must still be this view's
+        if (mDownloadThread != null && mDownloadThread.getPhotoView() == this && AttachmentManager.cancelQueuedDownload(mDownloadThread)) {
+            mDownloadThread = null;
+            mIsDrawn = false;
+        }
     }
 
     /*
@@ -541,18 +541,36 @@ public class FileClientService extends MobiComKitClientService {
      */
     public Bitmap createThumbnailFileInLocalStorageAndReturnBitmap(String filePath) {
         Bitmap videoThumbnail;
-        OutputStream fOut;
+        OutputStream fOut = null;
         File file = new File(getThumbnailParentDir(filePath), getVideoThumbnailFileNameForLocalGeneration(filePath));
+        //written to a temporary file first, so a thumbnail that exists is always complete
+        File tempFile = new File(file.getAbsolutePath() + ".tmp");
         try {
-            file.createNewFile();
-            fOut = new FileOutputStream(file);
             videoThumbnail = ThumbnailUtils.createVideoThumbnail(filePath, MediaStore.Video.Thumbnails.FULL_SCREEN_KIND);
+            if (videoThumbnail == null) {
+                return null;
+            }
+            fOut = new FileOutputStream(tempFile);
             videoThumbnail.compress(Bitmap.CompressFormat.JPEG, 50, fOut);
             fOut.flush();
             fOut.close();
+            fOut = null;
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return null;
+            }
         } catch (Exception e) {
             e.printStackTrace();
+            tempFile.delete();
             return null;
+        } finally {
+            if (fOut != null) {
+                try {
+                    fOut.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
         }
         return videoThumbnail;
     }
@@ -562,18 +580,12 @@ public class FileClientService extends MobiComKitClientService {
      *
      * This methods aims to save the video thumbnail in the same location where it will save downloaded thumbnails from the server.
      * see {@link FileClientService#downloadAndSaveThumbnailImage(Context, Message, int, int)}
+     *
+     * <p>This blocks until the thumbnail is generated, use {@link AlVideoThumbnailCache#loadThumbnail(String, AlVideoThumbnailCache.Callback)} from the main thread.</p>
      */
     public Bitmap getOrCreateVideoThumbnail(String filePath) {
-        String videoThumbnailPath = getThumbnailPath(filePath);
-
-        Bitmap videoThumbnail;
-        if (new File(videoThumbnailPath).exists()) {
-            videoThumbnail = BitmapFactory.decodeFile(videoThumbnailPath);
-        } else {
-            videoThumbnail = createThumbnailFileInLocalStorageAndReturnBitmap(filePath);
-        }
-
-        return videoThumbnail;
+        String videoThumbnailPath = AlVideoThumbnailCache.getInstance(context).getOrCreateThumbnailPath(filePath);
+        return videoThumbnailPath != null ? BitmapFactory.decodeFile(videoThumbnailPath) : null;
     }
 
     /**
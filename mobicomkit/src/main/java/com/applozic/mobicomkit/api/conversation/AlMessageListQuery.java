@@ -0,0 +1,135 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * A page of messages to observe with {@link ApplozicConversation#observeMessageList(android.content.Context, AlMessageListQuery, com.applozic.mobicomkit.listners.AlMessageListObserver)}.
+ *
+ * <p>Either the conversation list (the latest message of each conversation), or the messages of a one-to-one or channel conversation.
+ * Get the first page from {@link #forConversationList(String)}, {@link #forContact(String)} or {@link #forChannel(Integer)},
+ * and the following (older) pages from {@link #getNextPageQuery(List)}.</p>
+ *
+ * <p>Queries are immutable. Equal queries that are observed at the same time share a single fetch.</p>
+ */
+public class AlMessageListQuery {
+    private final boolean forConversationList;
+    private final @Nullable String searchString;
+    private final @Nullable String userId;
+    private final @Nullable Integer channelKey;
+    private final @Nullable Long before;
+
+    private AlMessageListQuery(boolean forConversationList, @Nullable String searchString, @Nullable String userId, @Nullable Integer channelKey, @Nullable Long before) {
+        this.forConversationList = forConversationList;
+        this.searchString = TextUtils.isEmpty(searchString) ? null : searchString;
+        this.userId = userId;
+        this.channelKey = channelKey;
+        this.before = before;
+    }
+
+    /**
+     * The latest message of each conversation, newest first.
+     *
+     * @param searchString to search messages by, pass null for all conversations
+     */
+    public static @NonNull AlMessageListQuery forConversationList(@Nullable String searchString) {
+        return new AlMessageListQuery(true, searchString, null, null, null);
+    }
+
+    /**
+     * The messages of the one-to-one conversation with the given user, oldest first.
+     */
+    public static @NonNull AlMessageListQuery forContact(@NonNull String userId) {
+        return new AlMessageListQuery(false, null, userId, null, null);
+    }
+
+    /**
+     * The messages of the channel with the given channel key, oldest first.
+     */
+    public static @NonNull AlMessageListQuery forChannel(@NonNull Integer channelKey) {
+        return new AlMessageListQuery(false, null, null, channelKey, null);
+    }
+
+    /**
+     * @param page a page received for this query
+     * @return the query for the page of messages older than the given page, null if the page is empty
+     */
+    public @Nullable AlMessageListQuery getNextPageQuery(@Nullable List<Message> page) {
+        Long oldestCreatedAtTime = null;
+        if (page != null) {
+            for (Message message : page) {
+                if (message.isTempDateType() || message.getCreatedAtTime() == null) {
+                    continue;
+                }
+                if (oldestCreatedAtTime == null || message.getCreatedAtTime() < oldestCreatedAtTime) {
+                    oldestCreatedAtTime = message.getCreatedAtTime();
+                }
+            }
+        }
+        if (oldestCreatedAtTime == null) {
+            return null;
+        }
+        return new AlMessageListQuery(forConversationList, searchString, userId, channelKey, oldestCreatedAtTime);
+    }
+
+    public boolean isForConversationList() {
+        return forConversationList;
+    }
+
+    public @Nullable String getSearchString() {
+        return searchString;
+    }
+
+    public @Nullable String getUserId() {
+        return userId;
+    }
+
+    public @Nullable Integer getChannelKey() {
+        return channelKey;
+    }
+
+    /**
+     * @return the {@link Message#getCreatedAtTime()} the messages of this page are older than, null for the first page
+     */
+    public @Nullable Long getBefore() {
+        return before;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AlMessageListQuery that = (AlMessageListQuery) o;
+        return forConversationList == that.forConversationList
+                && TextUtils.equals(searchString, that.searchString)
+                && TextUtils.equals(userId, that.userId)
+                && (channelKey != null ? channelKey.equals(that.channelKey) : that.channelKey == null)
+                && (before != null ? before.equals(that.before) : that.before == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = forConversationList ? 1 : 0;
+        result = 31 * result + (searchString != null ? searchString.hashCode() : 0);
+        result = 31 * result + (userId != null ? userId.hashCode() : 0);
+        result = 31 * result + (channelKey != null ? channelKey.hashCode() : 0);
+        result = 31 * result + (before != null ? before.hashCode() : 0);
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "AlMessageListQuery{" +
+                "forConversationList=" + forConversationList +
+                ", searchString='" + searchString + '\'' +
+                ", userId='" + userId + '\'' +
+                ", channelKey=" + channelKey +
+                ", before=" + before +
+                '}';
+    }
+}
@@ -0,0 +1,282 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.channel.service.ChannelService;
+import com.applozic.mobicomkit.contact.AppContactService;
+import com.applozic.mobicomkit.exception.ApplozicException;
+import com.applozic.mobicomkit.listners.AlMessageListObserver;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Internal class.
+ *
+ * <p>Runs the {@link AlMessageListQuery}s observed with {@link ApplozicConversation#observeMessageList(Context, AlMessageListQuery, AlMessageListObserver)}.</p>
+ *
+ * <p>A query is run in two steps. The page is first read from the local database, on a single thread that never waits for the network,
+ * and given to the observers. The page is then synced with the server (if required, see {@link MobiComConversationService#getMessagesWithNetworkMetaData})
+ * on one of {@link #NETWORK_THREADS} threads, and given to the observers along with the messages that changed.</p>
+ *
+ * <p>Observers of a query that is already running share its fetch, the local page is replayed to them if it was already read.
+ * A fetch is stopped before its next step once all of its observers have cancelled.
+ * Once synced, the query is done; observing it again starts a new fetch.</p>
+ *
+ * <p>Unlike {@link MessageListTask}, this doesn't change {@link com.applozic.mobicomkit.api.account.user.MobiComUserPreference#getStartTimeForPagination()}.
+ * The pages are given by the queries themselves (see {@link AlMessageListQuery#getNextPageQuery(List)}).</p>
+ */
+class AlMessageListQueryManager {
+    private static final String TAG = "AlMessageListQuery";
+    private static final int NETWORK_THREADS = 2;
+
+    private static AlMessageListQueryManager queryManager;
+
+    private final Context context;
+    private final ExecutorService databaseExecutor;
+    private final ExecutorService networkExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //guarded by this
+    private final Map<AlMessageListQuery, Fetch> fetches = new HashMap<>();
+
+    private AlMessageListQueryManager(Context context) {
+        this.context = ApplozicService.getContext(context);
+        databaseExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-database", 1);
+        networkExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-network", NETWORK_THREADS);
+    }
+
+    static synchronized @NonNull AlMessageListQueryManager getInstance(@Nullable Context context) {
+        if (queryManager == null) {
+            queryManager = new AlMessageListQueryManager(context);
+        }
+        return queryManager;
+    }
+
+    @NonNull AlMessageListSubscription observe(@NonNull AlMessageListQuery query, @NonNull AlMessageListObserver observer) {
+        AlMessageListSubscription subscription = new AlMessageListSubscription(query, observer);
+        Fetch fetch;
+        boolean isNewFetch = false;
+        synchronized (this) {
+            fetch = fetches.get(query);
+            if (fetch == null) {
+                fetch = new Fetch(query);
+                fetches.put(query, fetch);
+                isNewFetch = true;
+            }
+            fetch.subscriptions.add(subscription);
+            //posted with the lock held, so that it's always before the synced page
+            if (fetch.localMessageList != null) {
+                postLocalResult(Collections.singletonList(subscription), fetch.localMessageList);
+            }
+            if (isNewFetch) {
+                final Fetch newFetch = fetch;
+                fetch.future = databaseExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        loadLocalPage(newFetch);
+                    }
+                });
+            }
+        }
+        return subscription;
+    }
+
+    void cancel(@NonNull AlMessageListSubscription subscription) {
+        synchronized (this) {
+            Fetch fetch = fetches.get(subscription.getQuery());
+            if (fetch == null || !fetch.subscriptions.remove(subscription) || !fetch.subscriptions.isEmpty()) {
+                return;
+            }
+            fetch.cancelled = true;
+            fetches.remove(fetch.query);
+            if (fetch.future != null) {
+                //not interrupted, a sync that has started is left to finish writing to the database
+                fetch.future.cancel(false);
+            }
+        }
+        Utils.printLog(context, TAG, "Cancelled query: " + subscription.getQuery());
+    }
+
+    private void loadLocalPage(final Fetch fetch) {
+        if (fetch.cancelled) {
+            return;
+        }
+        List<Message> messageList;
+        try {
+            messageList = getLocalPage(fetch);
+        } catch (Exception e) {
+            e.printStackTrace();
+            messageList = new ArrayList<>();
+        }
+        synchronized (this) {
+            if (fetch.cancelled) {
+                return;
+            }
+            fetch.localMessageList = Collections.unmodifiableList(messageList);
+            postLocalResult(new ArrayList<>(fetch.subscriptions), fetch.localMessageList);
+            fetch.future = networkExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    syncPage(fetch);
+                }
+            });
+        }
+    }
+
+    private void syncPage(Fetch fetch) {
+        if (fetch.cancelled) {
+            return;
+        }
+        List<Message> messageList = fetch.localMessageList;
+        List<Message> changedMessages = new ArrayList<>();
+        ApplozicException exception = null;
+        try {
+            MobiComConversationService.NetworkListDecorator<Message> networkListDecorator = getSyncedPage(fetch);
+            if (networkListDecorator.wasNetworkFail()) {
+                exception = new ApplozicException("Could not sync the messages with the server.");
+            }
+            if (networkListDecorator.getList() != null) {
+                List<Message> rawMessageList = networkListDecorator.getList();
+                changedMessages = getChangedMessages(fetch.rawLocalMessageList, rawMessageList);
+                messageList = Collections.unmodifiableList(getPage(fetch.query, rawMessageList));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            exception = new ApplozicException(e.getMessage());
+        }
+        synchronized (this) {
+            if (fetches.get(fetch.query) == fetch) {
+                fetches.remove(fetch.query);
+            }
+            if (fetch.cancelled) {
+                return;
+            }
+            postResult(new ArrayList<>(fetch.subscriptions), messageList, changedMessages, exception);
+        }
+    }
+
+    private @NonNull List<Message> getLocalPage(Fetch fetch) {
+        AlMessageListQuery query = fetch.query;
+        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context);
+        List<Message> rawMessageList;
+        if (query.isForConversationList()) {
+            rawMessageList = messageDatabaseService.getMessages(query.getBefore(), query.getSearchString(), null);
+        } else {
+            rawMessageList = messageDatabaseService.getMessages(null, query.getBefore(), getContact(query), getChannel(query), null);
+        }
+        fetch.rawLocalMessageList = rawMessageList != null ? rawMessageList : new ArrayList<Message>();
+        return getPage(query, fetch.rawLocalMessageList);
+    }
+
+    private @NonNull MobiComConversationService.NetworkListDecorator<Message> getSyncedPage(Fetch fetch) {
+        AlMessageListQuery query = fetch.query;
+        MobiComConversationService conversationService = new MobiComConversationService(context);
+        if (query.isForConversationList()) {
+            return conversationService.getLatestMessagesGroupByPeopleWithNetworkMetaData(query.getBefore(), query.getSearchString(), null);
+        }
+        return conversationService.getMessagesWithNetworkMetaData(null, query.getBefore(), getContact(query), getChannel(query), null, false, false);
+    }
+
+    private @Nullable Contact getContact(AlMessageListQuery query) {
+        return query.getUserId() != null ? new AppContactService(context).getContactById(query.getUserId()) : null;
+    }
+
+    private @Nullable Channel getChannel(AlMessageListQuery query) {
+        return query.getChannelKey() != null ? ChannelService.getInstance(context).getChannel(query.getChannelKey()) : null;
+    }
+
+    private static @NonNull List<Message> getPage(AlMessageListQuery query, List<Message> rawMessageList) {
+        if (query.isForConversationList()) {
+            return MessageListTask.getLatestMessagePerConversation(rawMessageList);
+        }
+        return MessageListTask.addDateMessages(rawMessageList);
+    }
+
+    /**
+     * @return the messages of the synced list that aren't in the local list, or that differ from the local copy in status, text or metadata
+     */
+    static @NonNull List<Message> getChangedMessages(@Nullable List<Message> localMessageList, @NonNull List<Message> syncedMessageList) {
+        Map<String, Message> localMessages = new HashMap<>();
+        if (localMessageList != null) {
+            for (Message message : localMessageList) {
+                if (!TextUtils.isEmpty(message.getKeyString())) {
+                    localMessages.put(message.getKeyString(), message);
+                }
+            }
+        }
+        List<Message> changedMessages = new ArrayList<>();
+        for (Message message : syncedMessageList) {
+            if (message.isTempDateType()) {
+                continue;
+            }
+            Message localMessage = TextUtils.isEmpty(message.getKeyString()) ? null : localMessages.get(message.getKeyString());
+            if (localMessage == null
+                    || localMessage.getStatus() != message.getStatus()
+                    || !TextUtils.equals(localMessage.getMessage(), message.getMessage())
+                    || (localMessage.getMetadata() != null ? !localMessage.getMetadata().equals(message.getMetadata()) : message.getMetadata() != null)) {
+                changedMessages.add(message);
+            }
+        }
+        return changedMessages;
+    }
+
+    private void postLocalResult(final List<AlMessageListSubscription> subscriptions, final List<Message> messageList) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (AlMessageListSubscription subscription : subscriptions) {
+                    if (!subscription.isCancelled()) {
+                        subscription.getObserver().onLocalResult(messageList);
+                    }
+                }
+            }
+        });
+    }
+
+    private void postResult(final List<AlMessageListSubscription> subscriptions, final List<Message> messageList, final List<Message> changedMessages, final ApplozicException exception) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (AlMessageListSubscription subscription : subscriptions) {
+                    if (!subscription.isCancelled()) {
+                        subscription.getObserver().onResult(messageList, changedMessages, exception);
+                    }
+                }
+            }
+        });
+    }
+
+    private static class Fetch {
+        final AlMessageListQuery query;
+        //guarded by the manager
+        final List<AlMessageListSubscription> subscriptions = new ArrayList<>();
+        //guarded by the manager, null until the local page is read
+        List<Message> localMessageList;
+        Future<?> future;
+        //the local messages before grouping or adding the date messages, only accessed from the fetch's own steps
+        List<Message> rawLocalMessageList;
+        volatile boolean cancelled;
+
+        Fetch(AlMessageListQuery query) {
+            this.query = query;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.annotation.NonNull;
+
+import com.applozic.mobicomkit.listners.AlMessageListObserver;
+
+/**
+ * Returned when observing an {@link AlMessageListQuery}. Cancel it when the results are no longer needed (for example when the screen goes away).
+ */
+public class AlMessageListSubscription {
+    private final @NonNull AlMessageListQuery query;
+    private final @NonNull AlMessageListObserver observer;
+    private volatile boolean cancelled;
+
+    AlMessageListSubscription(@NonNull AlMessageListQuery query, @NonNull AlMessageListObserver observer) {
+        this.query = query;
+        this.observer = observer;
+    }
+
+    public @NonNull AlMessageListQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * No callbacks are made to the observer after this, if called on the main thread.
+     * The fetch itself is stopped if nothing else is observing the same query.
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        AlMessageListQueryManager.getInstance(null).cancel(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @NonNull AlMessageListObserver getObserver() {
+        return observer;
+    }
+}
@@ -0,0 +1,322 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Sends the messages that were saved but not sent to the server (see {@link MessageDatabaseService#getPendingMessages()}).
+ * The message table itself is the outbox, so nothing pending is lost if the process dies.</p>
+ *
+ * <p>Pending messages are grouped by conversation. The messages of a conversation are sent in order, one after the other.
+ * Different conversations are sent in parallel, on up to {@link #MAX_PARALLEL_CONVERSATIONS} threads.
+ * The attachments of a conversation are uploaded on a separate pool as soon as it starts, so an upload overlaps with the sends before it.</p>
+ *
+ * <p>When a message can't be sent, the rest of its conversation waits for it. It is retried after a jittered exponential backoff,
+ * from {@link #INITIAL_BACKOFF_MILLIS} up to {@link #MAX_BACKOFF_MILLIS}. The backoff is kept in memory only and starts over with the process.</p>
+ *
+ * <p>The server takes one message per send request, so messages are not batched.</p>
+ */
+class AlMessageOutbox {
+    private static final String TAG = "AlMessageOutbox";
+    private static final int MAX_PARALLEL_CONVERSATIONS = 4;
+    private static final int UPLOAD_THREADS = 2;
+    private static final long INITIAL_BACKOFF_MILLIS = 2000;
+    private static final long MAX_BACKOFF_MILLIS = 10 * 60 * 1000;
+
+    private static AlMessageOutbox messageOutbox;
+
+    private final Context context;
+    private final ExecutorService sendExecutor;
+    private final ExecutorService uploadExecutor;
+    private final ScheduledExecutorService retryExecutor;
+    private final Random random = new Random();
+    //created at times of the messages being sent by MessageWorker, their conversations are left alone until it's done
+    private final Set<Long> sendingMessages = Collections.synchronizedSet(new HashSet<Long>());
+    //by message id
+    private final Map<Long, RetryState> retryStates = Collections.synchronizedMap(new HashMap<Long, RetryState>());
+
+    //guarded by this
+    private boolean flushing;
+    private boolean flushRequested;
+    private boolean broadcastRequested;
+    private ScheduledFuture<?> retryFuture;
+
+    private AlMessageOutbox(Context context) {
+        this.context = ApplozicService.getContext(context);
+        sendExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-send", MAX_PARALLEL_CONVERSATIONS);
+        uploadExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-upload", UPLOAD_THREADS);
+        retryExecutor = AlExecutors.newIdleTimeoutScheduledExecutor(TAG + "-retry");
+    }
+
+    static synchronized @NonNull AlMessageOutbox getInstance(@Nullable Context context) {
+        if (messageOutbox == null) {
+            messageOutbox = new AlMessageOutbox(context);
+        }
+        return messageOutbox;
+    }
+
+    /**
+     * Sends the pending messages, and returns once each of them was tried (or is waiting for a retry).
+     *
+     * <p>If a flush is already running, this returns right away and the running flush checks the outbox again once it's done.</p>
+     *
+     * @param broadcast send the {@link com.applozic.mobicomkit.broadcast.BroadcastService.INTENT_ACTIONS#MESSAGE_SYNC_ACK_FROM_SERVER} updates
+     */
+    void flush(boolean broadcast) {
+        synchronized (this) {
+            if (flushing) {
+                flushRequested = true;
+                broadcastRequested = broadcastRequested || broadcast;
+                return;
+            }
+            flushing = true;
+        }
+        boolean broadcastUpdates = broadcast;
+        try {
+            while (true) {
+                flushPendingMessages(broadcastUpdates);
+                synchronized (this) {
+                    if (!flushRequested) {
+                        return;
+                    }
+                    flushRequested = false;
+                    broadcastUpdates = broadcastRequested;
+                    broadcastRequested = false;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                flushing = false;
+            }
+        }
+    }
+
+    /**
+     * Flushes on the outbox's own thread, for callers that shouldn't wait for the flush.
+     */
+    void requestFlush() {
+        scheduleRetry(0);
+    }
+
+    void addSendingMessage(@NonNull Message message) {
+        if (message.getCreatedAtTime() != null) {
+            sendingMessages.add(message.getCreatedAtTime());
+        }
+    }
+
+    void removeSendingMessage(@NonNull Message message) {
+        if (message.getCreatedAtTime() != null) {
+            sendingMessages.remove(message.getCreatedAtTime());
+        }
+    }
+
+    private void flushPendingMessages(final boolean broadcast) {
+        List<Message> pendingMessages = new MessageDatabaseService(context).getPendingMessages();
+        if (pendingMessages.isEmpty()) {
+            return;
+        }
+        Map<String, List<Message>> conversations = groupByConversation(pendingMessages);
+        Utils.printLog(context, TAG, "Found " + pendingMessages.size() + " pending messages in " + conversations.size() + " conversations to sync.");
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (final List<Message> conversationMessages : conversations.values()) {
+            if (isAnySending(conversationMessages)) {
+                //MessageWorker syncs the pending messages again once it's done
+                continue;
+            }
+            futures.add(sendExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    sendConversation(conversationMessages, broadcast);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void sendConversation(List<Message> conversationMessages, boolean broadcast) {
+        long now = System.currentTimeMillis();
+        int end = 0;
+        while (end < conversationMessages.size() && !isWaitingForRetry(conversationMessages.get(end), now)) {
+            end++;
+        }
+        if (end < conversationMessages.size()) {
+            scheduleRetry(getRetryState(conversationMessages.get(end)).nextAttemptAt - now);
+        }
+
+        //all of the uploads are started first, so they're done by the time the messages before them are sent
+        List<Future<Boolean>> uploads = new ArrayList<>();
+        for (int i = 0; i < end; i++) {
+            final Message message = conversationMessages.get(i);
+            if (!message.isUploadRequired() || message.isContactMessage()) {
+                uploads.add(null);
+            } else {
+                uploads.add(uploadExecutor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return new MessageClientService(context).uploadPendingAttachments(message);
+                    }
+                }));
+            }
+        }
+
+        MessageClientService messageClientService = new MessageClientService(context);
+        for (int i = 0; i < end; i++) {
+            Message message = conversationMessages.get(i);
+            boolean sent = false;
+            Future<Boolean> upload = uploads.get(i);
+            if (upload == null || getUploadResult(upload)) {
+                Utils.printLog(context, TAG, "Syncing pending message: " + message.getKeyString());
+                sent = messageClientService.sendPendingMessage(message, broadcast);
+            } else if (message.isCanceled()) {
+                //the file is gone, it can't be sent
+                continue;
+            }
+            if (sent) {
+                retryStates.remove(message.getMessageId());
+            } else {
+                onSendFailed(message);
+                return;
+            }
+        }
+    }
+
+    private boolean getUploadResult(Future<Boolean> upload) {
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private boolean isAnySending(List<Message> conversationMessages) {
+        if (sendingMessages.isEmpty()) {
+            return false;
+        }
+        for (Message message : conversationMessages) {
+            if (message.getCreatedAtTime() != null && sendingMessages.contains(message.getCreatedAtTime())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWaitingForRetry(Message message, long now) {
+        RetryState retryState = getRetryState(message);
+        return retryState != null && retryState.nextAttemptAt > now;
+    }
+
+    private @Nullable RetryState getRetryState(Message message) {
+        return message.getMessageId() != null ? retryStates.get(message.getMessageId()) : null;
+    }
+
+    private void onSendFailed(Message message) {
+        if (message.getMessageId() == null) {
+            return;
+        }
+        long delay;
+        synchronized (retryStates) {
+            RetryState retryState = retryStates.get(message.getMessageId());
+            if (retryState == null) {
+                retryState = new RetryState();
+                retryStates.put(message.getMessageId(), retryState);
+            }
+            delay = getBackoffDelayMillis(retryState.failedAttempts++, random);
+            retryState.nextAttemptAt = System.currentTimeMillis() + delay;
+        }
+        Utils.printLog(context, TAG, "Could not send pending message " + message.getKeyString() + ", retrying in " + delay + "ms");
+        scheduleRetry(delay);
+    }
+
+    private synchronized void scheduleRetry(long delayMillis) {
+        if (retryFuture != null && !retryFuture.isDone() && retryFuture.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+            return;
+        }
+        if (retryFuture != null) {
+            retryFuture.cancel(false);
+        }
+        retryFuture = retryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (AlMessageOutbox.this) {
+                    retryFuture = null;
+                }
+                flush(true);
+            }
+        }, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the messages by conversation (contact or channel), each in the order they were given
+     */
+    @VisibleForTesting
+    static @NonNull Map<String, List<Message>> groupByConversation(@NonNull List<Message> messages) {
+        Map<String, List<Message>> conversations = new LinkedHashMap<>();
+        for (Message message : messages) {
+            String conversationKey = message.getGroupId() != null ? "group:" + message.getGroupId() : "user:" + message.getContactIds();
+            List<Message> conversationMessages = conversations.get(conversationKey);
+            if (conversationMessages == null) {
+                conversationMessages = new ArrayList<>();
+                conversations.put(conversationKey, conversationMessages);
+            }
+            conversationMessages.add(message);
+        }
+        return conversations;
+    }
+
+    /**
+     * Equal jitter: half of the exponential delay is fixed, the other half is random.
+     */
+    @VisibleForTesting
+    static long getBackoffDelayMillis(int failedAttempts, @NonNull Random random) {
+        long delay = INITIAL_BACKOFF_MILLIS << Math.min(failedAttempts, 20);
+        delay = Math.min(delay, MAX_BACKOFF_MILLIS);
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    private static class RetryState {
+        //guarded by retryStates
+        int failedAttempts;
+        volatile long nextAttemptAt;
+    }
+}
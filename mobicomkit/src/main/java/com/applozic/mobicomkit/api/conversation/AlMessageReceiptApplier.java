@@ -0,0 +1,149 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.api.conversation.schedule.TimedMessageScheduler;
+import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Applies the delivery and read receipts of the sent messages: the MT_MESSAGE_DELIVERED and MT_MESSAGE_DELIVERED_READ events, and the delivered
+ * keys of the message sync. In a large group one sent message can get dozens of receipts within a second, so they are buffered for {@link #BUFFER_MILLIS}
+ * and applied together, up to {@link #MAX_BATCH_SIZE} in one transaction (see {@link MessageDatabaseService#updateMessageDeliveryReports(Collection, Collection)}),
+ * with a single {@link com.applozic.mobicomkit.broadcast.AlMessageStatusUpdateEvent} for the UI
+ * (see {@link BroadcastService#sendMessageStatusUpdateBroadcast(Context, List)}).</p>
+ *
+ * <p>A read receipt for a message supersedes its delivery receipt. Receipts for messages that aren't in the database, or that already have the status,
+ * change nothing and aren't broadcast.</p>
+ */
+class AlMessageReceiptApplier {
+    private static final String TAG = "AlMessageReceiptApplier";
+    private static final long BUFFER_MILLIS = 50;
+    //well within the SQLite limit of 999 arguments per statement
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static AlMessageReceiptApplier receiptApplier;
+
+    private final Context context;
+    private final ScheduledExecutorService executor;
+
+    //guarded by this, message key to whether it was read
+    private Map<String, Boolean> pendingReceipts = new LinkedHashMap<>();
+    private boolean applyScheduled;
+
+    private AlMessageReceiptApplier(Context context) {
+        this.context = ApplozicService.getContext(context);
+        executor = AlExecutors.newIdleTimeoutScheduledExecutor(TAG);
+    }
+
+    static synchronized @NonNull AlMessageReceiptApplier getInstance(@Nullable Context context) {
+        if (receiptApplier == null) {
+            receiptApplier = new AlMessageReceiptApplier(context);
+        }
+        return receiptApplier;
+    }
+
+    /**
+     * Applies the receipt with the next batch.
+     *
+     * @param markRead true for a read receipt, false for a delivery receipt
+     */
+    void add(@Nullable String messageKey, boolean markRead) {
+        if (TextUtils.isEmpty(messageKey)) {
+            return;
+        }
+        synchronized (this) {
+            Boolean pendingRead = pendingReceipts.get(messageKey);
+            pendingReceipts.put(messageKey, markRead || (pendingRead != null && pendingRead));
+            scheduleApply();
+        }
+    }
+
+    void addAll(@Nullable Collection<String> messageKeys, boolean markRead) {
+        if (messageKeys == null) {
+            return;
+        }
+        for (String messageKey : messageKeys) {
+            add(messageKey, markRead);
+        }
+    }
+
+    //guarded by this
+    private void scheduleApply() {
+        if (applyScheduled) {
+            return;
+        }
+        applyScheduled = true;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    apply();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }, BUFFER_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void apply() {
+        Map<String, Boolean> receipts;
+        synchronized (this) {
+            applyScheduled = false;
+            receipts = pendingReceipts;
+            pendingReceipts = new LinkedHashMap<>();
+        }
+        if (receipts.isEmpty()) {
+            return;
+        }
+
+        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context);
+        List<Message> updatedMessages = new ArrayList<>();
+        List<String> deliveredMessageKeys = new ArrayList<>();
+        List<String> readMessageKeys = new ArrayList<>();
+        for (Map.Entry<String, Boolean> receipt : receipts.entrySet()) {
+            if (receipt.getValue()) {
+                readMessageKeys.add(receipt.getKey());
+            } else {
+                deliveredMessageKeys.add(receipt.getKey());
+            }
+            if (deliveredMessageKeys.size() + readMessageKeys.size() == MAX_BATCH_SIZE) {
+                updatedMessages.addAll(messageDatabaseService.updateMessageDeliveryReports(deliveredMessageKeys, readMessageKeys));
+                deliveredMessageKeys.clear();
+                readMessageKeys.clear();
+            }
+        }
+        if (!deliveredMessageKeys.isEmpty() || !readMessageKeys.isEmpty()) {
+            updatedMessages.addAll(messageDatabaseService.updateMessageDeliveryReports(deliveredMessageKeys, readMessageKeys));
+        }
+
+        for (String messageKey : receipts.keySet()) {
+            MobiComMessageService.map.remove(messageKey);
+            MobiComMessageService.mtMessages.remove(messageKey);
+        }
+        for (Message message : updatedMessages) {
+            if (message.getTimeToLive() != null && message.getTimeToLive() != 0) {
+                TimedMessageScheduler.getInstance(context).scheduleMessageDeletion(message, message.getTimeToLive() * 60 * 1000L);
+            }
+        }
+        Utils.printLog(context, TAG, "Applied " + receipts.size() + " receipts, " + updatedMessages.size() + " messages updated");
+        BroadcastService.sendMessageStatusUpdateBroadcast(context, updatedMessages);
+    }
+}
@@ -0,0 +1,136 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency of the messages sent from the app, for the messages sent by {@link AlMessageSendQueue}:
+ *
+ * <ul>
+ * <li><i>tap to visible</i>: from the send call until the message is added to an open conversation screen.</li>
+ * <li><i>tap to ack</i>: from the send call until the server has acknowledged the message.</li>
+ * </ul>
+ *
+ * <p>Messages are tracked by the key they're given when sent (before the server gives them a new one).
+ * The metrics are for this process only. They're logged with each acknowledgement.</p>
+ */
+public class AlMessageSendMetrics {
+    private static final String TAG = "AlMessageSendMetrics";
+    private static final int MAX_TRACKED_MESSAGES = 100;
+
+    private static AlMessageSendMetrics sendMetrics;
+
+    private final Context context;
+    //guarded by this. send time by message key, the oldest are dropped if they are never acknowledged
+    private final Map<String, Long> sendTimes = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Long> eldest) {
+            return size() > MAX_TRACKED_MESSAGES;
+        }
+    };
+
+    //guarded by this
+    private int visibleCount;
+    private long totalTapToVisibleMillis;
+    private long lastTapToVisibleMillis;
+    private int acknowledgedCount;
+    private long totalTapToAckMillis;
+    private long lastTapToAckMillis;
+
+    private AlMessageSendMetrics(Context context) {
+        this.context = ApplozicService.getContext(context);
+    }
+
+    public static synchronized @NonNull AlMessageSendMetrics getInstance(@Nullable Context context) {
+        if (sendMetrics == null) {
+            sendMetrics = new AlMessageSendMetrics(context);
+        }
+        return sendMetrics;
+    }
+
+    /**
+     * Internal. Do not use.
+     */
+    synchronized void onSendStarted(@NonNull String keyString) {
+        sendTimes.put(keyString, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Internal. Called by the conversation screen when it adds a message to its list. Messages that aren't being sent are ignored.
+     */
+    public synchronized void onMessageVisible(@Nullable String keyString) {
+        Long sendTime = TextUtils.isEmpty(keyString) ? null : sendTimes.get(keyString);
+        if (sendTime == null) {
+            return;
+        }
+        long tapToVisible = SystemClock.elapsedRealtime() - sendTime;
+        lastTapToVisibleMillis = tapToVisible;
+        totalTapToVisibleMillis += tapToVisible;
+        visibleCount++;
+    }
+
+    /**
+     * Internal. Do not use.
+     *
+     * @param keyString the key the message was sent with, not the one given by the server
+     */
+    void onMessageAcknowledged(@Nullable String keyString) {
+        long tapToAck;
+        synchronized (this) {
+            Long sendTime = TextUtils.isEmpty(keyString) ? null : sendTimes.remove(keyString);
+            if (sendTime == null) {
+                return;
+            }
+            tapToAck = SystemClock.elapsedRealtime() - sendTime;
+            lastTapToAckMillis = tapToAck;
+            totalTapToAckMillis += tapToAck;
+            acknowledgedCount++;
+        }
+        Utils.printLog(context, TAG, "Message acknowledged " + tapToAck + "ms after send. " + getMetricsSummary());
+    }
+
+    public synchronized int getVisibleCount() {
+        return visibleCount;
+    }
+
+    public synchronized long getLastTapToVisibleMillis() {
+        return lastTapToVisibleMillis;
+    }
+
+    public synchronized long getAverageTapToVisibleMillis() {
+        return visibleCount == 0 ? 0 : totalTapToVisibleMillis / visibleCount;
+    }
+
+    public synchronized int getAcknowledgedCount() {
+        return acknowledgedCount;
+    }
+
+    public synchronized long getLastTapToAckMillis() {
+        return lastTapToAckMillis;
+    }
+
+    public synchronized long getAverageTapToAckMillis() {
+        return acknowledgedCount == 0 ? 0 : totalTapToAckMillis / acknowledgedCount;
+    }
+
+    public synchronized @NonNull String getMetricsSummary() {
+        return "Message send metrics{" +
+                "visible=" + visibleCount +
+                ", lastTapToVisibleMillis=" + lastTapToVisibleMillis +
+                ", averageTapToVisibleMillis=" + getAverageTapToVisibleMillis() +
+                ", acknowledged=" + acknowledgedCount +
+                ", lastTapToAckMillis=" + lastTapToAckMillis +
+                ", averageTapToAckMillis=" + getAverageTapToAckMillis() +
+                '}';
+    }
+}
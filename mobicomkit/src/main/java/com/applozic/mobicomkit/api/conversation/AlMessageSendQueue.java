@@ -0,0 +1,142 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.api.conversation.schedule.ScheduleMessageService;
+import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicomkit.cache.AlEntityCache;
+import com.applozic.mobicomkit.cache.MessageSearchCache;
+import com.applozic.mobicomkit.channel.service.ChannelService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.task.AlExecutors;
+import com.google.gson.Gson;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Internal class.
+ *
+ * <p>The send path for new messages that don't need an upload. The message is given its key and a copy of it is shown right away, from memory
+ * (see {@link com.applozic.mobicomkit.broadcast.AlMessageUpdateEvent}). It is then saved on a single writer thread, and sent to the server
+ * on a single sender thread, so messages are saved and sent in the order they were sent from the app. A slow send doesn't hold back
+ * the saving of the messages after it.</p>
+ *
+ * <p>A message that couldn't be sent stays in the database as pending, and is retried by the {@link AlMessageOutbox}.</p>
+ *
+ * <p>The other messages are still sent by {@link MessageWorker}: attachments (their upload waits for a network connection),
+ * messages that aren't shown (hidden and push notification messages), messages to broadcast groups (each copy is saved by the SDK),
+ * and messages to groups that aren't in memory (their type isn't known without a database read).</p>
+ *
+ * <p>See {@link AlMessageSendMetrics} for the latency of this path.</p>
+ */
+class AlMessageSendQueue {
+    private static final String TAG = "AlMessageSendQueue";
+
+    private static final Gson GSON = new Gson();
+
+    private static AlMessageSendQueue sendQueue;
+
+    private final Context context;
+    private final ExecutorService writerExecutor;
+    private final ExecutorService senderExecutor;
+
+    private AlMessageSendQueue(Context context) {
+        this.context = ApplozicService.getContext(context);
+        writerExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-writer", 1);
+        senderExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-sender", 1);
+    }
+
+    static synchronized @NonNull AlMessageSendQueue getInstance(@Nullable Context context) {
+        if (sendQueue == null) {
+            sendQueue = new AlMessageSendQueue(context);
+        }
+        return sendQueue;
+    }
+
+    /**
+     * @return false if the message can't be sent this way, send it with {@link MessageWorker} instead
+     */
+    boolean send(@NonNull final Message message, @Nullable final String userDisplayName) {
+        if (!canSend(message)) {
+            return false;
+        }
+        message.setKeyString(UUID.randomUUID().toString());
+        message.setSent(Boolean.TRUE);
+        message.setSendToDevice(Boolean.FALSE);
+        message.setSentToServer(false);
+        AlMessageSendMetrics.getInstance(context).onSendStarted(message.getKeyString());
+        //the message keeps being changed on the writer and sender threads, the UI gets its own copy
+        BroadcastService.sendMessageUpdateBroadcast(context, BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), GSON.fromJson(GSON.toJsonTree(message), Message.class));
+
+        writerExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final AlMessageOutbox messageOutbox = AlMessageOutbox.getInstance(context);
+                //the outbox leaves the saved row alone until the sender is done with it
+                messageOutbox.addSendingMessage(message);
+                try {
+                    save(message);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                senderExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            new MessageClientService(context).sendMessageToServer(message, null, ScheduleMessageService.class, userDisplayName, true);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        } finally {
+                            messageOutbox.removeSendingMessage(message);
+                        }
+                        //this message if it failed, or older ones that can go now
+                        messageOutbox.requestFlush();
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Saves the message as pending, the same way {@link MessageClientService#sendMessageToServer(Message, android.os.Handler, Class, String)} would.
+     * It then finds the saved row by the message id and doesn't save it again.
+     */
+    private void save(Message message) {
+        message.processContactIds(context);
+        if (message.getGroupId() != null) {
+            //messages to open groups aren't saved
+            Channel channel = ChannelService.getInstance(context).getChannel(message.getGroupId());
+            //a channel that isn't stored locally yet isn't known to be open, so the message is saved
+            if (channel != null && Channel.GroupType.OPEN.getValue().equals(channel.getType())) {
+                return;
+            }
+        }
+        new MessageDatabaseService(context).createMessage(message);
+    }
+
+    private boolean canSend(Message message) {
+        if (message.getMessageId() != null || message.isUploadRequired() || message.isContactMessage()) {
+            return false;
+        }
+        String metadataType = message.getMetaDataValueForKey(Message.MetaDataType.KEY.getValue());
+        if (Message.MetaDataType.HIDDEN.getValue().equals(metadataType) || Message.MetaDataType.PUSHNOTIFICATION.getValue().equals(metadataType)) {
+            return false;
+        }
+        if (message.getGroupId() != null) {
+            //this runs on the UI thread, so only the in-memory channels are checked, the channel of an open conversation is usually there
+            Channel channel = MessageSearchCache.getChannelByKey(message.getGroupId());
+            if (channel == null) {
+                channel = AlEntityCache.getInstance().getChannel(message.getGroupId());
+            }
+            return channel != null && channel.getType() != null && !Channel.GroupType.BROADCAST_ONE_BY_ONE.getValue().equals(channel.getType());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,300 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Sends the read receipts of the conversations the user reads. Receipts are collected per conversation for {@link #FLUSH_DELAY_MILLIS},
+ * then each conversation is marked read locally once and sent to the server once: a single message read in an open chat is published on MQTT,
+ * anything more goes as one "read up to now" request for the whole conversation (see {@link MessageClientService#updateReadStatus(Contact, Channel)}).
+ * Opening a conversation with many unread messages, or a burst of messages arriving in an open chat, sends one request instead of one per message.</p>
+ *
+ * <p>The conversations with a receipt the server hasn't taken yet are saved in shared preferences, so they're sent at least once even if the request
+ * fails or the process dies. Failed receipts are retried after a jittered exponential backoff (see {@link AlMessageOutbox#getBackoffDelayMillis(int, Random)}),
+ * and the ones saved by an earlier process are sent with the pending messages (see {@link MessageClientService#syncPendingMessages(boolean)}).</p>
+ *
+ * <p>The client sends no delivery receipts, the server marks the messages delivered itself when they are synced.</p>
+ */
+public class AlReadReceiptOutbox {
+    private static final String TAG = "AlReadReceiptOutbox";
+    private static final String PREFERENCES_NAME = "al_read_receipt_outbox";
+    private static final long FLUSH_DELAY_MILLIS = 500;
+
+    private static AlReadReceiptOutbox readReceiptOutbox;
+
+    private final Context context;
+    //the conversation keys of the receipts the server hasn't taken yet
+    private final SharedPreferences sharedPreferences;
+    private final ScheduledExecutorService executor;
+    private final Random random = new Random();
+
+    //guarded by this
+    private final Map<String, Receipt> pendingReceipts = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushFuture;
+    private int failedAttempts;
+
+    private AlReadReceiptOutbox(Context context) {
+        this.context = ApplozicService.getContext(context);
+        sharedPreferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        executor = AlExecutors.newIdleTimeoutScheduledExecutor(TAG);
+        for (String conversationKey : sharedPreferences.getAll().keySet()) {
+            Receipt receipt = Receipt.fromConversationKey(conversationKey);
+            if (receipt != null) {
+                //the messages it was for weren't saved, the conversation is sent as read up to now
+                receipt.readUpTo = true;
+                receipt.saved = true;
+                pendingReceipts.put(conversationKey, receipt);
+            }
+        }
+    }
+
+    public static synchronized @NonNull AlReadReceiptOutbox getInstance(@Nullable Context context) {
+        if (readReceiptOutbox == null) {
+            readReceiptOutbox = new AlReadReceiptOutbox(context);
+        }
+        return readReceiptOutbox;
+    }
+
+    /**
+     * Marks the conversation read, locally and on the server, after {@link #FLUSH_DELAY_MILLIS}.
+     *
+     * @param pairedMessageKey the key of the message that was read, null if the whole conversation was
+     * @param unreadCount the unread count of the conversation, nothing is sent to the server if it's 0 and there's no message key
+     */
+    public void markRead(@Nullable Contact contact, @Nullable Channel channel, @Nullable String pairedMessageKey, int unreadCount) {
+        String conversationKey = getConversationKey(contact, channel);
+        if (conversationKey == null) {
+            return;
+        }
+        synchronized (this) {
+            Receipt receipt = pendingReceipts.get(conversationKey);
+            if (receipt == null) {
+                receipt = Receipt.fromConversationKey(conversationKey);
+                pendingReceipts.put(conversationKey, receipt);
+            }
+            receipt.add(pairedMessageKey, unreadCount);
+            if (receipt.getServerRequest() != Receipt.NONE && !receipt.saved) {
+                sharedPreferences.edit().putBoolean(conversationKey, true).apply();
+                receipt.saved = true;
+            }
+            scheduleFlush(FLUSH_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Sends the pending receipts on the outbox's own thread, for example the ones saved before the process was restarted.
+     */
+    public synchronized void requestFlush() {
+        if (!pendingReceipts.isEmpty()) {
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * Drops the pending receipts. Called on logout.
+     */
+    public synchronized void clear() {
+        pendingReceipts.clear();
+        failedAttempts = 0;
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+            flushFuture = null;
+        }
+        sharedPreferences.edit().clear().apply();
+    }
+
+    private void flush() {
+        List<Receipt> receipts;
+        synchronized (this) {
+            flushFuture = null;
+            if (pendingReceipts.isEmpty() || !MobiComUserPreference.getInstance(context).isLoggedIn()) {
+                return;
+            }
+            receipts = new ArrayList<>(pendingReceipts.values());
+            pendingReceipts.clear();
+        }
+
+        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context);
+        MessageClientService messageClientService = new MessageClientService(context);
+        List<Receipt> failedReceipts = new ArrayList<>();
+        int sentCount = 0;
+        for (Receipt receipt : receipts) {
+            try {
+                if (receipt.readLocally) {
+                    if (receipt.channelKey != null) {
+                        messageDatabaseService.updateReadStatusForChannel(String.valueOf(receipt.channelKey));
+                    } else {
+                        messageDatabaseService.updateReadStatusForContact(receipt.contactId);
+                    }
+                }
+                if (send(receipt, messageClientService)) {
+                    sentCount++;
+                } else {
+                    failedReceipts.add(receipt);
+                    continue;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                failedReceipts.add(receipt);
+                continue;
+            }
+            synchronized (this) {
+                //a receipt added for the conversation while this one was being sent keeps its saved key
+                if (receipt.saved && !pendingReceipts.containsKey(receipt.conversationKey)) {
+                    sharedPreferences.edit().remove(receipt.conversationKey).apply();
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (failedReceipts.isEmpty()) {
+                failedAttempts = 0;
+            } else {
+                for (Receipt failedReceipt : failedReceipts) {
+                    Receipt receipt = pendingReceipts.get(failedReceipt.conversationKey);
+                    if (receipt == null) {
+                        failedReceipt.readLocally = false;
+                        pendingReceipts.put(failedReceipt.conversationKey, failedReceipt);
+                    } else {
+                        receipt.readUpTo = true;
+                        receipt.saved = receipt.saved || failedReceipt.saved;
+                    }
+                }
+                long delay = AlMessageOutbox.getBackoffDelayMillis(failedAttempts++, random);
+                Utils.printLog(context, TAG, "Could not send " + failedReceipts.size() + " read receipts, retrying in " + delay + "ms");
+                scheduleFlush(delay);
+            }
+        }
+        Utils.printLog(context, TAG, "Marked " + sentCount + " conversations read");
+    }
+
+    private boolean send(Receipt receipt, MessageClientService messageClientService) {
+        switch (receipt.getServerRequest()) {
+            case Receipt.MESSAGE:
+                if (ApplozicConversation.isMessageStatusPublished(context, receipt.messageKeys.iterator().next(), Message.Status.READ.getValue())) {
+                    return true;
+                }
+                //not connected, the conversation is marked read up to now instead
+            case Receipt.CONVERSATION:
+                return messageClientService.updateReadStatus(receipt.contactId != null ? new Contact(receipt.contactId) : null,
+                        receipt.channelKey != null ? new Channel(receipt.channelKey) : null);
+            default:
+                return true;
+        }
+    }
+
+    //guarded by this
+    private void scheduleFlush(long delayMillis) {
+        if (flushFuture != null && !flushFuture.isDone() && flushFuture.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+            return;
+        }
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        flushFuture = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    private static @Nullable String getConversationKey(@Nullable Contact contact, @Nullable Channel channel) {
+        if (contact != null && !TextUtils.isEmpty(contact.getContactIds())) {
+            return "contact:" + contact.getContactIds();
+        }
+        if (channel != null && channel.getKey() != null) {
+            return "channel:" + channel.getKey();
+        }
+        return null;
+    }
+
+    /**
+     * The receipts collected for a conversation.
+     */
+    @VisibleForTesting
+    static class Receipt {
+        static final int NONE = 0;
+        static final int MESSAGE = 1;
+        static final int CONVERSATION = 2;
+
+        final String conversationKey;
+        final String contactId;
+        final Integer channelKey;
+        final Set<String> messageKeys = new LinkedHashSet<>();
+        boolean readUpTo;
+        boolean readLocally;
+        boolean saved;
+
+        private Receipt(String conversationKey, String contactId, Integer channelKey) {
+            this.conversationKey = conversationKey;
+            this.contactId = contactId;
+            this.channelKey = channelKey;
+        }
+
+        /**
+         * @return null if the key isn't a conversation key
+         */
+        static @Nullable Receipt fromConversationKey(@NonNull String conversationKey) {
+            Receipt receipt;
+            if (conversationKey.startsWith("contact:")) {
+                receipt = new Receipt(conversationKey, conversationKey.substring("contact:".length()), null);
+            } else if (conversationKey.startsWith("channel:")) {
+                try {
+                    receipt = new Receipt(conversationKey, null, Integer.valueOf(conversationKey.substring("channel:".length())));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            return receipt;
+        }
+
+        void add(@Nullable String pairedMessageKey, int unreadCount) {
+            readLocally = true;
+            if (unreadCount != 0) {
+                readUpTo = true;
+            }
+            if (!TextUtils.isEmpty(pairedMessageKey)) {
+                messageKeys.add(pairedMessageKey);
+            }
+        }
+
+        /**
+         * @return {@link #NONE}, {@link #MESSAGE} for a single message read or {@link #CONVERSATION} for the whole conversation read up to now
+         */
+        int getServerRequest() {
+            if (readUpTo || messageKeys.size() > 1) {
+                return CONVERSATION;
+            }
+            return messageKeys.isEmpty() ? NONE : MESSAGE;
+        }
+    }
+}
@@ -11,7 +11,6 @@ import com.applozic.mobicomkit.api.ApplozicMqttService;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.User;
-import com.applozic.mobicomkit.api.account.user.UserClientService;
 import com.applozic.mobicomkit.api.account.user.UserDetail;
 import com.applozic.mobicomkit.api.account.user.UserService;
 import com.applozic.mobicomkit.api.attachment.AttachmentManager;
@@ -19,7 +18,6 @@ import com.applozic.mobicomkit.api.attachment.AttachmentTask;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
 import com.applozic.mobicomkit.api.notification.MuteNotificationRequest;
 import com.applozic.mobicomkit.api.people.ChannelInfo;
-import com.applozic.mobicomkit.api.people.UserWorker;
 import com.applozic.mobicomkit.channel.database.ChannelDatabaseService;
 import com.applozic.mobicomkit.channel.service.ChannelClientService;
 import com.applozic.mobicomkit.channel.service.ChannelService;
@@ -31,16 +29,15 @@ import com.applozic.mobicomkit.feed.ChannelFeedApiResponse;
 import com.applozic.mobicomkit.feed.ChannelName;
 import com.applozic.mobicomkit.feed.ErrorResponseFeed;
 import com.applozic.mobicomkit.feed.GroupInfoUpdate;
+import com.applozic.mobicomkit.listners.AlMessageListObserver;
 import com.applozic.mobicomkit.listners.ConversationListHandler;
 import com.applozic.mobicomkit.listners.MediaDownloadProgressHandler;
 import com.applozic.mobicomkit.listners.MessageListHandler;
-import com.applozic.mobicommons.json.GsonUtils;
 import com.applozic.mobicommons.people.channel.Channel;
 import com.applozic.mobicommons.people.contact.Contact;
 import com.applozic.mobicommons.task.AlAsyncTask;
 import com.applozic.mobicommons.task.AlTask;
 import com.applozic.mobicommons.task.BaseAsyncTask;
-import com.google.gson.reflect.TypeToken;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -215,7 +212,7 @@ public class ApplozicConversation {
                 new MessageDatabaseService(context).updateReadStatusForChannel(String.valueOf(groupId));
             }
 
-            UserWorker.enqueueWork(context, null, contact, channel, pairedMessageKey, unreadCount, false);
+            AlReadReceiptOutbox.getInstance(context).markRead(contact, channel, pairedMessageKey, unreadCount);
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -493,12 +490,11 @@ public class ApplozicConversation {
             return new AlAsyncTask<Void, List<UserDetail>>() {
                 @Override
                 protected List<UserDetail> doInBackground() throws Exception {
-                    String response = new UserClientService(context).postUserDetailsByUserIds(userIds);
-                    try {
-                        return (List<UserDetail>) GsonUtils.getObjectFromJson(response, new TypeToken<List<UserDetail>>() {}.getType());
-                    } catch (Exception exception) {
+                    if (userIds == null || userIds.isEmpty()) {
                         return null;
                     }
+                    List<UserDetail> userDetails = UserService.getInstance(context).loadUserDetails(userIds, true, false);
+                    return userDetails.isEmpty() ? null : userDetails;
                 }
             };
         }
@@ -576,6 +572,26 @@ public class ApplozicConversation {
         }
     }
 
+    /**
+     * Observe a page of messages, either the conversation list or the messages of a conversation. See {@link AlMessageListQuery}.
+     *
+     * <p>The page is first read from the local database and given to {@link AlMessageListObserver#onLocalResult(List)}, without waiting for the server.
+     * It's then synced with the server and given to {@link AlMessageListObserver#onResult(List, List, ApplozicException)}, along with the messages that changed.</p>
+     *
+     * <p>Equal queries observed at the same time share a single fetch. Cancel the returned subscription when the results are no longer needed.</p>
+     *
+     * <code>
+     *     AlMessageListSubscription subscription = ApplozicConversation.observeMessageList(context, AlMessageListQuery.forChannel(channelKey), observer);
+     *     //to get the older messages, once a page has been received
+     *     ApplozicConversation.observeMessageList(context, subscription.getQuery().getNextPageQuery(messageList), observer);
+     *     //when the screen goes away
+     *     subscription.cancel();
+     * </code>
+     */
+    public static @NonNull AlMessageListSubscription observeMessageList(@NonNull Context context, @NonNull AlMessageListQuery query, @NonNull AlMessageListObserver observer) {
+        return AlMessageListQueryManager.getInstance(context).observe(query, observer);
+    }
+
     //old api >>>
 
     /**
@@ -14,6 +14,7 @@ import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
+import com.applozic.mobicomkit.api.AlMqttReconnectManager;
 import com.applozic.mobicomkit.api.ApplozicMqttService;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicommons.commons.core.utils.Utils;
@@ -102,6 +103,10 @@ public class ApplozicMqttWorker extends Worker {
         enqueueWork(context, dataBuilder.build(), 0);
     }
 
+    /**
+     * @deprecated Typing subscriptions are kept in memory, use {@link com.applozic.mobicomkit.Applozic#subscribeToTyping(Context, Channel, Contact)}.
+     */
+    @Deprecated
     public static void enqueueWorkSubscribeToTyping(Context context, Channel channel, Contact contact) {
         Data.Builder dataBuilder = new Data.Builder();
         try {
@@ -119,6 +124,10 @@ public class ApplozicMqttWorker extends Worker {
         enqueueWork(context, dataBuilder.build(), 0);
     }
 
+    /**
+     * @deprecated Typing subscriptions are kept in memory, use {@link com.applozic.mobicomkit.Applozic#unSubscribeToTyping(Context, Channel, Contact)}.
+     */
+    @Deprecated
     public static void enqueueWorkUnSubscribeToTyping(Context context, Channel channel, Contact contact) {
         Data.Builder dataBuilder = new Data.Builder();
         try {
@@ -190,10 +199,8 @@ public class ApplozicMqttWorker extends Worker {
                 Log.d(TAG, "App is in background, MQTT method call not required...");
                 return Result.success();
             }
-            ApplozicMqttService applozicMqttService = ApplozicMqttService.getInstance(getApplicationContext());
-            applozicMqttService.connectClient(true);
-            applozicMqttService.subscribe(useEncryptedTopic);
-            applozicMqttService.publishClientStatus(MobiComUserPreference.getInstance(getApplicationContext()).getSuUserKeyString(), MobiComUserPreference.getInstance(getApplicationContext()).getDeviceKeyString(), "1");
+            AlMqttReconnectManager.getInstance(getApplicationContext()).start();
+            ApplozicMqttService.getInstance(getApplicationContext()).connectAndSubscribe(useEncryptedTopic);
         }
 
         if (subscribeToTyping) {
@@ -253,7 +260,7 @@ public class ApplozicMqttWorker extends Worker {
 
     //this method will not work perfectly
     //however for now there is no other suitable method to check if app is in background without using the lifecycle library
-    private boolean isAppInBackground() {
+    public static boolean isAppInBackground() {
         ActivityManager.RunningAppProcessInfo myProcess = new ActivityManager.RunningAppProcessInfo();
         ActivityManager.getMyMemoryState(myProcess);
         return myProcess.importance != ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
@@ -41,7 +41,7 @@ public class ApplozicWorker extends Worker {
                 .putBoolean(AL_SYNC_ON_CONNECTIVITY, connectivityChange)
                 .putBoolean(AL_TIME_CHANGE_RECEIVER, timeChangeReceiver)
                 .build();
-        OneTimeWorkRequest conversationWorkerRequest = new OneTimeWorkRequest.Builder(ApplozicMqttWorker.class)
+        OneTimeWorkRequest conversationWorkerRequest = new OneTimeWorkRequest.Builder(ApplozicWorker.class)
                 .setInputData(data)
                 .build();
         WorkManager.getInstance(context).enqueue(conversationWorkerRequest);
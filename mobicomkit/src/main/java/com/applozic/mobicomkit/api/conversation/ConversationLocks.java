@@ -0,0 +1,104 @@
+package com.applozic.mobicomkit.api.conversation;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Internal class.
+ *
+ * <p>Striped locks for conversation level operations.</p>
+ *
+ * <p>Instead of synchronizing on service singletons (which makes a slow network call for one thread block
+ * delivery reports and reads for every other thread), operations lock only the stripe for the conversation or message they touch.
+ * Unrelated conversations map to different stripes most of the time and can proceed in parallel.</p>
+ *
+ * <p>Contacts, channels and message keys each have their own set of stripes. A conversation lock is held across the network call
+ * that loads its messages, so a delivery or read report (which takes a message key lock) never waits for it,
+ * and a one-to-one conversation never waits for a group one.</p>
+ *
+ * <p>The locks are re-entrant. Code holding a stripe must not wait for another stripe, since different keys can share one.
+ * The only exception is the conversation list lock ({@link #forConversation(Contact, Channel)} with null arguments),
+ * which may be held while taking the lock for a single conversation, never the other way around.
+ * The list lock is held across network calls, so it is a dedicated lock and not one of the stripes: it never blocks a single conversation.
+ * Null keys share another dedicated lock, for the same reason.
+ * Database writes do not use these locks, they rely on SQLite transactions instead.</p>
+ */
+public class ConversationLocks {
+    private static final int STRIPE_COUNT = 32; //must be a power of two
+    private static final ReentrantLock[] contactStripes = newStripes();
+    private static final ReentrantLock[] channelStripes = newStripes();
+    private static final ReentrantLock[] messageKeyStripes = newStripes();
+    private static final ReentrantLock conversationListLock = new ReentrantLock();
+    private static final ReentrantLock nullKeyLock = new ReentrantLock();
+
+    private ConversationLocks() { }
+
+    /**
+     * The lock for the one-to-one conversation with the given user.
+     */
+    public static @NonNull ReentrantLock forContact(@Nullable String userId) {
+        return forKey(contactStripes, userId);
+    }
+
+    /**
+     * The lock for the group conversation with the given channel key.
+     */
+    public static @NonNull ReentrantLock forChannel(@Nullable Integer channelKey) {
+        return forKey(channelStripes, channelKey);
+    }
+
+    /**
+     * The lock for the conversation the given contact or channel identify. Channel takes precedence.
+     *
+     * <p>If both are null, the lock for the "all conversations" list is returned.</p>
+     */
+    public static @NonNull ReentrantLock forConversation(@Nullable Contact contact, @Nullable Channel channel) {
+        if (channel != null) {
+            return forChannel(channel.getKey());
+        } else if (contact != null) {
+            return forContact(contact.getContactIds());
+        }
+        return conversationListLock;
+    }
+
+    /**
+     * The lock for the conversation the given message belongs to.
+     */
+    public static @NonNull ReentrantLock forMessage(@NonNull Message message) {
+        if (message.getGroupId() != null) {
+            return forChannel(message.getGroupId());
+        }
+        return forContact(message.getContactIds());
+    }
+
+    /**
+     * The lock for a single message, identified by its key string.
+     *
+     * <p>Use this for updates that only know the message key, such as delivery and read reports.</p>
+     */
+    public static @NonNull ReentrantLock forMessageKey(@Nullable String keyString) {
+        return forKey(messageKeyStripes, keyString);
+    }
+
+    private static @NonNull ReentrantLock forKey(@NonNull ReentrantLock[] stripes, @Nullable Object key) {
+        if (key == null) {
+            return nullKeyLock;
+        }
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (STRIPE_COUNT - 1)];
+    }
+
+    private static @NonNull ReentrantLock[] newStripes() {
+        ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+}
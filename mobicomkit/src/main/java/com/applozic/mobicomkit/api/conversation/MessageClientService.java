@@ -14,6 +14,7 @@ import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.UserDetail;
 import com.applozic.mobicomkit.api.account.user.UserService;
+import com.applozic.mobicomkit.api.attachment.AlVideoThumbnailCache;
 import com.applozic.mobicomkit.api.attachment.FileClientService;
 import com.applozic.mobicomkit.api.attachment.FileMeta;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
@@ -59,6 +60,8 @@ import java.util.UUID;
 public class MessageClientService extends MobiComKitClientService {
     //Cleanup: all to private unless specified
     public static final int SMS_SYNC_BATCH_SIZE = 5;
+    //the number of messages the conversation screen loads at a time
+    public static final int CONVERSATION_PAGE_SIZE = 50;
     public static final String DEVICE_KEY = "deviceKey";
     public static final String LAST_SYNC_KEY = "lastSyncTime";
     public static final String REGISTRATION_ID = "registrationId";
@@ -236,13 +239,15 @@ public class MessageClientService extends MobiComKitClientService {
         return getBaseUrl() + UPDATE_MESSAGE_METADATA_URL;
     }
 
-    public synchronized void syncPendingMessages(boolean broadcast) {
-        List<Message> pendingMessages = messageDatabaseService.getPendingMessages();
-        Utils.printLog(context, TAG, "Found " + pendingMessages.size() + " pending messages to sync.");
-        for (Message message : pendingMessages) {
-            Utils.printLog(context, TAG, "Syncing pending message: " + message);
-            sendPendingMessageToServer(message, broadcast);
-        }
+    /**
+     * Sends the messages that were saved but not sent to the server, see {@link AlMessageOutbox}.
+     * The read receipts left from before are sent in the background, see {@link AlReadReceiptOutbox}.
+     *
+     * <p>Returns once they were all tried, or right away if they're already being sent.</p>
+     */
+    public void syncPendingMessages(boolean broadcast) {
+        AlReadReceiptOutbox.getInstance(context).requestFlush();
+        AlMessageOutbox.getInstance(context).flush(broadcast);
     }
 
     public synchronized void syncDeleteMessages(boolean deleteMessage) {
@@ -317,7 +322,15 @@ public class MessageClientService extends MobiComKitClientService {
 
     //Cleanup: private
     public void sendPendingMessageToServer(Message message, boolean broadcast) {
+        sendPendingMessage(message, broadcast);
+    }
 
+    /**
+     * Sends a message that was saved but not sent to the server. Its attachment must already be uploaded (see {@link #uploadPendingAttachments(Message)}).
+     *
+     * @return true if the message was sent, false if it should be tried again
+     */
+    boolean sendPendingMessage(Message message, boolean broadcast) {
         try {
             if (message.isContactMessage()) {
                 try {
@@ -325,22 +338,29 @@ public class MessageClientService extends MobiComKitClientService {
                 } catch (Exception e) {
                     Utils.printLog(context, TAG, "Exception while sending contact message.");
                 }
-                return;
+                return true;
             }
 
-            if (message.hasAttachment()) {
-                return;
+            if (message.isUploadRequired()) {
+                return false;
             }
 
             MobiComUserPreference mobiComUserPreference = MobiComUserPreference.getInstance(context);
             message.setDeviceKeyString(mobiComUserPreference.getDeviceKeyString());
             message.setSuUserKeyString(mobiComUserPreference.getSuUserKeyString());
 
-            String response = sendMessage(message);
+            String response;
+            if (message.hasAttachment()) {
+                //the local file paths aren't sent
+                Contact contact = message.getGroupId() == null ? baseContactService.getContactById(message.getContactIds()) : null;
+                response = sendMessage(getMessageForServer(message, contact));
+            } else {
+                response = sendMessage(message);
+            }
 
             if (TextUtils.isEmpty(response) || response.contains("<html>") || response.equals("error")) {
                 Utils.printLog(context, TAG, "Error while sending pending messages.");
-                return;
+                return false;
             }
 
             MessageResponse messageResponse = (MessageResponse) GsonUtils.getObjectFromJson(response, MessageResponse.class);
@@ -362,10 +382,74 @@ public class MessageClientService extends MobiComKitClientService {
                     UserService.getInstance(context).updateUserDisplayName(contact.getUserId(), contact.getDisplayName());
                 }
             }
+            return true;
         } catch (Exception e) {
             Utils.printLog(context, TAG, "Error while sending pending messages.");
+            return false;
+        }
+    }
+
+    /**
+     * Uploads the attachment of a pending message, for when the app was closed before the upload was done, and saves the file-metas.
+     *
+     * @return true if uploaded. false if the upload failed, the message is also canceled if its file is gone.
+     */
+    boolean uploadPendingAttachments(Message message) {
+        FileClientService fileClientService = new FileClientService(context);
+        for (String filePath : message.getFilePaths()) {
+            if (!FileUtils.isFileExist(filePath)) {
+                Utils.printLog(context, TAG, "File not found for pending message: " + message.getKeyString());
+                message.setCanceled(true);
+                if (message.getMessageId() != null) {
+                    messageDatabaseService.updateCanceledFlag(message.getMessageId(), 1);
+                }
+                BroadcastService.sendMessageUpdateBroadcast(context, BroadcastService.INTENT_ACTIONS.UPLOAD_ATTACHMENT_FAILED.toString(), message);
+                return false;
+            }
+            try {
+                FileMeta thumbnailFileMeta = null;
+                String mimeType = FileUtils.getMimeType(filePath);
+                if (mimeType != null && mimeType.startsWith("video")) {
+                    thumbnailFileMeta = uploadVideoThumbnail(filePath, message.getCreatedAtTime(), message.getKeyString());
+                }
+
+                FileMeta fileMeta = getFileMetaFromResponse(fileClientService.uploadBlobImage(filePath, null, message.getKeyString()));
+                if (fileMeta == null) {
+                    Utils.printLog(context, TAG, "Error uploading file for pending message: " + message.getKeyString());
+                    return false;
+                }
+                if (thumbnailFileMeta != null) {
+                    if (!TextUtils.isEmpty(thumbnailFileMeta.getBlobKeyString())) {
+                        fileMeta.setThumbnailBlobKey(thumbnailFileMeta.getBlobKeyString());
+                    }
+                    if (!TextUtils.isEmpty(thumbnailFileMeta.getThumbnailUrl())) {
+                        fileMeta.setThumbnailUrl(thumbnailFileMeta.getThumbnailUrl());
+                    }
+                }
+                message.setFileMetas(fileMeta);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return false;
+            }
         }
+        if (message.getMessageId() != null) {
+            messageDatabaseService.updateMessageFileMetas(message.getMessageId(), message);
+        }
+        return true;
+    }
 
+    private @Nullable FileMeta getFileMetaFromResponse(@Nullable String fileMetaResponse) {
+        if (TextUtils.isEmpty(fileMetaResponse)) {
+            return null;
+        }
+        if (ApplozicClient.getInstance(context).isS3StorageServiceEnabled()) {
+            return (FileMeta) GsonUtils.getObjectFromJson(fileMetaResponse, FileMeta.class);
+        }
+        JsonObject jsonObject = new JsonParser().parse(fileMetaResponse).getAsJsonObject();
+        if (jsonObject.has(FILE_META)) {
+            return new Gson().fromJson(jsonObject.get(FILE_META), FileMeta.class);
+        }
+        return null;
     }
 
     //Cleanup: private
@@ -374,7 +458,14 @@ public class MessageClientService extends MobiComKitClientService {
     }
 
     public void sendMessageToServer(Message message, Handler handler, Class intentClass, String userDisplayName) throws Exception {
-        processMessage(message, handler, userDisplayName);
+        sendMessageToServer(message, handler, intentClass, userDisplayName, false);
+    }
+
+    /**
+     * @param shownOptimistically true if the message was already given its key, shown and saved, see {@link AlMessageSendQueue}
+     */
+    void sendMessageToServer(Message message, Handler handler, Class intentClass, String userDisplayName, boolean shownOptimistically) throws Exception {
+        processMessage(message, handler, userDisplayName, shownOptimistically);
         if (message.getScheduledAt() != null && message.getScheduledAt() != 0 && intentClass != null) {
             new ScheduledMessageUtil(context, intentClass).createScheduleMessage(message, context);
         }
@@ -396,26 +487,11 @@ public class MessageClientService extends MobiComKitClientService {
     public FileMeta uploadVideoThumbnail(String filePath, Long createdAtTimeForSuffix, String oldMessageKey) {
         FileMeta thumbnailFileMeta = null;
         try {
-            FileClientService fileClientService = new FileClientService(context);
-            fileClientService.getOrCreateVideoThumbnail(filePath);
-
-            String videoThumbnailPath = fileClientService.getThumbnailPath(filePath);
+            //usually generated already, when the message was sent
+            String videoThumbnailPath = AlVideoThumbnailCache.getInstance(context).getOrCreateThumbnailPath(filePath);
 
             if (!TextUtils.isEmpty(videoThumbnailPath) && new File(videoThumbnailPath).exists()) {
-                String fileMetaResponseVideoThumbnail = fileClientService.uploadBlobImage(videoThumbnailPath, null, oldMessageKey);
-
-                if (ApplozicClient.getInstance(context).isS3StorageServiceEnabled()) {
-                    if (!TextUtils.isEmpty(fileMetaResponseVideoThumbnail)) {
-                        thumbnailFileMeta = (FileMeta) GsonUtils.getObjectFromJson(fileMetaResponseVideoThumbnail, FileMeta.class);
-                    }
-                } else {
-                    JsonParser jsonParser = new JsonParser();
-                    JsonObject jsonObject = jsonParser.parse(fileMetaResponseVideoThumbnail).getAsJsonObject();
-                    if (jsonObject.has(FILE_META)) {
-                        Gson gson = new Gson();
-                        thumbnailFileMeta = gson.fromJson(jsonObject.get(FILE_META), FileMeta.class);
-                    }
-                }
+                thumbnailFileMeta = getFileMetaFromResponse(new FileClientService(context).uploadBlobImage(videoThumbnailPath, null, oldMessageKey));
             }
         } catch (Exception exception) {
             exception.printStackTrace();
@@ -426,6 +502,10 @@ public class MessageClientService extends MobiComKitClientService {
 
     //Cleanup: private
     public void processMessage(Message message, Handler handler, String userDisplayName) throws Exception {
+        processMessage(message, handler, userDisplayName, false);
+    }
+
+    private void processMessage(Message message, Handler handler, String userDisplayName, boolean shownOptimistically) throws Exception {
         boolean isBroadcast = (message.getMessageId() == null);
 
         MobiComUserPreference userPreferences = MobiComUserPreference.getInstance(context);
@@ -451,7 +531,7 @@ public class MessageClientService extends MobiComKitClientService {
         String keyString = null;
         String oldMessageKey = null;
         if (!isBroadcastOneByOneGroupType) {
-            keyString = UUID.randomUUID().toString();
+            keyString = shownOptimistically ? message.getKeyString() : UUID.randomUUID().toString();
             oldMessageKey = keyString;
             message.setKeyString(keyString);
             message.setSentToServer(false);
@@ -467,7 +547,7 @@ public class MessageClientService extends MobiComKitClientService {
             messageId = messageDatabaseService.createMessage(message);
         }
 
-        if (isBroadcast && !skipMessage) {
+        if (isBroadcast && !skipMessage && !shownOptimistically) {
             BroadcastService.sendMessageUpdateBroadcast(context, BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString(), message);
         }
         if (!isBroadcastOneByOneGroupType && message.isUploadRequired()) {
@@ -560,42 +640,7 @@ public class MessageClientService extends MobiComKitClientService {
             }
         }
 
-        Message newMessage = new Message();
-        newMessage.setTo(message.getTo());
-        newMessage.setKeyString(message.getKeyString());
-        newMessage.setMessage(message.getMessage());
-        newMessage.setFileMetas(message.getFileMetas());
-        newMessage.setCreatedAtTime(message.getCreatedAtTime());
-        newMessage.setRead(Boolean.TRUE);
-        newMessage.setDeviceKeyString(message.getDeviceKeyString());
-        newMessage.setSuUserKeyString(message.getSuUserKeyString());
-        newMessage.setSent(message.isSent());
-        newMessage.setType(message.getType());
-        newMessage.setTimeToLive(message.getTimeToLive());
-        newMessage.setSource(message.getSource());
-        newMessage.setScheduledAt(message.getScheduledAt());
-        newMessage.setStoreOnDevice(message.isStoreOnDevice());
-        newMessage.setDelivered(message.getDelivered());
-        newMessage.setStatus(message.getStatus());
-        newMessage.setMetadata(message.getMetadata());
-
-        newMessage.setSendToDevice(message.isSendToDevice());
-        newMessage.setContentType(message.getContentType());
-        newMessage.setConversationId(message.getConversationId());
-        if (message.getGroupId() != null) {
-            newMessage.setGroupId(message.getGroupId());
-        }
-        if (!TextUtils.isEmpty(message.getClientGroupId())) {
-            newMessage.setClientGroupId(message.getClientGroupId());
-        }
-
-        if (contact != null && !TextUtils.isEmpty(contact.getApplicationId())) {
-            newMessage.setApplicationId(contact.getApplicationId());
-        } else {
-            newMessage.setApplicationId(getApplicationKey(context));
-        }
-
-        //Todo: set filePaths
+        Message newMessage = getMessageForServer(message, contact);
 
         try {
             if (!isBroadcastOneByOneGroupType) {
@@ -631,6 +676,7 @@ public class MessageClientService extends MobiComKitClientService {
                 messageDatabaseService.updateMessage(messageId, message.getSentMessageTimeAtServer(), keyString, message.isSentToServer());
             }
             if (message.isSentToServer()) {
+                AlMessageSendMetrics.getInstance(context).onMessageAcknowledged(oldMessageKey);
 
                 if (handler != null) {
                     android.os.Message msg = handler.obtainMessage();
@@ -668,6 +714,49 @@ public class MessageClientService extends MobiComKitClientService {
         }*/
     }
 
+    /**
+     * @return a copy of the message with only the fields that are sent to the server
+     */
+    private Message getMessageForServer(Message message, @Nullable Contact contact) {
+        Message newMessage = new Message();
+        newMessage.setTo(message.getTo());
+        newMessage.setKeyString(message.getKeyString());
+        newMessage.setMessage(message.getMessage());
+        newMessage.setFileMetas(message.getFileMetas());
+        newMessage.setCreatedAtTime(message.getCreatedAtTime());
+        newMessage.setRead(Boolean.TRUE);
+        newMessage.setDeviceKeyString(message.getDeviceKeyString());
+        newMessage.setSuUserKeyString(message.getSuUserKeyString());
+        newMessage.setSent(message.isSent());
+        newMessage.setType(message.getType());
+        newMessage.setTimeToLive(message.getTimeToLive());
+        newMessage.setSource(message.getSource());
+        newMessage.setScheduledAt(message.getScheduledAt());
+        newMessage.setStoreOnDevice(message.isStoreOnDevice());
+        newMessage.setDelivered(message.getDelivered());
+        newMessage.setStatus(message.getStatus());
+        newMessage.setMetadata(message.getMetadata());
+
+        newMessage.setSendToDevice(message.isSendToDevice());
+        newMessage.setContentType(message.getContentType());
+        newMessage.setConversationId(message.getConversationId());
+        if (message.getGroupId() != null) {
+            newMessage.setGroupId(message.getGroupId());
+        }
+        if (!TextUtils.isEmpty(message.getClientGroupId())) {
+            newMessage.setClientGroupId(message.getClientGroupId());
+        }
+
+        if (contact != null && !TextUtils.isEmpty(contact.getApplicationId())) {
+            newMessage.setApplicationId(contact.getApplicationId());
+        } else {
+            newMessage.setApplicationId(getApplicationKey(context));
+        }
+
+        //Todo: set filePaths
+        return newMessage;
+    }
+
     //Cleanup: private
     public String syncMessages(SmsSyncRequest smsSyncRequest) throws Exception {
         String data = GsonUtils.getJsonFromObject(smsSyncRequest, SmsSyncRequest.class);
@@ -781,8 +870,13 @@ public class MessageClientService extends MobiComKitClientService {
         return null;
     }
 
+    /**
+     * Marks the conversation read up to now on the server.
+     *
+     * @return false if the request failed
+     */
     //Cleanup: default
-    public void updateReadStatus(Contact contact, Channel channel) {
+    public boolean updateReadStatus(Contact contact, Channel channel) {
         String contactNumberParameter = "";
         String response = "";
         if (contact != null && !TextUtils.isEmpty(contact.getContactIds())) {
@@ -792,6 +886,7 @@ public class MessageClientService extends MobiComKitClientService {
         }
         response = httpRequestUtils.getResponse(getUpdateReadStatusUrl() + contactNumberParameter, "text/plain", "text/plain");
         Utils.printLog(context, TAG, "Read status response is " + response);
+        return !TextUtils.isEmpty(response);
     }
 
     public void updateReadStatusForSingleMessage(String pairedmessagekey) {
@@ -818,7 +913,7 @@ public class MessageClientService extends MobiComKitClientService {
     public String getMessages(Contact contact, Channel channel, Long startTime, Long endTime, Integer conversationId, boolean isSkipRead) throws UnsupportedEncodingException {
         String params = "";
         if (contact != null || channel != null) {
-            params = isSkipRead ? "skipRead=" + isSkipRead + "&startIndex=0&pageSize=50" + "&" : "startIndex=0&pageSize=50&";
+            params = isSkipRead ? "skipRead=" + isSkipRead + "&startIndex=0&pageSize=" + CONVERSATION_PAGE_SIZE + "&" : "startIndex=0&pageSize=" + CONVERSATION_PAGE_SIZE + "&";
         }
         if (contact == null && channel == null) {
             params = "startIndex=0&mainPageSize=" + ApplozicClient.getInstance(context).getFetchConversationListMainPageSize() + "&";
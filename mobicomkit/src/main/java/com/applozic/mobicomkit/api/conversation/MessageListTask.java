@@ -53,52 +53,15 @@ public class MessageListTask extends AlAsyncTask<Void, List<Message>> {
             }
 
             if (isForMessageList) {
-                List<String> recList = new ArrayList<String>();
-                List<Message> messages = new ArrayList<Message>();
-
                 if (messageList != null) {
-                    for (Message message : messageList) {
-                        if ((message.getGroupId() == null || message.getGroupId() == 0) && !recList.contains(message.getContactIds())) {
-                            recList.add(message.getContactIds());
-                            messages.add(message);
-                        } else if (message.getGroupId() != null && !recList.contains("group" + message.getGroupId())) {
-                            recList.add("group" + message.getGroupId());
-                            messages.add(message);
-                        }
-                    }
                     if (!messageList.isEmpty()) {
                         MobiComUserPreference.getInstance(context.get()).setStartTimeForPagination(messageList.get(messageList.size() - 1).getCreatedAtTime());
                     }
-                    return messages;
+                    return getLatestMessagePerConversation(messageList);
                 }
             } else {
-                List<Message> mergedList = new ArrayList<>();
-
                 if (messageList != null && !messageList.isEmpty()) {
-
-                    mergedList.add(getDateMessage(messageList.get(0)));
-
-                    for (int i = 0; i < messageList.size(); i++) {
-                        if (i == 0) {
-                            mergedList.add(messageList.get(0));
-                            continue;
-                        }
-
-                        long dayDifference = DateUtils.daysBetween(new Date(messageList.get(i - 1).getCreatedAtTime()), new Date(messageList.get(i).getCreatedAtTime()));
-
-                        if (dayDifference >= 1) {
-                            Message message = getDateMessage(messageList.get(i));
-
-                            if (!mergedList.contains(message)) {
-                                mergedList.add(message);
-                            }
-                        }
-
-                        if (!mergedList.contains(messageList.get(i))) {
-                            mergedList.add(messageList.get(i));
-                        }
-                    }
-                    return mergedList;
+                    return addDateMessages(messageList);
                 }
             }
         } catch (Exception e) {
@@ -116,7 +79,62 @@ public class MessageListTask extends AlAsyncTask<Void, List<Message>> {
         }
     }
 
-    private Message getDateMessage(Message message) {
+    /**
+     * @param messageList the latest messages, newest first
+     * @return the first message of each conversation in the list
+     */
+    static List<Message> getLatestMessagePerConversation(List<Message> messageList) {
+        List<String> recList = new ArrayList<String>();
+        List<Message> messages = new ArrayList<Message>();
+
+        for (Message message : messageList) {
+            if ((message.getGroupId() == null || message.getGroupId() == 0) && !recList.contains(message.getContactIds())) {
+                recList.add(message.getContactIds());
+                messages.add(message);
+            } else if (message.getGroupId() != null && !recList.contains("group" + message.getGroupId())) {
+                recList.add("group" + message.getGroupId());
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @param messageList the messages of a conversation, oldest first
+     * @return the messages, with a date message (see {@link Message#isTempDateType()}) before the first message of each day
+     */
+    static List<Message> addDateMessages(List<Message> messageList) {
+        List<Message> mergedList = new ArrayList<>();
+        if (messageList.isEmpty()) {
+            return mergedList;
+        }
+
+        mergedList.add(getDateMessage(messageList.get(0)));
+
+        for (int i = 0; i < messageList.size(); i++) {
+            if (i == 0) {
+                mergedList.add(messageList.get(0));
+                continue;
+            }
+
+            long dayDifference = DateUtils.daysBetween(new Date(messageList.get(i - 1).getCreatedAtTime()), new Date(messageList.get(i).getCreatedAtTime()));
+
+            if (dayDifference >= 1) {
+                Message message = getDateMessage(messageList.get(i));
+
+                if (!mergedList.contains(message)) {
+                    mergedList.add(message);
+                }
+            }
+
+            if (!mergedList.contains(messageList.get(i))) {
+                mergedList.add(messageList.get(i));
+            }
+        }
+        return mergedList;
+    }
+
+    private static Message getDateMessage(Message message) {
         Message firstDateMessage = new Message();
         firstDateMessage.setTempDateType(Short.valueOf("100"));
         firstDateMessage.setCreatedAtTime(message.getCreatedAtTime());
@@ -71,7 +71,7 @@ public class MessageWorker extends Worker {
             }
 
             Utils.printLog(getApplicationContext(), TAG, "Sending message thread started...");
-            MessageSender messageSender = new MessageSender(message, uploadQueueMap.get(message.getCreatedAtTime()), displayName, countDownLatch, messageClientService);
+            MessageSender messageSender = new MessageSender(message, uploadQueueMap.get(message.getCreatedAtTime()), displayName, countDownLatch, messageClientService, AlMessageOutbox.getInstance(getApplicationContext()));
             Thread thread = new Thread(messageSender);
             thread.setPriority(Process.THREAD_PRIORITY_BACKGROUND);
             thread.start();
@@ -92,19 +92,27 @@ public class MessageWorker extends Worker {
         private final String userDisplayName;
         private final CountDownLatch countDownLatch;
         private final MessageClientService messageClientService;
+        private final AlMessageOutbox messageOutbox;
 
-        public MessageSender(Message message, Handler handler, String userDisplayName, CountDownLatch countDownLatch, MessageClientService messageClientService) {
+        public MessageSender(Message message, Handler handler, String userDisplayName, CountDownLatch countDownLatch, MessageClientService messageClientService, AlMessageOutbox messageOutbox) {
             this.message = message;
             this.handler = handler;
             this.userDisplayName = userDisplayName;
             this.countDownLatch = countDownLatch;
             this.messageClientService = messageClientService;
+            this.messageOutbox = messageOutbox;
         }
 
         @Override
         public void run() {
             try {
-                messageClientService.sendMessageToServer(message, handler, ScheduleMessageService.class, userDisplayName);
+                //the outbox leaves the message's conversation alone while it's being sent here
+                messageOutbox.addSendingMessage(message);
+                try {
+                    messageClientService.sendMessageToServer(message, handler, ScheduleMessageService.class, userDisplayName);
+                } finally {
+                    messageOutbox.removeSendingMessage(message);
+                }
                 messageClientService.syncPendingMessages(true);
                 uploadQueueMap.remove(message.getCreatedAtTime());
             } catch (Exception e) {
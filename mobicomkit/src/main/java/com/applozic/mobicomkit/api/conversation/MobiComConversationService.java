@@ -15,14 +15,18 @@ import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.UserDetail;
+import com.applozic.mobicomkit.api.attachment.AlMediaStore;
+import com.applozic.mobicomkit.api.attachment.AlVideoThumbnailCache;
 import com.applozic.mobicomkit.api.attachment.FileClientService;
 import com.applozic.mobicomkit.api.attachment.FileMeta;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.api.conversation.retention.MessageRetention;
 import com.applozic.mobicomkit.api.conversation.service.ConversationService;
 import com.applozic.mobicomkit.api.people.UserWorker;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
 import com.applozic.mobicomkit.cache.MessageSearchCache;
 import com.applozic.mobicomkit.channel.service.ChannelService;
+import com.applozic.mobicomkit.contact.AlPresenceManager;
 import com.applozic.mobicomkit.contact.AppContactService;
 import com.applozic.mobicomkit.contact.BaseContactService;
 import com.applozic.mobicomkit.exception.ApplozicException;
@@ -54,6 +58,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 //Cleanup: Why is this separate from MobiComMessageService, why does this have Message related code
 
@@ -134,7 +139,19 @@ public class MobiComConversationService {
     }
 
     public void sendMessage(Message message, String userDisplayName) {
-        MessageWorker.enqueueWork(context, message, userDisplayName, null);
+        if (message.isUploadRequired()) {
+            //ready by the time the message is shown, and its upload starts
+            for (String filePath : message.getFilePaths()) {
+                String mimeType = FileUtils.getMimeType(filePath);
+                if (mimeType != null && mimeType.startsWith("video")) {
+                    AlVideoThumbnailCache.getInstance(context).precomputeThumbnail(filePath);
+                }
+            }
+        }
+        //new text messages are shown right away and sent in order, see AlMessageSendQueue
+        if (!AlMessageSendQueue.getInstance(context).send(message, userDisplayName)) {
+            MessageWorker.enqueueWork(context, message, userDisplayName, null);
+        }
     }
 
     public void sendMessage(Message message) {
@@ -145,7 +162,7 @@ public class MobiComConversationService {
         return getLatestMessagesGroupByPeople(null, null);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString, Integer parentGroupKey) {
+    public List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString, Integer parentGroupKey) {
 
         if (!ApplozicClient.getInstance(context).wasServerCallDoneBefore(null, null, null) || createdAt != null && createdAt != 0) {
             getMessagesWithNetworkMetaData(null, createdAt, null, null, null, false, false);
@@ -154,7 +171,7 @@ public class MobiComConversationService {
         return messageDatabaseService.getMessages(createdAt, searchString, parentGroupKey);
     }
 
-    public synchronized NetworkListDecorator<Message> getLatestMessagesGroupByPeopleWithNetworkMetaData(Long createdAt, String searchString, Integer parentGroupKey) {
+    public NetworkListDecorator<Message> getLatestMessagesGroupByPeopleWithNetworkMetaData(Long createdAt, String searchString, Integer parentGroupKey) {
         boolean networkFail = false;
         
         if (!ApplozicClient.getInstance(context).wasServerCallDoneBefore(null, null, null) || createdAt != null && createdAt != 0) {
@@ -165,7 +182,7 @@ public class MobiComConversationService {
         return new NetworkListDecorator<>(messageDatabaseService.getMessages(createdAt, searchString, parentGroupKey), networkFail);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString) {
+    public List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString) {
         return getLatestMessagesGroupByPeople(createdAt, searchString, null);
     }
 
@@ -174,12 +191,12 @@ public class MobiComConversationService {
         return getMessagesWithNetworkMetaData(startTime, endTime, new Contact(userId), null, null, false, false).getList();
     }
 
-    public synchronized List<Message> getMessages(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId) {
+    public List<Message> getMessages(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId) {
         return getMessagesWithNetworkMetaData(startTime, endTime, contact, channel, conversationId, false, false).getList();
     }
 
     //Cleanup: private
-    public synchronized NetworkListDecorator<Message> getMessagesForParticularThreadWithNetworkMetaData(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, boolean isSkipRead) {
+    public NetworkListDecorator<Message> getMessagesForParticularThreadWithNetworkMetaData(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, boolean isSkipRead) {
         String data = null;
         try {
             data = messageClientService.getMessages(contact, channel, startTime, endTime, conversationId, isSkipRead);
@@ -255,7 +272,23 @@ public class MobiComConversationService {
     }
 
     //Cleanup: try to get to default
-    public synchronized NetworkListDecorator<Message> getMessagesWithNetworkMetaData(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, boolean isSkipRead, boolean isForSearch) {
+    /**
+     * Gets the messages for the given conversation from the local database, and from the server if required.
+     *
+     * <p>Only the lock for the given conversation is held while doing so (see {@link ConversationLocks#forConversation(Contact, Channel)}).
+     * Delivery and read reports lock message keys, which use separate stripes, so they are never blocked by the network call.</p>
+     */
+    public NetworkListDecorator<Message> getMessagesWithNetworkMetaData(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, boolean isSkipRead, boolean isForSearch) {
+        ReentrantLock conversationLock = ConversationLocks.forConversation(contact, channel);
+        conversationLock.lock();
+        try {
+            return getMessagesWithNetworkMetaDataLocked(startTime, endTime, contact, channel, conversationId, isSkipRead, isForSearch);
+        } finally {
+            conversationLock.unlock();
+        }
+    }
+
+    private NetworkListDecorator<Message> getMessagesWithNetworkMetaDataLocked(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, boolean isSkipRead, boolean isForSearch) {
         if (isForSearch) {
             return getMessagesForParticularThreadWithNetworkMetaData(startTime, endTime, contact, channel, conversationId, isSkipRead);
         }
@@ -270,7 +303,10 @@ public class MobiComConversationService {
             isServerCallNotRequired = true;
         }
 
-        if (isServerCallNotRequired && (!cachedMessageList.isEmpty() &&
+        //the user scrolled back past the messages deleted from the device by MessageRetention, load them from the server again
+        boolean prunedHistory = endTime != null && MessageRetention.getInstance(context).isPrunedBefore(contact, channel, cachedMessageList);
+
+        if (!prunedHistory && isServerCallNotRequired && (!cachedMessageList.isEmpty() &&
                 ApplozicClient.getInstance(context).wasServerCallDoneBefore(contact, channel, conversationId)
                 || (contact == null && channel == null && cachedMessageList.isEmpty() && ApplozicClient.getInstance(context).wasServerCallDoneBefore(contact, channel, conversationId)))) {
             Utils.printLog(context, TAG, "cachedMessageList size is : " + cachedMessageList.size());
@@ -633,12 +669,10 @@ public class MobiComConversationService {
             contact.setRoleType(userDetail.getRoleType());
             contact.setMetadata(userDetail.getMetadata());
             contact.setLastMessageAtTime(userDetail.getLastMessageAtTime());
-            if (newContact != null) {
-                if (newContact.isConnected() != contact.isConnected()) {
-                    BroadcastService.sendUpdateLastSeenAtTimeBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_LAST_SEEN_AT_TIME.toString(), contact.getContactIds());
-                }
-            }
             baseContactService.upsert(contact);
+            if (newContact != null && newContact.isConnected() != contact.isConnected()) {
+                AlPresenceManager.getInstance(context).notifyPresenceChanged(contact.getContactIds());
+            }
         }
         MobiComUserPreference.getInstance(context).setLastSeenAtSyncTime(userDetailsResponse.getGeneratedAt());
     }
@@ -672,7 +706,13 @@ public class MobiComConversationService {
     //Cleanup: default
     public void setFilePathifExist(Message message) {
         FileMeta fileMeta = message.getFileMetas();
-        File file = FileClientService.getFilePath(FileUtils.getName(fileMeta.getName()) + message.getCreatedAtTime() + "." + FileUtils.getFileFormat(fileMeta.getName()), context.getApplicationContext(), fileMeta.getContentType());
+        //the attachment may have been downloaded already, for another message
+        File file = AlMediaStore.getInstance(context).getMediaFile(message);
+        if (file != null && file.exists()) {
+            AlMediaStore.getInstance(context).touch(file);
+        } else {
+            file = FileClientService.getFilePath(FileUtils.getName(fileMeta.getName()) + message.getCreatedAtTime() + "." + FileUtils.getFileFormat(fileMeta.getName()), context.getApplicationContext(), fileMeta.getContentType());
+        }
         if (file.exists()) {
             ArrayList<String> arrayList = new ArrayList<String>();
             arrayList.add(file.getAbsolutePath());
@@ -830,14 +870,14 @@ public class MobiComConversationService {
                 unreadCount = channel.getUnreadCount();
             }
 
-            UserWorker.enqueueWork(context, null, contact, channel, null, unreadCount, false);
+            AlReadReceiptOutbox.getInstance(context).markRead(contact, channel, null, unreadCount);
         } catch (Exception exception) {
             exception.printStackTrace();
         }
     }
 
     public void readServerAndLocal(Contact contact, Channel channel, String pairedMessageKeyString) {
-        UserWorker.enqueueWork(context, null, contact, channel, pairedMessageKeyString, 0, false);
+        AlReadReceiptOutbox.getInstance(context).markRead(contact, channel, pairedMessageKeyString, 0);
     }
 
     public void updateLastSeenAtForAllUsers() {
@@ -12,7 +12,6 @@ import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.UserService;
 import com.applozic.mobicomkit.api.attachment.FileClientService;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
-import com.applozic.mobicomkit.api.conversation.selfdestruct.DisappearingMessageTask;
 import com.applozic.mobicomkit.api.mention.MentionHelper;
 import com.applozic.mobicomkit.api.notification.VideoCallNotificationHelper;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
@@ -29,13 +28,14 @@ import com.applozic.mobicommons.people.contact.Contact;
 import com.applozic.mobicommons.personalization.PersonalizedMessage;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created by devashish on 24/3/15.
@@ -45,8 +45,8 @@ public class MobiComMessageService {
     //Cleanup: all private
     public static final long DELAY = 60000L;
     private static final String TAG = "MobiComMessageService";
-    public static Map<String, Uri> map = new HashMap<String, Uri>();
-    public static Map<String, Message> mtMessages = new LinkedHashMap<String, Message>();
+    public static Map<String, Uri> map = new ConcurrentHashMap<String, Uri>();
+    public static Map<String, Message> mtMessages = Collections.synchronizedMap(new LinkedHashMap<String, Message>());
     protected Context context;
     protected MobiComConversationService conversationService;
     protected MessageDatabaseService messageDatabaseService;
@@ -136,7 +136,7 @@ public class MobiComMessageService {
                 helper.handleVideoCallNotificationMessages(message);
             }
         }
-        Utils.printLog(context, TAG, "processing message: " + message);
+        Utils.printLog(context, TAG, "processing message: ", message);
         return message;
     }
 
@@ -341,16 +341,7 @@ public class MobiComMessageService {
     }
 
     private void updateDeliveredStatus(List<String> deliveredMessageKeys) {
-        if (deliveredMessageKeys == null) {
-            return;
-        }
-        for (String messageKey : deliveredMessageKeys) {
-            messageDatabaseService.updateMessageDeliveryReportForContact(messageKey, false);
-            Message message = messageDatabaseService.getMessage(messageKey);
-            if (message != null) {
-                BroadcastService.sendMessageUpdateBroadcast(context, BroadcastService.INTENT_ACTIONS.MESSAGE_DELIVERY.toString(), message);
-            }
-        }
+        AlMessageReceiptApplier.getInstance(context).addAll(deliveredMessageKeys, false);
     }
 
     //Cleanup: default
@@ -381,8 +372,15 @@ public class MobiComMessageService {
     }
 
     //Cleanup: default
-    public synchronized void updateDeliveryStatusForContact(String contactId, boolean markRead) {
-        int rows = messageDatabaseService.updateMessageDeliveryReportForContact(contactId, markRead);
+    public void updateDeliveryStatusForContact(String contactId, boolean markRead) {
+        int rows;
+        ReentrantLock contactLock = ConversationLocks.forContact(contactId);
+        contactLock.lock();
+        try {
+            rows = messageDatabaseService.updateMessageDeliveryReportForContact(contactId, markRead);
+        } finally {
+            contactLock.unlock();
+        }
         Utils.printLog(context, TAG, "Updated delivery report of " + rows + " messages for contactId: " + contactId);
 
         if (rows > 0) {
@@ -393,34 +391,12 @@ public class MobiComMessageService {
     }
 
     //Cleanup: default
-    public synchronized void updateDeliveryStatus(String key, boolean markRead) {
-        //Todo: Check if this is possible? In case the delivery report reaches before the sms is reached, then wait for the sms.
-        Utils.printLog(context, TAG, "Got the delivery report for key: " + key);
-        String keyParts[] = key.split((","));
-        Message message = messageDatabaseService.getMessage(keyParts[0]);
-        if (message != null && (message.getStatus() != Message.Status.DELIVERED_AND_READ.getValue())) {
-            message.setDelivered(Boolean.TRUE);
-
-            if (markRead) {
-                message.setStatus(Message.Status.DELIVERED_AND_READ.getValue());
-            } else {
-                message.setStatus(Message.Status.DELIVERED.getValue());
-            }
-            //Todo: Server need to send the contactNumber of the receiver in case of group messaging and update
-            //delivery report only for that number
-            messageDatabaseService.updateMessageDeliveryReportForContact(keyParts[0], null, markRead);
-            String action = markRead ? BroadcastService.INTENT_ACTIONS.MESSAGE_READ_AND_DELIVERED.toString() :
-                    BroadcastService.INTENT_ACTIONS.MESSAGE_DELIVERY.toString();
-            BroadcastService.sendMessageUpdateBroadcast(context, action, message);
-            if (message.getTimeToLive() != null && message.getTimeToLive() != 0) {
-                Timer timer = new Timer();
-                timer.schedule(new DisappearingMessageTask(context, new MobiComConversationService(context), message), message.getTimeToLive() * 60 * 1000);
-            }
-        } else if (message == null) {
-            Utils.printLog(context, TAG, "Message is not present in table, keyString: " + keyParts[0]);
-        }
-        map.remove(key);
-        mtMessages.remove(key);
+    /**
+     * Applies the delivery or read receipt of the sent message with the next batch, see {@link AlMessageReceiptApplier}.
+     */
+    public void updateDeliveryStatus(String key, boolean markRead) {
+        Utils.printLog(context, TAG, "Got the delivery report for key: ", key);
+        AlMessageReceiptApplier.getInstance(context).add(key.split(",")[0], markRead);
     }
 
     //Cleanup: remove, unnecessary
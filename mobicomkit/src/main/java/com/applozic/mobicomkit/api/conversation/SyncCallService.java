@@ -20,10 +20,14 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Contains methods for real time updates/syncing of local data and UI with the remote server.
  *
+ * <p>Methods of this class are not synchronized on the instance. Conversation level work is guarded by
+ * {@link ConversationLocks} instead, so that a slow call for one conversation does not block the others.</p>
+ *
  * <p>Methods of this class are usually called from either {@link com.applozic.mobicomkit.api.ApplozicMqttService}
  * or {@link com.applozic.mobicomkit.api.notification.MobiComPushReceiver}.
  * This happens when either a push notification or a MQTT message is received.</p>
@@ -34,7 +38,7 @@ public class SyncCallService {
 
     private static final String TAG = "SyncCall";
 
-    public static boolean refreshView = false;
+    public static volatile boolean refreshView = false;
     private static SyncCallService syncCallService;
     private Context context;
     private MobiComMessageService mobiComMessageService;
@@ -61,61 +65,73 @@ public class SyncCallService {
         return syncCallService;
     }
 
-    public synchronized void updateDeliveryStatus(String key) {
-        mobiComMessageService.updateDeliveryStatus(key, false);
+    /**
+     * Marks the sent message delivered. The receipts that come in together are applied in one batch, see {@link AlMessageReceiptApplier}.
+     */
+    public void updateDeliveryStatus(String key) {
+        AlMessageReceiptApplier.getInstance(context).add(key, false);
         refreshView = true;
     }
 
-    public synchronized void updateReadStatus(String key) {
-        mobiComMessageService.updateDeliveryStatus(key, true);
+    /**
+     * Marks the sent message delivered and read. The receipts that come in together are applied in one batch, see {@link AlMessageReceiptApplier}.
+     */
+    public void updateReadStatus(String key) {
+        AlMessageReceiptApplier.getInstance(context).add(key, true);
         refreshView = true;
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(String searchString) {
+    public List<Message> getLatestMessagesGroupByPeople(String searchString) {
         return mobiComConversationService.getLatestMessagesGroupByPeople(null, searchString);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople() {
+    public List<Message> getLatestMessagesGroupByPeople() {
         return mobiComConversationService.getLatestMessagesGroupByPeople(null, null);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString) {
+    public List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString) {
         return mobiComConversationService.getLatestMessagesGroupByPeople(createdAt, searchString);
     }
 
-    public synchronized MobiComConversationService.NetworkListDecorator<Message> getLatestMessagesGroupByPeopleWithNetworkMetaData(String searchString, Integer parentGroupKey) {
+    public MobiComConversationService.NetworkListDecorator<Message> getLatestMessagesGroupByPeopleWithNetworkMetaData(String searchString, Integer parentGroupKey) {
         return mobiComConversationService.getLatestMessagesGroupByPeopleWithNetworkMetaData(null, searchString, parentGroupKey);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(String searchString, Integer parentGroupKey) {
+    public List<Message> getLatestMessagesGroupByPeople(String searchString, Integer parentGroupKey) {
         return mobiComConversationService.getLatestMessagesGroupByPeople(null, searchString, parentGroupKey);
     }
 
-    public synchronized List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString, Integer parentGroupKey) {
+    public List<Message> getLatestMessagesGroupByPeople(Long createdAt, String searchString, Integer parentGroupKey) {
         return mobiComConversationService.getLatestMessagesGroupByPeople(createdAt, searchString, parentGroupKey);
     }
 
-    public synchronized void syncMessages(String key) {
+    public void syncMessages(String key) {
         syncMessages(key, null);
     }
 
-    public synchronized void syncMessages(String key, Message message) {
-        if (!TextUtils.isEmpty(key) && mobiComMessageService.isMessagePresent(key)) {
-            Utils.printLog(context, TAG, "Message is already present, MQTT reached before GCM.");
-        } else {
-            if (Utils.isDeviceInIdleState(context)) {
-                new ConversationRunnables(context, message, false, true, false);
+    public void syncMessages(String key, Message message) {
+        ReentrantLock messageLock = ConversationLocks.forMessageKey(key);
+        messageLock.lock();
+        try {
+            if (!TextUtils.isEmpty(key) && mobiComMessageService.isMessagePresent(key)) {
+                Utils.printLog(context, TAG, "Message is already present, MQTT reached before GCM.");
             } else {
-                if (message != null) {
-                    ConversationWorker.enqueueWorkInstantMessage(context, message);
+                if (Utils.isDeviceInIdleState(context)) {
+                    new ConversationRunnables(context, message, false, true, false);
                 } else {
-                    ConversationWorker.enqueueWorkSync(context);
+                    if (message != null) {
+                        ConversationWorker.enqueueWorkInstantMessage(context, message);
+                    } else {
+                        ConversationWorker.enqueueWorkSync(context);
+                    }
                 }
             }
+        } finally {
+            messageLock.unlock();
         }
     }
 
-    public synchronized void syncMessageMetadataUpdate(String key, boolean isFromFcm, Message message) {
+    public void syncMessageMetadataUpdate(String key, boolean isFromFcm, Message message) {
         Integer groupId = null;
         if (message != null) {
             if (message.getGroupId() != null) {
@@ -141,7 +157,7 @@ public class SyncCallService {
         }
     }
 
-    public synchronized void syncMutedUserList(boolean isFromFcm, String userId) {
+    public void syncMutedUserList(boolean isFromFcm, String userId) {
 
         if (userId == null) {
             Utils.printLog(context, TAG, "Syncing muted user list from " + (isFromFcm ? "FCM" : "MQTT"));
@@ -153,11 +169,11 @@ public class SyncCallService {
         }
     }
 
-    public synchronized void updateDeliveryStatusForContact(String contactId, boolean markRead) {
+    public void updateDeliveryStatusForContact(String contactId, boolean markRead) {
         mobiComMessageService.updateDeliveryStatusForContact(contactId, markRead);
     }
 
-    public synchronized void updateConversationReadStatus(String currentId, boolean isGroup) {
+    public void updateConversationReadStatus(String currentId, boolean isGroup) {
         if (TextUtils.isEmpty(currentId)) {
             return;
         }
@@ -169,35 +185,52 @@ public class SyncCallService {
         BroadcastService.sendConversationReadBroadcast(context, BroadcastService.INTENT_ACTIONS.CONVERSATION_READ.toString(), currentId, isGroup);
     }
 
-    public synchronized void updateConnectedStatus(String contactId, Date date, boolean connected) {
-        contactService.updateConnectedStatus(contactId, date, connected);
+    public void updateConnectedStatus(String contactId, Date date, boolean connected) {
+        ReentrantLock contactLock = ConversationLocks.forContact(contactId);
+        contactLock.lock();
+        try {
+            contactService.updateConnectedStatus(contactId, date, connected);
+        } finally {
+            contactLock.unlock();
+        }
     }
 
-    public synchronized void deleteConversationThread(String userId) {
-        mobiComConversationService.deleteConversationFromDevice(userId);
+    public void deleteConversationThread(String userId) {
+        ReentrantLock conversationLock = ConversationLocks.forContact(userId);
+        conversationLock.lock();
+        try {
+            mobiComConversationService.deleteConversationFromDevice(userId);
+        } finally {
+            conversationLock.unlock();
+        }
         refreshView = true;
     }
 
-    public synchronized void deleteChannelConversationThread(String channelKey) {
-        mobiComConversationService.deleteChannelConversationFromDevice(Integer.valueOf(channelKey));
-        refreshView = true;
+    public void deleteChannelConversationThread(String channelKey) {
+        deleteChannelConversationThread(Integer.valueOf(channelKey));
     }
 
-    public synchronized void deleteChannelConversationThread(Integer channelKey) {
-        mobiComConversationService.deleteChannelConversationFromDevice(channelKey);
+    public void deleteChannelConversationThread(Integer channelKey) {
+        ReentrantLock conversationLock = ConversationLocks.forChannel(channelKey);
+        conversationLock.lock();
+        try {
+            mobiComConversationService.deleteChannelConversationFromDevice(channelKey);
+        } finally {
+            conversationLock.unlock();
+        }
         refreshView = true;
     }
 
-    public synchronized void deleteMessage(String messageKey) {
+    public void deleteMessage(String messageKey) {
         mobiComConversationService.deleteMessageFromDevice(messageKey, null);
         refreshView = true;
     }
 
-    public synchronized void updateUserBlocked(String userId, boolean userBlocked) {
+    public void updateUserBlocked(String userId, boolean userBlocked) {
         contactService.updateUserBlocked(userId, userBlocked);
     }
 
-    public synchronized void updateUserBlockedBy(String userId, boolean userBlockedBy) {
+    public void updateUserBlockedBy(String userId, boolean userBlockedBy) {
         contactService.updateUserBlockedBy(userId, userBlockedBy);
     }
 
@@ -6,13 +6,17 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.attachment.AlMediaStore;
 import com.applozic.mobicomkit.api.attachment.FileMeta;
 import com.applozic.mobicomkit.api.conversation.Message;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicomkit.cache.AlEntityCache;
 import com.applozic.mobicomkit.channel.service.ChannelService;
 import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
 import com.applozic.mobicommons.ApplozicService;
@@ -25,6 +29,9 @@ import com.applozic.mobicommons.people.contact.Contact;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -272,6 +279,14 @@ public class MessageDatabaseService {
      * @return the message list
      */
     public List<Message> getMessages(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId) {
+        return getMessages(startTime, endTime, contact, channel, conversationId, null);
+    }
+
+    /**
+     * Like {@link #getMessages(Long, Long, Contact, Channel, Integer)}, but gets only the latest <code>limit</code> messages, if not null.
+     * The messages are still in ascending order of their created at time.
+     */
+    public List<Message> getMessages(Long startTime, Long endTime, Contact contact, Channel channel, Integer conversationId, @Nullable Integer limit) {
         String structuredNameWhere = "";
         List<String> structuredNameParamsList = new ArrayList<String>();
 
@@ -322,6 +337,12 @@ public class MessageDatabaseService {
 
         SQLiteDatabase db = dbHelper.getReadableDatabase();
         try {
+            if (limit != null) {
+                Cursor cursor = db.query("sms", null, structuredNameWhere, structuredNameParamsList.toArray(new String[structuredNameParamsList.size()]), null, null, "createdAt desc", String.valueOf(limit));
+                List<Message> messages = MessageDatabaseService.getMessageList(cursor);
+                Collections.reverse(messages);
+                return messages;
+            }
             Cursor cursor = db.query("sms", null, structuredNameWhere, structuredNameParamsList.toArray(new String[structuredNameParamsList.size()]), null, null, "createdAt asc");
             return MessageDatabaseService.getMessageList(cursor);
         } finally {
@@ -568,6 +589,160 @@ public class MessageDatabaseService {
         return deleted;
     }
 
+    /**
+     * Gets at most <code>limit</code> scheduled messages that are due at the given time (in milliseconds), earliest first.
+     */
+    public List<Message> getScheduledMessages(long time, int limit) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<Message> messages = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(MobiComDatabaseHelper.SCHEDULE_SMS_TABLE_NAME, null, MobiComDatabaseHelper.TIMESTAMP + " <= ?", new String[]{String.valueOf(time)},
+                    null, null, MobiComDatabaseHelper.TIMESTAMP + " asc", String.valueOf(limit));
+            while (cursor.moveToNext()) {
+                Message message = new Message();
+                long scheduledAt = cursor.getLong(cursor.getColumnIndex(MobiComDatabaseHelper.TIMESTAMP));
+                message.setCreatedAtTime(scheduledAt);
+                message.setScheduledAt(scheduledAt);
+                message.setMessage(cursor.getString(cursor.getColumnIndex(MobiComDatabaseHelper.SMS)));
+                message.setType(cursor.getShort(cursor.getColumnIndex(MobiComDatabaseHelper.SMS_TYPE)));
+                message.setSource(cursor.getShort(cursor.getColumnIndex("source")));
+                message.setContactIds(cursor.getString(cursor.getColumnIndex(MobiComDatabaseHelper.CONTACTID)));
+                message.setTo(cursor.getString(cursor.getColumnIndex(MobiComDatabaseHelper.TO_FIELD)));
+                message.setKeyString(cursor.getString(cursor.getColumnIndex(MobiComDatabaseHelper.SMS_KEY_STRING)));
+                message.setStoreOnDevice("1".equals(cursor.getString(cursor.getColumnIndex(MobiComDatabaseHelper.STORE_ON_DEVICE_COLUMN))));
+                int timeToLive = cursor.getInt(cursor.getColumnIndex(MobiComDatabaseHelper.TIME_TO_LIVE));
+                message.setTimeToLive(timeToLive == 0 ? null : timeToLive);
+                messages.add(message);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return messages;
+    }
+
+    /**
+     * Removes the scheduled message with the given key, so it is sent only by the caller.
+     *
+     * @return true if the message was still scheduled, false if it was already removed
+     */
+    public boolean claimScheduledMessage(String keyString) {
+        if (TextUtils.isEmpty(keyString)) {
+            return false;
+        }
+        try {
+            SQLiteDatabase database = dbHelper.getWritableDatabase();
+            return database.delete(MobiComDatabaseHelper.SCHEDULE_SMS_TABLE_NAME, MobiComDatabaseHelper.SMS_KEY_STRING + " = ?", new String[]{keyString}) > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            dbHelper.close();
+        }
+        return false;
+    }
+
+    /**
+     * Gets the time of the earliest scheduled message, or null if there are none.
+     */
+    public Long getNextScheduledMessageTime() {
+        return getMinimum(MobiComDatabaseHelper.SCHEDULE_SMS_TABLE_NAME, MobiComDatabaseHelper.TIMESTAMP);
+    }
+
+    /**
+     * Stores the time the message with the given key should be deleted at. If a time is already stored for it, the earlier one is kept.
+     */
+    public void addDisappearingMessage(String keyString, long deleteAt) {
+        if (TextUtils.isEmpty(keyString)) {
+            return;
+        }
+        try {
+            SQLiteDatabase database = dbHelper.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(MobiComDatabaseHelper.SMS_KEY_STRING, keyString);
+            values.put(MobiComDatabaseHelper.SCHEDULED_AT, deleteAt);
+            database.insertWithOnConflict(MobiComDatabaseHelper.DISAPPEARING_MESSAGE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Gets the keys of at most <code>limit</code> disappearing messages that are due for deletion at the given time, earliest first.
+     */
+    public List<String> getDueDisappearingMessageKeys(long time, int limit) {
+        List<String> keyStrings = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase database = dbHelper.getReadableDatabase();
+            cursor = database.query(MobiComDatabaseHelper.DISAPPEARING_MESSAGE, new String[]{MobiComDatabaseHelper.SMS_KEY_STRING}, MobiComDatabaseHelper.SCHEDULED_AT + " <= ?",
+                    new String[]{String.valueOf(time)}, null, null, MobiComDatabaseHelper.SCHEDULED_AT + " asc", String.valueOf(limit));
+            while (cursor.moveToNext()) {
+                keyStrings.add(cursor.getString(0));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return keyStrings;
+    }
+
+    public void deleteDisappearingMessages(List<String> keyStrings) {
+        if (keyStrings == null || keyStrings.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (String keyString : keyStrings) {
+                database.delete(MobiComDatabaseHelper.DISAPPEARING_MESSAGE, MobiComDatabaseHelper.SMS_KEY_STRING + " = ?", new String[]{keyString});
+            }
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            database.endTransaction();
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Gets the earliest time a disappearing message is due for deletion, or null if there are none.
+     */
+    public Long getNextDisappearingMessageTime() {
+        return getMinimum(MobiComDatabaseHelper.DISAPPEARING_MESSAGE, MobiComDatabaseHelper.SCHEDULED_AT);
+    }
+
+    //uses the index on the column, so it doesn't scan the table
+    private Long getMinimum(String table, String column) {
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase database = dbHelper.getReadableDatabase();
+            cursor = database.rawQuery("SELECT MIN(" + column + ") FROM " + table, null);
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return null;
+    }
+
     /**
      * Check if the message table is empty.
      *
@@ -586,7 +761,7 @@ public class MessageDatabaseService {
      * @param messageId the message id ({@link Message#getMessageId()})
      * @param message the message object with the new file-metas, key-string must not be null
      */
-    public synchronized void updateMessageFileMetas(long messageId, final Message message) {
+    public void updateMessageFileMetas(long messageId, final Message message) {
         ContentValues values = new ContentValues();
         values.put("keyString", message.getKeyString());
         if (message.getFileMetaKeyStrings() != null) {
@@ -612,7 +787,7 @@ public class MessageDatabaseService {
     /**
      * Adds the given message object to the database. Adds multiple if the given message is {@link Message#isSentToMany()}. If the message already exists (keystring), it is not replaced.
      */
-    public synchronized long createMessage(final Message message) {
+    public long createMessage(final Message message) {
         long id = -1;
         if (message.getMessageId() != null) {
             return message.getMessageId();
@@ -635,9 +810,23 @@ public class MessageDatabaseService {
 
     /**
      * Adds the given message object to the database. If the message already exists (keystring), it is not replaced.
+     *
+     * <p>The duplicate check and the insert run in a single transaction, so concurrent writers are serialized by SQLite
+     * while readers are not blocked.</p>
      */
-    public synchronized long createSingleMessage(final Message message) {
+    public long createSingleMessage(final Message message) {
         SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            long id = createSingleMessage(database, message);
+            database.setTransactionSuccessful();
+            return id;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private long createSingleMessage(SQLiteDatabase database, final Message message) {
         ApplozicClient applozicClient = ApplozicClient.getInstance(context);
         long id = -1;
         boolean duplicateCheck = true;
@@ -812,6 +1001,56 @@ public class MessageDatabaseService {
         }
     }
 
+    /**
+     * Sets the sent messages with the given keys to delivered, or to delivered and read, in a single transaction.
+     * Messages that already have that status are left alone. Keep each collection within the SQLite limit of 999 arguments.
+     *
+     * @return the messages that were updated, with their new status
+     */
+    public @NonNull List<Message> updateMessageDeliveryReports(@NonNull Collection<String> deliveredMessageKeys, @NonNull Collection<String> readMessageKeys) {
+        List<Message> updatedMessages = new ArrayList<>();
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            updateMessageDeliveryReports(database, readMessageKeys, true, updatedMessages);
+            updateMessageDeliveryReports(database, deliveredMessageKeys, false, updatedMessages);
+            database.setTransactionSuccessful();
+            return updatedMessages;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            database.endTransaction();
+            dbHelper.close();
+        }
+    }
+
+    private static void updateMessageDeliveryReports(SQLiteDatabase database, Collection<String> messageKeys, boolean markRead, List<Message> updatedMessages) {
+        if (messageKeys.isEmpty()) {
+            return;
+        }
+        short status = markRead ? Message.Status.DELIVERED_AND_READ.getValue() : Message.Status.DELIVERED.getValue();
+        String whereClause = "keyString IN (" + TextUtils.join(",", Collections.nCopies(messageKeys.size(), "?")) + ") AND type = 5 AND "
+                + (markRead ? "status NOT IN (5)" : "status NOT IN (4,5)");
+        String[] whereArgs = messageKeys.toArray(new String[0]);
+
+        Cursor cursor = database.query("sms", null, whereClause, whereArgs, null, null, "createdAt");
+        try {
+            while (cursor.moveToNext()) {
+                Message message = getMessage(cursor);
+                message.setDelivered(Boolean.TRUE);
+                message.setStatus(status);
+                updatedMessages.add(message);
+            }
+        } finally {
+            cursor.close();
+        }
+        ContentValues values = new ContentValues();
+        values.put("status", String.valueOf(status));
+        values.put("delivered", "1");
+        database.update("sms", values, whereClause, whereArgs);
+    }
+
     /**
      * Set <code>sentToServer</code> true for the given message.
      */
@@ -855,6 +1094,31 @@ public class MessageDatabaseService {
 
     }
 
+    /**
+     * Gets how many messages refer to each local attachment file, by file path.
+     */
+    public @NonNull Map<String, Integer> getFilePathReferenceCounts() {
+        Map<String, Integer> referenceCounts = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = dbHelper.getReadableDatabase().rawQuery("SELECT filePaths, COUNT(*) FROM sms WHERE filePaths IS NOT NULL AND filePaths != '' GROUP BY filePaths", null);
+            while (cursor.moveToNext()) {
+                for (String filePath : cursor.getString(0).split(",")) {
+                    Integer count = referenceCounts.get(filePath);
+                    referenceCounts.put(filePath, (count != null ? count : 0) + cursor.getInt(1));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return referenceCounts;
+    }
+
     /**
      * Update the passed values for the message with the given local <code>id</code>.
      */
@@ -1163,6 +1427,7 @@ public class MessageDatabaseService {
         ContentValues values = new ContentValues();
         values.put(MobiComDatabaseHelper.UNREAD_COUNT, 0);
         int read = dbHelper.getWritableDatabase().update("contact", values, "userId = '" + userId + "'", null);
+        AlEntityCache.getInstance().invalidateContact(userId);
         dbHelper.close();
         return read;
     }
@@ -1174,6 +1439,11 @@ public class MessageDatabaseService {
         ContentValues values = new ContentValues();
         values.put(MobiComDatabaseHelper.UNREAD_COUNT, 0);
         int read = dbHelper.getWritableDatabase().update("channel", values, "channelKey = " + "'" + channelKey + "'", null);
+        if (!TextUtils.isEmpty(channelKey) && TextUtils.isDigitsOnly(channelKey)) {
+            AlEntityCache.getInstance().invalidateChannel(Integer.valueOf(channelKey));
+        } else {
+            AlEntityCache.getInstance().invalidateAllChannels();
+        }
         dbHelper.close();
         return read;
     }
@@ -1423,11 +1693,126 @@ public class MessageDatabaseService {
             SQLiteDatabase database = dbHelper.getWritableDatabase();
             database.delete("sms", "keyString" + "='" + message.getKeyString() + "'", null);
             dbHelper.close();
+            AlMediaStore.getInstance(context).collectGarbage();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the keys of the channels that have messages on the device.
+     */
+    public @NonNull List<Integer> getChannelKeysWithMessages() {
+        List<Integer> channelKeys = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = dbHelper.getReadableDatabase().rawQuery("SELECT DISTINCT channelKey FROM sms WHERE channelKey != 0", null);
+            while (cursor.moveToNext()) {
+                channelKeys.add(cursor.getInt(0));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return channelKeys;
+    }
+
+    /**
+     * Gets the user ids of the one-to-one chats that have messages on the device.
+     */
+    public @NonNull List<String> getContactIdsWithMessages() {
+        List<String> contactIds = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = dbHelper.getReadableDatabase().rawQuery("SELECT DISTINCT contactNumbers FROM sms WHERE channelKey = 0 AND contactNumbers IS NOT NULL", null);
+            while (cursor.moveToNext()) {
+                contactIds.add(cursor.getString(0));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+        return contactIds;
+    }
+
+    /**
+     * Gets the created at time of the message at the given position of a conversation, the latest message being at position 0.
+     * Pass a non-null <code>channelKey</code> for a channel, or the <code>contactId</code> for a one-to-one chat.
+     *
+     * @return null if the conversation has fewer messages
+     */
+    public @Nullable Long getCreatedAtOfMessageAt(@Nullable Integer channelKey, @Nullable String contactId, int position) {
+        Cursor cursor = null;
+        try {
+            cursor = dbHelper.getReadableDatabase().rawQuery("SELECT createdAt FROM sms WHERE " + getConversationWhere(channelKey) + " ORDER BY createdAt DESC LIMIT 1 OFFSET " + position,
+                    new String[]{getConversationArgument(channelKey, contactId)});
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Deletes up to <code>batchSize</code> messages of a conversation created before the given time, the oldest first.
+     * Messages not sent to the server yet, and the deletes not synced with it yet, are left alone.
+     *
+     * @param deletedFilePaths the attachment files of the deleted messages are added to it, the files themselves are not deleted
+     * @return the number of messages deleted
+     */
+    public int deleteMessagesCreatedBefore(@Nullable Integer channelKey, @Nullable String contactId, long createdAt, int batchSize, @NonNull List<String> deletedFilePaths) {
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        Cursor cursor = null;
+        database.beginTransaction();
+        try {
+            cursor = database.rawQuery("SELECT id, filePaths FROM sms WHERE " + getConversationWhere(channelKey)
+                            + " AND createdAt < ? AND sentToServer = 1 AND deleted = 0 ORDER BY createdAt LIMIT " + batchSize,
+                    new String[]{getConversationArgument(channelKey, contactId), String.valueOf(createdAt)});
+            List<String> ids = new ArrayList<>();
+            List<String> filePaths = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                ids.add(String.valueOf(cursor.getLong(0)));
+                if (!TextUtils.isEmpty(cursor.getString(1))) {
+                    filePaths.addAll(Arrays.asList(cursor.getString(1).split(",")));
+                }
+            }
+            int deletedCount = ids.isEmpty() ? 0 : database.delete("sms", "id IN (" + TextUtils.join(",", ids) + ")", null);
+            database.setTransactionSuccessful();
+            deletedFilePaths.addAll(filePaths);
+            return deletedCount;
         } catch (Exception e) {
             e.printStackTrace();
+            return 0;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            database.endTransaction();
+            dbHelper.close();
         }
     }
 
+    private static String getConversationWhere(@Nullable Integer channelKey) {
+        return channelKey != null && channelKey != 0 ? "channelKey = ?" : "channelKey = 0 AND contactNumbers = ?";
+    }
+
+    private static String getConversationArgument(@Nullable Integer channelKey, @Nullable String contactId) {
+        return channelKey != null && channelKey != 0 ? String.valueOf(channelKey) : contactId;
+    }
+
     /**
      * Deletes the messages of the one-to-one chat with the given <code>contactNumber</code>.
      */
@@ -1436,6 +1821,7 @@ public class MessageDatabaseService {
         int deletedRows = dbHelper.getWritableDatabase().delete("sms", "contactNumbers=? AND channelKey = 0", new String[]{contactNumber});
         updateContactUnreadCountToZero(contactNumber);
         dbHelper.close();
+        AlMediaStore.getInstance(context).collectGarbage();
         Utils.printLog(context, TAG, "Delete " + deletedRows + " messages.");
     }
 
@@ -1447,16 +1833,18 @@ public class MessageDatabaseService {
         int deletedRows = dbHelper.getWritableDatabase().delete("sms", "channelKey=?", new String[]{String.valueOf(channelKey)});
         updateChannelUnreadCountToZero(channelKey);
         dbHelper.close();
+        AlMediaStore.getInstance(context).collectGarbage();
         Utils.printLog(context, TAG, "Delete " + deletedRows + " messages.");
     }
 
     /**
      * Increments the unread count for the contact with the given user-id by 1.
      */
-    public synchronized void updateContactUnreadCount(String userId) {
+    public void updateContactUnreadCount(String userId) {
         try {
             SQLiteDatabase db = dbHelper.getWritableDatabase();
             db.execSQL("UPDATE contact SET unreadCount = unreadCount + 1 WHERE userId =" + "'" + userId + "'");
+            AlEntityCache.getInstance().invalidateContact(userId);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1465,10 +1853,11 @@ public class MessageDatabaseService {
     /**
      * Increments the unread count for the channel with the given channel-key by 1.
      */
-    public synchronized void updateChannelUnreadCount(Integer channelKey) {
+    public void updateChannelUnreadCount(Integer channelKey) {
         try {
             SQLiteDatabase db = dbHelper.getWritableDatabase();
             db.execSQL("UPDATE channel SET unreadCount = unreadCount + 1 WHERE channelKey =" + "'" + channelKey + "'");
+            AlEntityCache.getInstance().invalidateChannel(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1477,10 +1866,11 @@ public class MessageDatabaseService {
     /**
      * Sets the unread count for the channel with the give channel-key to 0.
      */
-    public synchronized void updateChannelUnreadCountToZero(Integer channelKey) {
+    public void updateChannelUnreadCountToZero(Integer channelKey) {
         try {
             SQLiteDatabase db = dbHelper.getWritableDatabase();
             db.execSQL("UPDATE channel SET unreadCount = 0 WHERE channelKey =" + "'" + channelKey + "'");
+            AlEntityCache.getInstance().invalidateChannel(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1489,18 +1879,26 @@ public class MessageDatabaseService {
     /**
      * Replaces the passed message in the database. The message <code>keystring</code> is used to identify the message.
      */
-    public synchronized void replaceExistingMessage(Message message) {
-        deleteMessageFromDb(message);
-        createMessage(message);
+    public void replaceExistingMessage(Message message) {
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            deleteMessageFromDb(message);
+            createMessage(message);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
     }
 
     /**
      * Sets the unread count for the contact with the give user-id to 0.
      */
-    public synchronized void updateContactUnreadCountToZero(String userId) {
+    public void updateContactUnreadCountToZero(String userId) {
         try {
             SQLiteDatabase db = dbHelper.getWritableDatabase();
             db.execSQL("UPDATE contact SET unreadCount = 0 WHERE userId =" + "'" + userId + "'");
+            AlEntityCache.getInstance().invalidateContact(userId);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,25 @@
+package com.applozic.mobicomkit.api.conversation.preload;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Internal class.
+ *
+ * <p>Preloads the conversations the user is likely to open next. See {@link ConversationPreloader}.</p>
+ */
+public class ConversationPreloadWorker extends Worker {
+    public ConversationPreloadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        ConversationPreloader.getInstance(getApplicationContext()).preload();
+        return Result.success();
+    }
+}
@@ -0,0 +1,340 @@
+package com.applozic.mobicomkit.api.conversation.preload;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.applozic.mobicomkit.ApplozicClient;
+import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.account.user.UserService;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.MessageClientService;
+import com.applozic.mobicomkit.api.conversation.MobiComConversationService;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.channel.database.ChannelDatabaseService;
+import com.applozic.mobicomkit.channel.service.ChannelService;
+import com.applozic.mobicomkit.contact.AppContactService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.channel.ChannelUserMapper;
+import com.applozic.mobicommons.people.contact.Contact;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Internal class.
+ *
+ * <p>Warms the conversations the user is likely to open next, so that opening them doesn't wait for the server.</p>
+ *
+ * <p>When the conversation list is shown, a {@link ConversationPreloadWorker} is enqueued. It only runs on an unmetered network,
+ * with the battery not low and (on API 23+) while the device is idle. It takes the top {@link ApplozicClient#getConversationPreloadCount()}
+ * conversations, the ones with unread messages first and then the most recent ones, and for each of them:
+ * syncs the first page of messages with the server (only if it was never synced, like opening the conversation does),
+ * fetches the missing contacts of the members and senders, and downloads the missing avatars.
+ * For a conversation that was synced before, only the participants of its first page in the database are loaded,
+ * and it isn't counted as preloaded.</p>
+ *
+ * <p>Everything preloaded is stored in the database or in files. A run stops once about {@link #RUN_BUDGET_BYTES} of messages and
+ * images were loaded into memory, the decoded avatars are not kept.</p>
+ *
+ * <p>Opening a conversation calls {@link #recordOpen(Contact, Channel)}. It is a hit if the conversation was preloaded since it was last opened,
+ * see {@link #getHitRate()}.</p>
+ */
+public class ConversationPreloader {
+    private static final String TAG = "ConversationPreloader";
+    private static final String UNIQUE_WORK_NAME = "AlConversationPreloadWork";
+    private static final String PREFERENCES_NAME = "al_conversation_preload";
+    private static final String PRELOADED_KEYS = "PRELOADED_KEYS";
+    private static final String HIT_COUNT = "HIT_COUNT";
+    private static final String MISS_COUNT = "MISS_COUNT";
+    //the number of latest conversations looked at for unread messages
+    private static final int CANDIDATE_COUNT = 30;
+    private static final int MAX_AVATARS_PER_CONVERSATION = 10;
+    private static final long RUN_BUDGET_BYTES = 4 * 1024 * 1024;
+    //a rough size of a message object without its text
+    private static final int MESSAGE_OVERHEAD_BYTES = 512;
+
+    private static ConversationPreloader conversationPreloader;
+
+    private final Context context;
+    private final SharedPreferences sharedPreferences;
+
+    private ConversationPreloader(Context context) {
+        this.context = ApplozicService.getContext(context);
+        sharedPreferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized @NonNull ConversationPreloader getInstance(@Nullable Context context) {
+        if (conversationPreloader == null) {
+            conversationPreloader = new ConversationPreloader(context);
+        }
+        return conversationPreloader;
+    }
+
+    /**
+     * Enqueues a preload, unless one is already waiting for its constraints.
+     */
+    public void schedulePreload() {
+        if (ApplozicClient.getInstance(context).getConversationPreloadCount() <= 0) {
+            return;
+        }
+        Constraints.Builder constraintsBuilder = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraintsBuilder.setRequiresDeviceIdle(true);
+        }
+        OneTimeWorkRequest preloadWorkRequest = new OneTimeWorkRequest.Builder(ConversationPreloadWorker.class)
+                .setConstraints(constraintsBuilder.build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.KEEP, preloadWorkRequest);
+    }
+
+    /**
+     * Call when a conversation is opened, to count the hits and misses of the preloader.
+     */
+    public void recordOpen(@Nullable Contact contact, @Nullable Channel channel) {
+        String key = getConversationKey(contact, channel);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            Set<String> preloadedKeys = new HashSet<>(sharedPreferences.getStringSet(PRELOADED_KEYS, new HashSet<String>()));
+            boolean hit = preloadedKeys.remove(key);
+            sharedPreferences.edit()
+                    .putStringSet(PRELOADED_KEYS, preloadedKeys)
+                    .putInt(hit ? HIT_COUNT : MISS_COUNT, sharedPreferences.getInt(hit ? HIT_COUNT : MISS_COUNT, 0) + 1)
+                    .apply();
+        }
+        Utils.printLog(context, TAG, "Conversation preload hits: " + getHitCount() + ", misses: " + getMissCount());
+    }
+
+    public int getHitCount() {
+        return sharedPreferences.getInt(HIT_COUNT, 0);
+    }
+
+    public int getMissCount() {
+        return sharedPreferences.getInt(MISS_COUNT, 0);
+    }
+
+    /**
+     * @return the fraction of the opened conversations that were preloaded, 0 if none were opened yet
+     */
+    public float getHitRate() {
+        int hitCount = getHitCount();
+        int total = hitCount + getMissCount();
+        return total == 0 ? 0 : (float) hitCount / total;
+    }
+
+    /**
+     * Clears the preloaded conversations and the hit counts, and cancels the pending preload. Called on logout.
+     */
+    public synchronized void clear() {
+        sharedPreferences.edit().clear().apply();
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    @WorkerThread
+    void preload() {
+        int preloadCount = ApplozicClient.getInstance(context).getConversationPreloadCount();
+        if (preloadCount <= 0 || !MobiComUserPreference.getInstance(context).isLoggedIn()) {
+            return;
+        }
+
+        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context);
+        MobiComConversationService conversationService = new MobiComConversationService(context);
+        AppContactService contactService = new AppContactService(context);
+
+        long usedBytes = 0;
+        int preloaded = 0;
+        for (Message latestMessage : getConversationsToPreload(messageDatabaseService, preloadCount)) {
+            if (usedBytes >= RUN_BUDGET_BYTES) {
+                Utils.printLog(context, TAG, "Preload budget used up after " + preloaded + " conversations");
+                break;
+            }
+            try {
+                Contact contact = null;
+                Channel channel = null;
+                if (latestMessage.getGroupId() != null && latestMessage.getGroupId() != 0) {
+                    channel = ChannelService.getInstance(context).getChannelByChannelKey(latestMessage.getGroupId());
+                    if (channel == null) {
+                        continue;
+                    }
+                } else {
+                    contact = contactService.getContactById(latestMessage.getContactIds());
+                }
+
+                if (ApplozicClient.getInstance(context).wasServerCallDoneBefore(contact, channel, null)) {
+                    //opening it doesn't wait for the server already, only the participants of the first page may be missing
+                    List<Message> messages = messageDatabaseService.getMessages(null, null, contact, channel, null, MessageClientService.CONVERSATION_PAGE_SIZE);
+                    usedBytes += estimateSize(messages);
+                    usedBytes += preloadParticipants(contactService, contact, channel, messages, RUN_BUDGET_BYTES - usedBytes);
+                    continue;
+                }
+
+                //the same call that opening the conversation makes, it stores the messages and marks the conversation as synced
+                List<Message> messages = conversationService.getMessages(null, null, contact, channel, null);
+                usedBytes += estimateSize(messages);
+
+                usedBytes += preloadParticipants(contactService, contact, channel, messages, RUN_BUDGET_BYTES - usedBytes);
+
+                markPreloaded(getConversationKey(contact, channel));
+                preloaded++;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        Utils.printLog(context, TAG, "Preloaded " + preloaded + " conversations, " + usedBytes + " bytes");
+    }
+
+    /**
+     * @return the latest message of the conversations to preload: the ones with unread messages first, then the most recent ones
+     */
+    private List<Message> getConversationsToPreload(MessageDatabaseService messageDatabaseService, int preloadCount) {
+        List<Message> latestMessages = messageDatabaseService.getMessages(null, null, null);
+        List<Message> unread = new ArrayList<>();
+        List<Message> read = new ArrayList<>();
+        Set<String> conversationKeys = new HashSet<>();
+        if (latestMessages != null) {
+            for (Message message : latestMessages) {
+                if (unread.size() + read.size() >= CANDIDATE_COUNT) {
+                    break;
+                }
+                boolean isChannel = message.getGroupId() != null && message.getGroupId() != 0;
+                if (!isChannel && TextUtils.isEmpty(message.getContactIds())) {
+                    continue;
+                }
+                if (!conversationKeys.add(isChannel ? "channel:" + message.getGroupId() : "contact:" + message.getContactIds())) {
+                    continue;
+                }
+                int unreadCount = isChannel ? messageDatabaseService.getUnreadMessageCountForChannel(message.getGroupId()) : messageDatabaseService.getUnreadMessageCountForContact(message.getContactIds());
+                (unreadCount > 0 ? unread : read).add(message);
+            }
+        }
+        List<Message> conversations = new ArrayList<>(unread);
+        conversations.addAll(read);
+        return conversations.size() > preloadCount ? conversations.subList(0, preloadCount) : conversations;
+    }
+
+    /**
+     * Fetches the missing contacts of the conversation's members and of the senders of the messages, and downloads the missing avatars.
+     *
+     * @return the bytes of the avatars decoded
+     */
+    private long preloadParticipants(AppContactService contactService, @Nullable Contact contact, @Nullable Channel channel, @Nullable List<Message> messages, long budgetBytes) {
+        Set<String> userIds = new LinkedHashSet<>();
+        if (contact != null) {
+            userIds.add(contact.getContactIds());
+        }
+        if (messages != null) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (!TextUtils.isEmpty(messages.get(i).getContactIds())) {
+                    userIds.add(messages.get(i).getContactIds());
+                }
+            }
+        }
+        Set<String> memberIds = new HashSet<>();
+        if (channel != null) {
+            List<ChannelUserMapper> channelUsers = ChannelDatabaseService.getInstance(context).getChannelUserList(channel.getKey());
+            if (channelUsers != null) {
+                for (ChannelUserMapper channelUser : channelUsers) {
+                    memberIds.add(channelUser.getUserKey());
+                }
+            }
+        }
+
+        Set<String> missingUserIds = new HashSet<>();
+        for (String userId : userIds) {
+            if (!contactService.isContactExists(userId)) {
+                missingUserIds.add(userId);
+            }
+        }
+        for (String userId : memberIds) {
+            if (!TextUtils.isEmpty(userId) && !contactService.isContactExists(userId)) {
+                missingUserIds.add(userId);
+            }
+        }
+        if (!missingUserIds.isEmpty()) {
+            UserService.getInstance(context).loadUserDetails(missingUserIds, false, true);
+        }
+
+        long usedBytes = 0;
+        if (channel != null && !TextUtils.isEmpty(channel.getImageUrl()) && !isLocalFilePresent(channel.getLocalImageUri())) {
+            usedBytes += recycle(contactService.downloadGroupImage(context, channel));
+        }
+        //the avatars of the conversation's user and of the latest senders
+        int avatarCount = 0;
+        for (String userId : userIds) {
+            if (avatarCount >= MAX_AVATARS_PER_CONVERSATION || usedBytes >= budgetBytes) {
+                break;
+            }
+            Contact userContact = contactService.getContactById(userId);
+            if (userContact != null && !TextUtils.isEmpty(userContact.getImageURL()) && !isLocalFilePresent(userContact.getLocalImageUrl())) {
+                usedBytes += recycle(contactService.downloadContactImage(context, userContact));
+                avatarCount++;
+            }
+        }
+        return usedBytes;
+    }
+
+    private synchronized void markPreloaded(@Nullable String key) {
+        if (key == null) {
+            return;
+        }
+        Set<String> preloadedKeys = new HashSet<>(sharedPreferences.getStringSet(PRELOADED_KEYS, new HashSet<String>()));
+        if (preloadedKeys.add(key)) {
+            sharedPreferences.edit().putStringSet(PRELOADED_KEYS, preloadedKeys).apply();
+        }
+    }
+
+    private static @Nullable String getConversationKey(@Nullable Contact contact, @Nullable Channel channel) {
+        if (channel != null && channel.getKey() != null) {
+            return "channel:" + channel.getKey();
+        }
+        if (contact != null && !TextUtils.isEmpty(contact.getContactIds())) {
+            return "contact:" + contact.getContactIds();
+        }
+        return null;
+    }
+
+    private static boolean isLocalFilePresent(@Nullable String path) {
+        return !TextUtils.isEmpty(path) && new File(path).exists();
+    }
+
+    private static long estimateSize(@Nullable List<Message> messages) {
+        long size = 0;
+        if (messages != null) {
+            for (Message message : messages) {
+                size += MESSAGE_OVERHEAD_BYTES + (message.getMessage() != null ? 2L * message.getMessage().length() : 0);
+            }
+        }
+        return size;
+    }
+
+    //only the file is needed, the bitmap is decoded again when shown
+    private static long recycle(@Nullable Bitmap bitmap) {
+        if (bitmap == null) {
+            return 0;
+        }
+        long byteCount = bitmap.getRowBytes() * (long) bitmap.getHeight();
+        bitmap.recycle();
+        return byteCount;
+    }
+}
@@ -0,0 +1,195 @@
+package com.applozic.mobicomkit.api.conversation.retention;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ListenableWorker;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.applozic.mobicomkit.ApplozicClient;
+import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.attachment.AlMediaStore;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Keeps the local message store from growing without bound, as set by {@link ApplozicClient#setMessageRetention(int, int)}.</p>
+ *
+ * <p>A {@link MessageRetentionWorker} runs about once a day, with the battery not low and (on API 23+) while the device is idle. For each conversation it deletes
+ * the messages that are older than the days to keep and aren't among the latest messages to keep, {@link #BATCH_SIZE} rows per transaction so the
+ * other database users only wait for one batch at a time. The attachment files of the deleted messages are deleted once nothing else refers to them
+ * (see {@link AlMediaStore#deleteUnreferencedFiles(java.util.Collection)}), and the freed pages of the database file are then given back to the file system
+ * with an incremental vacuum (see {@link MobiComDatabaseHelper#vacuumIncrementally(int)}).</p>
+ *
+ * <p>The time before which a conversation was pruned is remembered. When the user scrolls back past it, the messages are loaded from the server again
+ * instead of from the database, see {@link #isPrunedBefore(Contact, Channel, List)}.</p>
+ */
+public class MessageRetention {
+    private static final String TAG = "MessageRetention";
+    private static final String UNIQUE_WORK_NAME = "AlMessageRetentionWork";
+    private static final String PREFERENCES_NAME = "al_message_retention";
+    private static final int BATCH_SIZE = 500;
+    //4 MB with the default page size
+    private static final int VACUUM_PAGES_PER_STEP = 1024;
+
+    private static MessageRetention messageRetention;
+
+    private final Context context;
+    //the time before which each conversation was pruned, by conversation key
+    private final SharedPreferences sharedPreferences;
+
+    private MessageRetention(Context context) {
+        this.context = ApplozicService.getContext(context);
+        sharedPreferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized @NonNull MessageRetention getInstance(@Nullable Context context) {
+        if (messageRetention == null) {
+            messageRetention = new MessageRetention(context);
+        }
+        return messageRetention;
+    }
+
+    /**
+     * Schedules the daily pruning if retention is enabled, or cancels it if it isn't.
+     */
+    public void schedulePruning() {
+        if (!ApplozicClient.getInstance(context).isMessageRetentionEnabled()) {
+            WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+            return;
+        }
+        Constraints.Builder constraintsBuilder = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraintsBuilder.setRequiresDeviceIdle(true);
+        }
+        PeriodicWorkRequest pruneWorkRequest = new PeriodicWorkRequest.Builder(MessageRetentionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraintsBuilder.build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(UNIQUE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, pruneWorkRequest);
+    }
+
+    /**
+     * Clears the pruned times and cancels the pruning. Called on logout.
+     */
+    public synchronized void clear() {
+        sharedPreferences.edit().clear().apply();
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    /**
+     * Checks if a page of messages loaded from the database for a conversation is missing messages that were pruned.
+     * That is the case when the page has no message from after the time the conversation was pruned before.
+     *
+     * @param cachedMessageList the page, oldest message first
+     */
+    public boolean isPrunedBefore(@Nullable Contact contact, @Nullable Channel channel, @NonNull List<Message> cachedMessageList) {
+        String key = getConversationKey(contact, channel);
+        if (key == null) {
+            return false;
+        }
+        long prunedBefore = sharedPreferences.getLong(key, 0);
+        if (prunedBefore == 0) {
+            return false;
+        }
+        if (cachedMessageList.isEmpty()) {
+            return true;
+        }
+        Long latestCreatedAt = cachedMessageList.get(cachedMessageList.size() - 1).getCreatedAtTime();
+        return latestCreatedAt == null || latestCreatedAt < prunedBefore;
+    }
+
+    @WorkerThread
+    void prune(@NonNull ListenableWorker worker) {
+        ApplozicClient applozicClient = ApplozicClient.getInstance(context);
+        if (!applozicClient.isMessageRetentionEnabled() || !MobiComUserPreference.getInstance(context).isLoggedIn()) {
+            return;
+        }
+        //the latest message is always kept, so the conversation stays in the conversation list
+        int keepCount = Math.max(1, applozicClient.getMessageRetentionCount());
+        int keepDays = applozicClient.getMessageRetentionDays();
+        long keepAfterTime = keepDays > 0 ? System.currentTimeMillis() - TimeUnit.DAYS.toMillis(keepDays) : Long.MAX_VALUE;
+
+        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(context);
+        List<String> deletedFilePaths = new ArrayList<>();
+        int deletedCount = 0;
+        for (Integer channelKey : messageDatabaseService.getChannelKeysWithMessages()) {
+            if (worker.isStopped()) {
+                break;
+            }
+            deletedCount += pruneConversation(messageDatabaseService, worker, channelKey, null, keepCount, keepAfterTime, deletedFilePaths);
+        }
+        for (String contactId : messageDatabaseService.getContactIdsWithMessages()) {
+            if (worker.isStopped()) {
+                break;
+            }
+            deletedCount += pruneConversation(messageDatabaseService, worker, null, contactId, keepCount, keepAfterTime, deletedFilePaths);
+        }
+        int deletedFileCount = AlMediaStore.getInstance(context).deleteUnreferencedFiles(deletedFilePaths);
+        Utils.printLog(context, TAG, "Pruned " + deletedCount + " messages and " + deletedFileCount + " files");
+
+        try {
+            MobiComDatabaseHelper databaseHelper = MobiComDatabaseHelper.getInstance(context);
+            long freePages;
+            do {
+                freePages = databaseHelper.vacuumIncrementally(VACUUM_PAGES_PER_STEP);
+            } while (freePages > 0 && !worker.isStopped());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int pruneConversation(MessageDatabaseService messageDatabaseService, ListenableWorker worker, @Nullable Integer channelKey, @Nullable String contactId,
+                                  int keepCount, long keepAfterTime, List<String> deletedFilePaths) {
+        Long oldestKeptCreatedAt = messageDatabaseService.getCreatedAtOfMessageAt(channelKey, contactId, keepCount - 1);
+        if (oldestKeptCreatedAt == null) {
+            return 0;
+        }
+        long prunedBefore = Math.min(oldestKeptCreatedAt, keepAfterTime);
+        int deletedCount = 0;
+        int batchCount;
+        do {
+            batchCount = messageDatabaseService.deleteMessagesCreatedBefore(channelKey, contactId, prunedBefore, BATCH_SIZE, deletedFilePaths);
+            deletedCount += batchCount;
+        } while (batchCount == BATCH_SIZE && !worker.isStopped());
+
+        if (deletedCount > 0) {
+            String key = channelKey != null ? "channel:" + channelKey : "contact:" + contactId;
+            synchronized (this) {
+                if (sharedPreferences.getLong(key, 0) < prunedBefore) {
+                    sharedPreferences.edit().putLong(key, prunedBefore).apply();
+                }
+            }
+        }
+        return deletedCount;
+    }
+
+    private static @Nullable String getConversationKey(@Nullable Contact contact, @Nullable Channel channel) {
+        if (channel != null && channel.getKey() != null) {
+            return "channel:" + channel.getKey();
+        }
+        if (contact != null && !TextUtils.isEmpty(contact.getContactIds())) {
+            return "contact:" + contact.getContactIds();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.applozic.mobicomkit.api.conversation.retention;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Internal class.
+ *
+ * <p>Prunes the local message store. See {@link MessageRetention}.</p>
+ */
+public class MessageRetentionWorker extends Worker {
+    public MessageRetentionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        MessageRetention.getInstance(getApplicationContext()).prune(this);
+        return Result.success();
+    }
+}
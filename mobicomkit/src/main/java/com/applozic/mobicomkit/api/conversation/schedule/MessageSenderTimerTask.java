@@ -7,6 +7,10 @@ import com.applozic.mobicomkit.api.conversation.MobiComMessageService;
 
 import java.util.TimerTask;
 
+/**
+ * @deprecated Not used. Scheduled messages are sent by {@link TimedMessageScheduler}, which doesn't need a {@link java.util.Timer} per message.
+ */
+@Deprecated
 public class MessageSenderTimerTask extends TimerTask {
 
     private static final String TAG = "MessageSenderTimerTask";
@@ -3,13 +3,10 @@ package com.applozic.mobicomkit.api.conversation.schedule;
 import android.app.IntentService;
 import android.content.Intent;
 
-import com.applozic.mobicomkit.api.conversation.Message;
-import com.applozic.mobicomkit.api.conversation.MobiComConversationService;
-import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
-
-import java.util.Calendar;
-import java.util.List;
-
+/**
+ * @deprecated Scheduled messages are sent by {@link TimedMessageScheduler}. This service sends the messages that are due, the same way.
+ */
+@Deprecated
 public class ScheduleMessageService extends IntentService {
 
     public ScheduleMessageService() {
@@ -18,17 +15,7 @@ public class ScheduleMessageService extends IntentService {
 
     @Override
     protected void onHandleIntent(Intent intent) {
-        Calendar c = Calendar.getInstance();
-        long time = c.getTimeInMillis();
-        MessageDatabaseService messageDatabaseService = new MessageDatabaseService(getApplicationContext());
-        MobiComConversationService conversationService = new MobiComConversationService(getApplicationContext());
-        List<Message> messages = messageDatabaseService.getScheduledMessages(time);
-        for (Message message : messages) {
-            message.setScheduledAt(null);
-            conversationService.sendMessage(message);
-            //Todo: broadcast for scheduled message fragment.
-        }
-        messageDatabaseService.deleteScheduledMessages(time);
+        TimedMessageScheduler.getInstance(getApplicationContext()).runDueJobs();
     }
 
 }
@@ -1,11 +1,9 @@
 package com.applozic.mobicomkit.api.conversation.schedule;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.Intent;
 import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
 
 import com.applozic.mobicomkit.api.conversation.Message;
 import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
@@ -14,12 +12,18 @@ public class ScheduledMessageUtil {
     Context context = null;
     private Class intentClass;
 
+    /**
+     * @param intentClass not used anymore, scheduled messages are sent by {@link TimedMessageScheduler}
+     */
     public ScheduledMessageUtil(Context ctxt, Class intentClass) {
         this.context = ctxt;
         this.intentClass = intentClass;
     }
 
     public void createScheduleMessage(Message message, Context ctx) {
+        if (TextUtils.isEmpty(message.getKeyString())) {
+            return;
+        }
         MobiComDatabaseHelper dbHelper = MobiComDatabaseHelper.getInstance(ctx);
         SQLiteDatabase database = dbHelper.getWritableDatabase();
         ContentValues values = new ContentValues();
@@ -31,16 +35,8 @@ public class ScheduledMessageUtil {
         values.put(MobiComDatabaseHelper.SMS_KEY_STRING, message.getKeyString());
         values.put(MobiComDatabaseHelper.TIME_TO_LIVE, message.getTimeToLive());
         database.insert(MobiComDatabaseHelper.SCHEDULE_SMS_TABLE_NAME, null, values);
-        AlarmManager alarm;
-        PendingIntent intent;
-        Intent otherIntent = new Intent();
-        otherIntent.setClass(ctx, intentClass);
-        alarm = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
-        intent = PendingIntent.getService(ctx,
-                (int) System.currentTimeMillis(), otherIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT);
-        alarm.set(AlarmManager.RTC_WAKEUP, message.getScheduledAt(), intent);
         dbHelper.close();
+        TimedMessageScheduler.getInstance(ctx).onMessageScheduled(message);
     }
 
 }
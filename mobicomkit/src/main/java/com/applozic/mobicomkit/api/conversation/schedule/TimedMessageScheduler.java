@@ -0,0 +1,229 @@
+package com.applozic.mobicomkit.api.conversation.schedule;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.conversation.MobiComConversationService;
+import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Runs timed message jobs: sending scheduled messages and deleting disappearing (self-destructing) messages.</p>
+ *
+ * <p>Jobs are stored in the database, in tables indexed by their due time. Only one {@link TimedMessageWorker} is
+ * kept enqueued, for the earliest due time, no matter how many jobs are pending.
+ * When it runs, the jobs due by then are processed in batches of {@link #BATCH_SIZE} and the worker is enqueued again for the next one.
+ * A single run processes at most {@link #MAX_BATCHES_PER_RUN} batches of each kind, the rest is left for the next run.
+ * Since both the jobs and the work request are persisted, pending jobs survive process restarts.</p>
+ *
+ * <p>Runs are serialized and a scheduled message is removed from the schedule table before it is sent, so it can't be sent twice.
+ * Jobs added while a run is in progress don't replace the running work, the worker is enqueued for them when the run ends.</p>
+ */
+public class TimedMessageScheduler {
+    private static final String TAG = "TimedMessageScheduler";
+    private static final String UNIQUE_WORK_NAME = "AlTimedMessageWork";
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private static TimedMessageScheduler timedMessageScheduler;
+
+    private final Context context;
+    private final MessageDatabaseService messageDatabaseService;
+    private final Object runLock = new Object();
+    //guarded by this. the due time of the currently enqueued work, null if unknown (such as after a process restart)
+    private Long enqueuedWorkAt;
+    //guarded by this
+    private boolean running;
+
+    private TimedMessageScheduler(Context context) {
+        this(context, new MessageDatabaseService(ApplozicService.getContext(context)));
+    }
+
+    @VisibleForTesting
+    TimedMessageScheduler(Context context, MessageDatabaseService messageDatabaseService) {
+        this.context = ApplozicService.getContext(context);
+        this.messageDatabaseService = messageDatabaseService;
+    }
+
+    public static synchronized @NonNull TimedMessageScheduler getInstance(@Nullable Context context) {
+        if (timedMessageScheduler == null) {
+            timedMessageScheduler = new TimedMessageScheduler(context);
+        }
+        return timedMessageScheduler;
+    }
+
+    /**
+     * Deletes the message after the given delay. If the message is already scheduled for deletion, the earlier time is kept.
+     */
+    public void scheduleMessageDeletion(@Nullable Message message, long delayMillis) {
+        if (message == null || TextUtils.isEmpty(message.getKeyString())) {
+            return;
+        }
+        long deleteAt = System.currentTimeMillis() + delayMillis;
+        messageDatabaseService.addDisappearingMessage(message.getKeyString(), deleteAt);
+        enqueueWorkIfEarlier(deleteAt);
+    }
+
+    /**
+     * Call after a message has been stored in the schedule table, so it is sent at its {@link Message#getScheduledAt()} time.
+     */
+    public void onMessageScheduled(@Nullable Message message) {
+        if (message == null || message.getScheduledAt() == null) {
+            return;
+        }
+        enqueueWorkIfEarlier(message.getScheduledAt());
+    }
+
+    /**
+     * Processes all the jobs that are due and enqueues the worker for the next one. Called from {@link TimedMessageWorker}.
+     * Returns early, leaving the rest of the jobs for the next run, once the worker is stopped.
+     */
+    void runDueJobs(@NonNull Stoppable worker) {
+        synchronized (runLock) {
+            synchronized (this) {
+                running = true;
+            }
+            try {
+                processDueJobs(worker);
+            } finally {
+                synchronized (this) {
+                    running = false;
+                    enqueuedWorkAt = null;
+                    //jobs added during the run are in the tables by now
+                    Long nextDueAt = getNextDueAt();
+                    if (nextDueAt != null) {
+                        enqueueWork(nextDueAt, ExistingWorkPolicy.APPEND_OR_REPLACE);
+                    }
+                }
+            }
+        }
+    }
+
+    private void processDueJobs(Stoppable worker) {
+        long now = System.currentTimeMillis();
+
+        List<String> keyStrings;
+        int batches = 0;
+        do {
+            if (worker.isStopped()) {
+                return;
+            }
+            keyStrings = messageDatabaseService.getDueDisappearingMessageKeys(now, BATCH_SIZE);
+            if (!keyStrings.isEmpty()) {
+                deleteMessages(keyStrings);
+                messageDatabaseService.deleteDisappearingMessages(keyStrings);
+            }
+        } while (keyStrings.size() == BATCH_SIZE && ++batches < MAX_BATCHES_PER_RUN);
+
+        List<Message> scheduledMessages;
+        batches = 0;
+        do {
+            if (worker.isStopped()) {
+                return;
+            }
+            scheduledMessages = messageDatabaseService.getScheduledMessages(now, BATCH_SIZE);
+            sendScheduledMessages(scheduledMessages);
+        } while (scheduledMessages.size() == BATCH_SIZE && ++batches < MAX_BATCHES_PER_RUN);
+    }
+
+    private void deleteMessages(List<String> keyStrings) {
+        MobiComConversationService conversationService = new MobiComConversationService(context);
+        for (String keyString : keyStrings) {
+            try {
+                Message message = messageDatabaseService.getMessage(keyString);
+                if (message == null) {
+                    continue;
+                }
+                Utils.printLog(context, TAG, "Self deleting message for keyString: " + keyString);
+                conversationService.deleteMessage(message);
+                BroadcastService.sendMessageDeleteBroadcast(context, BroadcastService.INTENT_ACTIONS.DELETE_MESSAGE.toString(), keyString, message.getContactIds());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void sendScheduledMessages(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        MobiComConversationService conversationService = new MobiComConversationService(context);
+        for (Message message : messages) {
+            //removed first, so neither a failure nor another run can make the same message go out twice
+            if (!messageDatabaseService.claimScheduledMessage(message.getKeyString())) {
+                continue;
+            }
+            try {
+                message.setScheduledAt(null);
+                conversationService.sendMessage(message);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private @Nullable Long getNextDueAt() {
+        Long nextDisappearingMessageTime = messageDatabaseService.getNextDisappearingMessageTime();
+        Long nextScheduledMessageTime = messageDatabaseService.getNextScheduledMessageTime();
+        if (nextDisappearingMessageTime == null) {
+            return nextScheduledMessageTime;
+        } else if (nextScheduledMessageTime == null) {
+            return nextDisappearingMessageTime;
+        }
+        return Math.min(nextDisappearingMessageTime, nextScheduledMessageTime);
+    }
+
+    private synchronized void enqueueWorkIfEarlier(long dueAt) {
+        if (running) {
+            //the worker is enqueued for the next job when the run ends, replacing the running work would start a second run
+            return;
+        }
+        if (enqueuedWorkAt != null && enqueuedWorkAt <= dueAt) {
+            return;
+        }
+        if (enqueuedWorkAt == null) {
+            //the enqueued work may be for an earlier job, replacing it must not delay that job
+            Long nextDueAt = getNextDueAt();
+            if (nextDueAt != null) {
+                dueAt = Math.min(dueAt, nextDueAt);
+            }
+        }
+        enqueueWork(dueAt, ExistingWorkPolicy.REPLACE);
+    }
+
+    private synchronized void enqueueWork(long dueAt, ExistingWorkPolicy existingWorkPolicy) {
+        enqueueWorkRequest(dueAt, existingWorkPolicy);
+        enqueuedWorkAt = dueAt;
+    }
+
+    @VisibleForTesting
+    void enqueueWorkRequest(long dueAt, ExistingWorkPolicy existingWorkPolicy) {
+        long delay = Math.max(0, dueAt - System.currentTimeMillis());
+        OneTimeWorkRequest timedMessageWorkRequest = new OneTimeWorkRequest.Builder(TimedMessageWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, existingWorkPolicy, timedMessageWorkRequest);
+    }
+
+    /**
+     * Lets a run check if its worker was stopped. {@link TimedMessageWorker} implements it with {@link androidx.work.ListenableWorker#isStopped()}.
+     */
+    interface Stoppable {
+        boolean isStopped();
+    }
+}
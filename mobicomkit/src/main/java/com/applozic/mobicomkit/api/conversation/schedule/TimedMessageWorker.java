@@ -0,0 +1,25 @@
+package com.applozic.mobicomkit.api.conversation.schedule;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Internal class.
+ *
+ * <p>Runs the timed message jobs that are due. See {@link TimedMessageScheduler}.</p>
+ */
+public class TimedMessageWorker extends Worker implements TimedMessageScheduler.Stoppable {
+    public TimedMessageWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        TimedMessageScheduler.getInstance(getApplicationContext()).runDueJobs(this);
+        return Result.success();
+    }
+}
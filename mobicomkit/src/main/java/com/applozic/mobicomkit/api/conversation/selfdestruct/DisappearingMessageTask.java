@@ -9,6 +9,11 @@ import com.applozic.mobicomkit.broadcast.BroadcastService;
 
 import java.util.TimerTask;
 
+/**
+ * @deprecated Use {@link com.applozic.mobicomkit.api.conversation.schedule.TimedMessageScheduler#scheduleMessageDeletion(Message, long)},
+ * which doesn't need a {@link java.util.Timer} per message and survives process restarts.
+ */
+@Deprecated
 public class DisappearingMessageTask extends TimerTask {
     private static final String TAG = "DisappearingMessageTask";
 
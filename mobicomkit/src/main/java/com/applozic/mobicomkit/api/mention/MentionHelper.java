@@ -15,6 +15,7 @@ import android.text.style.StyleSpan;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.conversation.MentionMetadataModel;
@@ -28,7 +29,6 @@ import com.applozic.mobicommons.people.contact.Contact;
 import com.google.gson.JsonParseException;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -44,8 +44,64 @@ import java.util.regex.Pattern;
 public final class MentionHelper {
     public static final Pattern MENTION_PATTERN = Pattern.compile("@(\\w+#\\d\\d\\d)");
     @ColorInt public static final int DETAILED_CONVERSATION_SPAN_COLOR = 0xFF5959FF;
+    private static final int MENTION_INDEX_CACHE_SIZE = 20;
+    private static final int PARSED_MENTIONS_CACHE_SIZE = 200;
+
+    //the mention metadata of messages, parsed and sorted in descending order of position. keyed by the metadata json
+    private static final LruCache<String, MentionMetadataModel[]> parsedMentionsCache = new LruCache<>(PARSED_MENTIONS_CACHE_SIZE);
+    private static final LruCache<Integer, MentionIndex> mentionIndexCache = new LruCache<>(MENTION_INDEX_CACHE_SIZE);
 
     public static @NonNull List<Mention> getMentionsListForChannel(Context context, Integer channelKey) {
+        return new ArrayList<>(getMentionIndexForChannel(context, channelKey).getMentions());
+    }
+
+    /**
+     * Gets the users that can be mentioned in the channel, indexed for filtering.
+     * The index is built from the local database once and cached until the members of the channel, or the contact of one of them, change.
+     */
+    public static @NonNull MentionIndex getMentionIndexForChannel(Context context, Integer channelKey) {
+        if (channelKey == null) {
+            return new MentionIndex(new ArrayList<Mention>());
+        }
+        MentionIndex mentionIndex = mentionIndexCache.get(channelKey);
+        if (mentionIndex == null) {
+            mentionIndex = new MentionIndex(getMentionsListForChannelFromDatabase(context, channelKey));
+            mentionIndexCache.put(channelKey, mentionIndex);
+        }
+        return mentionIndex;
+    }
+
+    /**
+     * Drops the cached {@link MentionIndex} of the channel. Called when its members change.
+     */
+    public static void invalidateMentionIndex(@Nullable Integer channelKey) {
+        if (channelKey != null) {
+            mentionIndexCache.remove(channelKey);
+        }
+    }
+
+    /**
+     * Drops the cached {@link MentionIndex}es that have the user. Called when the contact of the user changes.
+     */
+    public static void invalidateMentionIndexesForUser(@Nullable String userId) {
+        if (TextUtils.isEmpty(userId)) {
+            return;
+        }
+        for (Map.Entry<Integer, MentionIndex> mentionIndexEntry : mentionIndexCache.snapshot().entrySet()) {
+            if (mentionIndexEntry.getValue().containsUser(userId)) {
+                mentionIndexCache.remove(mentionIndexEntry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Drops all the cached {@link MentionIndex}es.
+     */
+    public static void clearMentionIndexes() {
+        mentionIndexCache.evictAll();
+    }
+
+    private static @NonNull List<Mention> getMentionsListForChannelFromDatabase(Context context, Integer channelKey) {
         ChannelDatabaseService channelDatabaseService = ChannelDatabaseService.getInstance(context);
         List<ChannelUserMapper> channelUserMapperList = channelDatabaseService.getChannelUserList(channelKey);
         if (channelUserMapperList == null) {
@@ -164,47 +220,30 @@ public final class MentionHelper {
                     exception.printStackTrace();
                 }
             }
-            return getMessageSpannableStringForMentionsDisplay(context, message.getMessage(), getMentionsDataFromMessageMetadata(message.getMetadata()), isDetailedConversationList, backgroundSpanColor == 0 ? DETAILED_CONVERSATION_SPAN_COLOR : backgroundSpanColor);
+            return getMessageSpannableStringForMentionsDisplay(context, message.getMessage(), getParsedMentions(message.getMetadata()), isDetailedConversationList, backgroundSpanColor == 0 ? DETAILED_CONVERSATION_SPAN_COLOR : backgroundSpanColor);
         }
     }
 
-    private static @NonNull Spannable getMessageSpannableStringForMentionsDisplay(Context context, String messageStringWithMentionsUserId, List<MentionMetadataModel> mentionMetadataModels, boolean isDetailedConversationList, int detailedSpanColor) {
+    private static @NonNull Spannable getMessageSpannableStringForMentionsDisplay(Context context, String messageStringWithMentionsUserId, @NonNull MentionMetadataModel[] sortedMentionMetadataModels, boolean isDetailedConversationList, int detailedSpanColor) {
         if (TextUtils.isEmpty(messageStringWithMentionsUserId)) {
             return new SpannableString(Utils.EMPTY_STRING);
         }
 
         SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder(messageStringWithMentionsUserId);
 
-        if (mentionMetadataModels == null) {
+        if (sortedMentionMetadataModels.length == 0) {
             return spannableStringBuilder;
         }
 
-        try {
-            //the list must be sorted in descending order position of mention to avoid the side-effect of replacing with indexes
-            Collections.sort(mentionMetadataModels, new Comparator<MentionMetadataModel>() {
-                @Override
-                public int compare(MentionMetadataModel o1, MentionMetadataModel o2) {
-                    int comparatorValue = 0;
-                    if (o1.indices[0] > o2.indices[0]) {
-                        comparatorValue = -1;
-                    } else if (o1.indices[0] < o2.indices[0]) {
-                        comparatorValue = +1;
-                    }
-                    return comparatorValue;
-                }
-            });
-        } catch (NullPointerException | IndexOutOfBoundsException exception) {
-            exception.printStackTrace();
-            return spannableStringBuilder;
-        }
-
-        for (MentionMetadataModel metadataModel : mentionMetadataModels) {
+        AppContactService appContactService = new AppContactService(context);
+        //sorted in descending order position of mention to avoid the side-effect of replacing with indexes
+        for (MentionMetadataModel metadataModel : sortedMentionMetadataModels) {
             if (metadataModel == null || TextUtils.isEmpty(metadataModel.userId) || metadataModel.indices == null || metadataModel.indices.length < 2) {
                 continue;
             }
 
             int start = metadataModel.indices[0];
-            Contact contact = new AppContactService(context).getContactById(metadataModel.userId);
+            Contact contact = appContactService.getContactById(metadataModel.userId);
             String userIdOrDisplayName = !TextUtils.isEmpty(contact.getDisplayName()) ? contact.getDisplayName() : contact.getUserId();
             int end = metadataModel.indices[1];
             int replacedEnd = metadataModel.indices[0] + userIdOrDisplayName.length();
@@ -242,20 +281,54 @@ public final class MentionHelper {
 
     public static @NonNull List<MentionMetadataModel> getMentionsDataFromMessageMetadata(@Nullable Map<String, String> messageMetadata) {
         List<MentionMetadataModel> mentionMetadataModels = new ArrayList<>();
-        if (messageMetadata == null) {
-            return mentionMetadataModels;
+        //copies, the parsed models are cached
+        for (MentionMetadataModel parsedModel : getParsedMentions(messageMetadata)) {
+            MentionMetadataModel mentionMetadataModel = new MentionMetadataModel();
+            mentionMetadataModel.userId = parsedModel.userId;
+            mentionMetadataModel.displayName = parsedModel.displayName;
+            mentionMetadataModel.indices = parsedModel.indices != null ? parsedModel.indices.clone() : null;
+            mentionMetadataModels.add(mentionMetadataModel);
         }
+        return mentionMetadataModels;
+    }
+
+    /**
+     * Parses the mention metadata of a message once, later calls for the same metadata return the cached result.
+     *
+     * @return the valid mentions, sorted in descending order of position. Must not be modified
+     */
+    private static @NonNull MentionMetadataModel[] getParsedMentions(@Nullable Map<String, String> messageMetadata) {
+        String mentionMetadataModelsString = messageMetadata != null ? messageMetadata.get(MentionMetadataModel.AL_MEMBER_MENTION) : null;
+        if (TextUtils.isEmpty(mentionMetadataModelsString)) {
+            return new MentionMetadataModel[0];
+        }
+        MentionMetadataModel[] parsedMentions = parsedMentionsCache.get(mentionMetadataModelsString);
+        if (parsedMentions != null) {
+            return parsedMentions;
+        }
+
+        List<MentionMetadataModel> validMentions = new ArrayList<>();
         try {
-            String mentionMetadataModelsString = messageMetadata.get(MentionMetadataModel.AL_MEMBER_MENTION);
-            if (!TextUtils.isEmpty(mentionMetadataModelsString)) {
-                MentionMetadataModel[] mentionMetadataModelsArray = (MentionMetadataModel[]) GsonUtils.getObjectFromJson(mentionMetadataModelsString, MentionMetadataModel[].class);
-                mentionMetadataModels = Arrays.asList(mentionMetadataModelsArray);
+            MentionMetadataModel[] mentionMetadataModelsArray = (MentionMetadataModel[]) GsonUtils.getObjectFromJson(mentionMetadataModelsString, MentionMetadataModel[].class);
+            if (mentionMetadataModelsArray != null) {
+                for (MentionMetadataModel metadataModel : mentionMetadataModelsArray) {
+                    if (metadataModel != null && !TextUtils.isEmpty(metadataModel.userId) && metadataModel.indices != null && metadataModel.indices.length >= 2) {
+                        validMentions.add(metadataModel);
+                    }
+                }
             }
         } catch (JsonParseException exception) {
             exception.printStackTrace();
-            return mentionMetadataModels;
         }
-        return mentionMetadataModels;
+        Collections.sort(validMentions, new Comparator<MentionMetadataModel>() {
+            @Override
+            public int compare(MentionMetadataModel o1, MentionMetadataModel o2) {
+                return o2.indices[0] < o1.indices[0] ? -1 : (o2.indices[0] == o1.indices[0] ? 0 : 1);
+            }
+        });
+        parsedMentions = validMentions.toArray(new MentionMetadataModel[0]);
+        parsedMentionsCache.put(mentionMetadataModelsString, parsedMentions);
+        return parsedMentions;
     }
 
     public static class MentionPair {
@@ -280,15 +353,18 @@ public final class MentionHelper {
     }
 
     public static boolean isLoggedInUserMentionedInChannelMessage(@NonNull Context context, @NonNull Message message) {
+        if (message.getGroupId() == null || message.getGroupId() == 0) {
+            return false;
+        }
         String loggedInUserId = MobiComUserPreference.getInstance(context).getUserId();
-        List<MentionMetadataModel> mentionMetadataModelList = getMentionsDataFromMessageMetadata(message.getMetadata());
+        MentionMetadataModel[] mentionMetadataModels = getParsedMentions(message.getMetadata());
 
-        if (mentionMetadataModelList.isEmpty()) {
+        if (mentionMetadataModels.length == 0) {
             return false;
         }
 
         boolean isLoggedInUserMentioned = false;
-        for (MentionMetadataModel metadataModel : mentionMetadataModelList) {
+        for (MentionMetadataModel metadataModel : mentionMetadataModels) {
             if (loggedInUserId.equals(metadataModel.userId)) {
                 isLoggedInUserMentioned = true;
                 break;
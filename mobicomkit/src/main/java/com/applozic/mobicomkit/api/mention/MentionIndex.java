@@ -0,0 +1,153 @@
+package com.applozic.mobicomkit.api.mention;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Internal class.
+ *
+ * <p>The users that can be mentioned in a channel, indexed for the mention picker.
+ * Every word of a user's display name, and the user-id, is added to a prefix trie, so filtering by what was typed
+ * after the '@' doesn't have to go through all the members. Only the matches inside a word need a scan of the display names,
+ * and it is skipped once the prefix matches fill the limit passed to {@link #search(CharSequence, int)}.</p>
+ *
+ * <p>Immutable once built, it can be used from any thread. See {@link MentionHelper#getMentionIndexForChannel(android.content.Context, Integer)},
+ * which builds it again when the members of the channel or their contact details change.</p>
+ */
+public class MentionIndex {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[\\s\\p{Punct}]+");
+
+    private final List<Mention> mentions;
+    //the lower case display names, by mention index
+    private final String[] lowerCaseNames;
+    private final Set<String> userIds = new HashSet<>();
+    private final Node root = new Node();
+
+    MentionIndex(@NonNull List<Mention> mentions) {
+        this.mentions = Collections.unmodifiableList(new ArrayList<>(mentions));
+        lowerCaseNames = new String[this.mentions.size()];
+        for (int i = 0; i < this.mentions.size(); i++) {
+            Mention mention = this.mentions.get(i);
+            lowerCaseNames[i] = toLowerCase(mention.getDisplayNameOrUserId());
+            for (String word : WORD_SEPARATOR.split(lowerCaseNames[i])) {
+                add(word, i);
+            }
+            add(toLowerCase(mention.getUserId()), i);
+            userIds.add(mention.getUserId().toString());
+        }
+    }
+
+    /**
+     * @return all the users, in the order they were added
+     */
+    public @NonNull List<Mention> getMentions() {
+        return mentions;
+    }
+
+    /**
+     * @return true if the user is one of the users in this index
+     */
+    public boolean containsUser(@Nullable String userId) {
+        return userId != null && userIds.contains(userId);
+    }
+
+    /**
+     * Same as {@link #search(CharSequence, int)}, without a limit.
+     */
+    public @NonNull List<Mention> search(@Nullable CharSequence query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the users whose display name (or user-id) has a word starting with the query, followed by
+     * the other users whose display name contains the query anywhere.
+     *
+     * @param query what was typed after the '@'. All the users are returned for an empty query
+     * @param limit the maximum number of users to return, for a non-empty query
+     * @return the matching users: the prefix matches, then the other matches, each in the order they were added
+     */
+    public @NonNull List<Mention> search(@Nullable CharSequence query, int limit) {
+        if (TextUtils.isEmpty(query)) {
+            return mentions;
+        }
+        String lowerCaseQuery = toLowerCase(query);
+        String[] queryWords = WORD_SEPARATOR.split(lowerCaseQuery.trim());
+        String firstWord = queryWords.length > 0 ? queryWords[0] : "";
+
+        List<Mention> results = new ArrayList<>();
+        boolean[] added = new boolean[mentions.size()];
+        Node node = find(firstWord);
+        if (node != null) {
+            for (int mentionIndex : node.mentionIndexes) {
+                if (results.size() >= limit) {
+                    return results;
+                }
+                //a query of more than one word must match the words in that order
+                if (queryWords.length < 2 || lowerCaseNames[mentionIndex].contains(lowerCaseQuery)) {
+                    results.add(mentions.get(mentionIndex));
+                    added[mentionIndex] = true;
+                }
+            }
+        }
+        for (int i = 0; i < mentions.size() && results.size() < limit; i++) {
+            if (!added[i] && lowerCaseNames[i].contains(lowerCaseQuery)) {
+                results.add(mentions.get(i));
+            }
+        }
+        return results;
+    }
+
+    private void add(String word, int mentionIndex) {
+        if (TextUtils.isEmpty(word)) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            char character = word.charAt(i);
+            Node child = node.children.get(character);
+            if (child == null) {
+                child = new Node();
+                node.children.put(character, child);
+            }
+            node = child;
+            //the mentions are added in order, so a repeated index is always the last one
+            int size = node.mentionIndexes.size();
+            if (size == 0 || node.mentionIndexes.get(size - 1) != mentionIndex) {
+                node.mentionIndexes.add(mentionIndex);
+            }
+        }
+    }
+
+    private @Nullable Node find(String prefix) {
+        if (TextUtils.isEmpty(prefix)) {
+            return null;
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static String toLowerCase(CharSequence text) {
+        return text.toString().toLowerCase(Locale.getDefault());
+    }
+
+    private static class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        //the indexes of the mentions with a word that starts with the prefix of this node
+        final List<Integer> mentionIndexes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,175 @@
+package com.applozic.mobicomkit.broadcast;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * In-process event bus for the SDK's real-time events, such as the {@link AlMessageUpdateEvent}s and {@link AlMessageEvent}s.
+ *
+ * <p>Events are delivered as they were posted, nothing is serialized or copied. Listeners must treat the events, and the objects in them
+ * (for example the {@link com.applozic.mobicomkit.api.conversation.Message}s), as read-only.</p>
+ *
+ * <p>A listener is registered for an exact event class (super classes of the posted event are not looked up), along with a {@link DispatchMode}.
+ * Events for a {@link DispatchMode#MAIN_THREAD} or {@link DispatchMode#BACKGROUND} listener are delivered in the order they were posted.
+ * Do remember to {@link #unregister(Listener) unregister} the listener when not required.</p>
+ *
+ * <p>The {@link BroadcastService} message update broadcasts are still sent to the receivers registered with {@link BroadcastService#getIntentFilter()},
+ * unless turned off with {@link com.applozic.mobicomkit.ApplozicClient#disableMessageUpdateIntents(boolean)}.
+ * The events and the broadcasts go through different main thread queues, see {@link BroadcastService} for what that means for their order.</p>
+ */
+public class AlEventBus {
+    private static final String TAG = "AlEventBus";
+
+    private static AlEventBus eventBus;
+
+    private final Map<Class<?>, List<Subscription>> subscriptionMap = new ConcurrentHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService backgroundExecutor;
+
+    private AlEventBus() {
+        backgroundExecutor = AlExecutors.newIdleTimeoutExecutor(TAG, 1);
+    }
+
+    public static synchronized @NonNull AlEventBus getInstance() {
+        if (eventBus == null) {
+            eventBus = new AlEventBus();
+        }
+        return eventBus;
+    }
+
+    public enum DispatchMode {
+        /**
+         * Delivered later on the main thread, even if posted from it.
+         */
+        MAIN_THREAD,
+        /**
+         * Delivered on a single background thread shared by all background listeners. Keep the work short.
+         */
+        BACKGROUND,
+        /**
+         * Delivered right away on the posting thread, which may be a database or network thread.
+         */
+        POSTING_THREAD
+    }
+
+    public interface Listener<T> {
+        void onEvent(@NonNull T event);
+    }
+
+    /**
+     * Registering the same listener again for the same event class does nothing.
+     *
+     * @param eventType the exact class of the events to deliver
+     */
+    public <T> void register(@NonNull Class<T> eventType, @NonNull Listener<? super T> listener, @NonNull DispatchMode dispatchMode) {
+        synchronized (subscriptionMap) {
+            List<Subscription> subscriptions = subscriptionMap.get(eventType);
+            if (subscriptions == null) {
+                subscriptions = new CopyOnWriteArrayList<>();
+                subscriptionMap.put(eventType, subscriptions);
+            }
+            for (Subscription subscription : subscriptions) {
+                if (subscription.listener == listener) {
+                    return;
+                }
+            }
+            subscriptions.add(new Subscription(listener, dispatchMode));
+        }
+    }
+
+    /**
+     * Unregisters the listener for all event classes. Events already posted are not delivered to it after this, if called on the thread they are delivered on.
+     */
+    public void unregister(@NonNull Listener<?> listener) {
+        synchronized (subscriptionMap) {
+            for (List<Subscription> subscriptions : subscriptionMap.values()) {
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.listener == listener) {
+                        subscription.active = false;
+                        subscriptions.remove(subscription);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean hasListeners(@NonNull Class<?> eventType) {
+        List<Subscription> subscriptions = subscriptionMap.get(eventType);
+        return subscriptions != null && !subscriptions.isEmpty();
+    }
+
+    /**
+     * Delivers the event to the listeners registered for its class. Nothing is allocated if there are none.
+     */
+    public void post(@NonNull final Object event) {
+        final List<Subscription> subscriptions = subscriptionMap.get(event.getClass());
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+        boolean hasMainThreadListeners = false;
+        boolean hasBackgroundListeners = false;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.dispatchMode == DispatchMode.POSTING_THREAD) {
+                deliver(subscription, event);
+            } else if (subscription.dispatchMode == DispatchMode.MAIN_THREAD) {
+                hasMainThreadListeners = true;
+            } else {
+                hasBackgroundListeners = true;
+            }
+        }
+        //a single task per thread for all of its listeners, instead of one per listener
+        if (hasMainThreadListeners) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(subscriptions, DispatchMode.MAIN_THREAD, event);
+                }
+            });
+        }
+        if (hasBackgroundListeners) {
+            backgroundExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(subscriptions, DispatchMode.BACKGROUND, event);
+                }
+            });
+        }
+    }
+
+    private static void deliver(List<Subscription> subscriptions, DispatchMode dispatchMode, Object event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.dispatchMode == dispatchMode) {
+                deliver(subscription, event);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void deliver(Subscription subscription, Object event) {
+        if (!subscription.active) {
+            return;
+        }
+        ((Listener<Object>) subscription.listener).onEvent(event);
+    }
+
+    private static class Subscription {
+        final Listener<?> listener;
+        final DispatchMode dispatchMode;
+        volatile boolean active = true;
+
+        Subscription(Listener<?> listener, DispatchMode dispatchMode) {
+            this.listener = listener;
+            this.dispatchMode = dispatchMode;
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package com.applozic.mobicomkit.broadcast;
 
 import android.content.Context;
-import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -12,7 +9,6 @@ import com.applozic.mobicomkit.feed.MqttMessageResponse;
 import com.applozic.mobicomkit.listners.AlMqttListener;
 import com.applozic.mobicomkit.listners.AlPushNotificationHandler;
 import com.applozic.mobicomkit.listners.ApplozicUIListener;
-import com.applozic.mobicommons.json.GsonUtils;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -27,13 +23,22 @@ import java.util.Map;
  * <p>Now you can start listening for events using {@link AlEventManager#registerUIListener(String, ApplozicUIListener)}.
  * Do remember to {@link AlEventManager#unregisterUIListener(String) unregister} the listener when not required.</p>
  *
+ * <p>The events are delivered on the main thread, through the {@link AlEventBus}.
+ * The messages given to the listener are the SDK's own copies, do not modify them.</p>
+ *
  * @see com.applozic.mobicomkit.Applozic#connectPublish(Context)
  */
 public class AlEventManager {
     private static AlEventManager eventManager;
     private Map<String, ApplozicUIListener> listenerMap;
     private Map<String, AlMqttListener> mqttListenerMap;
-    private Handler uiHandler;
+    private boolean eventBusRegistered;
+    private final AlEventBus.Listener<AlMessageEvent> eventListener = new AlEventBus.Listener<AlMessageEvent>() {
+        @Override
+        public void onEvent(@NonNull AlMessageEvent messageEvent) {
+            handleState(messageEvent);
+        }
+    };
 
     /**
      * Internal. Do not use.
@@ -56,14 +61,9 @@ public class AlEventManager {
         if (listenerMap == null) {
             listenerMap = new HashMap<>();
         }
-        if (uiHandler == null) {
-            uiHandler = new Handler(new Handler.Callback() {
-                @Override
-                public boolean handleMessage(Message msg) {
-                    handleState(msg);
-                    return false;
-                }
-            });
+        if (!eventBusRegistered) {
+            AlEventBus.getInstance().register(AlMessageEvent.class, eventListener, AlEventBus.DispatchMode.MAIN_THREAD);
+            eventBusRegistered = true;
         }
         if (!listenerMap.containsKey(id)) {
             listenerMap.put(id, listener);
@@ -81,16 +81,8 @@ public class AlEventManager {
         }
     }
 
-    private void handleState(@Nullable Message message) {
-        if (message != null && listenerMap != null && !listenerMap.isEmpty()) {
-            Bundle bundle = message.getData();
-            AlMessageEvent messageEvent = null;
-            if (bundle != null) {
-                messageEvent = (AlMessageEvent) GsonUtils.getObjectFromJson(bundle.getString(AL_EVENT), AlMessageEvent.class);
-            }
-            if (messageEvent == null) {
-                return;
-            }
+    private void handleState(@Nullable AlMessageEvent messageEvent) {
+        if (messageEvent != null && listenerMap != null && !listenerMap.isEmpty()) {
             for (ApplozicUIListener listener : listenerMap.values()) {
                 switch (messageEvent.getAction()) {
                     case AlMessageEvent.ActionType.MESSAGE_SENT:
@@ -167,13 +159,7 @@ public class AlEventManager {
 
     /** Internal. Do not use. **/
     void postEventData(AlMessageEvent messageEvent) {
-        if (uiHandler != null) {
-            Message message = new Message();
-            Bundle bundle = new Bundle();
-            bundle.putString(AL_EVENT, GsonUtils.getJsonFromObject(messageEvent, AlMessageEvent.class));
-            message.setData(bundle);
-            uiHandler.sendMessage(message);
-        }
+        AlEventBus.getInstance().post(messageEvent);
     }
 
     //Cleanup: default
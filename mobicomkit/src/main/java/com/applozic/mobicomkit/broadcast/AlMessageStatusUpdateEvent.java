@@ -0,0 +1,33 @@
+package com.applozic.mobicomkit.broadcast;
+
+import androidx.annotation.NonNull;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Posted on the {@link AlEventBus} when the delivery and read receipts of sent messages are applied, once for all of the messages updated together.
+ *
+ * <p>Each message has its new status, {@link Message.Status#DELIVERED} or {@link Message.Status#DELIVERED_AND_READ}, oldest message first.
+ * The messages are the SDK's own copies, do not modify them. These updates are not posted as {@link AlMessageUpdateEvent}s.</p>
+ */
+public class AlMessageStatusUpdateEvent {
+    private final @NonNull List<Message> messages;
+
+    public AlMessageStatusUpdateEvent(@NonNull List<Message> messages) {
+        this.messages = Collections.unmodifiableList(messages);
+    }
+
+    public @NonNull List<Message> getMessages() {
+        return messages;
+    }
+
+    @Override
+    public String toString() {
+        return "AlMessageStatusUpdateEvent{" +
+                "messageCount=" + messages.size() +
+                '}';
+    }
+}
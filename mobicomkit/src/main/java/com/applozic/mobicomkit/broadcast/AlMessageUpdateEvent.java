@@ -0,0 +1,39 @@
+package com.applozic.mobicomkit.broadcast;
+
+import androidx.annotation.NonNull;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+
+/**
+ * Posted on the {@link AlEventBus} when a message is added or updated: synced, sent, delivered, read, or when its attachment is uploaded or downloaded.
+ *
+ * <p>The {@link #getAction() action} is the name of the {@link BroadcastService.INTENT_ACTIONS} broadcast sent for the same update.
+ * The message is the SDK's own copy, do not modify it.</p>
+ *
+ * <p>The delivery and read receipts of sent messages are posted together as an {@link AlMessageStatusUpdateEvent} instead.</p>
+ */
+public class AlMessageUpdateEvent {
+    private final @NonNull String action;
+    private final @NonNull Message message;
+
+    public AlMessageUpdateEvent(@NonNull String action, @NonNull Message message) {
+        this.action = action;
+        this.message = message;
+    }
+
+    public @NonNull String getAction() {
+        return action;
+    }
+
+    public @NonNull Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "AlMessageUpdateEvent{" +
+                "action='" + action + '\'' +
+                ", messageKey='" + message.getKeyString() + '\'' +
+                '}';
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import com.applozic.mobicomkit.ApplozicClient;
@@ -20,19 +21,30 @@ import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.applozic.mobicommons.json.GsonUtils;
 import com.applozic.mobicommons.people.channel.Channel;
 import com.applozic.mobicommons.people.contact.Contact;
+import com.google.gson.Gson;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * For sending various android broadcasts and events to different parts of the app.
  *
  * <p>NOTE: If we want to send the broadcast to apps, don't forget to add the Category intent.addCategory(Intent.CATEGORY_DEFAULT);
- * P.S: When creating a new broadcast do not forget to add it's INTENT_ACTIONS to {@link BroadcastService#getIntentFilter()}.</p>
+ * P.S: When creating a new broadcast do not forget to add it's INTENT_ACTIONS to {@link BroadcastService#getInternalIntentFilter()}.</p>
+ *
+ * <p>The message updates are posted to the {@link AlEventBus}, the other updates (deleted messages, typing status etc.) are only broadcast
+ * with the {@link LocalBroadcastManager}. Both are delivered on the main thread, but through different queues:
+ * an {@link AlMessageUpdateEvent} and a broadcast sent right after it can reach the listeners in either order.
+ * Don't rely on the order across the two, for example check that a message still exists when handling its update.</p>
  */
 public class BroadcastService {
 
     private static final String TAG = "BroadcastService";
     private static final String MOBICOMKIT_ALL = "MOBICOMKIT_ALL";
+    private static final Gson MESSAGE_GSON = new Gson();
+
+    //set once an app asks for the public intent filter. the message json is only needed by such receivers, the SDK's own receiver ignores it
+    private static volatile boolean appReceiverRegistered = false;
 
     public static String currentUserId = null;
     public static Integer parentGroupKey = null;
@@ -107,13 +119,43 @@ public class BroadcastService {
         }
 
         Utils.printLog(context, TAG, "Sending message update broadcast for " + action + ", " + message.getKeyString());
+        AlEventBus.getInstance().post(new AlMessageUpdateEvent(action, message));
+
+        if (!isMessageUpdateIntentRequired(context)) {
+            return;
+        }
         Intent intentUpdate = new Intent();
         intentUpdate.setAction(action);
         intentUpdate.addCategory(Intent.CATEGORY_DEFAULT);
-        intentUpdate.putExtra(MobiComKitConstants.MESSAGE_JSON_INTENT, GsonUtils.getJsonFromObject(message, Message.class));
+        intentUpdate.putExtra(MobiComKitConstants.MESSAGE_JSON_INTENT, MESSAGE_GSON.toJson(message, Message.class));
         sendBroadcast(context, intentUpdate);
     }
 
+    /**
+     * Sends the delivery and read updates of many messages at once, see {@link AlMessageStatusUpdateEvent}.
+     * The {@link AlMessageEvent}s, and the broadcasts with the message json (when an app receiver is registered with {@link #getIntentFilter()},
+     * unless {@link ApplozicClient#disableMessageUpdateIntents(boolean) disabled}), are still sent for each message.
+     */
+    public static void sendMessageStatusUpdateBroadcast(Context context, @NonNull List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        boolean messageIntentRequired = isMessageUpdateIntentRequired(context);
+        for (Message message : messages) {
+            postEventData(context, new AlMessageEvent().setAction(AlMessageEvent.ActionType.MESSAGE_DELIVERED).setMessage(message).setUserId(message.getContactIds()));
+            if (messageIntentRequired) {
+                Intent intentUpdate = new Intent();
+                intentUpdate.setAction(message.getStatus() == Message.Status.DELIVERED_AND_READ.getValue() ? INTENT_ACTIONS.MESSAGE_READ_AND_DELIVERED.toString() : INTENT_ACTIONS.MESSAGE_DELIVERY.toString());
+                intentUpdate.addCategory(Intent.CATEGORY_DEFAULT);
+                intentUpdate.putExtra(MobiComKitConstants.MESSAGE_JSON_INTENT, MESSAGE_GSON.toJson(message, Message.class));
+                sendBroadcast(context, intentUpdate);
+            }
+        }
+
+        Utils.printLog(context, TAG, "Sending message status update broadcast for " + messages.size() + " messages");
+        AlEventBus.getInstance().post(new AlMessageStatusUpdateEvent(messages));
+    }
+
     public static void sendMessageDeleteBroadcast(Context context, String action, String keyString, String contactNumbers) {
         postEventData(context, new AlMessageEvent().setAction(AlMessageEvent.ActionType.MESSAGE_DELETED).setMessageKey(keyString).setUserId(contactNumbers));
 
@@ -336,7 +378,26 @@ public class BroadcastService {
         sendBroadcast(context, intent);
     }
 
+    /**
+     * The filter for receiving all of the broadcasts sent by this class.
+     *
+     * <p>The message update broadcasts (see {@link #sendMessageUpdateBroadcast(Context, String, Message)}) carry the message as json
+     * in {@link MobiComKitConstants#MESSAGE_JSON_INTENT}. They are only sent once this method has been called.
+     * Listen to the {@link AlMessageUpdateEvent}s on the {@link AlEventBus} instead, to get the message without it being serialized,
+     * and turn the json broadcasts off with {@link ApplozicClient#disableMessageUpdateIntents(boolean)}.</p>
+     */
     public static IntentFilter getIntentFilter() {
+        appReceiverRegistered = true;
+        return getInternalIntentFilter();
+    }
+
+    /**
+     * Internal. Do not use.
+     *
+     * <p>The same filter as {@link #getIntentFilter()}, for the SDK's own receivers. They get the message updates from the {@link AlEventBus},
+     * so registering with this filter doesn't turn on the message json broadcasts.</p>
+     */
+    public static IntentFilter getInternalIntentFilter() {
         IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction(INTENT_ACTIONS.FIRST_TIME_SYNC_COMPLETE.toString());
         intentFilter.addAction(INTENT_ACTIONS.LOAD_MORE.toString());
@@ -377,8 +438,15 @@ public class BroadcastService {
         LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
 
+    /**
+     * @return true if a receiver may read the message json from the message update broadcasts
+     */
+    static boolean isMessageUpdateIntentRequired(Context context) {
+        return appReceiverRegistered && !ApplozicClient.getInstance(context).isMessageUpdateIntentsDisabled();
+    }
+
     private static void postEventData(Context context, AlMessageEvent messageEvent) {
-        AlEventManager.getInstance().postEventData(messageEvent);
+        AlEventBus.getInstance().post(messageEvent);
     }
 
     public enum INTENT_ACTIONS {
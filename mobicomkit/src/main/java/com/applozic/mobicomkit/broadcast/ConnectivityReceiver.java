@@ -8,6 +8,7 @@ import android.net.NetworkInfo;
 import androidx.annotation.NonNull;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import com.applozic.mobicomkit.api.AlMqttReconnectManager;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.conversation.ApplozicWorker;
 import com.applozic.mobicommons.commons.core.utils.Utils;
@@ -38,6 +39,7 @@ public class ConnectivityReceiver extends BroadcastReceiver {
         if (CONNECTIVITY_CHANGE.equalsIgnoreCase(action)) {
             if (!Utils.isInternetAvailable(context)) {
                 firstConnect = true;
+                AlMqttReconnectManager.getInstance(context).onNetworkLost();
                 return;
             }
             ConnectivityManager cm = ((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE));
@@ -46,7 +48,8 @@ public class ConnectivityReceiver extends BroadcastReceiver {
                 if (networkInfo != null && networkInfo.isConnected()) {
                     if (firstConnect) {
                         firstConnect = false;
-                        ApplozicWorker.enqueueWorkNetworkAvailable(context);
+                        //also runs the catch-up sync, after MQTT reconnects if it is wanted
+                        AlMqttReconnectManager.getInstance(context).onNetworkAvailable();
                     }
                 }
             }
@@ -0,0 +1,176 @@
+package com.applozic.mobicomkit.cache;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.LruCache;
+
+import com.applozic.mobicommons.people.channel.Channel;
+import com.applozic.mobicommons.people.contact.Contact;
+
+/**
+ * Internal class.
+ *
+ * <p>A process-wide, size-bounded in-memory cache for {@link Contact} and {@link Channel} objects read from the local database.</p>
+ *
+ * <p>Entries are populated on database reads and dropped by the database update methods
+ * (see {@link com.applozic.mobicomkit.contact.database.ContactDatabase} and {@link com.applozic.mobicomkit.channel.database.ChannelDatabaseService}),
+ * so that the next read goes to the database again. Most of those updates are partial, which is why entries are invalidated instead of being replaced.</p>
+ *
+ * <p>Callers change the objects they get (unread counts, metadata, presence) from any thread, so the cache keeps its own copies:
+ * a copy is stored on put and another one is returned on get, using the {@link Contact#Contact(Contact)} and {@link Channel#Channel(Channel)} copy constructors.
+ * Nothing outside the cache ever holds a cached instance.</p>
+ *
+ * <p>A database read can race with an update of the same row: the read gets the old row, the update invalidates the key, and then the read puts the old row back.
+ * To avoid that, readers take a generation with {@link #getContactGeneration(String)}/{@link #getChannelGeneration(Integer)} before querying the database
+ * and pass it to the put method. Every invalidation bumps the generation of its key, and the put is dropped if the generation has changed in between.
+ * Generations are kept per stripe of keys, so an invalidation of another key in the same stripe can also drop a put. That only costs a later cache miss.</p>
+ */
+public class AlEntityCache {
+    private static final int CONTACT_CACHE_SIZE = 500;
+    private static final int CHANNEL_CACHE_SIZE = 200;
+    private static final int GENERATION_STRIPES = 64;
+
+    private static AlEntityCache entityCache;
+
+    private final LruCache<String, Contact> contactCache;
+    private final LruCache<Integer, Channel> channelCache;
+    //guarded by this
+    private final long[] contactGenerations = new long[GENERATION_STRIPES];
+    //guarded by this
+    private final long[] channelGenerations = new long[GENERATION_STRIPES];
+
+    @VisibleForTesting
+    public AlEntityCache() {
+        contactCache = new LruCache<>(CONTACT_CACHE_SIZE);
+        channelCache = new LruCache<>(CHANNEL_CACHE_SIZE);
+    }
+
+    public static synchronized @NonNull AlEntityCache getInstance() {
+        if (entityCache == null) {
+            entityCache = new AlEntityCache();
+        }
+        return entityCache;
+    }
+
+    public @Nullable Contact getContact(@Nullable String userId) {
+        if (TextUtils.isEmpty(userId)) {
+            return null;
+        }
+        Contact contact = contactCache.get(userId);
+        return contact != null ? new Contact(contact) : null;
+    }
+
+    /**
+     * Call this before reading the contact from the database, and pass the result to {@link #putContact(Contact, long)}.
+     */
+    public synchronized long getContactGeneration(@Nullable String userId) {
+        return contactGenerations[stripe(userId)];
+    }
+
+    /**
+     * Caches the contact, unless it was invalidated after <code>generation</code> was taken.
+     */
+    public synchronized void putContact(@Nullable Contact contact, long generation) {
+        if (contact == null || TextUtils.isEmpty(contact.getUserId())) {
+            return;
+        }
+        if (contactGenerations[stripe(contact.getUserId())] != generation) {
+            return;
+        }
+        contactCache.put(contact.getUserId(), new Contact(contact));
+    }
+
+    public synchronized void invalidateContact(@Nullable String userId) {
+        if (!TextUtils.isEmpty(userId)) {
+            contactGenerations[stripe(userId)]++;
+            contactCache.remove(userId);
+        }
+    }
+
+    public @Nullable Channel getChannel(@Nullable Integer channelKey) {
+        if (channelKey == null) {
+            return null;
+        }
+        Channel channel = channelCache.get(channelKey);
+        return channel != null ? new Channel(channel) : null;
+    }
+
+    /**
+     * Call this before reading the channel from the database, and pass the result to {@link #putChannel(Channel, long)}.
+     */
+    public synchronized long getChannelGeneration(@Nullable Integer channelKey) {
+        return channelGenerations[stripe(channelKey)];
+    }
+
+    /**
+     * Caches the channel, unless it was invalidated after <code>generation</code> was taken.
+     */
+    public synchronized void putChannel(@Nullable Channel channel, long generation) {
+        if (channel == null || channel.getKey() == null) {
+            return;
+        }
+        if (channelGenerations[stripe(channel.getKey())] != generation) {
+            return;
+        }
+        channelCache.put(channel.getKey(), new Channel(channel));
+    }
+
+    public synchronized void invalidateChannel(@Nullable Integer channelKey) {
+        if (channelKey != null) {
+            channelGenerations[stripe(channelKey)]++;
+            channelCache.remove(channelKey);
+        }
+    }
+
+    /**
+     * Drops all channels. Used when an update can't be mapped to a single channel key.
+     */
+    public synchronized void invalidateAllChannels() {
+        bumpAll(channelGenerations);
+        channelCache.evictAll();
+    }
+
+    public synchronized void clear() {
+        bumpAll(contactGenerations);
+        bumpAll(channelGenerations);
+        contactCache.evictAll();
+        channelCache.evictAll();
+    }
+
+    public int getContactHitCount() {
+        return contactCache.hitCount();
+    }
+
+    public int getContactMissCount() {
+        return contactCache.missCount();
+    }
+
+    public int getChannelHitCount() {
+        return channelCache.hitCount();
+    }
+
+    public int getChannelMissCount() {
+        return channelCache.missCount();
+    }
+
+    private static int stripe(@Nullable Object key) {
+        return key == null ? 0 : (key.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    private static void bumpAll(@NonNull long[] generations) {
+        for (int i = 0; i < generations.length; i++) {
+            generations[i]++;
+        }
+    }
+
+    @Override
+    public @NonNull String toString() {
+        return "AlEntityCache{" +
+                "contacts=" + contactCache.toString() +
+                ", channels=" + channelCache.toString() +
+                '}';
+    }
+}
@@ -2,10 +2,10 @@ package com.applozic.mobicomkit.cache;
 
 import android.content.Context;
 import android.text.TextUtils;
-import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 
 import com.applozic.mobicomkit.api.account.user.UserDetail;
 import com.applozic.mobicomkit.api.conversation.Message;
@@ -15,33 +15,31 @@ import com.applozic.mobicommons.ApplozicService;
 import com.applozic.mobicommons.people.channel.Channel;
 import com.applozic.mobicommons.people.contact.Contact;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-//Replace this with LRU cache implementation in future
 /**
  * Internal class.
  *
- * <p>This is a temporary static data storage class.</p>
+ * <p>This is a temporary static data storage class for message search results.
+ * The channels and contacts are kept in size-bounded LRU caches.</p>
  */
 public class MessageSearchCache {
-    private static SparseArray<Channel> channelSparseArray;
-    private static Map<String, Contact> contactMap;
+    private static final int CHANNEL_CACHE_SIZE = 100;
+    private static final int CONTACT_CACHE_SIZE = 200;
+
+    private static final LruCache<Integer, Channel> channelCache = new LruCache<>(CHANNEL_CACHE_SIZE);
+    private static final LruCache<String, Contact> contactCache = new LruCache<>(CONTACT_CACHE_SIZE);
     private static List<Message> messageList;
 
     public static @Nullable Channel getChannelByKey(@NonNull Integer channelKey) {
-        if (channelSparseArray != null) {
-            return channelSparseArray.get(channelKey);
-        }
-        return null;
+        return channelCache.get(channelKey);
     }
 
     public static Contact getContactById(String userId) {
-        if (contactMap != null) {
-            return contactMap.get(userId);
+        if (TextUtils.isEmpty(userId)) {
+            return null;
         }
-        return null;
+        return contactCache.get(userId);
     }
 
     public static List<Message> getMessageList() {
@@ -54,26 +52,23 @@ public class MessageSearchCache {
 
     public static void processChannelFeeds(ChannelFeed[] channelFeeds) {
         if (channelFeeds != null) {
-            if (channelSparseArray == null) {
-                channelSparseArray = new SparseArray<>();
-            }
             Context context = ApplozicService.getAppContext();
             if (context == null) {
                 return;
             }
             ChannelService channelService = ChannelService.getInstance(context);
             for (ChannelFeed channelFeed : channelFeeds) {
-                channelSparseArray.append(channelFeed.getId(), channelService.getChannel(channelFeed));
+                channelCache.put(channelFeed.getId(), channelService.getChannel(channelFeed));
             }
         }
     }
 
     public static void processUserDetails(UserDetail[] userDetails) {
         if (userDetails != null) {
-            if (contactMap == null) {
-                contactMap = new HashMap<>();
-            }
             for (UserDetail userDetail : userDetails) {
+                if (TextUtils.isEmpty(userDetail.getUserId())) {
+                    continue;
+                }
                 Contact contact = new Contact();
                 contact.setUserId(userDetail.getUserId());
                 contact.setContactNumber(userDetail.getPhoneNumber());
@@ -94,7 +89,7 @@ public class MessageSearchCache {
                     contact.setImageURL(userDetail.getImageLink());
                 }
                 contact.setContactType(Contact.ContactType.APPLOZIC.getValue());
-                contactMap.put(userDetail.getUserId(), contact);
+                contactCache.put(userDetail.getUserId(), contact);
             }
         }
     }
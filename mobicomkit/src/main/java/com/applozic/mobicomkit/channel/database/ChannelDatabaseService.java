@@ -13,6 +13,8 @@ import androidx.loader.content.CursorLoader;
 import androidx.loader.content.Loader;
 
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.mention.MentionHelper;
+import com.applozic.mobicomkit.cache.AlEntityCache;
 import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
 import com.applozic.mobicomkit.feed.GroupInfoUpdate;
 import com.applozic.mobicommons.ApplozicService;
@@ -43,11 +45,13 @@ public class ChannelDatabaseService {
     private Context context;
     private MobiComUserPreference mobiComUserPreference;
     private MobiComDatabaseHelper dbHelper;
+    private AlEntityCache entityCache;
 
     private ChannelDatabaseService(Context context) {
         this.context = ApplozicService.getContext(context);
         this.mobiComUserPreference = MobiComUserPreference.getInstance(ApplozicService.getContext(context));
         this.dbHelper = MobiComDatabaseHelper.getInstance(ApplozicService.getContext(context));
+        this.entityCache = AlEntityCache.getInstance();
     }
 
     @VisibleForTesting
@@ -55,6 +59,7 @@ public class ChannelDatabaseService {
         this.context = ApplozicService.getContext(context);
         this.mobiComUserPreference = MobiComUserPreference.getInstance(ApplozicService.getContext(context));
         this.dbHelper = dbHelper;
+        this.entityCache = new AlEntityCache();
     }
 
     public synchronized static ChannelDatabaseService getInstance(Context context) {
@@ -109,6 +114,7 @@ public class ChannelDatabaseService {
         try {
             ContentValues contentValues = prepareChannelValues(channel);
             dbHelper.getWritableDatabase().insertWithOnConflict(CHANNEL, null, contentValues, SQLiteDatabase.CONFLICT_REPLACE);
+            entityCache.invalidateChannel(channel.getKey());
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -161,6 +167,7 @@ public class ChannelDatabaseService {
         try {
             ContentValues contentValues = prepareChannelUserMapperValues(channelUserMapper);
             dbHelper.getWritableDatabase().insertWithOnConflict(CHANNEL_USER_X, null, contentValues, SQLiteDatabase.CONFLICT_REPLACE);
+            MentionHelper.invalidateMentionIndex(channelUserMapper.getKey());
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -228,11 +235,17 @@ public class ChannelDatabaseService {
     /**
      * Will get a channel object from the database, corresponding to the passed channel key.
      *
+     * <p>The in-memory {@link AlEntityCache} is checked before querying the database.</p>
+     *
      * @param channelKey the channel key/group id. used to identify a channel
      * @return the channel object, null if no such channel exists in database
      */
     public Channel getChannelByChannelKey(final Integer channelKey) {
-        Channel channel = null;
+        Channel channel = entityCache.getChannel(channelKey);
+        if (channel != null) {
+            return channel;
+        }
+        long cacheGeneration = entityCache.getChannelGeneration(channelKey);
         try {
             String structuredNameWhere = MobiComDatabaseHelper.CHANNEL_KEY + " =?";
             SQLiteDatabase db = dbHelper.getReadableDatabase();
@@ -242,6 +255,7 @@ public class ChannelDatabaseService {
                     if (cursor.getCount() > 0) {
                         cursor.moveToFirst();
                         channel = getChannel(cursor);
+                        entityCache.putChannel(channel, cacheGeneration);
                     }
                 }
 
@@ -360,6 +374,7 @@ public class ChannelDatabaseService {
     public void updateChannel(Channel channel) {
         ContentValues contentValues = prepareChannelValues(channel);
         dbHelper.getWritableDatabase().update(CHANNEL, contentValues, MobiComDatabaseHelper.CHANNEL_KEY + "=?", new String[]{String.valueOf(channel.getKey())});
+        entityCache.invalidateChannel(channel.getKey());
         dbHelper.close();
     }
 
@@ -374,12 +389,14 @@ public class ChannelDatabaseService {
         ContentValues contentValues = new ContentValues();
         contentValues.put(MobiComDatabaseHelper.NOTIFICATION_AFTER_TIME, notificationAfterTime);
         dbHelper.getWritableDatabase().update(CHANNEL, contentValues, MobiComDatabaseHelper.CHANNEL_KEY + "=?", new String[]{String.valueOf(id)});
+        entityCache.invalidateChannel(id);
     }
 
     //Cleanup: default
     public void updateChannelUserMapper(ChannelUserMapper channelUserMapper) {
         ContentValues contentValues = prepareChannelUserMapperValues(channelUserMapper);
         dbHelper.getWritableDatabase().update(CHANNEL_USER_X, contentValues, MobiComDatabaseHelper.CHANNEL_KEY + "=?  and " + MobiComDatabaseHelper.USERID + "=?", new String[]{String.valueOf(channelUserMapper.getKey()), String.valueOf(channelUserMapper.getUserKey())});
+        MentionHelper.invalidateMentionIndex(channelUserMapper.getKey());
         dbHelper.close();
     }
 
@@ -410,6 +427,7 @@ public class ChannelDatabaseService {
         ContentValues contentValues = new ContentValues();
         contentValues.put(MobiComDatabaseHelper.CHANNEL_IMAGE_LOCAL_URI, channelLocalURI);
         dbHelper.getWritableDatabase().update(CHANNEL, contentValues, MobiComDatabaseHelper.CHANNEL_KEY + "=?", new String[]{String.valueOf(channelKey)});
+        entityCache.invalidateChannel(channelKey);
     }
 
     /**
@@ -452,6 +470,7 @@ public class ChannelDatabaseService {
         int deleteUser = 0;
         try {
             deleteUser = dbHelper.getWritableDatabase().delete(MobiComDatabaseHelper.CHANNEL_USER_X, "channelKey=? AND userId= ?", new String[]{String.valueOf(channelKey), userId});
+            MentionHelper.invalidateMentionIndex(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -469,6 +488,7 @@ public class ChannelDatabaseService {
         int deletedRows = 0;
         try {
             deletedRows = dbHelper.getWritableDatabase().delete(MobiComDatabaseHelper.CHANNEL_USER_X, "channelKey=? AND userId= ?", new String[]{String.valueOf(channelKey), userId});
+            MentionHelper.invalidateMentionIndex(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -539,6 +559,7 @@ public class ChannelDatabaseService {
                 }
             }
             rowUpdated = dbHelper.getWritableDatabase().update("channel", values, "channelKey=" + groupInfoUpdate.getGroupId(), null);
+            entityCache.invalidateChannel(groupInfoUpdate.getGroupId());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -550,6 +571,7 @@ public class ChannelDatabaseService {
         int deletedRows = 0;
         try {
             deletedRows = dbHelper.getWritableDatabase().delete(MobiComDatabaseHelper.CHANNEL, "channelKey=?", new String[]{String.valueOf(channelKey)});
+            entityCache.invalidateChannel(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -561,6 +583,7 @@ public class ChannelDatabaseService {
         int deletedRows = 0;
         try {
             deletedRows = dbHelper.getWritableDatabase().delete(MobiComDatabaseHelper.CHANNEL_USER_X, "channelKey=?", new String[]{String.valueOf(channelKey)});
+            MentionHelper.invalidateMentionIndex(channelKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -652,6 +675,7 @@ public class ChannelDatabaseService {
         ContentValues contentValues = new ContentValues();
         contentValues.put(MobiComDatabaseHelper.ROLE, role);
         dbHelper.getWritableDatabase().update(CHANNEL_USER_X, contentValues, MobiComDatabaseHelper.CHANNEL_KEY + "=? AND " + MobiComDatabaseHelper.USERID + "=?", new String[]{String.valueOf(channelKey), userId});
+        MentionHelper.invalidateMentionIndex(channelKey);
     }
 
     //Cleanup: default
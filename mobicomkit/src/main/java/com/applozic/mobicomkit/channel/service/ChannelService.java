@@ -1017,7 +1017,7 @@ public class ChannelService {
      * @deprecated Use {@link ChannelDatabaseService#isChannelUserPresent(Integer, String)} instead.
      */
     @Deprecated
-    public synchronized boolean processIsUserPresentInChannel(Integer channelKey) {
+    public boolean processIsUserPresentInChannel(Integer channelKey) {
         return channelDatabaseService.isChannelUserPresent(channelKey, MobiComUserPreference
                 .getInstance(context).getUserId());
     }
@@ -1027,7 +1027,7 @@ public class ChannelService {
      * @deprecated Use {@link ChannelDatabaseService#isChannelUserPresent(Integer, String)} instead.
      */
     @Deprecated
-    public synchronized boolean isUserAlreadyPresentInChannel(Integer channelKey, String userId) {
+    public boolean isUserAlreadyPresentInChannel(Integer channelKey, String userId) {
         return channelDatabaseService.isChannelUserPresent(channelKey, userId);
     }
 
@@ -1035,7 +1035,7 @@ public class ChannelService {
      * @deprecated Use {@link ChannelDatabaseService#isChannelUserPresent(Integer, String)} instead. Pass <i>channelKey</i>.
      */
     @Deprecated
-    public synchronized boolean processIsUserPresentInChannel(String clientGroupId) {
+    public boolean processIsUserPresentInChannel(String clientGroupId) {
         Channel channel = channelDatabaseService.getChannelByClientGroupId(clientGroupId);
         return channelDatabaseService.isChannelUserPresent(channel.getKey(),
                 MobiComUserPreference.getInstance(context).getUserId());
@@ -1072,7 +1072,7 @@ public class ChannelService {
      * @deprecated Use {@link ChannelDatabaseService#isChannelUserPresent(Integer, String)} instead.
      */
     @Deprecated
-    public synchronized boolean isUserAlreadyPresentInChannel(String clientGroupId, String userId) {
+    public boolean isUserAlreadyPresentInChannel(String clientGroupId, String userId) {
         Channel channel = channelDatabaseService.getChannelByClientGroupId(clientGroupId);
         return channelDatabaseService.isChannelUserPresent(channel.getKey(), userId);
     }
@@ -1192,7 +1192,7 @@ public class ChannelService {
      * Gets the <i>channel</i> object for the given <code>channelKey</code> from the local database.
      */
     @Deprecated
-    public synchronized Channel getChannelByChannelKey(Integer channelKey) {
+    public Channel getChannelByChannelKey(Integer channelKey) {
         if (channelKey == null) {
             return null;
         }
@@ -0,0 +1,282 @@
+package com.applozic.mobicomkit.contact;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicomkit.contact.database.ContactDatabase;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.people.contact.Contact;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Keeps the online status and last seen time of users in memory. This is the source of truth for {@link Contact#isConnected()}
+ * and {@link Contact#getLastSeenAt()}: {@link ContactDatabase} applies it to every contact it reads.</p>
+ *
+ * <p>Presence updates change the in-memory state only. The changed users are written to the database together, in one transaction,
+ * {@link #FLUSH_DELAY_MILLIS} after the first change (or sooner, once {@link #MAX_PENDING_WRITES} users are waiting).</p>
+ *
+ * <p>The UI is notified (see {@link BroadcastService#sendUpdateLastSeenAtTimeBroadcast(Context, String, String)}) right away
+ * for the users it has marked visible with {@link #setVisibleUsers(Object, Collection)}. Changes of the other users are broadcast
+ * with the next flush, once per user and flush, so screens that don't mark their users (such as the conversation list) still get them.</p>
+ */
+public class AlPresenceManager {
+    private static final String TAG = "AlPresenceManager";
+    private static final long FLUSH_DELAY_MILLIS = 2000;
+    private static final int MAX_PENDING_WRITES = 100;
+    private static final int MAX_TRACKED_USERS = 2000;
+
+    private static AlPresenceManager presenceManager;
+
+    private final Context context;
+    private final ScheduledExecutorService executorService;
+
+    //all the fields below are guarded by this
+    private final Set<String> dirtyUserIds = new LinkedHashSet<>();
+    private final Map<String, Presence> presences = new LinkedHashMap<String, Presence>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Presence> eldest) {
+            return size() > MAX_TRACKED_USERS && !dirtyUserIds.contains(eldest.getKey());
+        }
+    };
+    private final Map<Object, Set<String>> visibleUsersByOwner = new HashMap<>();
+    private final Set<String> pendingNotifications = new HashSet<>();
+    private boolean flushScheduled;
+
+    private AlPresenceManager(Context context) {
+        this.context = ApplozicService.getContext(context);
+        executorService = AlExecutors.newIdleTimeoutScheduledExecutor("AlPresence");
+    }
+
+    public static synchronized @NonNull AlPresenceManager getInstance(@Nullable Context context) {
+        if (presenceManager == null) {
+            presenceManager = new AlPresenceManager(context);
+        }
+        return presenceManager;
+    }
+
+    /**
+     * Records a presence update for the user, received over MQTT or a push notification.
+     * Updates for unknown users and updates that don't change the online status are ignored.
+     */
+    public void onPresenceUpdate(@Nullable String userId, boolean connected, long lastSeenAt) {
+        if (TextUtils.isEmpty(userId)) {
+            return;
+        }
+        Presence presence;
+        synchronized (this) {
+            presence = presences.get(userId);
+        }
+        if (presence == null) {
+            Contact contact = new ContactDatabase(context).getContactById(userId);
+            if (contact == null) {
+                return;
+            }
+            synchronized (this) {
+                presence = presences.get(userId);
+                if (presence == null) {
+                    presence = new Presence(contact.isConnected(), contact.getLastSeenAt());
+                    presences.put(userId, presence);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (presence.connected == connected) {
+                return;
+            }
+            presence.connected = connected;
+            presence.lastSeenAt = lastSeenAt;
+            presence.version++;
+            dirtyUserIds.add(userId);
+            scheduleFlush(dirtyUserIds.size() >= MAX_PENDING_WRITES);
+        }
+        notifyPresenceChanged(userId);
+    }
+
+    /**
+     * Notifies the UI about a changed presence, right away if the user is visible. See the class documentation.
+     */
+    public void notifyPresenceChanged(@Nullable String userId) {
+        if (TextUtils.isEmpty(userId)) {
+            return;
+        }
+        synchronized (this) {
+            if (!isVisible(userId)) {
+                pendingNotifications.add(userId);
+                scheduleFlush(false);
+                return;
+            }
+        }
+        BroadcastService.sendUpdateLastSeenAtTimeBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_LAST_SEEN_AT_TIME.toString(), userId);
+    }
+
+    /**
+     * Sets the presence on the contact read from the database, if a newer one is known.
+     */
+    public synchronized void applyPresence(@Nullable Contact contact) {
+        if (contact == null || TextUtils.isEmpty(contact.getUserId())) {
+            return;
+        }
+        Presence presence = presences.get(contact.getUserId());
+        if (presence != null) {
+            contact.setConnected(presence.connected);
+            contact.setLastSeenAt(presence.lastSeenAt);
+        }
+    }
+
+    /**
+     * Called after the contact has been written to the database. The written presence replaces the one in memory.
+     */
+    public synchronized void onContactStored(@Nullable Contact contact) {
+        if (contact == null || TextUtils.isEmpty(contact.getUserId())) {
+            return;
+        }
+        Presence presence = presences.get(contact.getUserId());
+        if (presence == null) {
+            return;
+        }
+        presence.connected = contact.isConnected();
+        if (contact.getLastSeenAt() != 0) {
+            presence.lastSeenAt = contact.getLastSeenAt();
+        }
+        presence.version++;
+        dirtyUserIds.remove(contact.getUserId());
+    }
+
+    /**
+     * Marks the users shown by a screen (or any other UI owner), replacing the ones it marked earlier.
+     * Presence changes of these users are broadcast right away, the changes of the other users with the next flush.
+     *
+     * @param owner the screen, for example the fragment
+     * @param userIds the user-ids currently shown by it, can be empty
+     */
+    public synchronized void setVisibleUsers(@NonNull Object owner, @Nullable Collection<String> userIds) {
+        visibleUsersByOwner.put(owner, userIds != null ? new HashSet<>(userIds) : new HashSet<String>());
+    }
+
+    /**
+     * Call when the screen is no longer visible.
+     */
+    public synchronized void clearVisibleUsers(@NonNull Object owner) {
+        visibleUsersByOwner.remove(owner);
+    }
+
+    /**
+     * Writes the pending presence changes to the database on the calling thread.
+     */
+    public void flush() {
+        List<Contact> contacts = new ArrayList<>();
+        Map<String, Integer> versions = new HashMap<>();
+        Set<String> notifications;
+        synchronized (this) {
+            flushScheduled = false;
+            for (String userId : dirtyUserIds) {
+                Presence presence = presences.get(userId);
+                if (presence == null) {
+                    continue;
+                }
+                Contact contact = new Contact();
+                contact.setUserId(userId);
+                contact.setConnected(presence.connected);
+                contact.setLastSeenAt(presence.lastSeenAt);
+                contacts.add(contact);
+                versions.put(userId, presence.version);
+            }
+            notifications = new HashSet<>(pendingNotifications);
+            pendingNotifications.clear();
+        }
+
+        if (!contacts.isEmpty()) {
+            boolean written = new ContactDatabase(context).updateConnectedStatuses(contacts);
+            synchronized (this) {
+                if (written) {
+                    for (Map.Entry<String, Integer> version : versions.entrySet()) {
+                        Presence presence = presences.get(version.getKey());
+                        //a newer change arrived during the write, it stays dirty
+                        if (presence == null || presence.version == version.getValue()) {
+                            dirtyUserIds.remove(version.getKey());
+                        }
+                    }
+                }
+                if (!dirtyUserIds.isEmpty()) {
+                    scheduleFlush(false);
+                }
+            }
+            Utils.printLog(context, TAG, "Wrote presence of users: ", contacts.size());
+        }
+
+        for (String userId : notifications) {
+            BroadcastService.sendUpdateLastSeenAtTimeBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_LAST_SEEN_AT_TIME.toString(), userId);
+        }
+    }
+
+    /**
+     * Drops all the presence state. Called when the local database is deleted.
+     */
+    public synchronized void clear() {
+        presences.clear();
+        dirtyUserIds.clear();
+        pendingNotifications.clear();
+    }
+
+    private boolean isVisible(String userId) {
+        for (Set<String> visibleUsers : visibleUsersByOwner.values()) {
+            if (visibleUsers.contains(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //must be called with the lock held
+    private void scheduleFlush(boolean immediately) {
+        if (immediately) {
+            flushScheduled = true;
+            executorService.execute(flushRunnable);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            executorService.schedule(flushRunnable, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    };
+
+    private static class Presence {
+        boolean connected;
+        long lastSeenAt;
+        int version;
+
+        Presence(boolean connected, long lastSeenAt) {
+            this.connected = connected;
+            this.lastSeenAt = lastSeenAt;
+        }
+    }
+}
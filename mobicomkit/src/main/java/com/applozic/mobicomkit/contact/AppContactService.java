@@ -281,11 +281,7 @@ public class AppContactService implements BaseContactService {
     /** Internal. Do not use **/
     @Override
     public void updateConnectedStatus(String contactId, Date date, boolean connected) {
-        Contact contact = contactDatabase.getContactById(contactId);
-        if (contact != null && contact.isConnected() != connected) {
-            contactDatabase.updateConnectedOrDisconnectedStatus(contactId, date, connected);
-            BroadcastService.sendUpdateLastSeenAtTimeBroadcast(context, BroadcastService.INTENT_ACTIONS.UPDATE_LAST_SEEN_AT_TIME.toString(), contactId);
-        }
+        AlPresenceManager.getInstance(context).onPresenceUpdate(contactId, connected, date.getTime());
     }
 
     /** Internal. Do not use **/
@@ -14,6 +14,9 @@ import androidx.loader.content.Loader;
 
 import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.mention.MentionHelper;
+import com.applozic.mobicomkit.cache.AlEntityCache;
+import com.applozic.mobicomkit.contact.AlPresenceManager;
 import com.applozic.mobicomkit.database.MobiComDatabaseHelper;
 import com.applozic.mobicommons.ApplozicService;
 import com.applozic.mobicommons.commons.core.utils.Utils;
@@ -35,11 +38,13 @@ public class ContactDatabase {
     private Context context = null;
     private MobiComUserPreference userPreferences;
     private MobiComDatabaseHelper dbHelper;
+    private AlEntityCache entityCache;
 
     public ContactDatabase(Context context) {
         this.context = ApplozicService.getContext(context);
         this.userPreferences = MobiComUserPreference.getInstance(ApplozicService.getContext(context));
         this.dbHelper = MobiComDatabaseHelper.getInstance(ApplozicService.getContext(context));
+        this.entityCache = AlEntityCache.getInstance();
     }
 
     @VisibleForTesting
@@ -47,6 +52,7 @@ public class ContactDatabase {
         this.context = ApplozicService.getContext(context);
         this.userPreferences = MobiComUserPreference.getInstance(ApplozicService.getContext(context));
         this.dbHelper = dbHelper;
+        this.entityCache = new AlEntityCache();
     }
 
     //Cleanup: private
@@ -85,6 +91,7 @@ public class ContactDatabase {
             if (!TextUtils.isEmpty(metadata)) {
                 contact.setMetadata((Map<String, String>) GsonUtils.getObjectFromJson(metadata, Map.class));
             }
+            AlPresenceManager.getInstance(context).applyPresence(contact);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -173,6 +180,8 @@ public class ContactDatabase {
     /**
      * Gets the contact from the db with the given user id.
      *
+     * <p>The in-memory {@link AlEntityCache} is checked before querying the database.</p>
+     *
      * @param id the user id
      * @return the {@link Contact} object
      */
@@ -182,6 +191,12 @@ public class ContactDatabase {
             if (TextUtils.isEmpty(id)) {
                 return null;
             }
+            Contact cachedContact = entityCache.getContact(id);
+            if (cachedContact != null) {
+                AlPresenceManager.getInstance(context).applyPresence(cachedContact);
+                return cachedContact;
+            }
+            long cacheGeneration = entityCache.getContactGeneration(id);
             String structuredNameWhere = MobiComDatabaseHelper.USERID + " =?";
             SQLiteDatabase db = dbHelper.getReadableDatabase();
             cursor = db.query(CONTACT, null, structuredNameWhere, new String[]{id}, null, null, null);
@@ -190,6 +205,7 @@ public class ContactDatabase {
                 if (cursor.getCount() > 0) {
                     cursor.moveToFirst();
                     contact = getContact(cursor);
+                    entityCache.putContact(contact, cacheGeneration);
                 }
             }
             return contact;
@@ -214,6 +230,9 @@ public class ContactDatabase {
     public void updateContact(Contact contact) {
         ContentValues contentValues = prepareContactValues(contact, true);
         dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{contact.getUserId()});
+        entityCache.invalidateContact(contact.getUserId());
+        MentionHelper.invalidateMentionIndexesForUser(contact.getUserId());
+        AlPresenceManager.getInstance(context).onContactStored(contact);
         dbHelper.close();
     }
 
@@ -222,6 +241,7 @@ public class ContactDatabase {
         ContentValues contentValues = new ContentValues();
         contentValues.put(MobiComDatabaseHelper.CONTACT_IMAGE_LOCAL_URI, contact.getLocalImageUrl());
         dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{contact.getUserId()});
+        entityCache.invalidateContact(contact.getUserId());
     }
 
     //Cleanup: default
@@ -232,9 +252,41 @@ public class ContactDatabase {
 
         try {
             dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{userId});
+            entityCache.invalidateContact(userId);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Updates the online status and last seen time of the given contacts, in a single transaction.
+     *
+     * <p>Only the user id, {@link Contact#isConnected()} and {@link Contact#getLastSeenAt()} of the passed objects are used.</p>
+     *
+     * @return true if the update was committed
+     */
+    public boolean updateConnectedStatuses(@NonNull List<Contact> contacts) {
+        SQLiteDatabase db = null;
+        try {
+            db = dbHelper.getWritableDatabase();
+            db.beginTransaction();
+            ContentValues contentValues = new ContentValues();
+            for (Contact contact : contacts) {
+                contentValues.put(MobiComDatabaseHelper.CONNECTED, contact.isConnected() ? 1 : 0);
+                contentValues.put(MobiComDatabaseHelper.LAST_SEEN_AT_TIME, contact.getLastSeenAt());
+                db.update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{contact.getUserId()});
+            }
+            db.setTransactionSuccessful();
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
         } finally {
+            if (db != null) {
+                db.endTransaction();
+            }
             dbHelper.close();
         }
     }
@@ -244,6 +296,7 @@ public class ContactDatabase {
             ContentValues contentValues = new ContentValues();
             contentValues.put(MobiComDatabaseHelper.LAST_SEEN_AT_TIME, lastSeenTime);
             dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{userId});
+            entityCache.invalidateContact(userId);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -257,6 +310,7 @@ public class ContactDatabase {
             ContentValues contentValues = new ContentValues();
             contentValues.put(MobiComDatabaseHelper.BLOCKED, userBlocked ? 1 : 0);
             dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{userId});
+            entityCache.invalidateContact(userId);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -270,6 +324,7 @@ public class ContactDatabase {
             ContentValues contentValues = new ContentValues();
             contentValues.put(MobiComDatabaseHelper.BLOCKED_BY, userBlockedBy ? 1 : 0);
             dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{userId});
+            entityCache.invalidateContact(userId);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -286,6 +341,9 @@ public class ContactDatabase {
         try {
             ContentValues contentValues = prepareContactValues(contact, false);
             dbHelper.getWritableDatabase().insert(CONTACT, null, contentValues);
+            entityCache.invalidateContact(contact.getUserId());
+            MentionHelper.invalidateMentionIndexesForUser(contact.getUserId());
+            AlPresenceManager.getInstance(context).onContactStored(contact);
         } catch (Exception e) {
             Utils.printLog(context, TAG, "Ignoring duplicate entry for contact");
         } finally {
@@ -457,6 +515,8 @@ public class ContactDatabase {
     public void deleteContactById(@NonNull String id) {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
         db.delete(CONTACT, "userId=?", new String[]{id});
+        entityCache.invalidateContact(id);
+        MentionHelper.invalidateMentionIndexesForUser(id);
         dbHelper.close();
     }
 
@@ -476,6 +536,7 @@ public class ContactDatabase {
         ContentValues contentValues = new ContentValues();
         contentValues.put(MobiComDatabaseHelper.NOTIFICATION_AFTER_TIME, notificationAfterTime);
         dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{userId});
+        entityCache.invalidateContact(userId);
     }
 
     public int getChatUnreadCount() {
@@ -658,6 +719,7 @@ public class ContactDatabase {
                 ContentValues contentValues = new ContentValues();
                 contentValues.put(MobiComDatabaseHelper.USER_METADATA, GsonUtils.getJsonFromObject(metadata, Map.class));
                 dbHelper.getWritableDatabase().update(CONTACT, contentValues, MobiComDatabaseHelper.USERID + "=?", new String[]{contact.getUserId()});
+                entityCache.invalidateContact(contact.getUserId());
             }
         }
     }
@@ -1,14 +1,19 @@
 package com.applozic.mobicomkit.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.text.TextUtils;
 
 import com.applozic.mobicommons.ALSpecificSettings;
+import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.MobiComKitClientService;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.UserClientService;
+import com.applozic.mobicomkit.api.mention.MentionHelper;
+import com.applozic.mobicomkit.cache.AlEntityCache;
+import com.applozic.mobicomkit.contact.AlPresenceManager;
 import com.applozic.mobicommons.ApplozicService;
 import com.applozic.mobicommons.commons.core.utils.DBUtils;
 import com.applozic.mobicommons.commons.core.utils.Utils;
@@ -16,7 +21,7 @@ import com.applozic.mobicommons.commons.core.utils.Utils;
 //Cleanup: default (move to root)
 public class MobiComDatabaseHelper extends SQLiteOpenHelper {
     //Cleanup: all the public constants can be move to a diff class
-    public static final int DB_VERSION = 35;
+    public static final int DB_VERSION = 36;
 
     public static final String _ID = "_id";
     public static final String DB_NAME = "APPLOZIC_LOCAL_DATABASE";
@@ -90,6 +95,11 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
             + _ID + " integer primary key autoincrement  ," + SMS
             + " text not null, " + TIMESTAMP + " INTEGER ,"
             + TO_FIELD + " varchar(20) not null, " + SMS_TYPE + " varchar(20) not null ," + CONTACTID + " varchar(20) , " + SMS_KEY_STRING + " varChar(50), " + STORE_ON_DEVICE_COLUMN + " INTEGER DEFAULT 1, source INTEGER, timeToLive integer) ;";
+    public static final String DISAPPEARING_MESSAGE = "disappearingMessage";
+    public static final String SCHEDULED_AT = "scheduledAt";
+    public static final String CREATE_DISAPPEARING_MESSAGE_TABLE = "create table " + DISAPPEARING_MESSAGE + " ( "
+            + SMS_KEY_STRING + " varchar(100) primary key, "
+            + SCHEDULED_AT + " integer not null)";
     public static final String CREATE_SMS_TABLE = "create table sms ( "
             + "id integer primary key autoincrement, "
             + "keyString var(100), "
@@ -243,9 +253,13 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
 
     private static final String CREATE_INDEX_SMS_TYPE = "CREATE INDEX IF NOT EXISTS INDEX_SMS_TYPE ON sms (type)";
     private static final String CREATE_INDEX_ON_CREATED_AT = "CREATE INDEX IF NOT EXISTS message_createdAt ON sms (createdAt)";
+    private static final String CREATE_INDEX_SCHEDULE_SMS_TIMESTAMP = "CREATE INDEX IF NOT EXISTS INDEX_SCHEDULE_SMS_TIMESTAMP ON " + SCHEDULE_SMS_TABLE_NAME + " (" + TIMESTAMP + ")";
+    private static final String CREATE_INDEX_DISAPPEARING_MESSAGE_SCHEDULED_AT = "CREATE INDEX IF NOT EXISTS INDEX_DISAPPEARING_MESSAGE_SCHEDULED_AT ON " + DISAPPEARING_MESSAGE + " (" + SCHEDULED_AT + ")";
     private static final String TAG = "MobiComDatabaseHelper";
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
     private static MobiComDatabaseHelper sInstance;
     private Context context;
+    private ApplozicClient applozicClient;
 
     private MobiComDatabaseHelper(Context context) {
         this(context, !TextUtils.isEmpty(ALSpecificSettings.getInstance(ApplozicService.getContext(context)).getDatabaseName()) ? ALSpecificSettings.getInstance(ApplozicService.getContext(context)).getDatabaseName() : "MCK_" + MobiComKitClientService.getApplicationKey(ApplozicService.getContext(context)), null, DB_VERSION);
@@ -255,6 +269,9 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
     //Cleanup: private
     public MobiComDatabaseHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
         super(context, name, factory, version);
+        applozicClient = ApplozicClient.getInstance(context);
+        //WAL lets readers run on their own connections while a sync is writing, instead of waiting for it to finish
+        setWriteAheadLoggingEnabled(applozicClient.isDatabaseWriteAheadLoggingEnabled());
     }
 
     public static MobiComDatabaseHelper getInstance(Context context) {
@@ -267,18 +284,73 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
         return sInstance;
     }
 
+    /**
+     * Applies the connection settings from {@link ApplozicClient}. Called once when the connection is opened, not per query.
+     *
+     * <p>The pragmas apply to the primary (writing) connection. Changes to the settings take effect the next time the process starts.</p>
+     */
     @Override
-    public SQLiteDatabase getReadableDatabase() {
-        SQLiteDatabase database = super.getReadableDatabase();
-        database.enableWriteAheadLogging();
-        return database;
+    public void onConfigure(SQLiteDatabase database) {
+        super.onConfigure(database);
+        try {
+            //takes effect on a database created on this connection, an existing one is converted by vacuumIncrementally(int)
+            executePragma(database, "auto_vacuum=INCREMENTAL");
+            String synchronousMode = applozicClient.getDatabaseSynchronousMode();
+            if (!TextUtils.isEmpty(synchronousMode)) {
+                executePragma(database, "synchronous=" + synchronousMode);
+            }
+            int cacheSizeKb = applozicClient.getDatabaseCacheSizeKb();
+            if (cacheSizeKb > 0) {
+                //a negative value is the size in KiB, rather than in pages
+                executePragma(database, "cache_size=-" + cacheSizeKb);
+            }
+            long mmapSize = applozicClient.getDatabaseMmapSize();
+            if (mmapSize > 0) {
+                //ignored by SQLite builds without memory mapped I/O
+                executePragma(database, "mmap_size=" + mmapSize);
+            }
+        } catch (Exception e) {
+            Utils.printLog(context, TAG, "Failed to configure database connection: " + e.getMessage());
+        }
     }
 
-    @Override
-    public SQLiteDatabase getWritableDatabase() {
-        SQLiteDatabase database = super.getWritableDatabase();
-        database.enableWriteAheadLogging();
-        return database;
+    //some pragmas return a row, which execSQL does not allow
+    private void executePragma(SQLiteDatabase database, String pragma) {
+        Cursor cursor = database.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long queryPragma(SQLiteDatabase database, String pragma) {
+        Cursor cursor = database.rawQuery("PRAGMA " + pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Gives back up to <code>maxPages</code> free pages of the database file (left by deleted rows) to the file system.
+     *
+     * <p>A database created before incremental auto vacuum was enabled is converted first, with a full <code>VACUUM</code>.
+     * That rewrites the whole file and blocks the other connections while it runs, so it's only done once, from a background job.</p>
+     *
+     * @return the free pages left in the file
+     */
+    public long vacuumIncrementally(int maxPages) {
+        SQLiteDatabase database = getWritableDatabase();
+        if (queryPragma(database, "auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            Utils.printLog(context, TAG, "Converting the database to incremental auto vacuum");
+            executePragma(database, "auto_vacuum=INCREMENTAL");
+            database.execSQL("VACUUM");
+        } else {
+            executePragma(database, "incremental_vacuum(" + maxPages + ")");
+        }
+        return queryPragma(database, "freelist_count");
     }
 
     @Override
@@ -302,11 +374,20 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
         if (!DBUtils.isTableExists(database, CHANNEL_USER_X)) {
             database.execSQL(CREATE_CHANNEL_USER_X_TABLE);
         }
+        if (!DBUtils.isTableExists(database, DISAPPEARING_MESSAGE)) {
+            database.execSQL(CREATE_DISAPPEARING_MESSAGE_TABLE);
+        }
 
         //ALL indexes should go here after creating tables.
+        createIndexes(database);
+
+    }
+
+    private void createIndexes(SQLiteDatabase database) {
         database.execSQL(CREATE_INDEX_ON_CREATED_AT);
         database.execSQL(CREATE_INDEX_SMS_TYPE);
-
+        database.execSQL(CREATE_INDEX_SCHEDULE_SMS_TIMESTAMP);
+        database.execSQL(CREATE_INDEX_DISAPPEARING_MESSAGE_SCHEDULED_AT);
     }
 
     @Override
@@ -461,12 +542,16 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
                 database.execSQL(ALTER_CHANNEL_TABLE_FOR_KM_STATUS_COLUMN);
             }
 
-            database.execSQL(CREATE_INDEX_ON_CREATED_AT);
-            database.execSQL(CREATE_INDEX_SMS_TYPE);
+            if (!DBUtils.isTableExists(database, DISAPPEARING_MESSAGE)) {
+                database.execSQL(CREATE_DISAPPEARING_MESSAGE_TABLE);
+            }
+
             database.execSQL(ALTER_SMS_TABLE);
             database.execSQL(CREATE_SMS_TABLE);
             database.execSQL(INSERT_INTO_SMS_FROM_SMS_BACKUP_QUERY);
             database.execSQL(DROP_SMS_BACKUP);
+            //after re-creating the sms table, its old indexes are dropped along with the backup
+            createIndexes(database);
 
             new Thread(new Runnable() {
                 @Override
@@ -484,6 +569,10 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * Does nothing. The connection is opened once and shared by the whole process for its lifetime,
+     * so the many existing <code>close()</code> calls after each query don't tear it down and re-open it.
+     */
     @Override
     public synchronized void close() {
         //super.close();
@@ -493,17 +582,39 @@ public class MobiComDatabaseHelper extends SQLiteOpenHelper {
 
         SQLiteDatabase db = this.getWritableDatabase();
 
-        db.execSQL("delete from " + SCHEDULE_SMS_TABLE_NAME);
+        db.beginTransaction();
+        try {
+            db.execSQL("delete from " + SCHEDULE_SMS_TABLE_NAME);
+
+            db.execSQL("delete from " + SMS_TABLE_NAME);
 
-        db.execSQL("delete from " + SMS_TABLE_NAME);
+            db.execSQL("delete from " + CONTACT_TABLE_NAME);
 
-        db.execSQL("delete from " + CONTACT_TABLE_NAME);
+            db.execSQL("delete from " + CHANNEL);
 
-        db.execSQL("delete from " + CHANNEL);
+            db.execSQL("delete from " + CHANNEL_USER_X);
 
-        db.execSQL("delete from " + CHANNEL_USER_X);
+            db.execSQL("delete from " + CONVERSATION);
 
-        db.execSQL("delete from " + CONVERSATION);
+            db.execSQL("delete from " + DISAPPEARING_MESSAGE);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        AlEntityCache.getInstance().clear();
+        AlPresenceManager.getInstance(context).clear();
+        MentionHelper.clearMentionIndexes();
+
+        if (db.isWriteAheadLoggingEnabled()) {
+            try {
+                //the deleted pages would otherwise stay in the WAL file until the next automatic checkpoint
+                executePragma(db, "wal_checkpoint(TRUNCATE)");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
 
         // db.close();
 
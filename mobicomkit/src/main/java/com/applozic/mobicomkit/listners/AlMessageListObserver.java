@@ -0,0 +1,29 @@
+package com.applozic.mobicomkit.listners;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.conversation.AlMessageListQuery;
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.exception.ApplozicException;
+
+import java.util.List;
+
+/**
+ * Callback for an observed {@link AlMessageListQuery}. Both methods are called on the main thread, each one once at most.
+ */
+public interface AlMessageListObserver {
+    /**
+     * The page from the local database. Called first, without waiting for the server.
+     */
+    void onLocalResult(@NonNull List<Message> messageList);
+
+    /**
+     * The page after syncing with the server.
+     *
+     * @param messageList the complete page
+     * @param changedMessages the messages of the page that are new or were updated since {@link #onLocalResult(List)}. Empty if nothing changed
+     * @param e non-null if the messages couldn't be synced, <i>messageList</i> is then the local page
+     */
+    void onResult(@NonNull List<Message> messageList, @NonNull List<Message> changedMessages, @Nullable ApplozicException e);
+}
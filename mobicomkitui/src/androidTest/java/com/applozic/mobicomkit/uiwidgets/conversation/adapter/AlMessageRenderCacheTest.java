@@ -0,0 +1,73 @@
+package com.applozic.mobicomkit.uiwidgets.conversation.adapter;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.contact.BaseContactService;
+import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
+import com.applozic.mobicommons.people.contact.Contact;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(AndroidJUnit4.class)
+public class AlMessageRenderCacheTest {
+    BaseContactService contactService;
+    AlMessageRenderCache renderCache;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        contactService = mock(BaseContactService.class);
+        renderCache = new AlMessageRenderCache(context, new AlCustomizationSettings(), null, contactService);
+    }
+
+    @Test
+    public void get_afterClear_usesTheNewDisplayNameOfTheSender() {
+        Message message = createGroupMessage("key1", "user1");
+        when(contactService.getContactById("user1")).thenReturn(createContact("user1", "Alice"));
+        assertThat(renderCache.get(message).senderDisplayName).isEqualTo("Alice");
+
+        when(contactService.getContactById("user1")).thenReturn(createContact("user1", "Alicia"));
+        //the model is cached by the message, whose fields didn't change
+        assertThat(renderCache.get(message).senderDisplayName).isEqualTo("Alice");
+
+        renderCache.clear();
+        assertThat(renderCache.get(message).senderDisplayName).isEqualTo("Alicia");
+    }
+
+    @Test
+    public void get_changedMessage_isBuiltAgain() {
+        Message message = createGroupMessage("key1", "user1");
+        when(contactService.getContactById("user1")).thenReturn(createContact("user1", "Alice"));
+        AlMessageRenderCache.RenderModel renderModel = renderCache.get(message);
+        assertThat(renderCache.get(message)).isSameInstanceAs(renderModel);
+
+        message.setMessage("edited");
+        assertThat(renderCache.get(message)).isNotSameInstanceAs(renderModel);
+    }
+
+    private static Message createGroupMessage(String keyString, String userId) {
+        Message message = new Message();
+        message.setKeyString(keyString);
+        message.setGroupId(1);
+        message.setContactIds(userId);
+        message.setMessage("hello");
+        message.setCreatedAtTime(1L);
+        return message;
+    }
+
+    private static Contact createContact(String userId, String fullName) {
+        Contact contact = new Contact(userId);
+        contact.setFullName(fullName);
+        return contact;
+    }
+}
@@ -0,0 +1,123 @@
+package com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.utils;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.models.AlLinkPreviewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class AlLinkPreviewLoaderTest {
+    private static final String URL = "https://example.com/page";
+
+    Context context;
+    File diskCacheDirectory;
+    AtomicInteger fetchCount;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        diskCacheDirectory = new File(context.getCacheDir(), "al_link_previews_test");
+        deleteDiskCache();
+        fetchCount = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDiskCache();
+    }
+
+    @Test
+    public void isPermanentError_onlyForClientErrorsOtherThanRateLimits() {
+        assertThat(AlLinkPreviewLoader.isPermanentError(400)).isTrue();
+        assertThat(AlLinkPreviewLoader.isPermanentError(404)).isTrue();
+        assertThat(AlLinkPreviewLoader.isPermanentError(410)).isTrue();
+        assertThat(AlLinkPreviewLoader.isPermanentError(429)).isFalse();
+        assertThat(AlLinkPreviewLoader.isPermanentError(500)).isFalse();
+        assertThat(AlLinkPreviewLoader.isPermanentError(503)).isFalse();
+        assertThat(AlLinkPreviewLoader.isPermanentError(200)).isFalse();
+        assertThat(AlLinkPreviewLoader.isPermanentError(302)).isFalse();
+    }
+
+    @Test
+    public void loadPreview_withinTheDiskCacheTtl_isReadFromDisk() {
+        assertThat(createLoader(createPreview()).loadPreview(URL).getTitle()).isEqualTo("Title");
+
+        //a new loader has an empty memory cache
+        assertThat(createLoader(createPreview()).loadPreview(URL).getTitle()).isEqualTo("Title");
+        assertThat(fetchCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadPreview_afterTheDiskCacheTtl_isFetchedAgain() {
+        createLoader(createPreview()).loadPreview(URL);
+
+        File[] cacheFiles = diskCacheDirectory.listFiles();
+        assertThat(cacheFiles).hasLength(1);
+        assertThat(cacheFiles[0].setLastModified(System.currentTimeMillis() - AlLinkPreviewLoader.DISK_CACHE_TTL_MILLIS - 60 * 1000)).isTrue();
+
+        assertThat(createLoader(createPreview()).loadPreview(URL)).isNotNull();
+        assertThat(fetchCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void loadPreview_afterAFailure_isNotRetriedRightAway() {
+        AlLinkPreviewLoader loader = createLoader(null);
+        assertThat(loader.loadPreview(URL)).isNull();
+        assertThat(loader.loadPreview(URL)).isNull();
+        assertThat(fetchCount.get()).isEqualTo(1);
+        assertThat(diskCacheDirectory.exists() ? diskCacheDirectory.listFiles() : new File[0]).isEmpty();
+    }
+
+    @Test
+    public void loadPreview_ofAnInvalidUrl_isCached() {
+        AlLinkPreviewModel invalidPreview = new AlLinkPreviewModel();
+        invalidPreview.setInvalidUrl(true);
+
+        AlLinkPreviewLoader loader = createLoader(invalidPreview);
+        assertThat(loader.loadPreview(URL).isInvalidUrl()).isTrue();
+        assertThat(loader.getCachedPreview(URL).isInvalidUrl()).isTrue();
+        assertThat(createLoader(invalidPreview).loadPreview(URL).isInvalidUrl()).isTrue();
+        assertThat(fetchCount.get()).isEqualTo(1);
+    }
+
+    private AlLinkPreviewLoader createLoader(@Nullable final AlLinkPreviewModel fetchResult) {
+        return new AlLinkPreviewLoader(context, diskCacheDirectory) {
+            @Override
+            @Nullable AlLinkPreviewModel fetchPreview(String url) {
+                fetchCount.incrementAndGet();
+                return fetchResult;
+            }
+        };
+    }
+
+    private AlLinkPreviewModel createPreview() {
+        AlLinkPreviewModel preview = new AlLinkPreviewModel();
+        preview.setTitle("Title");
+        preview.setDescription("Description");
+        preview.setUrl("example.com");
+        return preview;
+    }
+
+    private void deleteDiskCache() {
+        File[] files = diskCacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        diskCacheDirectory.delete();
+    }
+}
@@ -106,6 +106,10 @@ public class AlCustomizationSettings extends JsonMarker {
     private boolean showAllDeviceContacts = true;
     private boolean poweredByApplozic = false;
     private boolean enableImageCompression = false;
+    private int imageCompressionMaxSize = 600;
+    private int imageCompressionQuality = 90;
+    private int meteredNetworkImageCompressionMaxSize = 600;
+    private int meteredNetworkImageCompressionQuality = 90;
     private boolean disableGlobalStoragePermission = true;
     private boolean enableMessageFastScroll = false;
     private boolean isContactSearchFromServer = false;
@@ -578,6 +582,22 @@ public class AlCustomizationSettings extends JsonMarker {
         return enableImageCompression;
     }
 
+    /**
+     * @param meteredNetwork true for a mobile network, or any other network the user may be paying for
+     * @return the max width and height in pixels of a compressed image
+     */
+    public int getImageCompressionMaxSize(boolean meteredNetwork) {
+        return meteredNetwork ? meteredNetworkImageCompressionMaxSize : imageCompressionMaxSize;
+    }
+
+    /**
+     * @param meteredNetwork true for a mobile network, or any other network the user may be paying for
+     * @return the JPEG quality (0-100) of a compressed image
+     */
+    public int getImageCompressionQuality(boolean meteredNetwork) {
+        return meteredNetwork ? meteredNetworkImageCompressionQuality : imageCompressionQuality;
+    }
+
     public boolean isGlobalStoagePermissionDisabled() {
         return disableGlobalStoragePermission;
     }
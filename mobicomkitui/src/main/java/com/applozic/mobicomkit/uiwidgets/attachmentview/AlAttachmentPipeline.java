@@ -0,0 +1,148 @@
+package com.applozic.mobicomkit.uiwidgets.attachmentview;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicomkit.api.attachment.FileClientService;
+import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.task.AlExecutors;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.FutureTarget;
+
+import java.io.File;
+import java.net.URLConnection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Internal class.
+ *
+ * <p>Prepares the files selected for a multi-attachment send. Each file goes through these stages, and different files are in different stages at the same time:</p>
+ *
+ * <ul>
+ * <li><i>decode</i>: images to compress are decoded and scaled down on the Glide threads. At most {@link #MAX_DECODED_IMAGES} images are held in memory,
+ * the next decode starts when a compressed image is written.</li>
+ * <li><i>compress</i>: the scaled image is written to its file as a JPEG on one of {@link #COMPRESS_THREADS} threads,
+ * straight from the bitmap (see {@link AlBitmapUtils#writeJpeg(Drawable, File, int)}).</li>
+ * <li><i>copy</i>: the other files, and images that couldn't be compressed, are copied as they are on one of {@link #COPY_THREADS} threads.</li>
+ * </ul>
+ *
+ * <p>The size and quality of the compressed images are the ones set in the {@link AlCustomizationSettings} for the network active when the file was added.</p>
+ *
+ * <p>Each prepared file is sent as its own message, so their uploads run in parallel once the send is confirmed.</p>
+ */
+public class AlAttachmentPipeline {
+    private static final String TAG = "AlAttachmentPipeline";
+    private static final int MAX_DECODED_IMAGES = 2;
+    private static final int COMPRESS_THREADS = 2;
+    private static final int COPY_THREADS = 2;
+
+    private static AlAttachmentPipeline attachmentPipeline;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService decodeExecutor;
+    private final ExecutorService compressExecutor;
+    private final ExecutorService copyExecutor;
+    private final Semaphore decodedImages = new Semaphore(MAX_DECODED_IMAGES);
+
+    private AlAttachmentPipeline(Context context) {
+        this.context = ApplozicService.getContext(context);
+        decodeExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-decode", 1);
+        compressExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-compress", COMPRESS_THREADS);
+        copyExecutor = AlExecutors.newIdleTimeoutExecutor(TAG + "-copy", COPY_THREADS);
+    }
+
+    public static synchronized @NonNull AlAttachmentPipeline getInstance(@Nullable Context context) {
+        if (attachmentPipeline == null) {
+            attachmentPipeline = new AlAttachmentPipeline(context);
+        }
+        return attachmentPipeline;
+    }
+
+    /**
+     * Writes the content of the uri to the file, compressed if it's an image and compression is enabled.
+     *
+     * @param callback called on the main thread once the file is written
+     */
+    public void process(@NonNull final Uri uri, @NonNull final File file, @Nullable AlCustomizationSettings alCustomizationSettings, @NonNull final Callback callback) {
+        if (alCustomizationSettings == null || !alCustomizationSettings.isImageCompressionEnabled() || !isImage(file)) {
+            copyExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    copy(uri, file, callback);
+                }
+            });
+            return;
+        }
+
+        boolean meteredNetwork = Utils.isActiveNetworkMetered(context);
+        final int maxSize = alCustomizationSettings.getImageCompressionMaxSize(meteredNetwork);
+        final int quality = alCustomizationSettings.getImageCompressionQuality(meteredNetwork);
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    decodedImages.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    copy(uri, file, callback);
+                    return;
+                }
+                final RequestManager requestManager = Glide.with(context);
+                final FutureTarget<Drawable> target = AlBitmapUtils.decode(requestManager, uri, maxSize);
+                compressExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean compressed = false;
+                        try {
+                            compressed = AlBitmapUtils.writeJpeg(target.get(), file, quality);
+                        } catch (Exception e) {
+                            Utils.printLog(context, TAG, "Could not compress " + file.getName() + ": " + e.getMessage());
+                        } finally {
+                            requestManager.clear(target);
+                            decodedImages.release();
+                        }
+                        if (compressed) {
+                            postResult(file, callback);
+                        } else {
+                            copy(uri, file, callback);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void copy(Uri uri, File file, Callback callback) {
+        new FileClientService(context).writeFile(uri, file);
+        postResult(file, callback);
+    }
+
+    private void postResult(final File file, final Callback callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onProcessed(file);
+            }
+        });
+    }
+
+    private static boolean isImage(File file) {
+        String mimeType = URLConnection.guessContentTypeFromName(file.getName());
+        return mimeType != null && mimeType.contains("image");
+    }
+
+    public interface Callback {
+        void onProcessed(@NonNull File file);
+    }
+}
@@ -5,21 +5,29 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.FragmentActivity;
 import android.util.Log;
 
+import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
+import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.FutureTarget;
 import com.bumptech.glide.request.RequestOptions;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public class AlBitmapUtils {
 
     private static final int MAX_COMPRESSION_QUALITY = 90;
+    private static final int MAX_SIZE = 600;
     private static final String TAG = "AlBitmapUtils";
 
     public static boolean compress(Uri uri, File file, FragmentActivity fragmentActivity) {
@@ -32,57 +40,91 @@ public class AlBitmapUtils {
     }
 
     public static boolean compress(Uri uri, File file, FragmentActivity fragmentActivity, Context context) {
+        if (fragmentActivity != null) {
+            return compress(uri, file, Glide.with(fragmentActivity), MAX_SIZE, MAX_COMPRESSION_QUALITY);
+        } else if (context != null) {
+            return compress(uri, file, Glide.with(context), MAX_SIZE, MAX_COMPRESSION_QUALITY);
+        }
+        return false;
+    }
+
+    /**
+     * Compresses with the size and quality set in the {@link AlCustomizationSettings} for the type of the active network.
+     */
+    public static boolean compress(Uri uri, File file, @NonNull Context context, @NonNull AlCustomizationSettings alCustomizationSettings) {
+        boolean meteredNetwork = Utils.isActiveNetworkMetered(context);
+        return compress(uri, file, Glide.with(context), alCustomizationSettings.getImageCompressionMaxSize(meteredNetwork), alCustomizationSettings.getImageCompressionQuality(meteredNetwork));
+    }
 
+    /**
+     * Scales the image down to fit in maxSize x maxSize, and writes it to the file as a JPEG.
+     * The file is left as it is if the image couldn't be compressed.
+     *
+     * @param maxSize the max width and height in pixels
+     * @param quality the JPEG quality, 0-100
+     */
+    public static boolean compress(Uri uri, File file, @NonNull RequestManager requestManager, int maxSize, int quality) {
         if (uri == null || file == null) {
             return false;
         }
 
-        byte[] bytes;
-        Bitmap scaledBitMap;
+        FutureTarget<Drawable> target = decode(requestManager, uri, maxSize);
         try {
+            return writeJpeg(target.get(), file, quality);
+        } catch (Exception e) {
+            Log.i(TAG, "Got error in compression :" + e.getMessage());
+        } finally {
+            requestManager.clear(target);
+        }
+        return false;
+    }
 
-            RequestOptions req = new RequestOptions();
-            req.downsample(DownsampleStrategy.AT_MOST);
-            Drawable drawable = null;
-
-            if (fragmentActivity != null) {
-                drawable = Glide.with(fragmentActivity).load(uri).apply(req).submit(600, 600).get();
-
-            } else if (context != null) {
-                drawable = Glide.with(context).load(uri).apply(req).submit(600, 600).get();
-            }
-
-            if (drawable == null) {
-                return false;
-            }
-            scaledBitMap = ((BitmapDrawable) drawable).getBitmap();
-
-            if (scaledBitMap != null) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                scaledBitMap.compress(Bitmap.CompressFormat.JPEG, MAX_COMPRESSION_QUALITY, baos);
-                bytes = baos.toByteArray();
-
-                File sizeOfFile = new File(file.getAbsolutePath());
-
-                String path = sizeOfFile.getAbsolutePath();
+    /**
+     * Starts decoding the image on the Glide threads. Clear the target with the request manager once the image has been used.
+     */
+    static @NonNull FutureTarget<Drawable> decode(@NonNull RequestManager requestManager, @NonNull Uri uri, int maxSize) {
+        RequestOptions req = new RequestOptions();
+        req.downsample(DownsampleStrategy.AT_MOST);
+        return requestManager.load(uri).apply(req).submit(maxSize, maxSize);
+    }
 
-                if (sizeOfFile.exists()) {
-                    boolean deleted = sizeOfFile.delete();
-                }
+    /**
+     * Writes the image straight to a temporary file next to the given one, which then replaces it.
+     *
+     * @return false if the image isn't a bitmap (an animated gif for example) or couldn't be written
+     */
+    static boolean writeJpeg(@Nullable Drawable drawable, @NonNull File file, int quality) {
+        if (!(drawable instanceof BitmapDrawable)) {
+            return false;
+        }
+        Bitmap scaledBitMap = ((BitmapDrawable) drawable).getBitmap();
+        if (scaledBitMap == null) {
+            return false;
+        }
 
-                BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(new File(path)));
-                bos.write(bytes);
-                bos.flush();
-                bos.close();
+        File tempFile = new File(file.getAbsolutePath() + ".tmp");
+        OutputStream outputStream = null;
+        try {
+            outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            boolean compressed = scaledBitMap.compress(Bitmap.CompressFormat.JPEG, Math.max(0, Math.min(quality, 100)), outputStream);
+            outputStream.close();
+            outputStream = null;
 
+            if (compressed && (!file.exists() || file.delete()) && tempFile.renameTo(file)) {
                 return true;
-
             }
-        } catch (Exception e) {
+        } catch (IOException e) {
             Log.i(TAG, "Got error in compression :" + e.getMessage());
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
         }
+        tempFile.delete();
         return false;
-
     }
-
 }
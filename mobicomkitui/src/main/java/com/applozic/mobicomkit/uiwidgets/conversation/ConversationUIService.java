@@ -630,6 +630,28 @@ public class ConversationUIService {
         }
     }
 
+    /**
+     * Updates the delivery and read status of the messages of the open conversation, in one pass.
+     */
+    public void updateDeliveryStatus(List<Message> messages) {
+        if (!BroadcastService.isIndividual()) {
+            return;
+        }
+        ConversationFragment conversationFragment = getConversationFragment();
+        if (conversationFragment == null) {
+            return;
+        }
+        List<Message> conversationMessages = new ArrayList<>();
+        for (Message message : messages) {
+            if (conversationFragment.isMessageForCurrentConversation(message)) {
+                conversationMessages.add(message);
+            }
+        }
+        if (!conversationMessages.isEmpty()) {
+            conversationFragment.updateDeliveryStatus(conversationMessages);
+        }
+    }
+
     public void deleteConversation(Contact contact, Integer channelKey, String response) {
         if (BroadcastService.isIndividual()) {
             if ("success".equals(response) && getConversationFragment() != null) {
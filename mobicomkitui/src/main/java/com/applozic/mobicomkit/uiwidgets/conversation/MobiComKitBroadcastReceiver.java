@@ -5,11 +5,16 @@ import android.content.Context;
 import android.content.Intent;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
 import androidx.fragment.app.FragmentActivity;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import com.applozic.mobicomkit.ApplozicClient;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.broadcast.AlEventBus;
+import com.applozic.mobicomkit.broadcast.AlMessageStatusUpdateEvent;
+import com.applozic.mobicomkit.broadcast.AlMessageUpdateEvent;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
 import com.applozic.mobicomkit.contact.AppContactService;
 import com.applozic.mobicomkit.contact.BaseContactService;
@@ -19,45 +24,88 @@ import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.applozic.mobicommons.json.GsonUtils;
 import com.applozic.mobicommons.people.contact.Contact;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Created by devashish on 4/2/15.
  */
-public class MobiComKitBroadcastReceiver extends BroadcastReceiver {
+public class MobiComKitBroadcastReceiver extends BroadcastReceiver implements AlEventBus.Listener<AlMessageUpdateEvent> {
 
     private static final String TAG = "MTBroadcastReceiver";
 
+    private Context context;
     private ConversationUIService conversationUIService;
     private BaseContactService baseContactService;
     private boolean hideActionMessages;
+    private final AlEventBus.Listener<AlMessageStatusUpdateEvent> messageStatusListener = new AlEventBus.Listener<AlMessageStatusUpdateEvent>() {
+        @Override
+        public void onEvent(@NonNull AlMessageStatusUpdateEvent messageStatusUpdateEvent) {
+            updateMessageStatus(messageStatusUpdateEvent.getMessages());
+        }
+    };
 
     public MobiComKitBroadcastReceiver(FragmentActivity fragmentActivity) {
+        this.context = fragmentActivity.getApplicationContext();
         this.conversationUIService = new ConversationUIService(fragmentActivity);
         this.baseContactService = new AppContactService(fragmentActivity);
         this.hideActionMessages = ApplozicClient.getInstance(fragmentActivity).isActionMessagesHidden();
     }
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        String action = intent.getAction();
-        Message message = null;
-        String messageJson = intent.getStringExtra(MobiComKitConstants.MESSAGE_JSON_INTENT);
-        if (!TextUtils.isEmpty(messageJson)) {
-            message = (Message) GsonUtils.getObjectFromJson(messageJson, Message.class);
-
-            if (message != null) {
-                if (hideActionMessages && message.isActionMessage()) {
-                    message.setHidden(true);
-                }
+    /**
+     * Registers for the broadcasts, and for the {@link AlMessageUpdateEvent}s and {@link AlMessageStatusUpdateEvent}s on the {@link AlEventBus}.
+     */
+    public void register(Context context) {
+        LocalBroadcastManager.getInstance(context).registerReceiver(this, BroadcastService.getInternalIntentFilter());
+        AlEventBus.getInstance().register(AlMessageUpdateEvent.class, this, AlEventBus.DispatchMode.MAIN_THREAD);
+        AlEventBus.getInstance().register(AlMessageStatusUpdateEvent.class, messageStatusListener, AlEventBus.DispatchMode.MAIN_THREAD);
+    }
+
+    public void unregister(Context context) {
+        LocalBroadcastManager.getInstance(context).unregisterReceiver(this);
+        AlEventBus.getInstance().unregister(this);
+        AlEventBus.getInstance().unregister(messageStatusListener);
+    }
+
+    private void updateMessageStatus(List<Message> messages) {
+        Utils.printLog(context, TAG, "Received status update of " + messages.size() + " messages");
+
+        //the conversation list only needs the latest message of each conversation
+        Map<String, Message> latestMessages = new LinkedHashMap<>();
+        for (Message message : messages) {
+            if (hideActionMessages && message.isActionMessage()) {
+                message = getHiddenCopy(message);
+            }
+            if (message.isSentToMany()) {
+                continue;
             }
+            String conversationKey = message.getGroupId() != null ? "group:" + message.getGroupId() : "user:" + message.getContactIds();
+            Message latestMessage = latestMessages.get(conversationKey);
+            if (latestMessage == null || latestMessage.getCreatedAtTime() == null
+                    || (message.getCreatedAtTime() != null && message.getCreatedAtTime() >= latestMessage.getCreatedAtTime())) {
+                latestMessages.put(conversationKey, message);
+            }
+        }
+        for (Message message : latestMessages.values()) {
+            conversationUIService.addMessage(message);
+        }
+        conversationUIService.updateDeliveryStatus(messages);
+    }
+
+    @Override
+    public void onEvent(@NonNull AlMessageUpdateEvent messageUpdateEvent) {
+        String action = messageUpdateEvent.getAction();
+        Message message = messageUpdateEvent.getMessage();
+        if (hideActionMessages && message.isActionMessage()) {
+            message = getHiddenCopy(message);
         }
 
-        Utils.printLog(context, TAG, "Received broadcast, action: " + action + ", message: " + message);
+        Utils.printLog(context, TAG, "Received message update, action: " + action + ", message: " + message);
 
-        if (message != null && !message.isSentToMany()) {
+        if (!message.isSentToMany()) {
             conversationUIService.addMessage(message);
-        } else if (message != null && message.isSentToMany() && BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString().equals(intent.getAction())) {
+        } else if (BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString().equals(action)) {
             for (String toField : message.getTo().split(",")) {
                 Message singleMessage = new Message(message);
                 singleMessage.setKeyString(message.getKeyString());
@@ -67,8 +115,43 @@ public class MobiComKitBroadcastReceiver extends BroadcastReceiver {
             }
         }
 
+        if (BroadcastService.INTENT_ACTIONS.MESSAGE_SYNC_ACK_FROM_SERVER.toString().equals(action)) {
+            conversationUIService.updateMessageKeyString(message);
+        } else if (BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString().equals(action)) {
+            conversationUIService.syncMessages(message, null);
+        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_DELIVERY.toString().equals(action) ||
+                BroadcastService.INTENT_ACTIONS.MESSAGE_READ_AND_DELIVERED.toString().equals(action)) {
+            conversationUIService.updateDeliveryStatus(message, message.getContactIds());
+        } else if (BroadcastService.INTENT_ACTIONS.UPLOAD_ATTACHMENT_FAILED.toString().equals(action)) {
+            conversationUIService.updateUploadFailedStatus(message);
+        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_ATTACHMENT_DOWNLOAD_DONE.toString().equals(action)) {
+            conversationUIService.updateDownloadStatus(message);
+        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_ATTACHMENT_DOWNLOAD_FAILD.toString().equals(action)) {
+            conversationUIService.updateDownloadFailed(message);
+        }
+    }
+
+    /**
+     * The messages of the events are shared with the other listeners, so they are hidden on a full copy
+     * ({@link Message#Message(Message)} doesn't copy the key).
+     */
+    private Message getHiddenCopy(@NonNull Message message) {
+        Message hiddenMessage = (Message) GsonUtils.getObjectFromJson(GsonUtils.getJsonFromObject(message, Message.class), Message.class);
+        hiddenMessage.setHidden(true);
+        return hiddenMessage;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        //the message updates are received from the AlEventBus, see onEvent()
+        if (intent.hasExtra(MobiComKitConstants.MESSAGE_JSON_INTENT)) {
+            return;
+        }
+
+        String action = intent.getAction();
+        Utils.printLog(context, TAG, "Received broadcast, action: " + action);
+
         String keyString = intent.getStringExtra("keyString");
-        String userId = message != null ? message.getContactIds() : "";
 
         if (BroadcastService.INTENT_ACTIONS.INSTRUCTION.toString().equals(action)) {
             InstructionUtil.showInstruction(context, intent.getIntExtra("resId", -1), intent.getBooleanExtra("actionable", false), R.color.instruction_color);
@@ -78,16 +161,9 @@ public class MobiComKitBroadcastReceiver extends BroadcastReceiver {
             conversationUIService.downloadConversations(true);
         } else if (BroadcastService.INTENT_ACTIONS.LOAD_MORE.toString().equals(action)) {
             conversationUIService.setLoadMore(intent.getBooleanExtra("loadMore", true));
-        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_SYNC_ACK_FROM_SERVER.toString().equals(action)) {
-            conversationUIService.updateMessageKeyString(message);
-        } else if (BroadcastService.INTENT_ACTIONS.SYNC_MESSAGE.toString().equals(intent.getAction())) {
-            conversationUIService.syncMessages(message, keyString);
         } else if (BroadcastService.INTENT_ACTIONS.DELETE_MESSAGE.toString().equals(intent.getAction())) {
-            userId = intent.getStringExtra("contactNumbers");
+            String userId = intent.getStringExtra("contactNumbers");
             conversationUIService.deleteMessage(keyString, userId);
-        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_DELIVERY.toString().equals(action) ||
-                BroadcastService.INTENT_ACTIONS.MESSAGE_READ_AND_DELIVERED.toString().equals(action)) {
-            conversationUIService.updateDeliveryStatus(message, userId);
         } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_DELIVERY_FOR_CONTACT.toString().equals(action)) {
             conversationUIService.updateDeliveryStatusForContact(intent.getStringExtra("contactId"));
         } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_READ_AND_DELIVERED_FOR_CONTECT.toString().equals(action)) {
@@ -101,12 +177,6 @@ public class MobiComKitBroadcastReceiver extends BroadcastReceiver {
                 contact = baseContactService.getContactById(contactNumber);
             }
             conversationUIService.deleteConversation(contact, channelKey, response);
-        } else if (BroadcastService.INTENT_ACTIONS.UPLOAD_ATTACHMENT_FAILED.toString().equals(action) && message != null) {
-            conversationUIService.updateUploadFailedStatus(message);
-        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_ATTACHMENT_DOWNLOAD_DONE.toString().equals(action) && message != null) {
-            conversationUIService.updateDownloadStatus(message);
-        } else if (BroadcastService.INTENT_ACTIONS.MESSAGE_ATTACHMENT_DOWNLOAD_FAILD.toString().equals(action) && message != null) {
-            conversationUIService.updateDownloadFailed(message);
         } else if (BroadcastService.INTENT_ACTIONS.UPDATE_TYPING_STATUS.toString().equals(action)) {
             String currentUserId = intent.getStringExtra("userId");
             String isTyping = intent.getStringExtra("isTyping");
@@ -308,7 +308,7 @@ public class ChannelInfoActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        LocalBroadcastManager.getInstance(this).unregisterReceiver(mobiComKitBroadcastReceiver);
+        mobiComKitBroadcastReceiver.unregister(this);
         if (refreshBroadcast != null) {
             LocalBroadcastManager.getInstance(this).unregisterReceiver(refreshBroadcast);
         }
@@ -320,7 +320,7 @@ public class ChannelInfoActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        LocalBroadcastManager.getInstance(this).registerReceiver(mobiComKitBroadcastReceiver, BroadcastService.getIntentFilter());
+        mobiComKitBroadcastReceiver.register(this);
         LocalBroadcastManager.getInstance(this).registerReceiver(refreshBroadcast, getIntentFilter());
         if (channel != null) {
             BroadcastService.currentInfoId = String.valueOf(channel.getKey());
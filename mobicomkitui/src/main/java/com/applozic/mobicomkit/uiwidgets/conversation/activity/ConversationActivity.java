@@ -45,7 +45,6 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import com.applozic.mobicomkit.Applozic;
 import com.applozic.mobicomkit.ApplozicClient;
@@ -500,7 +499,7 @@ public class ConversationActivity extends AppCompatActivity implements MessageCo
             }
         }
 
-        LocalBroadcastManager.getInstance(this).registerReceiver(mobiComKitBroadcastReceiver, BroadcastService.getIntentFilter());
+        mobiComKitBroadcastReceiver.register(this);
     }
 
     @Override
@@ -1353,7 +1352,7 @@ public class ConversationActivity extends AppCompatActivity implements MessageCo
             isActivityDestroyed = true;
 
             if (mobiComKitBroadcastReceiver != null) {
-                LocalBroadcastManager.getInstance(this).unregisterReceiver(mobiComKitBroadcastReceiver);
+                mobiComKitBroadcastReceiver.unregister(this);
             }
             if (connectivityReceiver != null) {
                 unregisterReceiver(connectivityReceiver);
@@ -3,7 +3,7 @@ package com.applozic.mobicomkit.uiwidgets.conversation.activity;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
-import android.content.Context;
+import android.content.ClipData;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -13,6 +13,7 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.provider.OpenableColumns;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.text.TextUtils;
@@ -32,18 +33,14 @@ import com.applozic.mobicomkit.listners.AttachmentFilteringListener;
 import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
 import com.applozic.mobicomkit.uiwidgets.ApplozicSetting;
 import com.applozic.mobicomkit.uiwidgets.R;
-import com.applozic.mobicomkit.uiwidgets.attachmentview.AlBitmapUtils;
+import com.applozic.mobicomkit.uiwidgets.attachmentview.AlAttachmentPipeline;
 import com.applozic.mobicomkit.uiwidgets.conversation.ConversationUIService;
 import com.applozic.mobicomkit.uiwidgets.conversation.adapter.MobiComAttachmentGridViewAdapter;
 import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.applozic.mobicommons.file.FileUtils;
 import com.applozic.mobicommons.json.GsonUtils;
-import com.applozic.mobicommons.task.AlAsyncTask;
-import com.applozic.mobicommons.task.AlTask;
 
 import java.io.File;
-import java.lang.ref.WeakReference;
-import java.net.URLConnection;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -86,6 +83,9 @@ public class MobiComAttachmentSelectorActivity extends AppCompatActivity {
     private MobiComAttachmentGridViewAdapter imagesAdapter;
 
     private boolean isActivityDestroyed;
+    private int pendingFileCount;
+    private int fileNumber;
+    private ProgressDialog progressDialog;
     private FileUtils.GalleryFilterOptions choosenOption;
 
     private FileUtils.GalleryFilterOptions getFilterOptions() {
@@ -140,6 +140,7 @@ public class MobiComAttachmentSelectorActivity extends AppCompatActivity {
         if (imageUri == null) {
             Intent getContentIntent = FileUtils.createGetContentIntent(getFilterOptions(), getPackageManager());
             getContentIntent.putExtra(Intent.EXTRA_LOCAL_ONLY, true);
+            getContentIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
             startActivityForResult(getContentIntent, REQUEST_CODE_ATTACH_PHOTO);
         }
         connectivityReceiver = new ConnectivityReceiver();
@@ -289,10 +290,25 @@ public class MobiComAttachmentSelectorActivity extends AppCompatActivity {
             e.printStackTrace();
         }
 
-        if (resultCode == Activity.RESULT_OK) {
-            final Uri selectedFileUri = (intent == null ? null : intent.getData());
-            Utils.printLog(MobiComAttachmentSelectorActivity.this, TAG, "selectedFileUri :: " + selectedFileUri);
-            if (selectedFileUri != null) {
+        if (resultCode == Activity.RESULT_OK && intent != null) {
+            List<Uri> selectedFileUris = new ArrayList<>();
+            ClipData clipData = intent.getClipData();
+            if (clipData != null) {
+                for (int i = 0; i < clipData.getItemCount(); i++) {
+                    if (clipData.getItemAt(i).getUri() != null) {
+                        selectedFileUris.add(clipData.getItemAt(i).getUri());
+                    }
+                }
+            } else if (intent.getData() != null) {
+                selectedFileUris.add(intent.getData());
+            }
+            int allowedFileCount = alCustomizationSettings.getMaxAttachmentAllowed() - attachmentFileList.size() - pendingFileCount;
+            if (selectedFileUris.size() > allowedFileCount) {
+                Toast.makeText(this, R.string.mobicom_max_attachment_warning, Toast.LENGTH_LONG).show();
+                selectedFileUris = selectedFileUris.subList(0, Math.max(allowedFileCount, 0));
+            }
+            for (final Uri selectedFileUri : selectedFileUris) {
+                Utils.printLog(MobiComAttachmentSelectorActivity.this, TAG, "selectedFileUri :: " + selectedFileUri);
                 if (getApplicationContext() instanceof AttachmentFilteringListener) {
                     AttachmentFilteringListener filteringListener = (AttachmentFilteringListener) getApplicationContext();
                     filteringListener.onAttachmentSelected(this, selectedFileUri, new AlCallback() {
@@ -347,22 +363,47 @@ public class MobiComAttachmentSelectorActivity extends AppCompatActivity {
                 if (TextUtils.isEmpty(format)) {
                     return;
                 }
-                fileNameToWrite = timeStamp + "." + format;
+                fileNameToWrite = timeStamp + "_" + fileNumber++ + "." + format;
             } else {
-                fileNameToWrite = timeStamp + "." + fileFormat;
+                fileNameToWrite = timeStamp + "_" + fileNumber++ + "." + fileFormat;
             }
 
             File mediaFile = FileClientService.getFilePath(fileNameToWrite, getApplicationContext(), mimeType);
-            AlTask.execute(new FileTaskAsync(mediaFile, selectedFileUri, this));
+            processFile(selectedFileUri, mediaFile);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    private void processFile(Uri uri, File file) {
+        if (pendingFileCount++ == 0) {
+            progressDialog = new ProgressDialog(this);
+            progressDialog.setIndeterminate(true);
+            progressDialog.setMessage(getString(R.string.applozic_contacts_loading_info));
+            progressDialog.show();
+        }
+        AlAttachmentPipeline.getInstance(this).process(uri, file, alCustomizationSettings, new AlAttachmentPipeline.Callback() {
+            @Override
+            public void onProcessed(@NonNull File file) {
+                if (isFinishing() || isActivityDestroyed) {
+                    return;
+                }
+                if (--pendingFileCount == 0 && progressDialog != null && progressDialog.isShowing()) {
+                    progressDialog.dismiss();
+                }
+                addUri(Uri.parse(file.getAbsolutePath()));
+                imagesAdapter.notifyDataSetChanged();
+            }
+        });
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         isActivityDestroyed = true;
+        if (progressDialog != null && progressDialog.isShowing()) {
+            progressDialog.dismiss();
+        }
         try {
             if (connectivityReceiver != null) {
                 unregisterReceiver(connectivityReceiver);
@@ -413,64 +454,4 @@ public class MobiComAttachmentSelectorActivity extends AppCompatActivity {
         }
         return true;
     }
-
-    public class FileTaskAsync extends AlAsyncTask<Integer, Boolean> {
-        WeakReference<Context> context;
-        FileClientService fileClientService;
-        File file;
-        Uri uri;
-        ProgressDialog progressDialog;
-
-        public FileTaskAsync(File file, Uri uri, Context context) {
-            this.context = new WeakReference<Context>(context);
-            this.file = file;
-            this.uri = uri;
-            this.fileClientService = new FileClientService(this.context.get());
-
-        }
-
-        @Override
-        protected void onPreExecute() {
-            super.onPreExecute();
-            progressDialog = new ProgressDialog(context.get());
-            progressDialog.setIndeterminate(true);
-            progressDialog.setMessage(context.get().getString(R.string.applozic_contacts_loading_info));
-            progressDialog.show();
-        }
-
-        @Override
-        protected Boolean doInBackground() {
-            String format = URLConnection.guessContentTypeFromName(file.getName());
-
-            if (fileClientService != null) {
-                fileClientService.writeFile(uri, file);
-            }
-
-            if (format == null) {
-                return true;
-            }
-
-            if (alCustomizationSettings != null && alCustomizationSettings.isImageCompressionEnabled() && format.contains("image")) {
-                boolean isCompressionSuccess = AlBitmapUtils.compress(uri, file, context.get());
-            }
-            return true;
-        }
-
-        @Override
-        protected void onPostExecute(Boolean b) {
-            super.onPostExecute(b);
-            if (MobiComAttachmentSelectorActivity.this.isFinishing() || isActivityDestroyed || context == null || context.get() == null) {
-                return;
-            }
-            if (progressDialog != null && progressDialog.isShowing()) {
-                progressDialog.dismiss();
-            }
-            if (file == null) {
-                return;
-            }
-            Uri uri = Uri.parse(file.getAbsolutePath());
-            addUri(uri);
-            imagesAdapter.notifyDataSetChanged();
-        }
-    }
 }
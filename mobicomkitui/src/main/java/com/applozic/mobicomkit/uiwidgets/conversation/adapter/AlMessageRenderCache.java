@@ -0,0 +1,235 @@
+package com.applozic.mobicomkit.uiwidgets.conversation.adapter;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Build;
+import android.text.Html;
+import android.text.Spannable;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.applozic.mobicomkit.api.conversation.Message;
+import com.applozic.mobicomkit.api.mention.MentionHelper;
+import com.applozic.mobicomkit.contact.BaseContactService;
+import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
+import com.applozic.mobicomkit.uiwidgets.alphanumbericcolor.AlphaNumberColorUtil;
+import com.applozic.mobicommons.commons.core.utils.DateUtils;
+import com.applozic.mobicommons.emoticon.EmojiconHandler;
+import com.applozic.mobicommons.emoticon.EmoticonUtils;
+import com.applozic.mobicommons.people.contact.Contact;
+import com.applozic.mobicommons.task.AlExecutors;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Internal class.
+ *
+ * <p>Keeps the parts of a message row for {@link DetailedConversationAdapter} that are expensive to build:
+ * the message text with its mention and emoji spans, the formatted time and the sender's name and color.</p>
+ *
+ * <p>The {@link RenderModel}s are built on a background thread for the messages around the bound position, ahead of binding,
+ * and cached by the message key. The background thread works on copies of the messages taken on the main thread, since the adapter's
+ * messages are changed on the main thread. It is shared by all the caches and stops when idle. A model records the version of the message it was built from (see {@link #getVersion(Message)}),
+ * so a model of a message that changed since is built again.
+ * Binding a message that has no model yet builds it on the calling thread.</p>
+ *
+ * <p>The display names of the sender and the mentioned users aren't part of the version, looking them up on every bind would cost
+ * what the cache saves. The cache is cleared instead when user details change, see {@link DetailedConversationAdapter#refreshContactData()}.</p>
+ *
+ * <p>Colors from {@link AlCustomizationSettings} are parsed once, see {@link #getColor(String)}.</p>
+ */
+class AlMessageRenderCache {
+    private static final String TAG = "AlMessageRenderCache";
+    private static final int CACHE_SIZE = 500;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final ExecutorService prefetchExecutor = AlExecutors.newIdleTimeoutExecutor(TAG, 1);
+
+    private final Context context;
+    private final AlCustomizationSettings alCustomizationSettings;
+    private final EmojiconHandler emojiconHandler;
+    private final BaseContactService contactService;
+    private final LruCache<String, RenderModel> renderModels = new LruCache<>(CACHE_SIZE);
+    //only accessed from the main thread
+    private final Map<String, Integer> colors = new HashMap<>();
+    private int lastPrefetchPosition = -PREFETCH_DISTANCE;
+
+    AlMessageRenderCache(@NonNull Context context, @NonNull AlCustomizationSettings alCustomizationSettings, @Nullable EmojiconHandler emojiconHandler, @NonNull BaseContactService contactService) {
+        this.context = context;
+        this.alCustomizationSettings = alCustomizationSettings;
+        this.emojiconHandler = emojiconHandler;
+        this.contactService = contactService;
+    }
+
+    /**
+     * @return the render model of the message, built on the calling thread if there is no up to date one
+     */
+    @NonNull RenderModel get(@NonNull Message message) {
+        String key = getCacheKey(message);
+        RenderModel renderModel = key != null ? renderModels.get(key) : null;
+        if (renderModel == null || renderModel.version != getVersion(message)) {
+            renderModel = build(message);
+            if (key != null) {
+                renderModels.put(key, renderModel);
+            }
+        }
+        return renderModel;
+    }
+
+    /**
+     * Builds the missing models for the messages within {@link #PREFETCH_DISTANCE} of the position, in the background.
+     * Call from the main thread, with the adapter's message list.
+     */
+    void prefetch(@Nullable List<Message> messages, int position) {
+        if (messages == null || messages.isEmpty() || Math.abs(position - lastPrefetchPosition) < PREFETCH_DISTANCE / 2) {
+            return;
+        }
+        lastPrefetchPosition = position;
+        int from = Math.max(0, position - PREFETCH_DISTANCE);
+        int to = Math.min(messages.size(), position + PREFETCH_DISTANCE + 1);
+        if (from >= to) {
+            return;
+        }
+        final Map<String, Message> messagesToBuild = new HashMap<>();
+        for (Message message : messages.subList(from, to)) {
+            String key = getCacheKey(message);
+            if (key == null || message.isTempDateType()) {
+                continue;
+            }
+            RenderModel renderModel = renderModels.get(key);
+            if (renderModel == null || renderModel.version != getVersion(message)) {
+                messagesToBuild.put(key, copyOf(message));
+            }
+        }
+        if (messagesToBuild.isEmpty()) {
+            return;
+        }
+        prefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<String, Message> messageEntry : messagesToBuild.entrySet()) {
+                    renderModels.put(messageEntry.getKey(), build(messageEntry.getValue()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Parses the color once, and returns the parsed value after that. Call from the main thread.
+     *
+     * @throws IllegalArgumentException like {@link Color#parseColor(String)} for an invalid color
+     */
+    int getColor(String colorString) {
+        Integer color = colors.get(colorString);
+        if (color == null) {
+            color = Color.parseColor(colorString);
+            colors.put(colorString, color);
+        }
+        return color;
+    }
+
+    /**
+     * Drops all the models, so they are built again with the current display names. Call from the main thread.
+     */
+    void clear() {
+        renderModels.evictAll();
+        lastPrefetchPosition = -PREFETCH_DISTANCE;
+    }
+
+    private @NonNull RenderModel build(Message message) {
+        RenderModel renderModel = new RenderModel(getVersion(message));
+        String timeTemplate = alCustomizationSettings.getDateFormatCustomization().getTimeTemplate();
+        if (message.getCreatedAtTime() != null) {
+            renderModel.createdAtTimeText = DateUtils.getFormattedDate(message.getCreatedAtTime(), timeTemplate);
+        }
+        if (message.getScheduledAt() != null) {
+            renderModel.scheduledAtTimeText = DateUtils.getFormattedDate(message.getScheduledAt(), timeTemplate);
+        }
+
+        renderModel.mentionsText = MentionHelper.getMessageSpannableStringForMentionsDisplay(context, message, true, alCustomizationSettings.getConversationMentionSpanColor());
+        if (message.getContentType() == Message.ContentType.TEXT_HTML.getValue() || message.getContentType() == Message.ContentType.TEXT_URL.getValue()) {
+            if (message.getMessage() != null) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                    renderModel.messageText = Html.fromHtml(message.getMessage(), Html.FROM_HTML_MODE_COMPACT);
+                } else {
+                    renderModel.messageText = Html.fromHtml(message.getMessage());
+                }
+            }
+        } else {
+            renderModel.messageText = EmoticonUtils.getSmiledText(context, renderModel.mentionsText, emojiconHandler);
+        }
+
+        if (message.getGroupId() != null && !TextUtils.isEmpty(message.getContactIds())) {
+            renderModel.senderContact = contactService.getContactById(message.getContactIds());
+            if (renderModel.senderContact != null && !TextUtils.isEmpty(renderModel.senderContact.getDisplayName())) {
+                renderModel.senderDisplayName = renderModel.senderContact.getDisplayName();
+                char firstLetter = renderModel.senderDisplayName.charAt(0);
+                Character colorKey = AlphaNumberColorUtil.alphabetBackgroundColorMap.containsKey(firstLetter) ? firstLetter : null;
+                renderModel.senderNameColor = context.getResources().getColor(AlphaNumberColorUtil.alphabetBackgroundColorMap.get(colorKey));
+            }
+        }
+        return renderModel;
+    }
+
+    /**
+     * @return a copy of the message fields {@link #build(Message)} reads, that the main thread doesn't change
+     */
+    private static @NonNull Message copyOf(@NonNull Message message) {
+        Message copy = new Message(message);
+        if (message.getMetadata() != null) {
+            copy.setMetadata(new HashMap<>(message.getMetadata()));
+        }
+        return copy;
+    }
+
+    private static @Nullable String getCacheKey(@Nullable Message message) {
+        if (message == null) {
+            return null;
+        }
+        if (!TextUtils.isEmpty(message.getKeyString())) {
+            return message.getKeyString();
+        }
+        //not sent yet
+        if (message.getMessageId() != null) {
+            return "id:" + message.getMessageId();
+        }
+        return null;
+    }
+
+    /**
+     * @return a hash of the message fields the render model is built from
+     */
+    static int getVersion(@NonNull Message message) {
+        int version = 17;
+        version = 31 * version + (message.getMessage() != null ? message.getMessage().hashCode() : 0);
+        version = 31 * version + (message.getMetadata() != null ? message.getMetadata().hashCode() : 0);
+        version = 31 * version + (message.getCreatedAtTime() != null ? message.getCreatedAtTime().hashCode() : 0);
+        version = 31 * version + (message.getScheduledAt() != null ? message.getScheduledAt().hashCode() : 0);
+        version = 31 * version + (message.getContactIds() != null ? message.getContactIds().hashCode() : 0);
+        version = 31 * version + message.getContentType();
+        return version;
+    }
+
+    static class RenderModel {
+        final int version;
+        @Nullable String createdAtTimeText;
+        @Nullable String scheduledAtTimeText;
+        //the message with the mentions replaced by the display names
+        @NonNull Spannable mentionsText;
+        //the text to show: mentionsText with emojis, or the parsed html
+        @Nullable CharSequence messageText;
+        //only for group messages
+        @Nullable Contact senderContact;
+        @Nullable String senderDisplayName;
+        int senderNameColor;
+
+        RenderModel(int version) {
+            this.version = version;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Configuration;
 import android.graphics.Bitmap;
-import android.graphics.Color;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
@@ -37,12 +36,15 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 import androidx.fragment.app.FragmentActivity;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.applozic.mobicomkit.Applozic;
 import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
+import com.applozic.mobicomkit.api.attachment.AlVideoThumbnailCache;
 import com.applozic.mobicomkit.api.attachment.AttachmentManager;
 import com.applozic.mobicomkit.api.attachment.AttachmentTask;
 import com.applozic.mobicomkit.api.attachment.AttachmentView;
@@ -50,7 +52,6 @@ import com.applozic.mobicomkit.api.attachment.FileClientService;
 import com.applozic.mobicomkit.api.attachment.FileMeta;
 import com.applozic.mobicomkit.api.conversation.Message;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
-import com.applozic.mobicomkit.api.mention.MentionHelper;
 import com.applozic.mobicomkit.api.notification.VideoCallNotificationHelper;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
 import com.applozic.mobicomkit.channel.service.ChannelService;
@@ -84,7 +85,6 @@ import com.applozic.mobicommons.commons.image.ImageCache;
 import com.applozic.mobicommons.commons.image.ImageLoader;
 import com.applozic.mobicommons.commons.image.ImageUtils;
 import com.applozic.mobicommons.emoticon.EmojiconHandler;
-import com.applozic.mobicommons.emoticon.EmoticonUtils;
 import com.applozic.mobicommons.file.ALFileProvider;
 import com.applozic.mobicommons.file.FileUtils;
 import com.applozic.mobicommons.json.GsonUtils;
@@ -112,6 +112,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
     private static final String TAG = "DetailedConversation";
 
     private static final int FILE_THRESOLD_SIZE = 400;
+    private static final int FALLBACK_VIDEO_THUMBNAILS_SIZE = 20;
 
     public ImageLoader contactImageLoader, loadImage;
     public String searchString;
@@ -134,15 +135,19 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
     private List<Message> messageList;
     private List<Message> originalList;
     private ImageCache imageCache;
+    //the loaded video thumbnails, when there is no imageCache to keep them in
+    private final LruCache<String, Bitmap> fallbackVideoThumbnails = new LruCache<>(FALLBACK_VIDEO_THUMBNAILS_SIZE);
     private View view;
     private ContextMenuClickListener contextMenuClickListener;
     private ALStoragePermissionListener storagePermissionListener;
     private ALSendMessageInterface sendMessageInterfaceCallBack;
     private ALRichMessageListener listener;
     private String geoApiKey;
+    private AlMessageRenderCache renderCache;
 
     public void setAlCustomizationSettings(AlCustomizationSettings alCustomizationSettings) {
         this.alCustomizationSettings = alCustomizationSettings;
+        this.renderCache = new AlMessageRenderCache(activityContext, alCustomizationSettings, emojiconHandler, contactService);
     }
 
     public void setContextMenuClickListener(ContextMenuClickListener contextMenuClickListener) {
@@ -217,6 +222,25 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
         deliveredIcon = context.getResources().getDrawable(R.drawable.applozic_ic_action_message_delivered);
         pendingIcon = context.getResources().getDrawable(R.drawable.applozic_ic_action_message_pending);
         scheduledIcon = context.getResources().getDrawable(R.drawable.applozic_ic_action_message_schedule);
+
+        registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                //the list is shown from the bottom
+                prefetchRenderModels(getItemCount() - 1);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                prefetchRenderModels(positionStart);
+            }
+        });
+    }
+
+    private void prefetchRenderModels(int position) {
+        if (renderCache != null) {
+            renderCache.prefetch(messageList, position);
+        }
     }
 
     @Override
@@ -260,8 +284,8 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                 SimpleDateFormat simpleDateFormatDay = new SimpleDateFormat("EEEE");
                 Date date = new Date(message.getCreatedAtTime());
 
-                myViewHolder2.dateView.setTextColor(Color.parseColor(alCustomizationSettings.getConversationDateTextColor().trim()));
-                myViewHolder2.dayTextView.setTextColor(Color.parseColor(alCustomizationSettings.getConversationDayTextColor().trim()));
+                myViewHolder2.dateView.setTextColor(renderCache.getColor(alCustomizationSettings.getConversationDateTextColor().trim()));
+                myViewHolder2.dayTextView.setTextColor(renderCache.getColor(alCustomizationSettings.getConversationDayTextColor().trim()));
 
                 if (DateUtils.isSameDay(message.getCreatedAtTime())) {
                     myViewHolder2.dayTextView.setVisibility(View.VISIBLE);
@@ -282,16 +306,16 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
             } else if (type == 4) {
                 MyViewHolder4 myViewHolder4 = (MyViewHolder4) holder;
                 GradientDrawable bgGradientDrawable = (GradientDrawable) myViewHolder4.channelMessageTextView.getBackground();
-                bgGradientDrawable.setColor(Color.parseColor(alCustomizationSettings.getChannelCustomMessageBgColor()));
-                bgGradientDrawable.setStroke(3, Color.parseColor(alCustomizationSettings.getChannelCustomMessageBorderColor()));
-                myViewHolder4.channelMessageTextView.setTextColor(Color.parseColor(alCustomizationSettings.getChannelCustomMessageTextColor()));
+                bgGradientDrawable.setColor(renderCache.getColor(alCustomizationSettings.getChannelCustomMessageBgColor()));
+                bgGradientDrawable.setStroke(3, renderCache.getColor(alCustomizationSettings.getChannelCustomMessageBorderColor()));
+                myViewHolder4.channelMessageTextView.setTextColor(renderCache.getColor(alCustomizationSettings.getChannelCustomMessageTextColor()));
                 myViewHolder4.channelMessageTextView.setText(message.getMessage());
                 return;
             } else if (type == 5) {
                 MyViewHolder5 myViewHolder5 = (MyViewHolder5) holder;
 
                 if (message != null) {
-                    myViewHolder5.timeTextView.setText(DateUtils.getFormattedDate(message.getCreatedAtTime(), alCustomizationSettings.getDateFormatCustomization().getTimeTemplate()));
+                    myViewHolder5.timeTextView.setText(renderCache.get(message).createdAtTimeText);
                     if (message.getMetadata() != null) {
                         myViewHolder5.statusTextView.setText(VideoCallNotificationHelper.getStatus(message.getMetadata()));
                     }
@@ -322,6 +346,8 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
             } else {
                 final MyViewHolder myHolder = (MyViewHolder) holder;
                 if (message != null) {
+                    prefetchRenderModels(position);
+                    final AlMessageRenderCache.RenderModel renderModel = renderCache.get(message);
                     Contact receiverContact = null;
                     Contact contactDisplayName = null;
                     if (message.getGroupId() == null) {
@@ -340,9 +366,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                             receiverContact = contactService.getContactReceiver(items, userIds);
                         }
                     } else {
-                        if (!TextUtils.isEmpty(message.getContactIds())) {
-                            contactDisplayName = contactService.getContactById(message.getContactIds());
-                        }
+                        contactDisplayName = renderModel.senderContact;
                     }
 
                     Configuration config = context.getResources().getConfiguration();
@@ -372,14 +396,14 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                     if (message.isDeletedForAll()) {
                         myHolder.messageTextView.setCompoundDrawablesWithIntrinsicBounds(context.getResources().getDrawable(R.drawable.round_not_interested_black_24), null, null, null);
                         if (android.os.Build.VERSION.SDK_INT >= 21) {
-                            myHolder.messageTextView.getCompoundDrawables()[0].setTint(Color.parseColor(message.isTypeOutbox()
+                            myHolder.messageTextView.getCompoundDrawables()[0].setTint(renderCache.getColor(message.isTypeOutbox()
                                     ? alCustomizationSettings.getSentMessageTextColor()
                                     : alCustomizationSettings.getReceivedMessageTextColor()));
                         }
                         myHolder.messageTextView.setText(R.string.deleted_message_text);
                         myHolder.messageTextView.setTypeface(null, Typeface.ITALIC);
                         myHolder.messageTextView.setVisibility(View.VISIBLE);
-                        myHolder.createdAtTime.setText(DateUtils.getFormattedDate(message.getCreatedAtTime(), alCustomizationSettings.getDateFormatCustomization().getTimeTemplate()));
+                        myHolder.createdAtTime.setText(renderModel.createdAtTimeText);
 
                         myHolder.replyRelativeLayout.setVisibility(GONE);
                         myHolder.richMessageLayout.setVisibility(View.GONE);
@@ -411,13 +435,13 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                 String displayName;
 
                                 myHolder.replyRelativeLayout.setBackgroundColor(message.isTypeOutbox() ?
-                                        Color.parseColor(alCustomizationSettings.getReplyMessageLayoutSentMessageBackground()) : Color.parseColor(alCustomizationSettings.getReplyMessageLayoutReceivedMessageBackground()));
+                                        renderCache.getColor(alCustomizationSettings.getReplyMessageLayoutSentMessageBackground()) : renderCache.getColor(alCustomizationSettings.getReplyMessageLayoutReceivedMessageBackground()));
 
                                 myHolder.replyNameTextView.setTextColor(message.isTypeOutbox() ?
-                                        Color.parseColor(alCustomizationSettings.getSentMessageTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageTextColor()));
+                                        renderCache.getColor(alCustomizationSettings.getSentMessageTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageTextColor()));
 
                                 myHolder.replyMessageTextView.setTextColor(message.isTypeOutbox() ?
-                                        Color.parseColor(alCustomizationSettings.getSentMessageTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageTextColor()));
+                                        renderCache.getColor(alCustomizationSettings.getSentMessageTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageTextColor()));
 
                                 if (msg.getGroupId() != null) {
                                     if (MobiComUserPreference.getInstance(context).getUserId().equals(msg.getContactIds()) || TextUtils.isEmpty(msg.getContactIds())) {
@@ -442,7 +466,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                         if (TextUtils.isEmpty(msg.getMessage())) {
                                             myHolder.replyMessageTextView.setText(context.getString(R.string.photo_string));
                                         } else {
-                                            myHolder.replyMessageTextView.setText(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, msg, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                            myHolder.replyMessageTextView.setText(renderCache.get(msg).mentionsText);
                                         }
                                         myHolder.imageViewPhoto.setVisibility(View.VISIBLE);
                                         myHolder.imageViewRLayout.setVisibility(View.VISIBLE);
@@ -457,26 +481,19 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                         if (TextUtils.isEmpty(msg.getMessage())) {
                                             myHolder.replyMessageTextView.setText(context.getString(R.string.video_string));
                                         } else {
-                                            myHolder.replyMessageTextView.setText(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, msg, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                            myHolder.replyMessageTextView.setText(renderCache.get(msg).mentionsText);
                                         }
                                         myHolder.imageViewPhoto.setVisibility(View.VISIBLE);
                                         myHolder.imageViewRLayout.setVisibility(View.VISIBLE);
                                         if (msg.getFilePaths() != null && msg.getFilePaths().size() > 0) {
-                                            if (imageCache != null && imageCache.getBitmapFromMemCache(msg.getKeyString()) != null) {
-                                                myHolder.imageViewPhoto.setImageBitmap(imageCache.getBitmapFromMemCache(msg.getKeyString()));
-                                            } else {
-                                                if (imageCache != null) {
-                                                    imageCache.addBitmapToCache(message.getKeyString(), fileClientService.getOrCreateVideoThumbnail(msg.getFilePaths().get(0)));
-                                                }
-                                                myHolder.imageViewPhoto.setImageBitmap(fileClientService.getOrCreateVideoThumbnail(msg.getFilePaths().get(0)));
-                                            }
+                                            loadVideoThumbnail(msg.getKeyString(), msg.getFilePaths().get(0), myHolder.imageViewPhoto, message);
                                         }
                                     } else if (fileMeta.getContentType().contains("audio")) {
                                         myHolder.imageViewForAttachmentType.setImageResource(R.drawable.applozic_ic_music_note);
                                         if (TextUtils.isEmpty(msg.getMessage())) {
                                             myHolder.replyMessageTextView.setText(context.getString(R.string.audio_string));
                                         } else {
-                                            myHolder.replyMessageTextView.setText(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, msg, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                            myHolder.replyMessageTextView.setText(renderCache.get(msg).mentionsText);
                                         }
                                         myHolder.imageViewPhoto.setVisibility(View.GONE);
                                         myHolder.imageViewRLayout.setVisibility(View.GONE);
@@ -500,18 +517,18 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                         if (TextUtils.isEmpty(msg.getMessage())) {
                                             myHolder.replyMessageTextView.setText(context.getString(R.string.attachment_string));
                                         } else {
-                                            myHolder.replyMessageTextView.setText(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, msg, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                            myHolder.replyMessageTextView.setText(renderCache.get(msg).mentionsText);
                                         }
                                         myHolder.imageViewPhoto.setVisibility(View.GONE);
                                         myHolder.imageViewRLayout.setVisibility(View.GONE);
                                     }
-                                    myHolder.imageViewForAttachmentType.setColorFilter(Color.parseColor(message.isTypeOutbox() ? alCustomizationSettings.getSentMessageTextColor() : alCustomizationSettings.getReceivedMessageTextColor()));
+                                    myHolder.imageViewForAttachmentType.setColorFilter(renderCache.getColor(message.isTypeOutbox() ? alCustomizationSettings.getSentMessageTextColor() : alCustomizationSettings.getReceivedMessageTextColor()));
                                 } else if (msg.getContentType() == Message.ContentType.LOCATION.getValue()) {
                                     myHolder.imageViewForAttachmentType.setVisibility(View.VISIBLE);
                                     myHolder.imageViewPhoto.setVisibility(View.VISIBLE);
                                     myHolder.imageViewRLayout.setVisibility(View.VISIBLE);
                                     myHolder.replyMessageTextView.setText(context.getString(R.string.al_location_string));
-                                    myHolder.imageViewForAttachmentType.setColorFilter(Color.parseColor(message.isTypeOutbox() ? alCustomizationSettings.getSentMessageTextColor() : alCustomizationSettings.getReceivedMessageTextColor()));
+                                    myHolder.imageViewForAttachmentType.setColorFilter(renderCache.getColor(message.isTypeOutbox() ? alCustomizationSettings.getSentMessageTextColor() : alCustomizationSettings.getReceivedMessageTextColor()));
                                     myHolder.imageViewForAttachmentType.setImageResource(R.drawable.applozic_ic_location_on_white_24dp);
                                     loadImage.setLoadingImage(R.drawable.applozic_map_offline_thumbnail);
                                     loadImage.loadImage(LocationUtils.loadStaticMap(msg.getMessage(), geoApiKey), myHolder.imageViewPhoto);
@@ -519,7 +536,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                     myHolder.imageViewForAttachmentType.setVisibility(View.GONE);
                                     myHolder.imageViewRLayout.setVisibility(View.GONE);
                                     myHolder.imageViewPhoto.setVisibility(View.GONE);
-                                    myHolder.replyMessageTextView.setText(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, msg, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                    myHolder.replyMessageTextView.setText(renderCache.get(msg).mentionsText);
                                 }
                                 myHolder.replyRelativeLayout.setVisibility(View.VISIBLE);
                                 myHolder.replyRelativeLayout.setOnClickListener(new View.OnClickListener() {
@@ -571,16 +588,12 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                 });
                             }
 
-                            String userId = contactDisplayName.getDisplayName();
-                            char firstLetter = contactDisplayName.getDisplayName().charAt(0);
-                            if (userId.length() > 0) {
-                                myHolder.nameTextView.setText(String.valueOf(userId));
+                            if (renderModel.senderDisplayName != null) {
+                                myHolder.nameTextView.setText(renderModel.senderDisplayName);
+                                myHolder.nameTextView.setTextColor(renderModel.senderNameColor);
                             }
-
-                            Character colorKey = AlphaNumberColorUtil.alphabetBackgroundColorMap.containsKey(firstLetter) ? firstLetter : null;
-                            myHolder.nameTextView.setTextColor(context.getResources().getColor(AlphaNumberColorUtil.alphabetBackgroundColorMap.get(colorKey)));
                         }
-                        myHolder.createdAtTime.setTextColor(Color.parseColor(alCustomizationSettings.getMessageTimeTextColor()));
+                        myHolder.createdAtTime.setTextColor(renderCache.getColor(alCustomizationSettings.getMessageTimeTextColor()));
 
                         //myHolder.attachmentDownloadLayout.setVisibility(View.GONE);
 
@@ -694,12 +707,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                         myHolder.attachmentDownloadLayout.setVisibility(View.GONE);
                                         myHolder.attachmentDownloadProgressLayout.setVisibility(View.GONE);
                                         myHolder.attachedFile.setVisibility(View.GONE);
-                                        if (imageCache.getBitmapFromMemCache(message.getKeyString()) != null) {
-                                            myHolder.preview.setImageBitmap(imageCache.getBitmapFromMemCache(message.getKeyString()));
-                                        } else {
-                                            imageCache.addBitmapToCache(message.getKeyString(), fileClientService.getOrCreateVideoThumbnail(filePath));
-                                            myHolder.preview.setImageBitmap(fileClientService.getOrCreateVideoThumbnail(filePath));
-                                        }
+                                        loadVideoThumbnail(message.getKeyString(), filePath, myHolder.preview, message);
                                     } else {
                                         myHolder.preview.setVisibility(View.GONE);
                                         myHolder.mediaDownloadProgressBar.setVisibility(View.GONE);
@@ -768,7 +776,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                 myHolder.chatLocation.setVisibility(View.GONE);
                                 myHolder.preview.setVisibility(View.GONE);
                                 audioView.hideView(false);
-                                myHolder.createdAtTime.setText(DateUtils.getFormattedDate(message.getCreatedAtTime(), alCustomizationSettings.getDateFormatCustomization().getTimeTemplate()));
+                                myHolder.createdAtTime.setText(renderModel.createdAtTimeText);
                             }
                         }
                         if (message.isCanceled()) {
@@ -909,11 +917,11 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                         }
 
                         if (message.getScheduledAt() != null) {
-                            myHolder.createdAtTime.setText(DateUtils.getFormattedDate(message.getScheduledAt(), alCustomizationSettings.getDateFormatCustomization().getTimeTemplate()));
+                            myHolder.createdAtTime.setText(renderModel.scheduledAtTimeText);
                         } else if (myHolder.createdAtTime != null && message.isDummyEmptyMessage()) {
                             myHolder.createdAtTime.setText("");
                         } else if (myHolder.createdAtTime != null) {
-                            myHolder.createdAtTime.setText(DateUtils.getFormattedDate(message.getCreatedAtTime(), alCustomizationSettings.getDateFormatCustomization().getTimeTemplate()));
+                            myHolder.createdAtTime.setText(renderModel.createdAtTimeText);
                         }
 
                         String mimeType = "";
@@ -925,16 +933,16 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
 
                         if (myHolder.messageTextView != null) {
                             myHolder.messageTextView.setTextColor(message.isTypeOutbox() ?
-                                    Color.parseColor(alCustomizationSettings.getSentMessageTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageTextColor()));
+                                    renderCache.getColor(alCustomizationSettings.getSentMessageTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageTextColor()));
                             myHolder.messageTextView.setLinkTextColor(message.isTypeOutbox() ?
-                                    Color.parseColor(alCustomizationSettings.getSentMessageLinkTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageLinkTextColor()));
+                                    renderCache.getColor(alCustomizationSettings.getSentMessageLinkTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageLinkTextColor()));
 
                             if (message.getContentType() == Message.ContentType.TEXT_URL.getValue()) {
                                 try {
                                     myHolder.mapImageView.setVisibility(View.GONE);
                                     myHolder.attachedFile.setVisibility(View.GONE);
                                     myHolder.preview.setVisibility(View.VISIBLE);
-                                    setMessageText(myHolder.messageTextView, message);
+                                    myHolder.messageTextView.setText(renderModel.messageText);
                                     loadImage.setImageFadeIn(false);
                                     loadImage.loadImage(message.getFileMetas().getBlobKeyString(), myHolder.preview);
                                     myHolder.attachmentDownloadLayout.setVisibility(View.GONE);
@@ -963,7 +971,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                 });
                             } else if (message.getContentType() == Message.ContentType.PRICE.getValue()) {
                                 myHolder.mapImageView.setVisibility(View.GONE);
-                                SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder(MentionHelper.getMessageSpannableStringForMentionsDisplay(context, message, true, alCustomizationSettings.getConversationMentionSpanColor()));
+                                SpannableStringBuilder spannableStringBuilder = new SpannableStringBuilder(renderModel.mentionsText);
                                 spannableStringBuilder.insert(0, ConversationUIService.FINAL_PRICE_TEXT);
                                 myHolder.messageTextView.setText(spannableStringBuilder);
                             } else if ((message.getContentType() == Message.ContentType.VIDEO_MSG.getValue()) && !message.isAttachmentDownloaded()) {
@@ -971,19 +979,19 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                                 myHolder.mapImageView.setVisibility(View.GONE);
                             } else if (message.getContentType() == Message.ContentType.TEXT_HTML.getValue()) {
                                 myHolder.mapImageView.setVisibility(View.GONE);
-                                setMessageText(myHolder.messageTextView, message);
+                                myHolder.messageTextView.setText(renderModel.messageText);
                             } else {
                                 myHolder.mapImageView.setVisibility(View.GONE);
                                 myHolder.chatLocation.setVisibility(View.GONE);
-                                myHolder.messageTextView.setText(EmoticonUtils.getSmiledText(activityContext, MentionHelper.getMessageSpannableStringForMentionsDisplay(context, message, true, alCustomizationSettings.getConversationMentionSpanColor()), emojiconHandler));
+                                myHolder.messageTextView.setText(renderModel.messageText);
                             }
 
                             if (myHolder.messageTextLayout != null) {
                                 GradientDrawable bgShape = (GradientDrawable) myHolder.messageTextLayout.getBackground();
                                 bgShape.setColor(message.isTypeOutbox() ?
-                                        Color.parseColor(alCustomizationSettings.getSentMessageBackgroundColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageBackgroundColor()));
+                                        renderCache.getColor(alCustomizationSettings.getSentMessageBackgroundColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageBackgroundColor()));
                                 bgShape.setStroke(3, message.isTypeOutbox() ?
-                                        Color.parseColor(alCustomizationSettings.getSentMessageBorderColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageBackgroundColor()));
+                                        renderCache.getColor(alCustomizationSettings.getSentMessageBorderColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageBackgroundColor()));
                             }
                         }
 
@@ -1031,14 +1039,14 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
                             myHolder.mainContactShareLayout.setVisibility(View.GONE);
                         }
 
-                        Spannable mentionsMessageString = MentionHelper.getMessageSpannableStringForMentionsDisplay(context, message, true, alCustomizationSettings.getConversationMentionSpanColor());
+                        Spannable mentionsMessageString = renderModel.mentionsText;
                         int startIndex = indexOfSearchQuery(mentionsMessageString.toString());
                         if (startIndex != -1) {
                             final SpannableString highlightedName = new SpannableString(mentionsMessageString);
 
                             // Sets the span to start at the starting point of the match and end at "length"
                             // characters beyond the starting point
-                            highlightedName.setSpan(new ForegroundColorSpan(Color.parseColor(alCustomizationSettings.getMessageSearchTextColor())), startIndex,
+                            highlightedName.setSpan(new ForegroundColorSpan(renderCache.getColor(alCustomizationSettings.getMessageSearchTextColor())), startIndex,
                                     startIndex + searchString.toString().length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
 
                             myHolder.messageTextView.setText(highlightedName);
@@ -1060,7 +1068,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
             VCFContactData data = parser.parseCVFContactData(message.getFilePaths().get(0));
             myViewHolder.shareContactName.setText(data.getName());
 
-            int resId = message.isTypeOutbox() ? Color.parseColor(alCustomizationSettings.getSentMessageTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageTextColor());
+            int resId = message.isTypeOutbox() ? renderCache.getColor(alCustomizationSettings.getSentMessageTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageTextColor());
             myViewHolder.shareContactName.setTextColor(resId);
             myViewHolder.shareContactNo.setTextColor(resId);
             myViewHolder.shareEmailContact.setTextColor(resId);
@@ -1214,7 +1222,7 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
             fileName = message.getFileMetas().getName();
         }
         attachedFile.setTextColor(message.isTypeOutbox() ?
-                Color.parseColor(alCustomizationSettings.getSentMessageTextColor()) : Color.parseColor(alCustomizationSettings.getReceivedMessageTextColor()));
+                renderCache.getColor(alCustomizationSettings.getSentMessageTextColor()) : renderCache.getColor(alCustomizationSettings.getReceivedMessageTextColor()));
         attachedFile.setText(fileName);
         attachedFile.setVisibility(View.VISIBLE);
         attachedFile.setOnClickListener(new View.OnClickListener() {
@@ -1317,6 +1325,37 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
         return message.isTypeOutbox() ? 1 : 0;
     }
 
+    /**
+     * Shows the video thumbnail if it's in memory, or nothing until it's loaded. The item is then bound again.
+     *
+     * @param message the message of the item that shows the thumbnail
+     */
+    private void loadVideoThumbnail(final String thumbnailKey, String videoFilePath, ImageView imageView, final Message message) {
+        Bitmap videoThumbnail = imageCache != null ? imageCache.getBitmapFromMemCache(thumbnailKey) : fallbackVideoThumbnails.get(thumbnailKey);
+        imageView.setImageBitmap(videoThumbnail);
+        if (videoThumbnail != null) {
+            return;
+        }
+        AlVideoThumbnailCache.getInstance(context).loadThumbnail(videoFilePath, new AlVideoThumbnailCache.Callback() {
+            @Override
+            public void onThumbnailLoaded(@Nullable Bitmap thumbnail) {
+                //the view may have been recycled for another message by now, so only the item of the message is bound again
+                if (thumbnail == null) {
+                    return;
+                }
+                if (imageCache != null) {
+                    imageCache.addBitmapToCache(thumbnailKey, thumbnail);
+                } else {
+                    fallbackVideoThumbnails.put(thumbnailKey, thumbnail);
+                }
+                int position = messageList.indexOf(message);
+                if (position != -1) {
+                    notifyItemChanged(position);
+                }
+            }
+        });
+    }
+
     private Message getItem(int position) {
         return messageList.get(position);
     }
@@ -1400,6 +1439,10 @@ public class DetailedConversationAdapter extends RecyclerView.Adapter implements
         if (contact != null) {
             contact = contactService.getContactById(contact.getContactIds());
         }
+        //the cached rows have the display names of the senders and the mentioned users
+        if (renderCache != null) {
+            renderCache.clear();
+        }
     }
 
     class MyViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener {
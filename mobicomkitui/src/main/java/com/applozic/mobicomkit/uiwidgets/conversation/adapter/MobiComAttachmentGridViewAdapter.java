@@ -96,6 +96,7 @@ public class MobiComAttachmentGridViewAdapter extends BaseAdapter {
 
                 Intent getContentIntent = FileUtils.createGetContentIntent(filterOptions, context.getPackageManager());
                 getContentIntent.putExtra(Intent.EXTRA_LOCAL_ONLY, true);
+                getContentIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
                 Intent intentPick = Intent.createChooser(getContentIntent, context.getString(R.string.select_file));
                 ((Activity) context).startActivityForResult(intentPick, REQUEST_CODE);
             }
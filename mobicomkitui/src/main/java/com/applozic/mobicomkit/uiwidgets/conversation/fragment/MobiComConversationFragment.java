@@ -54,6 +54,7 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationManagerCompat;
@@ -71,10 +72,12 @@ import com.applozic.mobicomkit.api.MobiComKitConstants;
 import com.applozic.mobicomkit.api.account.user.MobiComUserPreference;
 import com.applozic.mobicomkit.api.account.user.User;
 import com.applozic.mobicomkit.api.account.user.UserBlockTask;
+import com.applozic.mobicomkit.api.attachment.AlVideoThumbnailCache;
 import com.applozic.mobicomkit.api.attachment.AttachmentView;
 import com.applozic.mobicomkit.api.attachment.FileClientService;
 import com.applozic.mobicomkit.api.attachment.FileMeta;
 import com.applozic.mobicomkit.api.conversation.AlMessageReportTask;
+import com.applozic.mobicomkit.api.conversation.AlMessageSendMetrics;
 import com.applozic.mobicomkit.api.conversation.Message;
 import com.applozic.mobicomkit.api.conversation.MessageBuilder;
 import com.applozic.mobicomkit.api.conversation.MessageClientService;
@@ -82,7 +85,8 @@ import com.applozic.mobicomkit.api.conversation.MessageDeleteTask;
 import com.applozic.mobicomkit.api.conversation.MobiComConversationService;
 import com.applozic.mobicomkit.api.conversation.SyncCallService;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
-import com.applozic.mobicomkit.api.conversation.selfdestruct.DisappearingMessageTask;
+import com.applozic.mobicomkit.api.conversation.preload.ConversationPreloader;
+import com.applozic.mobicomkit.api.conversation.schedule.TimedMessageScheduler;
 import com.applozic.mobicomkit.api.conversation.service.ConversationService;
 import com.applozic.mobicomkit.api.notification.MuteNotificationAsync;
 import com.applozic.mobicomkit.api.notification.MuteNotificationRequest;
@@ -91,6 +95,7 @@ import com.applozic.mobicomkit.api.notification.NotificationService;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
 import com.applozic.mobicomkit.channel.database.ChannelDatabaseService;
 import com.applozic.mobicomkit.channel.service.ChannelService;
+import com.applozic.mobicomkit.contact.AlPresenceManager;
 import com.applozic.mobicomkit.contact.AppContactService;
 import com.applozic.mobicomkit.contact.MobiComVCFParser;
 import com.applozic.mobicomkit.contact.VCFContactData;
@@ -162,13 +167,13 @@ import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.Timer;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -461,7 +466,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
 
         if (channel != null && !Channel.GroupType.OPEN.getValue().equals(channel.getType())) {
             MentionAdapter mentionAdapter = new MentionAdapter(requireContext());
-            mentionAdapter.addAll(MentionHelper.getMentionsListForChannel(requireContext(), channel.getKey()));
+            mentionAdapter.setMentionIndex(MentionHelper.getMentionIndexForChannel(requireContext(), channel.getKey()));
             messageEditText.initMentions(mentionAdapter);
         }
 
@@ -1329,6 +1334,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
                         return;
                     }
                     recyclerDetailConversationAdapter.notifyDataSetChanged();
+                    AlMessageSendMetrics.getInstance(getContext()).onMessageVisible(message.getKeyString());
 
                     if (alCustomizationSettings.isMessageFastScrollEnabled()) {
                         if (messageDropDownActionButton.getVisibility() == View.INVISIBLE) {
@@ -1658,12 +1664,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
                                 messageTextView.setText(message.getMessage());
                             }
                             if (message.getFilePaths() != null && message.getFilePaths().size() > 0) {
-                                if (imageCache.getBitmapFromMemCache(message.getKeyString()) != null) {
-                                    galleryImageView.setImageBitmap(imageCache.getBitmapFromMemCache(message.getKeyString()));
-                                } else {
-                                    imageCache.addBitmapToCache(message.getKeyString(), fileClientService.getOrCreateVideoThumbnail(message.getFilePaths().get(0)));
-                                    galleryImageView.setImageBitmap(fileClientService.getOrCreateVideoThumbnail(message.getFilePaths().get(0)));
-                                }
+                                loadVideoThumbnail(message, galleryImageView);
                             }
                             galleryImageView.setVisibility(VISIBLE);
                             imageViewRLayout.setVisibility(VISIBLE);
@@ -1906,6 +1907,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
 
             processMobiTexterUserCheck();
 
+            ConversationPreloader.getInstance(getActivity()).recordOpen(contact, channel);
             downloadConversation = new DownloadConversation(recyclerView, true, 1, 0, 0, contact, channel, conversationId);
             AlTask.execute(downloadConversation);
 
@@ -2256,6 +2258,13 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
     }
 
     public void updateDeliveryStatus(final Message message) {
+        updateDeliveryStatus(Collections.singletonList(message));
+    }
+
+    /**
+     * Updates the delivery and read status of the messages in a single pass on the UI thread.
+     */
+    public void updateDeliveryStatus(final List<Message> messages) {
         if (this.getActivity() == null) {
             return;
         }
@@ -2263,41 +2272,55 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
         this.getActivity().runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                try {
-                    int index = messageList.indexOf(message);
-                    if (index != -1) {
-                        if (messageList.get(index).getStatus() == Message.Status.DELIVERED_AND_READ.getValue()
-                                || messageList.get(index).isTempDateType()
-                                || messageList.get(index).isCustom()
-                                || messageList.get(index).isChannelCustomMessage()) {
-                            return;
-                        }
-                        messageList.get(index).setDelivered(true);
-                        messageList.get(index).setStatus(message.getStatus());
-                        View view = recyclerView.getChildAt(index -
-                                linearLayoutManager.findFirstVisibleItemPosition());
-                        if (view != null && !messageList.get(index).isCustom()) {
-                            TextView createdAtTime = (TextView) view.findViewById(R.id.createdAtTime);
-                            Drawable statusIcon = getResources().getDrawable(R.drawable.applozic_ic_action_message_delivered);
-                            if (message.getStatus() == Message.Status.DELIVERED_AND_READ.getValue()) {
-                                statusIcon = getResources().getDrawable(R.drawable.applozic_ic_action_message_read);
-                                messageList.get(index).setStatus(Message.Status.DELIVERED_AND_READ.getValue());
-                            }
-                            createdAtTime.setCompoundDrawablesWithIntrinsicBounds(null, null, statusIcon, null);
-                        }
-                    } else if (!message.isVideoNotificationMessage() && !message.hasHideKey()) {
-                        messageList.add(message);
-                        linearLayoutManager.scrollToPositionWithOffset(messageList.size() - 1, 0);
-                        emptyTextView.setVisibility(View.GONE);
-                        recyclerDetailConversationAdapter.notifyDataSetChanged();
+                boolean messageAdded = false;
+                for (Message message : messages) {
+                    try {
+                        messageAdded = updateDeliveryStatusInList(message) || messageAdded;
+                    } catch (Exception ex) {
+                        Utils.printLog(getContext(), TAG, "Exception while updating delivery status in UI.");
                     }
-                } catch (Exception ex) {
-                    Utils.printLog(getContext(), TAG, "Exception while updating delivery status in UI.");
+                }
+                if (messageAdded) {
+                    linearLayoutManager.scrollToPositionWithOffset(messageList.size() - 1, 0);
+                    emptyTextView.setVisibility(View.GONE);
+                    recyclerDetailConversationAdapter.notifyDataSetChanged();
                 }
             }
         });
     }
 
+    /**
+     * @return true if the message wasn't in the list and was added to it
+     */
+    private boolean updateDeliveryStatusInList(Message message) {
+        int index = messageList.indexOf(message);
+        if (index != -1) {
+            if (messageList.get(index).getStatus() == Message.Status.DELIVERED_AND_READ.getValue()
+                    || messageList.get(index).isTempDateType()
+                    || messageList.get(index).isCustom()
+                    || messageList.get(index).isChannelCustomMessage()) {
+                return false;
+            }
+            messageList.get(index).setDelivered(true);
+            messageList.get(index).setStatus(message.getStatus());
+            View view = recyclerView.getChildAt(index -
+                    linearLayoutManager.findFirstVisibleItemPosition());
+            if (view != null && !messageList.get(index).isCustom()) {
+                TextView createdAtTime = (TextView) view.findViewById(R.id.createdAtTime);
+                Drawable statusIcon = getResources().getDrawable(R.drawable.applozic_ic_action_message_delivered);
+                if (message.getStatus() == Message.Status.DELIVERED_AND_READ.getValue()) {
+                    statusIcon = getResources().getDrawable(R.drawable.applozic_ic_action_message_read);
+                    messageList.get(index).setStatus(Message.Status.DELIVERED_AND_READ.getValue());
+                }
+                createdAtTime.setCompoundDrawablesWithIntrinsicBounds(null, null, statusIcon, null);
+            }
+        } else if (!message.isVideoNotificationMessage() && !message.hasHideKey()) {
+            messageList.add(message);
+            return true;
+        }
+        return false;
+    }
+
 
     public void loadFileAndSendMessage(Uri uri, File file, short messageContentType) {
         if (uri == null || file == null) {
@@ -2829,6 +2852,36 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
         });
     }
 
+    /**
+     * Shows the video thumbnail if it's in memory, or nothing until it's loaded.
+     * The loaded thumbnail is shown wherever the message still is (its item in the list, or the reply preview), since by then
+     * the given view may be showing another message.
+     */
+    private void loadVideoThumbnail(final Message message, ImageView imageView) {
+        Bitmap videoThumbnail = imageCache.getBitmapFromMemCache(message.getKeyString());
+        imageView.setImageBitmap(videoThumbnail);
+        if (videoThumbnail != null) {
+            return;
+        }
+        AlVideoThumbnailCache.getInstance(getContext()).loadThumbnail(message.getFilePaths().get(0), new AlVideoThumbnailCache.Callback() {
+            @Override
+            public void onThumbnailLoaded(@Nullable Bitmap thumbnail) {
+                if (thumbnail == null || !isAdded()) {
+                    return;
+                }
+                imageCache.addBitmapToCache(message.getKeyString(), thumbnail);
+                int index = messageList.indexOf(message);
+                if (index != -1 && recyclerDetailConversationAdapter != null) {
+                    recyclerDetailConversationAdapter.notifyItemChanged(index);
+                }
+                if (messageMetaData != null && message.getKeyString() != null
+                        && message.getKeyString().equals(messageMetaData.get(Message.MetaDataType.AL_REPLY.getValue()))) {
+                    galleryImageView.setImageBitmap(thumbnail);
+                }
+            }
+        });
+    }
+
     public void updateDownloadStatus(final Message message) {
         if (this.getActivity() == null) {
             return;
@@ -2861,11 +2914,10 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
                                 attachmentView.setMessage(smListItem);
                                 attachmentDownloadProgressLayout.setVisibility(View.GONE);
                             } else if (message.getFileMetas() != null && message.getFileMetas().getContentType().contains("video")) {
-                                FileClientService fileClientService = new FileClientService(getContext());
                                 attachedFile.setVisibility(View.GONE);
                                 preview.setVisibility(VISIBLE);
                                 videoIcon.setVisibility(VISIBLE);
-                                preview.setImageBitmap(fileClientService.getOrCreateVideoThumbnail(message.getFilePaths().get(0)));
+                                loadVideoThumbnail(message, preview);
                             } else if (message.getFileMetas() != null) {
                                 //Hide Attachment View...
                                 RelativeLayout applozicDocRelativeLayout = (RelativeLayout) view.findViewById(R.id.applozic_doc_downloaded);
@@ -3009,6 +3061,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
             typingStarted = false;
         }
         Applozic.unSubscribeToTyping(getContext(), channel, contact);
+        AlPresenceManager.getInstance(getContext()).clearVisibleUsers(this);
         if (recyclerDetailConversationAdapter != null) {
             recyclerDetailConversationAdapter.contactImageLoader.setPauseWork(false);
         }
@@ -3081,6 +3134,13 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
         if (contact != null || channel != null) {
             BroadcastService.currentUserId = contact != null ? contact.getContactIds() : String.valueOf(channel.getKey());
             BroadcastService.currentConversationId = currentConversationId;
+            String presenceUserId = null;
+            if (contact != null) {
+                presenceUserId = contact.getContactIds();
+            } else if (Channel.GroupType.GROUPOFTWO.getValue().equals(channel.getType())) {
+                presenceUserId = ChannelService.getInstance(getActivity()).getGroupOfTwoReceiverUserId(channel.getKey());
+            }
+            AlPresenceManager.getInstance(getContext()).setVisibleUsers(this, !TextUtils.isEmpty(presenceUserId) ? Collections.singleton(presenceUserId) : null);
             if (BroadcastService.currentUserId != null) {
                 NotificationManagerCompat nMgr = NotificationManagerCompat.from(getActivity());
                 if (ApplozicClient.getInstance(getActivity()).isNotificationStacking()) {
@@ -3282,7 +3342,7 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
     public void selfDestructMessage(Message message) {
         if (Message.MessageType.MT_INBOX.getValue().equals(message.getType()) &&
                 message.getTimeToLive() != null && message.getTimeToLive() != 0) {
-            new Timer().schedule(new DisappearingMessageTask(getActivity(), conversationService, message), message.getTimeToLive() * 60 * 1000);
+            TimedMessageScheduler.getInstance(getActivity()).scheduleMessageDeletion(message, message.getTimeToLive() * 60 * 1000L);
         }
     }
 
@@ -4072,7 +4132,9 @@ abstract public class MobiComConversationFragment extends Fragment implements Vi
             mimeType = URLConnection.guessContentTypeFromName(file.getName());
             if (alCustomizationSettingsLayoutWeakReference.get().isImageCompressionEnabled() && mimeType != null && (mimeType.startsWith("image"))) {
                 FragmentActivity fragmentActivity = activityWeakReference.get();
-                boolean isCompressionSuccess = AlBitmapUtils.compress(uri, file, fragmentActivity);
+                if (fragmentActivity != null) {
+                    boolean isCompressionSuccess = AlBitmapUtils.compress(uri, file, fragmentActivity, alCustomizationSettingsLayoutWeakReference.get());
+                }
             }
             filePath = Uri.parse(file.getAbsolutePath()).toString();
             return null;
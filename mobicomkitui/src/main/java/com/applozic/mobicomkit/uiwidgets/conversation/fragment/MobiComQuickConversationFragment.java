@@ -28,7 +28,10 @@ import com.applozic.mobicomkit.api.conversation.MessageSyncTask;
 import com.applozic.mobicomkit.api.conversation.MobiComConversationService;
 import com.applozic.mobicomkit.api.conversation.SyncCallService;
 import com.applozic.mobicomkit.api.conversation.database.MessageDatabaseService;
+import com.applozic.mobicomkit.api.conversation.preload.ConversationPreloader;
+import com.applozic.mobicomkit.api.conversation.retention.MessageRetention;
 import com.applozic.mobicomkit.broadcast.BroadcastService;
+import com.applozic.mobicomkit.contact.AlPresenceManager;
 import com.applozic.mobicomkit.contact.AppContactService;
 import com.applozic.mobicomkit.contact.BaseContactService;
 import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
@@ -476,6 +479,7 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
         super.onPause();
         listIndex = linearLayoutManager.findFirstVisibleItemPosition();
         BroadcastService.currentUserId = null;
+        AlPresenceManager.getInstance(getContext()).clearVisibleUsers(this);
         if (recyclerView != null) {
             BroadcastService.lastIndexForChats = linearLayoutManager.findFirstVisibleItemPosition();
         }
@@ -496,6 +500,7 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
             if (recyclerView.getChildCount() > listIndex) {
                 recyclerView.scrollToPosition(listIndex);
             }
+            recyclerView.post(updateVisibleUsersRunnable);
         }
         if (!isAlreadyLoading) {
             latestMessageForEachContact.clear();
@@ -527,6 +532,9 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
                     recyclerAdapter.contactImageLoader.setPauseWork(newState == RecyclerView.SCROLL_STATE_DRAGGING);
                     recyclerAdapter.channelImageLoader.setPauseWork(newState == RecyclerView.SCROLL_STATE_DRAGGING);
                 }
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    updateVisibleUsers();
+                }
 
             }
 
@@ -587,6 +595,31 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
         }
     }
 
+    private final Runnable updateVisibleUsersRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateVisibleUsers();
+        }
+    };
+
+    //marks the users of the visible rows, so only their presence changes are broadcast. See AlPresenceManager
+    private void updateVisibleUsers() {
+        if (getContext() == null || linearLayoutManager == null || !isResumed()) {
+            return;
+        }
+        List<String> userIds = new ArrayList<>();
+        if (alCustomizationSettings != null && alCustomizationSettings.isOnlineStatusMasterList()) {
+            int lastVisibleItemPosition = linearLayoutManager.findLastVisibleItemPosition();
+            for (int i = Math.max(0, linearLayoutManager.findFirstVisibleItemPosition()); i <= lastVisibleItemPosition && i < messageList.size(); i++) {
+                Message message = messageList.get(i);
+                if (message != null && message.getGroupId() == null && !TextUtils.isEmpty(message.getContactIds())) {
+                    userIds.add(message.getContactIds());
+                }
+            }
+        }
+        AlPresenceManager.getInstance(getContext()).setVisibleUsers(this, userIds);
+    }
+
     public void updateLastSeenStatus(final String userId) {
 
         if (alCustomizationSettings == null) {
@@ -743,6 +776,10 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
                 MobiComConversationService.NetworkListDecorator<Message> networkListDecorator = syncCallService.getLatestMessagesGroupByPeopleWithNetworkMetaData(searchString, MobiComUserPreference.getInstance(ApplozicService.getContextFromWeak(context)).getParentGroupKey());
                 nextMessageList = networkListDecorator.getList();
                 wasNetworkFail = networkListDecorator.wasNetworkFail();
+                if (TextUtils.isEmpty(searchString)) {
+                    ConversationPreloader.getInstance(ApplozicService.getContextFromWeak(context)).schedulePreload();
+                    MessageRetention.getInstance(ApplozicService.getContextFromWeak(context)).schedulePruning();
+                }
             } else if (!messageList.isEmpty()) {
                 listIndex = firstVisibleItem;
                 Long createdAt;
@@ -867,6 +904,9 @@ public class MobiComQuickConversationFragment extends Fragment implements Search
             if (!nextMessageList.isEmpty()) {
                 loadMore = true;
             }
+            if (recyclerView != null) {
+                recyclerView.post(updateVisibleUsersRunnable);
+            }
             isAlreadyLoading = false;
         }
     }
@@ -16,6 +16,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.applozic.mobicomkit.api.mention.Mention;
+import com.applozic.mobicomkit.api.mention.MentionIndex;
 import com.applozic.mobicomkit.uiwidgets.R;
 import com.applozic.mobicommons.commons.core.utils.Utils;
 import com.bumptech.glide.Glide;
@@ -30,6 +31,9 @@ import java.util.Locale;
  * Default adapter for displaying mention in {@link MentionAutoCompleteTextView}.
  */
 public class MentionAdapter extends ArrayAdapter<Mention> {
+    //more matches than this aren't useful in the dropdown, and the rest of the members don't need to be scanned
+    private static final int MAX_FILTERED_MENTIONS = 50;
+
     public MentionAdapter(@NonNull Context context, int resource, int textViewResourceId) {
         super(context, resource, textViewResourceId);
     }
@@ -40,39 +44,56 @@ public class MentionAdapter extends ArrayAdapter<Mention> {
 
     private Filter filter;
     private final List<Mention> mentions = new ArrayList<>();
+    private volatile MentionIndex mentionIndex;
 
     public List<Mention> getMentions() {
         return mentions;
     }
 
+    /**
+     * Sets the mentions from the index, which is then used for filtering them.
+     *
+     * @see com.applozic.mobicomkit.api.mention.MentionHelper#getMentionIndexForChannel(Context, Integer)
+     */
+    public void setMentionIndex(@NonNull MentionIndex mentionIndex) {
+        clear();
+        addAll(mentionIndex.getMentions());
+        this.mentionIndex = mentionIndex;
+    }
+
     @Override
     public void add(@Nullable Mention object) {
         super.add(object);
         mentions.add(object);
+        mentionIndex = null;
     }
 
     @Override
     public void addAll(@NonNull Collection<? extends Mention> collection) {
         super.addAll(collection);
         mentions.addAll(collection);
+        mentionIndex = null;
     }
 
     @Override
     public final void addAll(Mention... items) {
         super.addAll(items);
         Collections.addAll(mentions, items);
+        mentionIndex = null;
     }
 
     @Override
     public void remove(@Nullable Mention object) {
         super.remove(object);
         mentions.remove(object);
+        mentionIndex = null;
     }
 
     @Override
     public void clear() {
         super.clear();
         mentions.clear();
+        mentionIndex = null;
     }
 
     @NonNull
@@ -103,6 +124,13 @@ public class MentionAdapter extends ArrayAdapter<Mention> {
                 results.count = mentions.size();
                 return results;
             }
+            final MentionIndex index = mentionIndex;
+            if (index != null && constraint != null) {
+                final List<Mention> filteredItems = index.search(constraint, MAX_FILTERED_MENTIONS);
+                results.values = filteredItems;
+                results.count = filteredItems.size();
+                return results;
+            }
             final List<Mention> filteredItems = new ArrayList<>();
             for (final Mention item : mentions) {
                 if (item.getDisplayNameOrUserId()
@@ -5,8 +5,6 @@ import android.text.TextUtils;
 import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.utils.AlRegexHelper;
 import com.applozic.mobicommons.json.JsonMarker;
 
-import java.util.regex.Pattern;
-
 public class AlLinkPreviewModel extends JsonMarker {
 
     private String url;
@@ -61,7 +59,7 @@ public class AlLinkPreviewModel extends JsonMarker {
 
     public boolean hasImageOnly() {
         return !TextUtils.isEmpty(imageLink)
-                && Pattern.compile(AlRegexHelper.IMAGE_PATTERN).matcher(imageLink).matches()
+                && AlRegexHelper.isImageUrl(imageLink)
                 && TextUtils.isEmpty(title)
                 && TextUtils.isEmpty(description);
     }
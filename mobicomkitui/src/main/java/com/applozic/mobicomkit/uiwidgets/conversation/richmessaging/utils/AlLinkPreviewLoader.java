@@ -0,0 +1,566 @@
+package com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.webkit.URLUtil;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.collection.LruCache;
+
+import com.applozic.mobicomkit.listners.AlCallback;
+import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.models.AlLinkPreviewModel;
+import com.applozic.mobicommons.ApplozicService;
+import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicommons.json.GsonUtils;
+import com.applozic.mobicommons.task.AlDaemonThreadFactory;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Loads the link previews (see {@link AlLinkPreviewModel}) of urls, for all the messages in the process.</p>
+ *
+ * <p>Previews are cached in memory and on disk (for {@link #DISK_CACHE_TTL_MILLIS}), by the url as it appears in the message.
+ * A url that is already being fetched isn't fetched again, the callers get the result of that fetch.
+ * At most {@link #MAX_CONCURRENT_FETCHES} urls are fetched at a time, the others wait in a queue. A url that couldn't be fetched
+ * (network errors, server errors and {@code 429 Too Many Requests}) isn't retried for {@link #FAILURE_RETRY_DELAY_MILLIS}.
+ * Other {@code 4xx} responses won't change on a retry, so they are cached like a preview, as an invalid url.</p>
+ *
+ * <p>A fetch follows the redirects of shortened urls itself, and only reads the page up to the end of its {@code <head>},
+ * which is where the meta tags are.</p>
+ */
+public class AlLinkPreviewLoader {
+    private static final String TAG = "AlLinkPreviewLoader";
+    private static final String DISK_CACHE_DIRECTORY = "al_link_previews";
+    private static final int MEMORY_CACHE_SIZE = 100;
+    private static final int MAX_DISK_CACHE_ENTRIES = 500;
+    private static final int DISK_CACHE_PRUNE_INTERVAL = 50;
+    @VisibleForTesting
+    static final long DISK_CACHE_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    private static final long FAILURE_RETRY_DELAY_MILLIS = 60 * 1000;
+    private static final int MAX_CONCURRENT_FETCHES = 3;
+    private static final int MAX_REDIRECTS = 5;
+    private static final int TIMEOUT_MILLIS = 10000;
+    private static final int MAX_HEAD_CHARS = 64 * 1024;
+    private static final String HEAD_END_TAG = "</head>";
+    private static final String BODY_START_TAG = "<body";
+    private static final String USER_AGENT = "Mozilla/5.0 (Linux; Android) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/80.0 Mobile Safari/537.36";
+
+    private static AlLinkPreviewLoader linkPreviewLoader;
+
+    private final Context context;
+    private final File diskCacheDirectory;
+    private final ThreadPoolExecutor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, AlLinkPreviewModel> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final LruCache<String, Long> failureTimes = new LruCache<>(MEMORY_CACHE_SIZE);
+    //guarded by this
+    private final Map<String, Fetch> inFlightFetches = new HashMap<>();
+    private int diskWritesSincePrune = DISK_CACHE_PRUNE_INTERVAL;
+
+    private AlLinkPreviewLoader(Context context) {
+        this(context, new File(ApplozicService.getContext(context).getCacheDir(), DISK_CACHE_DIRECTORY));
+    }
+
+    @VisibleForTesting
+    AlLinkPreviewLoader(Context context, File diskCacheDirectory) {
+        this.context = ApplozicService.getContext(context);
+        this.diskCacheDirectory = diskCacheDirectory;
+        executor = new ThreadPoolExecutor(MAX_CONCURRENT_FETCHES, MAX_CONCURRENT_FETCHES, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new AlDaemonThreadFactory(TAG));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized @NonNull AlLinkPreviewLoader getInstance(@Nullable Context context) {
+        if (linkPreviewLoader == null) {
+            linkPreviewLoader = new AlLinkPreviewLoader(context);
+        }
+        return linkPreviewLoader;
+    }
+
+    /**
+     * @return the preview from the memory cache, null if it isn't there. Doesn't block, can be called when binding a view
+     */
+    public @Nullable AlLinkPreviewModel getCachedPreview(@Nullable String url) {
+        String key = getCacheKey(url);
+        return key != null ? memoryCache.get(key) : null;
+    }
+
+    /**
+     * Loads the preview in the background and passes it to the callback on the main thread.
+     * {@link AlCallback#onError(Object)} is called if the preview couldn't be loaded.
+     */
+    public void loadPreview(@Nullable String url, @NonNull AlCallback callback) {
+        AlLinkPreviewModel cachedPreview = getCachedPreview(url);
+        if (cachedPreview != null) {
+            callback.onSuccess(cachedPreview);
+            return;
+        }
+        if (getOrStartFetch(getCacheKey(url), callback) == null) {
+            callback.onError(null);
+        }
+    }
+
+    /**
+     * Loads the preview and waits for it. Blocking, don't call it from the main thread.
+     *
+     * @return the preview, null if it couldn't be loaded
+     */
+    @WorkerThread
+    public @Nullable AlLinkPreviewModel loadPreview(@Nullable String url) {
+        AlLinkPreviewModel cachedPreview = getCachedPreview(url);
+        if (cachedPreview != null) {
+            return cachedPreview;
+        }
+        Fetch fetch = getOrStartFetch(getCacheKey(url), null);
+        return fetch != null ? fetch.getResult() : null;
+    }
+
+    /**
+     * @return the url with the protocol added if it's missing, used as the cache key. Null for an empty url
+     */
+    public static @Nullable String getCacheKey(@Nullable String url) {
+        if (TextUtils.isEmpty(url)) {
+            return null;
+        }
+        if (!(url.regionMatches(true, 0, AlRegexHelper.HTTP_PROTOCOL, 0, AlRegexHelper.HTTP_PROTOCOL.length())
+                || url.regionMatches(true, 0, AlRegexHelper.HTTPS_PROTOCOL, 0, AlRegexHelper.HTTPS_PROTOCOL.length()))) {
+            return AlRegexHelper.HTTP_PROTOCOL + url;
+        }
+        return url;
+    }
+
+    private @Nullable Fetch getOrStartFetch(@Nullable String key, @Nullable AlCallback callback) {
+        if (key == null) {
+            return null;
+        }
+        Long failureTime = failureTimes.get(key);
+        if (failureTime != null && System.currentTimeMillis() - failureTime < FAILURE_RETRY_DELAY_MILLIS) {
+            return null;
+        }
+
+        Fetch fetch;
+        boolean newFetch = false;
+        synchronized (this) {
+            fetch = inFlightFetches.get(key);
+            if (fetch == null) {
+                fetch = new Fetch(key);
+                inFlightFetches.put(key, fetch);
+                newFetch = true;
+            }
+            if (callback != null) {
+                fetch.callbacks.add(callback);
+            }
+        }
+        if (newFetch) {
+            executor.execute(fetch);
+        }
+        return fetch;
+    }
+
+    private synchronized List<AlCallback> onFetchDone(Fetch fetch) {
+        inFlightFetches.remove(fetch.key);
+        return new ArrayList<>(fetch.callbacks);
+    }
+
+    private @Nullable AlLinkPreviewModel loadFromDiskOrNetwork(String key) {
+        File cacheFile = getCacheFile(key);
+        AlLinkPreviewModel preview = cacheFile != null ? readFromDisk(cacheFile) : null;
+        if (preview == null) {
+            preview = fetchPreview(key);
+            if (preview == null) {
+                failureTimes.put(key, System.currentTimeMillis());
+                return null;
+            }
+            if (cacheFile != null) {
+                writeToDisk(cacheFile, preview);
+            }
+        }
+        memoryCache.put(key, preview);
+        return preview;
+    }
+
+    /**
+     * @return the preview, an invalid url preview for the error responses that won't change on a retry, null if the url should be retried later
+     */
+    @VisibleForTesting
+    @Nullable AlLinkPreviewModel fetchPreview(String url) {
+        if (AlRegexHelper.isImageUrl(url)) {
+            AlLinkPreviewModel linkPreviewModel = new AlLinkPreviewModel();
+            linkPreviewModel.setImageLink(url);
+            return linkPreviewModel;
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            String currentUrl = url;
+            for (int redirects = 0; ; redirects++) {
+                URL inputURL = new URL(currentUrl);
+                connection = (HttpURLConnection) inputURL.openConnection(Proxy.NO_PROXY);
+                connection.setInstanceFollowRedirects(false);
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                connection.setRequestProperty("User-Agent", USER_AGENT);
+                connection.setRequestProperty("Accept", "text/html,application/xhtml+xml,*/*;q=0.8");
+
+                int responseCode = connection.getResponseCode();
+                String location = connection.getHeaderField("Location");
+                if (responseCode >= 300 && responseCode < 400 && !TextUtils.isEmpty(location) && redirects < MAX_REDIRECTS) {
+                    //shortened urls, and http to https redirects, which HttpURLConnection doesn't follow itself
+                    currentUrl = new URL(inputURL, location).toString();
+                    connection.disconnect();
+                    continue;
+                }
+                if (isPermanentError(responseCode)) {
+                    AlLinkPreviewModel linkPreviewModel = new AlLinkPreviewModel();
+                    linkPreviewModel.setInvalidUrl(true);
+                    return linkPreviewModel;
+                }
+                if (responseCode >= 400) {
+                    Utils.printLog(context, TAG, "Link preview fetch failed with response code: " + responseCode);
+                    return null;
+                }
+                break;
+            }
+
+            String contentType = connection.getContentType();
+            if (AlRegexHelper.isImageUrl(currentUrl) || (contentType != null && contentType.toLowerCase(Locale.US).startsWith("image/"))) {
+                AlLinkPreviewModel linkPreviewModel = new AlLinkPreviewModel();
+                linkPreviewModel.setImageLink(currentUrl);
+                return linkPreviewModel;
+            }
+            if (contentType != null && !contentType.toLowerCase(Locale.US).contains("html")) {
+                Utils.printLog(context, TAG, "No link preview for content type: " + contentType);
+                return null;
+            }
+
+            Document document = Jsoup.parse(readHead(connection, contentType), currentUrl);
+            return getMetaTags(document, currentUrl);
+        } catch (Exception e) {
+            Utils.printLog(context, TAG, "Failed to fetch link preview: " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true for the {@code 4xx} responses, other than {@code 429 Too Many Requests}. Server errors and rate limits are temporary
+     */
+    @VisibleForTesting
+    static boolean isPermanentError(int responseCode) {
+        return responseCode >= 400 && responseCode < 500 && responseCode != 429;
+    }
+
+    /**
+     * Reads the page up to the end of its head, the rest of it isn't needed for the preview.
+     */
+    private static String readHead(HttpURLConnection connection, @Nullable String contentType) throws IOException {
+        Reader reader = null;
+        StringBuilder html = new StringBuilder();
+        try {
+            reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), getCharset(contentType)));
+            char[] buffer = new char[4096];
+            int read;
+            while (html.length() < MAX_HEAD_CHARS && (read = reader.read(buffer)) != -1) {
+                //the tags can be split between two reads
+                int searchFrom = Math.max(0, html.length() - HEAD_END_TAG.length());
+                html.append(buffer, 0, read);
+                String readPart = html.substring(searchFrom).toLowerCase(Locale.US);
+                if (readPart.contains(HEAD_END_TAG) || readPart.contains(BODY_START_TAG)) {
+                    break;
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        return html.toString();
+    }
+
+    private static Charset getCharset(@Nullable String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String[] nameValue = parameter.trim().split("=", 2);
+                if (nameValue.length == 2 && "charset".equalsIgnoreCase(nameValue[0].trim())) {
+                    try {
+                        return Charset.forName(nameValue[1].trim().replace("\"", ""));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        return Charset.forName("UTF-8");
+    }
+
+    private static AlLinkPreviewModel getMetaTags(Document doc, String url) {
+        AlLinkPreviewModel linkPreviewModel = new AlLinkPreviewModel();
+        try {
+            String title = doc.select("meta[property=og:title]").attr("content");
+            if (!TextUtils.isEmpty(title)) {
+                linkPreviewModel.setTitle(title);
+            } else {
+                linkPreviewModel.setTitle(doc.title());
+            }
+
+            //getDescription
+            String description = doc.select("meta[name=description]").attr("content");
+            if (description.isEmpty()) {
+                description = doc.select("meta[name=Description]").attr("content");
+            }
+            if (description.isEmpty()) {
+                description = doc.select("meta[property=og:description]").attr("content");
+            }
+            linkPreviewModel.setDescription(description);
+
+            //getImages
+            String image = doc.select("meta[property=og:image]").attr("content");
+            if (!TextUtils.isEmpty(image)) {
+                linkPreviewModel.setImageLink(resolveURL(url, image));
+            }
+            if (TextUtils.isEmpty(linkPreviewModel.getImageLink())) {
+                String src = doc.select("link[rel=image_src]").attr("href");
+                if (TextUtils.isEmpty(src)) {
+                    src = doc.select("link[rel=apple-touch-icon]").attr("href");
+                }
+                if (TextUtils.isEmpty(src)) {
+                    src = doc.select("link[rel=icon]").attr("href");
+                }
+                if (!TextUtils.isEmpty(src)) {
+                    linkPreviewModel.setImageLink(resolveURL(url, src));
+                }
+            }
+
+            for (Element element : doc.getElementsByTag("meta")) {
+                if (element.hasAttr("property")) {
+                    String strProperty = element.attr("property").trim();
+                    if (strProperty.equals("og:url")) {
+                        linkPreviewModel.setUrl(element.attr("content"));
+                    }
+                    if (strProperty.equals("og:site_name") && TextUtils.isEmpty(linkPreviewModel.getTitle())) {
+                        linkPreviewModel.setTitle(element.attr("content"));
+                    }
+                }
+            }
+
+            if (TextUtils.isEmpty(linkPreviewModel.getUrl())) {
+                URI uri = null;
+                try {
+                    uri = new URI(url);
+                } catch (URISyntaxException e) {
+                    e.printStackTrace();
+                }
+                linkPreviewModel.setUrl(uri == null ? url : uri.getHost());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return linkPreviewModel;
+    }
+
+    private static String resolveURL(String url, String part) {
+        if (URLUtil.isValidUrl(part)) {
+            return part;
+        } else {
+            try {
+                return new URI(url).resolve(part).toString();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    private @Nullable File getCacheFile(String key) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            StringBuilder fileName = new StringBuilder();
+            for (byte b : messageDigest.digest(key.getBytes("UTF-8"))) {
+                fileName.append(String.format(Locale.US, "%02x", b));
+            }
+            return new File(diskCacheDirectory, fileName.toString());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private @Nullable AlLinkPreviewModel readFromDisk(File cacheFile) {
+        if (!cacheFile.exists() || System.currentTimeMillis() - cacheFile.lastModified() > DISK_CACHE_TTL_MILLIS) {
+            return null;
+        }
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(cacheFile), "UTF-8");
+            StringBuilder json = new StringBuilder();
+            char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                json.append(buffer, 0, read);
+            }
+            return (AlLinkPreviewModel) GsonUtils.getObjectFromJson(json.toString(), AlLinkPreviewModel.class);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            closeQuietly(reader);
+        }
+        return null;
+    }
+
+    private void writeToDisk(File cacheFile, AlLinkPreviewModel preview) {
+        Writer writer = null;
+        try {
+            if (!diskCacheDirectory.exists() && !diskCacheDirectory.mkdirs()) {
+                return;
+            }
+            writer = new OutputStreamWriter(new FileOutputStream(cacheFile), "UTF-8");
+            writer.write(GsonUtils.getJsonFromObject(preview, AlLinkPreviewModel.class));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            closeQuietly(writer);
+        }
+
+        boolean prune;
+        synchronized (this) {
+            prune = ++diskWritesSincePrune >= DISK_CACHE_PRUNE_INTERVAL;
+            if (prune) {
+                diskWritesSincePrune = 0;
+            }
+        }
+        if (prune) {
+            pruneDiskCache();
+        }
+    }
+
+    /**
+     * Deletes the expired entries, and the oldest ones above {@link #MAX_DISK_CACHE_ENTRIES}.
+     */
+    private void pruneDiskCache() {
+        File[] files = diskCacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<File> remainingFiles = new ArrayList<>();
+        for (File file : files) {
+            if (now - file.lastModified() > DISK_CACHE_TTL_MILLIS) {
+                file.delete();
+            } else {
+                remainingFiles.add(file);
+            }
+        }
+        if (remainingFiles.size() > MAX_DISK_CACHE_ENTRIES) {
+            File[] sortedFiles = remainingFiles.toArray(new File[0]);
+            Arrays.sort(sortedFiles, new Comparator<File>() {
+                @Override
+                public int compare(File first, File second) {
+                    return Long.compare(first.lastModified(), second.lastModified());
+                }
+            });
+            for (int i = 0; i < sortedFiles.length - MAX_DISK_CACHE_ENTRIES; i++) {
+                sortedFiles[i].delete();
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private class Fetch extends FutureTask<AlLinkPreviewModel> {
+        final String key;
+        //guarded by AlLinkPreviewLoader.this
+        final List<AlCallback> callbacks = new ArrayList<>();
+
+        Fetch(final String key) {
+            super(new Callable<AlLinkPreviewModel>() {
+                @Override
+                public AlLinkPreviewModel call() {
+                    return loadFromDiskOrNetwork(key);
+                }
+            });
+            this.key = key;
+        }
+
+        @Nullable AlLinkPreviewModel getResult() {
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            final List<AlCallback> fetchCallbacks = onFetchDone(this);
+            if (fetchCallbacks.isEmpty()) {
+                return;
+            }
+            final AlLinkPreviewModel preview = getResult();
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (AlCallback callback : fetchCallbacks) {
+                        if (preview != null) {
+                            callback.onSuccess(preview);
+                        } else {
+                            callback.onError(null);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -24,6 +24,15 @@ public class AlRegexHelper {
     public static final String METATAG_CONTENT_PATTERN = "content=\"(.*?)\"";
     public static final String URL_PATTERN = "<\\b(https?|ftp|file)://[-a-zA-Z0-9+&@#/%?=~_|!:,.;]*[-a-zA-Z0-9+&@#/%=~_|]>";
 
+    private static final Pattern COMPILED_IMAGE_PATTERN = Pattern.compile(IMAGE_PATTERN);
+
+    /**
+     * @return true if the url matches {@link #IMAGE_PATTERN}. Uses a pre-compiled pattern, can be called when binding views
+     */
+    public static boolean isImageUrl(String url) {
+        return url != null && COMPILED_IMAGE_PATTERN.matcher(url).matches();
+    }
+
     public static String pregMatch(String content, String pattern, int index) {
 
         String match = "";
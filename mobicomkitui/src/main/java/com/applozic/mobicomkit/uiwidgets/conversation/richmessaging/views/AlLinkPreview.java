@@ -6,7 +6,6 @@ import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
-import android.webkit.URLUtil;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
@@ -20,31 +19,20 @@ import com.applozic.mobicomkit.uiwidgets.AlCustomizationSettings;
 import com.applozic.mobicomkit.uiwidgets.R;
 import com.applozic.mobicomkit.uiwidgets.async.AlMessageMetadataUpdateTask;
 import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.models.AlLinkPreviewModel;
-import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.utils.AlRegexHelper;
-import com.applozic.mobicommons.ApplozicService;
-import com.applozic.mobicommons.commons.core.utils.Utils;
+import com.applozic.mobicomkit.uiwidgets.conversation.richmessaging.utils.AlLinkPreviewLoader;
 import com.applozic.mobicommons.json.GsonUtils;
 import com.applozic.mobicommons.task.AlAsyncTask;
 import com.applozic.mobicommons.task.AlTask;
 import com.bumptech.glide.Glide;
 
-import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.Proxy;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 public class AlLinkPreview {
     private static final String TAG = "AlLinkPreview";
@@ -71,22 +59,36 @@ public class AlLinkPreview {
     }
 
     public void createView() {
+        //the view can be bound to another message before the preview is loaded
+        urlLoadLayout.setTag(message);
         AlLinkPreviewModel existingLinkModel = getUrlMetaModel();
+        if (existingLinkModel == null) {
+            existingLinkModel = AlLinkPreviewLoader.getInstance(context).getCachedPreview(message.getFirstUrl());
+            if (existingLinkModel != null) {
+                storeInMessageMetadata(context, message, existingLinkModel, null);
+            }
+        }
         if (existingLinkModel != null) {
             updateViews(existingLinkModel);
         } else {
             urlLoadLayout.setVisibility(View.GONE);
-            AlTask.execute(new UrlLoader(context, message, new AlCallback() {
+            AlLinkPreviewLoader.getInstance(context).loadPreview(message.getFirstUrl(), new AlCallback() {
                 @Override
                 public void onSuccess(Object response) {
-                    updateViews((AlLinkPreviewModel) response);
+                    AlLinkPreviewModel linkPreviewModel = (AlLinkPreviewModel) response;
+                    if (getUrlMetaModel() == null) {
+                        storeInMessageMetadata(context, message, linkPreviewModel, null);
+                    }
+                    if (urlLoadLayout.getTag() == message) {
+                        updateViews(linkPreviewModel);
+                    }
                 }
 
                 @Override
                 public void onError(Object error) {
 
                 }
-            }));
+            });
         }
     }
 
@@ -153,57 +155,14 @@ public class AlLinkPreview {
 
         @Override
         protected AlLinkPreviewModel doInBackground() {
-            String validUrl = getValidUrl(message);
-            AlLinkPreviewModel linkPreviewModel = null;
-            try {
-                if (!TextUtils.isEmpty(validUrl) && Pattern.compile(AlRegexHelper.IMAGE_PATTERN).matcher(validUrl).matches()) {
-                    linkPreviewModel = new AlLinkPreviewModel();
-                    linkPreviewModel.setImageLink(validUrl);
-                } else {
-                    Document document = Jsoup.connect(validUrl).get();
-                    linkPreviewModel = getMetaTags(document, message);
-                    if (TextUtils.isEmpty(linkPreviewModel.getTitle())) {
-                        linkPreviewModel.setTitle(document.title());
-                    }
-                    if (!TextUtils.isEmpty(linkPreviewModel.getImageLink()) &&
-                            !(linkPreviewModel.getImageLink().startsWith(AlRegexHelper.HTTP_PROTOCOL) || linkPreviewModel.getImageLink().startsWith(AlRegexHelper.HTTPS_PROTOCOL))) {
-                        linkPreviewModel.setImageLink(getValidUrl(message) + linkPreviewModel.getImageLink());
-                    }
-                }
-                return linkPreviewModel;
-            } catch (HttpStatusException e) {
-                if (linkPreviewModel == null) {
-                    linkPreviewModel = new AlLinkPreviewModel();
-                }
-                linkPreviewModel.setInvalidUrl(true);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return linkPreviewModel;
+            return AlLinkPreviewLoader.getInstance(context.get()).loadPreview(message.getFirstUrl());
         }
 
         @Override
         protected void onPostExecute(final AlLinkPreviewModel urlMetaModel) {
             if (callback != null) {
                 if (urlMetaModel != null) {
-                    if (urlMetaModel.hasLinkData()) {
-                        Map<String, String> metadata = message.getMetadata();
-                        if (metadata == null) {
-                            metadata = new HashMap<>();
-                        }
-                        metadata.put(LINK_PREVIEW_META_KEY, GsonUtils.getJsonFromObject(urlMetaModel, AlLinkPreviewModel.class));
-                        AlTask.execute(new AlMessageMetadataUpdateTask(context.get(), message.getKeyString(), metadata, new AlMessageMetadataUpdateTask.MessageMetadataListener() {
-                            @Override
-                            public void onSuccess(Context context, String message) {
-                                callback.onSuccess(urlMetaModel);
-                            }
-
-                            @Override
-                            public void onFailure(Context context, String error) {
-                                callback.onError(error);
-                            }
-                        }));
-                    }
+                    storeInMessageMetadata(context.get(), message, urlMetaModel, callback);
                     callback.onSuccess(urlMetaModel);
                 } else {
                     callback.onError(null);
@@ -213,6 +172,41 @@ public class AlLinkPreview {
         }
     }
 
+    /**
+     * Saves the preview in the message metadata, locally and on the server, so it's shown without loading it again.
+     * Nothing is sent if the message already has the same preview.
+     */
+    private static void storeInMessageMetadata(Context context, Message message, final AlLinkPreviewModel urlMetaModel, @Nullable final AlCallback callback) {
+        if (!urlMetaModel.hasLinkData()) {
+            return;
+        }
+        String previewJson = GsonUtils.getJsonFromObject(urlMetaModel, AlLinkPreviewModel.class);
+        Map<String, String> metadata = message.getMetadata();
+        if (metadata != null && previewJson.equals(metadata.get(LINK_PREVIEW_META_KEY))) {
+            return;
+        }
+        if (metadata == null) {
+            metadata = new HashMap<>();
+            message.setMetadata(metadata);
+        }
+        metadata.put(LINK_PREVIEW_META_KEY, previewJson);
+        AlTask.execute(new AlMessageMetadataUpdateTask(context, message.getKeyString(), metadata, new AlMessageMetadataUpdateTask.MessageMetadataListener() {
+            @Override
+            public void onSuccess(Context context, String message) {
+                if (callback != null) {
+                    callback.onSuccess(urlMetaModel);
+                }
+            }
+
+            @Override
+            public void onFailure(Context context, String error) {
+                if (callback != null) {
+                    callback.onError(error);
+                }
+            }
+        }));
+    }
+
     public static class OpenLinkTask extends AlAsyncTask<Void, String> {
         private final Message message;
         private final WeakReference<Context> contextWeakReference;
@@ -246,98 +240,6 @@ public class AlLinkPreview {
         }
     }
 
-    private static AlLinkPreviewModel getMetaTags(Document doc, Message message) {
-        AlLinkPreviewModel linkPreviewModel = new AlLinkPreviewModel();
-        String url = getValidUrl(message);
-        try {
-            Elements elements = doc.getElementsByTag("meta");
-
-            String title = doc.select("meta[property=og:title]").attr("content");
-
-            Utils.printLog(ApplozicService.getAppContext(), "LinkTest", "Title : " + title);
-            if (!TextUtils.isEmpty(title)) {
-                linkPreviewModel.setTitle(title);
-            } else {
-                linkPreviewModel.setTitle(doc.title());
-            }
-
-            //getDescription
-            String description = doc.select("meta[name=description]").attr("content");
-            if (description.isEmpty() || description == null) {
-                description = doc.select("meta[name=Description]").attr("content");
-            }
-            if (description.isEmpty() || description == null) {
-                description = doc.select("meta[property=og:description]").attr("content");
-            }
-            if (description.isEmpty() || description == null) {
-                description = "";
-            }
-            linkPreviewModel.setDescription(description);
-
-            //getImages
-            Elements imageElements = doc.select("meta[property=og:image]");
-            if (imageElements.size() > 0) {
-                String image = imageElements.attr("content");
-                if (!TextUtils.isEmpty(image)) {
-                    linkPreviewModel.setImageLink(resolveURL(url, image));
-                }
-            }
-            if (TextUtils.isEmpty(linkPreviewModel.getImageLink())) {
-                String src = doc.select("link[rel=image_src]").attr("href");
-                if (!TextUtils.isEmpty(src)) {
-                    linkPreviewModel.setImageLink(resolveURL(url, src));
-                } else {
-                    src = doc.select("link[rel=apple-touch-icon]").attr("href");
-                    if (!TextUtils.isEmpty(src)) {
-                        linkPreviewModel.setImageLink(resolveURL(url, src));
-                    } else {
-                        src = doc.select("link[rel=icon]").attr("href");
-                        if (!TextUtils.isEmpty(src)) {
-                            linkPreviewModel.setImageLink(resolveURL(url, src));
-                        }
-                    }
-                }
-            }
-
-            //Favicon
-            String src = doc.select("link[rel=apple-touch-icon]").attr("href");
-            if (!TextUtils.isEmpty(src) && TextUtils.isEmpty(linkPreviewModel.getImageLink())) {
-                linkPreviewModel.setImageLink(resolveURL(url, src));
-            } else {
-                src = doc.select("link[rel=icon]").attr("href");
-                if (!TextUtils.isEmpty(src) && TextUtils.isEmpty(linkPreviewModel.getImageLink())) {
-                    linkPreviewModel.setImageLink(resolveURL(url, src));
-                }
-            }
-
-            for (Element element : elements) {
-                if (element.hasAttr("property")) {
-                    String strProperty = element.attr("property").toString().trim();
-                    if (strProperty.equals("og:url")) {
-                        linkPreviewModel.setUrl(element.attr("content").toString());
-                    }
-                    if (strProperty.equals("og:site_name") && TextUtils.isEmpty(linkPreviewModel.getTitle())) {
-                        linkPreviewModel.setTitle(element.attr("content").toString());
-                    }
-                }
-            }
-
-            if (TextUtils.isEmpty(linkPreviewModel.getUrl())) {
-                URI uri = null;
-                try {
-                    uri = new URI(url);
-                } catch (URISyntaxException e) {
-                    e.printStackTrace();
-                }
-                linkPreviewModel.setUrl(uri == null ? url : uri.getHost());
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return linkPreviewModel;
-    }
-
     public static String getExpandedURLIfShortened(String url) {
         final String LOCATION_HEADER_KEY = "Location";
         URLConnection urlConn = connectURL(url);
@@ -370,29 +272,10 @@ public class AlLinkPreview {
 
     //run this in background thread
     private static String getValidUrl(Message message) {
-        String url = message.getFirstUrl();
-        if (!TextUtils.isEmpty(url) && !(url.regionMatches(true, 0, AlRegexHelper.HTTP_PROTOCOL, 0, AlRegexHelper.HTTP_PROTOCOL.length()) || url.regionMatches(true, 0, AlRegexHelper.HTTPS_PROTOCOL, 0, AlRegexHelper.HTTPS_PROTOCOL.length()))) {
-            url = AlRegexHelper.HTTP_PROTOCOL + url;
-        }
-        url = getExpandedURLIfShortened(url);
-        return url;
-    }
-
-    private static String resolveURL(String url, String part) {
-        if (URLUtil.isValidUrl(part)) {
-            return part;
-        } else {
-            URI baseUri = null;
-            try {
-                baseUri = new URI(url);
-            } catch (URISyntaxException e) {
-                e.printStackTrace();
-            }
-            if (baseUri != null) {
-                baseUri = baseUri.resolve(part);
-                return baseUri.toString();
-            }
-            return null;
+        String url = AlLinkPreviewLoader.getCacheKey(message.getFirstUrl());
+        if (TextUtils.isEmpty(url)) {
+            return url;
         }
+        return getExpandedURLIfShortened(url);
     }
 }
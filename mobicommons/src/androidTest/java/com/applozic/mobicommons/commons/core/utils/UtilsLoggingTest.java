@@ -0,0 +1,62 @@
+package com.applozic.mobicommons.commons.core.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.applozic.mobicommons.ALSpecificSettings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public class UtilsLoggingTest {
+    private static final String TAG = "UtilsLoggingTest";
+
+    Context context;
+    boolean loggingEnabledForReleaseBuild;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        loggingEnabledForReleaseBuild = ALSpecificSettings.getInstance(context).isLoggingEnabledForReleaseBuild();
+        //the test apk is debuggable, log as a release build would
+        Utils.debugBuild = false;
+    }
+
+    @After
+    public void tearDown() {
+        Utils.debugBuild = null;
+        ALSpecificSettings.getInstance(context).enableLoggingForReleaseBuild(loggingEnabledForReleaseBuild);
+    }
+
+    @Test
+    public void printLog_formatsTheValueOnlyWhenLoggingIsEnabled() {
+        CountingValue value = new CountingValue();
+
+        ALSpecificSettings.getInstance(context).enableLoggingForReleaseBuild(false);
+        assertThat(Utils.isLoggingEnabled(context)).isFalse();
+        Utils.printLog(context, TAG, "Value: ", value);
+        assertThat(value.toStringCount).isEqualTo(0);
+
+        ALSpecificSettings.getInstance(context).enableLoggingForReleaseBuild(true);
+        assertThat(Utils.isLoggingEnabled(context)).isTrue();
+        Utils.printLog(context, TAG, "Value: ", value);
+        assertThat(value.toStringCount).isEqualTo(1);
+    }
+
+    private static class CountingValue {
+        int toStringCount;
+
+        @Override
+        public String toString() {
+            toStringCount++;
+            return "CountingValue";
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.applozic.mobicommons.commons.core.utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.applozic.mobicommons.ApplozicService;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Internal class.
+ *
+ * <p>Writes the text logs (see {@link com.applozic.mobicommons.ALSpecificSettings#isTextLoggingEnabled()}) to the log file on a background thread.</p>
+ *
+ * <p>{@link #log(String, String)} only stores the line in a fixed size ring buffer. A single flusher thread drains the buffer
+ * every {@link #FLUSH_INTERVAL_MILLIS} (or sooner, once it is half full), formats the lines and appends them to a writer that stays open.
+ * If the buffer fills up faster than it is written, the oldest lines are dropped and a note about them is written instead.
+ * Once the file grows past {@link #MAX_FILE_SIZE} it is moved to a single backup file and a new one is started.</p>
+ */
+public class TextLogWriter {
+    private static final String TAG = "TextLogWriter";
+    private static final int CAPACITY = 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long MAX_FILE_SIZE = 2 * 1024 * 1024;
+    private static final String BACKUP_FILE_SUFFIX = "_old";
+
+    private static TextLogWriter textLogWriter;
+
+    private final Context context;
+
+    //the ring buffer, guarded by this
+    private final long[] timestamps = new long[CAPACITY];
+    private final String[] tags = new String[CAPACITY];
+    private final String[] messages = new String[CAPACITY];
+    private int head;
+    private int size;
+    private int droppedLines;
+    private Thread flusherThread;
+
+    //the file state, guarded by writeLock. writeLock is always taken before this, never the other way around
+    private final Object writeLock = new Object();
+    private File logFile;
+    private BufferedWriter bufferedWriter;
+
+    private TextLogWriter(Context context) {
+        this.context = ApplozicService.getContext(context);
+    }
+
+    public static synchronized @NonNull TextLogWriter getInstance(@Nullable Context context) {
+        if (textLogWriter == null) {
+            textLogWriter = new TextLogWriter(context);
+        }
+        return textLogWriter;
+    }
+
+    /**
+     * Queues a line for the log file. Doesn't block on I/O.
+     */
+    public synchronized void log(@Nullable String tag, @Nullable String message) {
+        int tail = (head + size) % CAPACITY;
+        if (size == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+            droppedLines++;
+        } else {
+            size++;
+        }
+        timestamps[tail] = System.currentTimeMillis();
+        tags[tail] = tag;
+        messages[tail] = message;
+
+        if (flusherThread == null) {
+            startFlusherThread();
+        } else if (size >= CAPACITY / 2) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes all queued lines to the log file on the calling thread. Use before reading or sharing the file.
+     */
+    public void flush() {
+        drainAndWrite();
+    }
+
+    private void startFlusherThread() {
+        flusherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        synchronized (TextLogWriter.this) {
+                            while (size == 0) {
+                                TextLogWriter.this.wait();
+                            }
+                            if (size < CAPACITY / 2) {
+                                //give other lines a chance to be written in the same batch
+                                TextLogWriter.this.wait(FLUSH_INTERVAL_MILLIS);
+                            }
+                        }
+                        drainAndWrite();
+                    } catch (InterruptedException e) {
+                        drainAndWrite();
+                        return;
+                    }
+                }
+            }
+        }, TAG);
+        flusherThread.setDaemon(true);
+        flusherThread.setPriority(Thread.MIN_PRIORITY);
+        flusherThread.start();
+    }
+
+    private void drainAndWrite() {
+        synchronized (writeLock) {
+            long[] drainedTimestamps;
+            String[] drainedTags;
+            String[] drainedMessages;
+            int drainedSize;
+            int dropped;
+
+            synchronized (this) {
+                drainedSize = size;
+                dropped = droppedLines;
+                if (drainedSize == 0 && dropped == 0) {
+                    return;
+                }
+                drainedTimestamps = new long[drainedSize];
+                drainedTags = new String[drainedSize];
+                drainedMessages = new String[drainedSize];
+                for (int i = 0; i < drainedSize; i++) {
+                    int index = (head + i) % CAPACITY;
+                    drainedTimestamps[i] = timestamps[index];
+                    drainedTags[i] = tags[index];
+                    drainedMessages[i] = messages[index];
+                    tags[index] = null;
+                    messages[index] = null;
+                }
+                head = 0;
+                size = 0;
+                droppedLines = 0;
+            }
+
+            try {
+                BufferedWriter writer = getWriter();
+                if (dropped > 0) {
+                    writer.append(TAG + " : " + dropped + " log lines were dropped").append("\r\n\n");
+                }
+                for (int i = 0; i < drainedSize; i++) {
+                    writer.append(drainedTags[i])
+                            .append(" (")
+                            .append(DateUtils.getDateAndTimeInDefaultFormat(drainedTimestamps[i]))
+                            .append(") : ")
+                            .append(drainedMessages[i])
+                            .append("\r\n\n");
+                }
+                writer.flush();
+                rotateIfNeeded();
+            } catch (Exception e) {
+                e.printStackTrace();
+                closeWriter();
+            }
+        }
+    }
+
+    private BufferedWriter getWriter() throws IOException {
+        if (bufferedWriter == null) {
+            logFile = Utils.getTextLogFile(context);
+            File dir = logFile.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            bufferedWriter = new BufferedWriter(new FileWriter(logFile, true));
+        }
+        return bufferedWriter;
+    }
+
+    private void rotateIfNeeded() {
+        if (logFile == null || logFile.length() < MAX_FILE_SIZE) {
+            return;
+        }
+        closeWriter();
+        String name = logFile.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        String backupName = extensionIndex > 0 ? name.substring(0, extensionIndex) + BACKUP_FILE_SUFFIX + name.substring(extensionIndex) : name + BACKUP_FILE_SUFFIX;
+        File backupFile = new File(logFile.getParentFile(), backupName);
+        if (backupFile.exists()) {
+            backupFile.delete();
+        }
+        logFile.renameTo(backupFile);
+    }
+
+    private void closeWriter() {
+        if (bufferedWriter != null) {
+            try {
+                bufferedWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            bufferedWriter = null;
+        }
+    }
+}
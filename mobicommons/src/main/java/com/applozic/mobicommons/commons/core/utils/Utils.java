@@ -23,6 +23,7 @@ import android.view.inputmethod.InputMethodManager;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.applozic.mobicommons.ALSpecificSettings;
 import com.applozic.mobicommons.ApplozicService;
@@ -42,6 +43,9 @@ public class Utils {
 
     public static final String EMPTY_STRING = "";
 
+    @VisibleForTesting
+    static volatile Boolean debugBuild;
+
     // Prevents instantiation.
     private Utils() {
     }
@@ -202,6 +206,15 @@ public class Utils {
 
     }
 
+    /**
+     * @return true if the active network is a mobile network, or any other network the user may be paying for
+     */
+    public static boolean isActiveNetworkMetered(Context context) {
+        ConnectivityManager cm =
+                (ConnectivityManager) ApplozicService.getContext(context).getSystemService(Context.CONNECTIVITY_SERVICE);
+        return cm == null || cm.isActiveNetworkMetered();
+    }
+
     public static @Nullable String getMetaDataValue(@NonNull Context context, @Nullable String metaDataName) {
         try {
             PackageManager packageManager = ApplozicService.getContext(context).getPackageManager(); //context passes is non-null. hence no exception
@@ -321,11 +334,11 @@ public class Utils {
 
     public static void printLog(Context context, String tag, String message) {
         try {
-            if (isDebugBuild(context) || ALSpecificSettings.getInstance(context).isLoggingEnabledForReleaseBuild()) {
+            if (isLoggingEnabled(context)) {
                 Log.i(tag, message);
 
                 if (ALSpecificSettings.getInstance(context).isTextLoggingEnabled()) {
-                    writeToFile(context, tag + " (" + DateUtils.getDateAndTimeInDefaultFormat(System.currentTimeMillis()) + ") : " + message);
+                    TextLogWriter.getInstance(context).log(tag, message);
                 }
             }
         } catch (Exception e) {
@@ -333,21 +346,48 @@ public class Utils {
         }
     }
 
+    /**
+     * Logs <code>message + value</code>. The value is converted to a string and appended only when logging is enabled,
+     * so hot paths logging large objects (such as request and response bodies) don't pay for it otherwise.
+     */
+    public static void printLog(Context context, String tag, String message, Object value) {
+        if (isLoggingEnabled(context)) {
+            printLog(context, tag, message + value);
+        }
+    }
+
+    /**
+     * Checks if {@link #printLog(Context, String, String)} will log anything. Use it to skip building expensive log messages.
+     */
+    public static boolean isLoggingEnabled(Context context) {
+        try {
+            return isDebugBuild(context) || ALSpecificSettings.getInstance(context).isLoggingEnabledForReleaseBuild();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     public static boolean isDebugBuild(Context context) {
-        return (0 != (ApplozicService.getContext(context).getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE));
+        if (debugBuild == null) {
+            debugBuild = (0 != (ApplozicService.getContext(context).getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE));
+        }
+        return debugBuild;
     }
 
+    /**
+     * Writes the line to the text log file synchronously, on the calling thread.
+     * {@link #printLog(Context, String, String)} uses {@link TextLogWriter} instead.
+     */
     public static void writeToFile(Context context, String log) {
         try {
-            String fileName = "/" + ALSpecificSettings.getInstance(context).getTextLogFileName() + ".txt";
             BufferedWriter bufferedWriter = null;
             try {
-                String folder = "/" + Utils.getMetaDataValue(context, "main_folder_name");
-                File dir = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + folder);
-                if (!dir.exists()) {
+                File file = getTextLogFile(context);
+                File dir = file.getParentFile();
+                if (dir != null && !dir.exists()) {
                     dir.mkdirs();
                 }
-                File file = new File(dir, fileName);
                 if (!file.exists()) {
                     file.createNewFile();
                 }
@@ -370,12 +410,18 @@ public class Utils {
         }
     }
 
+    static File getTextLogFile(Context context) {
+        String fileName = "/" + ALSpecificSettings.getInstance(context).getTextLogFileName() + ".txt";
+        String folder = "/" + Utils.getMetaDataValue(context, "main_folder_name");
+        File dir = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + folder);
+        return new File(dir, fileName);
+    }
+
     public static Uri getTextLogFileUri(Context context) {
         try {
-            String fileName = "/" + ALSpecificSettings.getInstance(context).getTextLogFileName() + ".txt";
-            String folder = "/" + Utils.getMetaDataValue(context, "main_folder_name");
-            File dir = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + folder);
-            File textLogFile = new File(dir, fileName);
+            //lines still in the buffer should be part of the shared file
+            TextLogWriter.getInstance(context).flush();
+            File textLogFile = getTextLogFile(context);
             if (hasNougat()) {
                 return ALFileProvider.getUriForFile(ApplozicService.getContext(context), getMetaDataValue(context, "com.package.name") + ".applozic.provider", textLogFile);
             }
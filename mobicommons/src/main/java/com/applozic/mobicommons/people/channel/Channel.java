@@ -2,6 +2,8 @@ package com.applozic.mobicommons.people.channel;
 
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+
 import com.applozic.mobicommons.json.JsonMarker;
 import com.applozic.mobicommons.people.contact.Contact;
 import com.google.gson.annotations.Expose;
@@ -80,6 +82,38 @@ public class Channel extends JsonMarker {
         this.name = name;
     }
 
+    /**
+     * Copy constructor. The metadata and the member contacts are copied too, so changing the copy doesn't change the original.
+     * The {@link Conversation} proxy is shared.
+     */
+    public Channel(@NonNull Channel channel) {
+        this.metadata = channel.metadata != null ? new HashMap<>(channel.metadata) : null;
+        this.key = channel.key;
+        this.parentKey = channel.parentKey;
+        this.parentClientGroupId = channel.parentClientGroupId;
+        this.clientGroupId = channel.clientGroupId;
+        this.subGroupCount = channel.subGroupCount;
+        this.name = channel.name;
+        this.adminKey = channel.adminKey;
+        this.type = channel.type;
+        this.unreadCount = channel.unreadCount;
+        this.userCount = channel.userCount;
+        this.imageUrl = channel.imageUrl;
+        this.localImageUri = channel.localImageUri;
+        this.conversationPxy = channel.conversationPxy;
+        if (channel.contacts != null) {
+            this.contacts = new ArrayList<>(channel.contacts.size());
+            for (Contact contact : channel.contacts) {
+                this.contacts.add(contact != null ? new Contact(contact) : null);
+            }
+        } else {
+            this.contacts = null;
+        }
+        this.notificationAfterTime = channel.notificationAfterTime;
+        this.deletedAtTime = channel.deletedAtTime;
+        this.kmStatus = channel.kmStatus;
+    }
+
     /**
      * Channel id. Generated by <i>applozic</i>.
      */
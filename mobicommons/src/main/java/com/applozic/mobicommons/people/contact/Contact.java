@@ -2,6 +2,8 @@ package com.applozic.mobicommons.people.contact;
 
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+
 import com.applozic.mobicommons.json.JsonMarker;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
@@ -9,6 +11,7 @@ import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -90,6 +93,41 @@ public class Contact extends JsonMarker {
         this.userId = userId;
     }
 
+    /**
+     * Copy constructor. The lists and maps are copied too, so changing the copy doesn't change the original.
+     */
+    public Contact(@NonNull Contact contact) {
+        this.firstName = contact.firstName;
+        this.middleName = contact.middleName;
+        this.lastName = contact.lastName;
+        this.emailIds = contact.emailIds != null ? new ArrayList<>(contact.emailIds) : null;
+        this.contactNumbers = contact.contactNumbers != null ? new ArrayList<>(contact.contactNumbers) : null;
+        this.phoneNumbers = contact.phoneNumbers != null ? new HashMap<>(contact.phoneNumbers) : null;
+        this.contactNumber = contact.contactNumber;
+        this.contactId = contact.contactId;
+        this.fullName = contact.fullName;
+        this.userId = contact.userId;
+        this.imageURL = contact.imageURL;
+        this.localImageUrl = contact.localImageUrl;
+        this.emailId = contact.emailId;
+        this.applicationId = contact.applicationId;
+        this.connected = contact.connected;
+        this.lastSeenAtTime = contact.lastSeenAtTime;
+        this.checked = contact.checked;
+        this.unreadCount = contact.unreadCount;
+        this.blocked = contact.blocked;
+        this.blockedBy = contact.blockedBy;
+        this.status = contact.status;
+        this.contactType = contact.contactType;
+        this.userTypeId = contact.userTypeId;
+        this.deletedAtTime = contact.deletedAtTime;
+        this.notificationAfterTime = contact.notificationAfterTime;
+        this.lastMessageAtTime = contact.lastMessageAtTime;
+        this.metadata = contact.metadata != null ? new HashMap<>(contact.metadata) : null;
+        this.roleType = contact.roleType;
+        this.applozicType = contact.applozicType;
+    }
+
     public short getContactType() {
         return contactType;
     }
@@ -0,0 +1,26 @@
+package com.applozic.mobicommons.task;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Internal class.
+ *
+ * <p>The {@link ThreadFactory} for the SDK's background executors. The threads are daemon threads, so they never keep the process alive,
+ * and all of them get the given name, which is what shows up in thread dumps and traces.</p>
+ */
+public class AlDaemonThreadFactory implements ThreadFactory {
+    private final String name;
+
+    public AlDaemonThreadFactory(@NonNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
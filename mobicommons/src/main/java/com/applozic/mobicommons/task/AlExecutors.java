@@ -0,0 +1,49 @@
+package com.applozic.mobicommons.task;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal class.
+ *
+ * <p>Creates the executors of the SDK's background components. Most of those are process-wide singletons that only have work now and then,
+ * so their threads stop after {@link #KEEP_ALIVE_SECONDS} idle seconds and are started again for the next task.
+ * The threads are named daemon threads, see {@link AlDaemonThreadFactory}.</p>
+ */
+public class AlExecutors {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private AlExecutors() { }
+
+    /**
+     * An executor with up to the given number of threads. The tasks are started in the order they were submitted,
+     * so with one thread they run one after the other, like with {@link java.util.concurrent.Executors#newSingleThreadExecutor()}.
+     */
+    public static @NonNull ExecutorService newIdleTimeoutExecutor(@NonNull String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new AlDaemonThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * A single thread scheduled executor. Its thread stays alive while a task is scheduled,
+     * and cancelled tasks are dropped from the queue right away (on API 21 and above), so they don't keep it alive.
+     */
+    public static @NonNull ScheduledExecutorService newIdleTimeoutScheduledExecutor(@NonNull String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new AlDaemonThreadFactory(name));
+        executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+}